@@ -0,0 +1,103 @@
+package com.davajava.migrator.benchmark;
+
+import com.davajava.migrator.core.MigrationCommand;
+import com.davajava.migrator.core.MigrationException;
+import com.davajava.migrator.core.MigrationResult;
+import com.davajava.migrator.core.MigrationService;
+import com.davajava.migrator.core.SourceLanguage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * End-to-end migration of a generated source tree: discovery, parsing,
+ * translation and writing, in each execution mode. Every file is parsed and
+ * translated each time. Only languages with a registered parser take part.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MigrationServiceBenchmark {
+    private static final int DIRECTORIES = 8;
+    private static final int FILES_PER_DIRECTORY = 16;
+
+    // Held so the level set in setUp is not lost to garbage collection
+    private static final Logger MIGRATOR_LOGGER = Logger.getLogger("com.davajava.migrator");
+
+    @Param({"RUST", "C", "CPP", "PYTHON", "CSHARP"})
+    public SourceLanguage language;
+
+    @Param({"MEDIUM"})
+    public SyntheticSources.Size size;
+
+    @Param({"SEQUENTIAL", "PARALLEL", "PIPELINED"})
+    public MigrationService.ExecutionMode mode;
+
+    private Path inputRoot;
+    private Path outputRoot;
+    private MigrationService service;
+    private MigrationCommand command;
+
+    @Setup
+    public void setUp() throws IOException {
+        MIGRATOR_LOGGER.setLevel(Level.WARNING);
+
+        inputRoot = Files.createTempDirectory("polytype-bench-in");
+        outputRoot = Files.createTempDirectory("polytype-bench-out");
+        String source = SyntheticSources.generate(language, size);
+        for (int d = 0; d < DIRECTORIES; d++) {
+            Path directory = Files.createDirectories(inputRoot.resolve("module" + d));
+            for (int f = 0; f < FILES_PER_DIRECTORY; f++) {
+                Path file = directory.resolve("unit_" + d + "_" + f + language.getFileExtension());
+                Files.write(file, source.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        // Without a translation cache, as every file and every iteration would otherwise be a cache hit
+        service = new MigrationService(mode, Runtime.getRuntime().availableProcessors(), null);
+        command = new MigrationCommand(inputRoot.toString(), outputRoot.toString(), language,
+                                       true, "com.benchmark", true, false);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        deleteRecursively(inputRoot);
+        deleteRecursively(outputRoot);
+    }
+
+    @Benchmark
+    public MigrationResult migrate() throws MigrationException {
+        return service.migrate(command);
+    }
+
+    private static void deleteRecursively(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
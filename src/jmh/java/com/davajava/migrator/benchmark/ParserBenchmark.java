@@ -0,0 +1,51 @@
+package com.davajava.migrator.benchmark;
+
+import com.davajava.migrator.core.ParseException;
+import com.davajava.migrator.core.Parser;
+import com.davajava.migrator.core.SourceLanguage;
+import com.davajava.migrator.core.ast.ASTNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to parse one synthetic file, per language and size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Param({"RUST", "C", "CPP", "PYTHON", "CSHARP", "KOTLIN", "SCALA", "JAVASCRIPT", "GO", "SWIFT"})
+    public SourceLanguage language;
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public SyntheticSources.Size size;
+
+    private Parser parser;
+    private String source;
+
+    @Setup
+    public void setUp() {
+        parser = SyntheticSources.parserFor(language);
+        source = SyntheticSources.generate(language, size);
+    }
+
+    @Benchmark
+    public ASTNode parse() throws ParseException {
+        return parser.parse(source);
+    }
+}
@@ -0,0 +1,232 @@
+package com.davajava.migrator.benchmark;
+
+import com.davajava.migrator.core.Parser;
+import com.davajava.migrator.core.SourceLanguage;
+import com.davajava.migrator.core.Translator;
+import com.davajava.migrator.parser.c.CParser;
+import com.davajava.migrator.parser.cpp.CppParser;
+import com.davajava.migrator.parser.csharp.CSharpParser;
+import com.davajava.migrator.parser.go.GoParser;
+import com.davajava.migrator.parser.javascript.JavaScriptParser;
+import com.davajava.migrator.parser.kotlin.KotlinParser;
+import com.davajava.migrator.parser.python.PythonParser;
+import com.davajava.migrator.parser.rust.RustParser;
+import com.davajava.migrator.parser.scala.ScalaParser;
+import com.davajava.migrator.parser.swift.SwiftParser;
+import com.davajava.migrator.translator.c.CToJavaTranslator;
+import com.davajava.migrator.translator.cpp.CppToJavaTranslator;
+import com.davajava.migrator.translator.csharp.CSharpToJavaTranslator;
+import com.davajava.migrator.translator.go.GoToJavaTranslator;
+import com.davajava.migrator.translator.javascript.JavaScriptToJavaTranslator;
+import com.davajava.migrator.translator.kotlin.KotlinToJavaTranslator;
+import com.davajava.migrator.translator.python.PythonToJavaTranslator;
+import com.davajava.migrator.translator.rust.RustToJavaTranslator;
+import com.davajava.migrator.translator.scala.ScalaToJavaTranslator;
+import com.davajava.migrator.translator.swift.SwiftToJavaTranslator;
+
+/**
+ * Generates deterministic source files for the benchmarks. Each file is a
+ * run of numbered units, where a unit is a type with a few fields and
+ * methods plus a free function, written in the idioms the parser for that
+ * language recognises. Crystal is left out; its parser is a stub.
+ */
+public final class SyntheticSources {
+
+    public enum Size {
+        SMALL(4),
+        MEDIUM(64),
+        HUGE(1024);
+
+        final int units;
+
+        Size(int units) {
+            this.units = units;
+        }
+    }
+
+    private SyntheticSources() {
+    }
+
+    public static String generate(SourceLanguage language, Size size) {
+        StringBuilder source = new StringBuilder(size.units * 512);
+        for (int i = 0; i < size.units; i++) {
+            appendUnit(source, language, i);
+        }
+        return source.toString();
+    }
+
+    public static Parser parserFor(SourceLanguage language) {
+        switch (language) {
+            case RUST: return new RustParser();
+            case C: return new CParser();
+            case CPP: return new CppParser();
+            case PYTHON: return new PythonParser();
+            case CSHARP: return new CSharpParser();
+            case KOTLIN: return new KotlinParser();
+            case SCALA: return new ScalaParser();
+            case JAVASCRIPT: return new JavaScriptParser();
+            case GO: return new GoParser();
+            case SWIFT: return new SwiftParser();
+            default: throw new IllegalArgumentException("No benchmark parser for " + language);
+        }
+    }
+
+    public static Translator translatorFor(SourceLanguage language) {
+        switch (language) {
+            case RUST: return new RustToJavaTranslator();
+            case C: return new CToJavaTranslator();
+            case CPP: return new CppToJavaTranslator();
+            case PYTHON: return new PythonToJavaTranslator();
+            case CSHARP: return new CSharpToJavaTranslator();
+            case KOTLIN: return new KotlinToJavaTranslator();
+            case SCALA: return new ScalaToJavaTranslator();
+            case JAVASCRIPT: return new JavaScriptToJavaTranslator();
+            case GO: return new GoToJavaTranslator();
+            case SWIFT: return new SwiftToJavaTranslator();
+            default: throw new IllegalArgumentException("No benchmark translator for " + language);
+        }
+    }
+
+    private static void appendUnit(StringBuilder out, SourceLanguage language, int n) {
+        switch (language) {
+            case RUST:
+                out.append("pub struct Point").append(n).append(" {\n")
+                   .append("    pub x: i32,\n")
+                   .append("    pub y: i32,\n")
+                   .append("    label: String,\n")
+                   .append("}\n\n")
+                   .append("pub fn distance").append(n).append("(a: i32, b: i32) -> i32 {\n")
+                   .append("    let dx = a - b;\n")
+                   .append("    if dx < 0 { -dx } else { dx }\n")
+                   .append("}\n\n");
+                break;
+            case C:
+                out.append("struct Point").append(n).append(" {\n")
+                   .append("    int x;\n")
+                   .append("    int y;\n")
+                   .append("    char* label;\n")
+                   .append("};\n\n")
+                   .append("int distance").append(n).append("(int a, int b) {\n")
+                   .append("    int dx = a - b;\n")
+                   .append("    return dx < 0 ? -dx : dx;\n")
+                   .append("}\n\n");
+                break;
+            case CPP:
+                out.append("class Point").append(n).append(" {\n")
+                   .append("public:\n")
+                   .append("    int x;\n")
+                   .append("    int y;\n")
+                   .append("    int getX() { return x; }\n")
+                   .append("    void setX(int value) { x = value; }\n")
+                   .append("private:\n")
+                   .append("    std::string label;\n")
+                   .append("};\n\n")
+                   .append("int distance").append(n).append("(int a, int b) {\n")
+                   .append("    int dx = a - b;\n")
+                   .append("    return dx < 0 ? -dx : dx;\n")
+                   .append("}\n\n");
+                break;
+            case PYTHON:
+                out.append("class Point").append(n).append(":\n")
+                   .append("    def __init__(self, x, y):\n")
+                   .append("        self.x = x\n")
+                   .append("        self.y = y\n")
+                   .append("\n")
+                   .append("    def length(self):\n")
+                   .append("        return self.x * self.x + self.y * self.y\n")
+                   .append("\n")
+                   .append("def distance").append(n).append("(a: int, b: int) -> int:\n")
+                   .append("    dx = a - b\n")
+                   .append("    return abs(dx)\n")
+                   .append("\n");
+                break;
+            case CSHARP:
+                out.append("public class Point").append(n).append("\n{\n")
+                   .append("    public int X { get; set; }\n")
+                   .append("    private string label;\n")
+                   .append("    public int Distance(int a, int b)\n")
+                   .append("    {\n")
+                   .append("        int dx = a - b;\n")
+                   .append("        return dx < 0 ? -dx : dx;\n")
+                   .append("    }\n")
+                   .append("}\n\n");
+                break;
+            case KOTLIN:
+                out.append("data class Point").append(n).append("(val x: Int, val y: Int)\n\n")
+                   .append("class Shape").append(n).append(" {\n")
+                   .append("    var name: String = \"shape\"\n")
+                   .append("    fun area(width: Int, height: Int): Int {\n")
+                   .append("        return width * height\n")
+                   .append("    }\n")
+                   .append("}\n\n")
+                   .append("fun distance").append(n).append("(a: Int, b: Int): Int {\n")
+                   .append("    val dx = a - b\n")
+                   .append("    return if (dx < 0) -dx else dx\n")
+                   .append("}\n\n");
+                break;
+            case SCALA:
+                out.append("case class Point").append(n).append("(x: Int, y: Int)\n\n")
+                   .append("class Shape").append(n).append(" {\n")
+                   .append("  var name: String = \"shape\"\n")
+                   .append("  def area(width: Int, height: Int): Int = {\n")
+                   .append("    width * height\n")
+                   .append("  }\n")
+                   .append("}\n\n")
+                   .append("object Util").append(n).append(" {\n")
+                   .append("  def distance(a: Int, b: Int): Int = {\n")
+                   .append("    math.abs(a - b)\n")
+                   .append("  }\n")
+                   .append("}\n\n");
+                break;
+            case JAVASCRIPT:
+                out.append("class Point").append(n).append(" {\n")
+                   .append("    constructor(x, y) {\n")
+                   .append("        this.x = x;\n")
+                   .append("        this.y = y;\n")
+                   .append("    }\n")
+                   .append("    length() {\n")
+                   .append("        return this.x * this.x + this.y * this.y;\n")
+                   .append("    }\n")
+                   .append("}\n\n")
+                   .append("function distance").append(n).append("(a, b) {\n")
+                   .append("    const dx = a - b;\n")
+                   .append("    return Math.abs(dx);\n")
+                   .append("}\n\n");
+                break;
+            case GO:
+                out.append("type Point").append(n).append(" struct {\n")
+                   .append("    X int\n")
+                   .append("    Y int\n")
+                   .append("    label string\n")
+                   .append("}\n\n")
+                   .append("func (p *Point").append(n).append(") Length() int {\n")
+                   .append("    return p.X*p.X + p.Y*p.Y\n")
+                   .append("}\n\n")
+                   .append("func Distance").append(n).append("(a int, b int) int {\n")
+                   .append("    dx := a - b\n")
+                   .append("    if dx < 0 {\n")
+                   .append("        return -dx\n")
+                   .append("    }\n")
+                   .append("    return dx\n")
+                   .append("}\n\n");
+                break;
+            case SWIFT:
+                out.append("struct Point").append(n).append(" {\n")
+                   .append("    var x: Int\n")
+                   .append("    var y: Int\n")
+                   .append("}\n\n")
+                   .append("class Shape").append(n).append(" {\n")
+                   .append("    var name: String = \"shape\"\n")
+                   .append("    func area(width: Int, height: Int) -> Int {\n")
+                   .append("        return width * height\n")
+                   .append("    }\n")
+                   .append("}\n\n")
+                   .append("func distance").append(n).append("(a: Int, b: Int) -> Int {\n")
+                   .append("    return abs(a - b)\n")
+                   .append("}\n\n");
+                break;
+            default:
+                throw new IllegalArgumentException("No synthetic source for " + language);
+        }
+    }
+}
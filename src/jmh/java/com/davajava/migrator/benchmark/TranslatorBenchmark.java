@@ -0,0 +1,64 @@
+package com.davajava.migrator.benchmark;
+
+import com.davajava.migrator.core.ParseException;
+import com.davajava.migrator.core.SourceLanguage;
+import com.davajava.migrator.core.TranslationException;
+import com.davajava.migrator.core.TranslationOptions;
+import com.davajava.migrator.core.Translator;
+import com.davajava.migrator.core.ast.ASTNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for a translator and its visitor to turn an already parsed AST into
+ * Java, both as one string and streamed into a sink.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TranslatorBenchmark {
+
+    @Param({"RUST", "C", "CPP", "PYTHON", "CSHARP", "KOTLIN", "SCALA", "JAVASCRIPT", "GO", "SWIFT"})
+    public SourceLanguage language;
+
+    @Param({"SMALL", "MEDIUM", "HUGE"})
+    public SyntheticSources.Size size;
+
+    private Translator translator;
+    private TranslationOptions options;
+    private ASTNode ast;
+    private final Writer sink = Writer.nullWriter();
+
+    @Setup
+    public void setUp() throws ParseException {
+        translator = SyntheticSources.translatorFor(language);
+        options = translator.getDefaultOptions();
+        ast = SyntheticSources.parserFor(language).parse(SyntheticSources.generate(language, size));
+    }
+
+    @Benchmark
+    public String translate() throws TranslationException {
+        return translator.translate(ast, options);
+    }
+
+    @Benchmark
+    public void translateStreaming() throws TranslationException, IOException {
+        translator.translate(ast, options, sink);
+    }
+}
@@ -15,6 +15,7 @@ public class Main {
                 System.out.println("Usage: java -jar davajava-migrator.jar [OPTIONS] <input> <output> <language>");
                 System.out.println("Options:");
                 System.out.println("  -r, --recursive    Process directories recursively");
+                System.out.println("  -i, --incremental  Skip files unchanged since the last run into the same output");
                 System.out.println("Arguments:");
                 System.out.println("  <input>            Input file or directory");
                 System.out.println("  <output>           Output directory");
@@ -28,6 +29,7 @@ public class Main {
 
             // Parse arguments
             boolean recursive = false;
+            boolean incremental = false;
             int argIndex = 0;
             
             // Check for flags
@@ -35,6 +37,8 @@ public class Main {
                 String flag = args[argIndex];
                 if ("-r".equals(flag) || "--recursive".equals(flag)) {
                     recursive = true;
+                } else if ("-i".equals(flag) || "--incremental".equals(flag)) {
+                    incremental = true;
                 } else {
                     System.err.println("Unknown option: " + flag);
                     System.exit(1);
@@ -97,7 +101,7 @@ public class Main {
                     return;
             }
 
-            MigrationCommand command = new MigrationCommand(inputPath, outputPath, language, recursive, "com.migrated", true, false);
+            MigrationCommand command = new MigrationCommand(inputPath, outputPath, language, recursive, "com.migrated", true, false, incremental);
             MigrationService migrationService = new MigrationService();
             
             logger.info("Starting DavaJava migration...");
@@ -0,0 +1,144 @@
+package com.davajava.migrator.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Derives a version string for a class from the code it was built from, so
+ * results recorded against one build are never mistaken for another's.
+ *
+ * <p>When the class was loaded from a jar, the identity is a hash of the whole
+ * jar. When it was loaded from a class directory, as in development and
+ * tests, it is a hash of every class file in its package directory, which
+ * covers the class together with the helpers and visitors next to it.
+ */
+public final class BuildIdentity {
+    private static final Logger logger = Logger.getLogger(BuildIdentity.class.getName());
+
+    private static final int HASH_CHARS = 16;
+
+    private static final ClassValue<String> IDENTITIES = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            return compute(type);
+        }
+    };
+
+    private static final Map<Path, String> ARCHIVE_HASHES = new ConcurrentHashMap<>();
+
+    private BuildIdentity() {
+    }
+
+    /**
+     * Returns a short hex hash identifying the build the class came from.
+     */
+    public static String of(Class<?> type) {
+        return IDENTITIES.get(type);
+    }
+
+    private static String compute(Class<?> type) {
+        try {
+            Path location = codeLocation(type);
+            if (location != null && Files.isRegularFile(location)) {
+                return ARCHIVE_HASHES.computeIfAbsent(location, BuildIdentity::hashArchive);
+            }
+            if (location != null && Files.isDirectory(location)) {
+                return hashPackageDirectory(location, type);
+            }
+            return hashClassFile(type);
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Could not hash the build of " + type.getName() + ": " + e.getMessage());
+            Package pkg = type.getPackage();
+            String implementationVersion = pkg != null ? pkg.getImplementationVersion() : null;
+            return implementationVersion != null ? implementationVersion : "unknown";
+        }
+    }
+
+    private static Path codeLocation(Class<?> type) {
+        CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+        URL url = codeSource != null ? codeSource.getLocation() : null;
+        if (url == null || !"file".equals(url.getProtocol())) {
+            return null;
+        }
+        try {
+            return Paths.get(url.toURI());
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private static String hashArchive(Path archive) {
+        try (InputStream in = Files.newInputStream(archive)) {
+            MessageDigest md = newDigest();
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                md.update(buffer, 0, read);
+            }
+            return hex(md.digest());
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read " + archive, e);
+        }
+    }
+
+    private static String hashPackageDirectory(Path root, Class<?> type) throws IOException {
+        String packageName = type.getPackageName();
+        Path directory = packageName.isEmpty() ? root : root.resolve(packageName.replace('.', '/'));
+
+        List<Path> classFiles;
+        try (Stream<Path> files = Files.list(directory)) {
+            classFiles = files.filter(file -> file.getFileName().toString().endsWith(".class"))
+                              .sorted()
+                              .collect(Collectors.toList());
+        }
+
+        MessageDigest md = newDigest();
+        for (Path classFile : classFiles) {
+            md.update(classFile.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+            md.update(Files.readAllBytes(classFile));
+        }
+        return hex(md.digest());
+    }
+
+    private static String hashClassFile(Class<?> type) throws IOException {
+        String resource = type.getName().substring(type.getName().lastIndexOf('.') + 1) + ".class";
+        try (InputStream in = type.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IOException("class file not found: " + resource);
+            }
+            return hex(newDigest().digest(in.readAllBytes()));
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String hex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(HASH_CHARS);
+        for (int i = 0; i < HASH_CHARS / 2; i++) {
+            sb.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(digest[i] & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
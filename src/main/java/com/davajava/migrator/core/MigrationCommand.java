@@ -10,6 +10,7 @@ public class MigrationCommand {
     private final String packageName;
     private final boolean preserveComments;
     private final boolean generateJavaDoc;
+    private final boolean incremental;
 
     public MigrationCommand(String inputPath, String outputPath, SourceLanguage language) {
         this(inputPath, outputPath, language, false, "com.migrated", true, false);
@@ -17,6 +18,12 @@ public class MigrationCommand {
 
     public MigrationCommand(String inputPath, String outputPath, SourceLanguage language, 
                           boolean recursive, String packageName, boolean preserveComments, boolean generateJavaDoc) {
+        this(inputPath, outputPath, language, recursive, packageName, preserveComments, generateJavaDoc, false);
+    }
+
+    public MigrationCommand(String inputPath, String outputPath, SourceLanguage language, 
+                          boolean recursive, String packageName, boolean preserveComments, boolean generateJavaDoc,
+                          boolean incremental) {
         this.inputPath = inputPath;
         this.outputPath = outputPath;
         this.language = language;
@@ -24,6 +31,7 @@ public class MigrationCommand {
         this.packageName = packageName;
         this.preserveComments = preserveComments;
         this.generateJavaDoc = generateJavaDoc;
+        this.incremental = incremental;
     }
 
     public String getInputPath() { return inputPath; }
@@ -34,6 +42,7 @@ public class MigrationCommand {
     public String getPackageName() { return packageName; }
     public boolean isPreserveComments() { return preserveComments; }
     public boolean isGenerateJavaDoc() { return generateJavaDoc; }
+    public boolean isIncremental() { return incremental; }
     
     public File getInputFile() { return new File(inputPath); }
     public File getOutputDir() { return new File(outputPath); }
@@ -1,11 +1,28 @@
 package com.davajava.migrator.core;
 
 public class MigrationException extends Exception {
+    private final MigrationResult result;
+
     public MigrationException(String message) {
         super(message);
+        this.result = null;
     }
 
     public MigrationException(String message, Throwable cause) {
         super(message, cause);
+        this.result = null;
+    }
+
+    public MigrationException(String message, Throwable cause, MigrationResult result) {
+        super(message, cause);
+        this.result = result;
+    }
+
+    /**
+     * Per-file results of the run that failed, or null when the failure
+     * happened before any file was processed.
+     */
+    public MigrationResult getResult() {
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,271 @@
+package com.davajava.migrator.core;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Record of previously migrated files, kept in the output directory so that
+ * incremental runs can skip sources whose content, translator and options
+ * have not changed.
+ *
+ * <p>The manifest is a snapshot file plus an append-only journal. Every file
+ * migrated during a run is appended to the journal as soon as its output is
+ * written, so a run that is interrupted can resume from the last completed
+ * file. {@link #commit(Set)} folds the journal into a new snapshot that
+ * atomically replaces the old one. Journal appends and the snapshot are
+ * forced to disk before they count as committed.
+ */
+public class MigrationManifest {
+    private static final Logger logger = Logger.getLogger(MigrationManifest.class.getName());
+
+    public static final String MANIFEST_FILE_NAME = ".davajava-manifest";
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String FORMAT_HEADER = "# davajava-manifest v1";
+    private static final int FIELD_COUNT = 6;
+
+    public static class Entry {
+        private final String sourcePath;
+        private final String sourceHash;
+        private final String translatorVersion;
+        private final String optionsFingerprint;
+        private final String outputPath;
+        private final String outputHash;
+
+        public Entry(String sourcePath, String sourceHash, String translatorVersion,
+                     String optionsFingerprint, String outputPath, String outputHash) {
+            this.sourcePath = sourcePath;
+            this.sourceHash = sourceHash;
+            this.translatorVersion = translatorVersion;
+            this.optionsFingerprint = optionsFingerprint;
+            this.outputPath = outputPath;
+            this.outputHash = outputHash;
+        }
+
+        public String getSourcePath() { return sourcePath; }
+        public String getSourceHash() { return sourceHash; }
+        public String getTranslatorVersion() { return translatorVersion; }
+        public String getOptionsFingerprint() { return optionsFingerprint; }
+        public String getOutputPath() { return outputPath; }
+        public String getOutputHash() { return outputHash; }
+
+        private String toLine() {
+            return String.join("\t", sourcePath, sourceHash, translatorVersion,
+                               optionsFingerprint, outputPath, outputHash);
+        }
+
+        private static Entry fromLine(String line) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != FIELD_COUNT) {
+                return null;
+            }
+            for (String field : fields) {
+                if (field.isEmpty()) {
+                    return null;
+                }
+            }
+            return new Entry(fields[0], fields[1], fields[2], fields[3], fields[4], fields[5]);
+        }
+    }
+
+    private final Path manifestPath;
+    private final Path journalPath;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private FileChannel journal;
+
+    private MigrationManifest(Path outputDirectory) {
+        this.manifestPath = outputDirectory.resolve(MANIFEST_FILE_NAME);
+        this.journalPath = outputDirectory.resolve(MANIFEST_FILE_NAME + JOURNAL_SUFFIX);
+    }
+
+    /**
+     * Loads the manifest for an output directory, replaying any journal left
+     * behind by an interrupted run.
+     */
+    public static MigrationManifest load(Path outputDirectory) throws IOException {
+        MigrationManifest manifest = new MigrationManifest(outputDirectory);
+        int loaded = manifest.readEntries(manifest.manifestPath);
+        int replayed = manifest.readEntries(manifest.journalPath);
+
+        if (replayed > 0) {
+            logger.info("Resuming from interrupted run: replayed " + replayed + " journal entries");
+        }
+        logger.fine("Loaded " + loaded + " manifest entries from " + manifest.manifestPath);
+        return manifest;
+    }
+
+    private int readEntries(Path path) throws IOException {
+        if (!Files.isRegularFile(path)) {
+            return 0;
+        }
+
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                // A torn final line from a crash simply fails to parse and is dropped
+                Entry entry = Entry.fromLine(line);
+                if (entry != null) {
+                    entries.put(entry.getSourcePath(), entry);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public Entry get(String sourcePath) {
+        return entries.get(sourcePath);
+    }
+
+    public Collection<Entry> getEntries() {
+        return entries.values();
+    }
+
+    /**
+     * Returns true when the recorded entry still describes the current source
+     * and the output on disk is exactly what was last written for it.
+     */
+    public boolean isUpToDate(String sourcePath, String sourceHash, String translatorVersion,
+                              String optionsFingerprint, Path outputPath) throws IOException {
+        Entry entry = entries.get(sourcePath);
+        if (entry == null
+                || !entry.getSourceHash().equals(sourceHash)
+                || !entry.getTranslatorVersion().equals(translatorVersion)
+                || !entry.getOptionsFingerprint().equals(optionsFingerprint)
+                || !entry.getOutputPath().equals(outputPath.toString())
+                || !Files.isRegularFile(outputPath)) {
+            return false;
+        }
+
+        return entry.getOutputHash().equals(hash(Files.readAllBytes(outputPath)));
+    }
+
+    /**
+     * Records a completed file and appends it to the journal immediately.
+     */
+    public synchronized void record(Entry entry) throws IOException {
+        entries.put(entry.getSourcePath(), entry);
+
+        if (journal == null) {
+            journal = FileChannel.open(journalPath,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+        ByteBuffer line = ByteBuffer.wrap((entry.toLine() + "\n").getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            journal.write(line);
+        }
+        // The file only counts as completed once its journal line survives a crash
+        journal.force(false);
+    }
+
+    /**
+     * Writes a new snapshot containing the given sources and discards the
+     * journal. Entries for sources that no longer exist are dropped.
+     */
+    public synchronized void commit(Set<String> liveSourcePaths) throws IOException {
+        closeJournal();
+        entries.keySet().retainAll(liveSourcePaths);
+
+        Path tempPath = manifestPath.resolveSibling(MANIFEST_FILE_NAME + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE,
+                 StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+             OutputStream os = Channels.newOutputStream(channel)) {
+
+            StringBuilder content = new StringBuilder();
+            content.append(FORMAT_HEADER).append('\n');
+            for (Entry entry : entries.values()) {
+                content.append(entry.toLine()).append('\n');
+            }
+            os.write(content.toString().getBytes(StandardCharsets.UTF_8));
+            os.flush();
+            channel.force(true);
+        }
+
+        try {
+            Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        forceDirectory(manifestPath.getParent());
+        Files.deleteIfExists(journalPath);
+
+        logger.fine("Committed " + entries.size() + " manifest entries to " + manifestPath);
+    }
+
+    /**
+     * Closes the journal without writing a snapshot, leaving it to be
+     * replayed by the next run.
+     */
+    public synchronized void close() throws IOException {
+        closeJournal();
+    }
+
+    private void closeJournal() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
+    }
+
+    /**
+     * Makes the rename of the snapshot durable. Not every platform can open a
+     * directory for syncing, in which case the rename is left to the OS.
+     */
+    private static void forceDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.fine("Could not sync directory " + directory + ": " + e.getMessage());
+        }
+    }
+
+    public static String hash(byte[] content) {
+        return toHex(newDigest().digest(content));
+    }
+
+    /** The digest behind {@link #hash(byte[])}, for content that is hashed as it streams past. */
+    static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /** Formats a finished {@link #newDigest()} the way {@link #hash(byte[])} does. */
+    static String hash(MessageDigest digest) {
+        return toHex(digest.digest());
+    }
+
+    private static String toHex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
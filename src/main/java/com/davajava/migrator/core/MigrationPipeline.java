@@ -0,0 +1,353 @@
+package com.davajava.migrator.core;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Streaming migration that overlaps file discovery, disk reads, translation
+ * and writes. Stages are connected by bounded queues, so a slow stage holds
+ * back the stages before it instead of letting work pile up in memory, and
+ * the first output is written while discovery is still walking the tree.
+ *
+ * <pre>
+ *   discover --&gt; read (N threads) --&gt; translate (M threads) --&gt; write (1 thread)
+ * </pre>
+ */
+public class MigrationPipeline {
+    private static final Logger logger = Logger.getLogger(MigrationPipeline.class.getName());
+
+    private static final int DISCOVERY_QUEUE_CAPACITY = 1024;
+
+    /**
+     * Live counters for one stage. Queue depth is the backlog waiting for
+     * this stage; a stage with a full input queue and high utilization is the
+     * bottleneck.
+     */
+    public static class StageStats {
+        private final String name;
+        private final int threadCount;
+        private final BlockingQueue<?> inputQueue;
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong busyNanos = new AtomicLong();
+        private final long startNanos;
+        private volatile long endNanos;
+
+        StageStats(String name, int threadCount, BlockingQueue<?> inputQueue, long startNanos) {
+            this.name = name;
+            this.threadCount = threadCount;
+            this.inputQueue = inputQueue;
+            this.startNanos = startNanos;
+        }
+
+        void record(long nanos) {
+            processed.incrementAndGet();
+            busyNanos.addAndGet(nanos);
+        }
+
+        void finish() {
+            endNanos = System.nanoTime();
+        }
+
+        public String getName() { return name; }
+        public int getThreadCount() { return threadCount; }
+        public long getProcessedCount() { return processed.get(); }
+
+        public int getQueueDepth() {
+            return inputQueue != null ? inputQueue.size() : 0;
+        }
+
+        public int getQueueCapacity() {
+            return inputQueue != null ? inputQueue.size() + inputQueue.remainingCapacity() : 0;
+        }
+
+        public long getElapsedNanos() {
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            return Math.max(1, end - startNanos);
+        }
+
+        /** Items completed per second since the pipeline started. */
+        public double getThroughput() {
+            return processed.get() * 1_000_000_000.0 / getElapsedNanos();
+        }
+
+        /** Fraction of this stage's thread time spent working rather than waiting on queues. */
+        public double getUtilization() {
+            return Math.min(1.0, busyNanos.get() / ((double) getElapsedNanos() * threadCount));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d items, %.1f/s, %.0f%% busy, queue %d/%d",
+                                 name, getProcessedCount(), getThroughput(), getUtilization() * 100,
+                                 getQueueDepth(), getQueueCapacity());
+        }
+    }
+
+    interface Translation {
+        TranslatedFile translate(File file, SourceContent source) throws Exception;
+    }
+
+    interface Output {
+        MigrationResult.Status write(TranslatedFile translated) throws Exception;
+    }
+
+    private interface StageWork {
+        /** Returns false when the item failed and must not be passed on. */
+        boolean process(WorkItem item);
+    }
+
+    private static class WorkItem {
+        private final long sequence;
+        private final File file;
+        private SourceContent source;
+        private TranslatedFile translated;
+        private long startMillis;
+
+        WorkItem(long sequence, File file) {
+            this.sequence = sequence;
+            this.file = file;
+        }
+    }
+
+    private static final WorkItem END_OF_STREAM = new WorkItem(-1, null);
+
+    private final int readerThreads;
+    private final int workerThreads;
+    private final Translation translation;
+    private final Output output;
+
+    private final BlockingQueue<WorkItem> discovered;
+    private final BlockingQueue<WorkItem> read;
+    private final BlockingQueue<WorkItem> translated;
+    private final List<StageStats> stageStats = new ArrayList<>();
+
+    private final List<File> discoveredFiles = Collections.synchronizedList(new ArrayList<>());
+    private final Map<Long, MigrationResult.FileResult> results = new ConcurrentHashMap<>();
+    // Sequence of the newest file written to each output path, so that among
+    // files sharing an output name the last discovered wins as in a sequential run
+    private final Map<Path, Long> latestWrite = new ConcurrentHashMap<>();
+
+    MigrationPipeline(int readerThreads, int workerThreads, int queueCapacity,
+                      Translation translation, Output output) {
+        this.readerThreads = readerThreads;
+        this.workerThreads = workerThreads;
+        this.translation = translation;
+        this.output = output;
+        this.discovered = new ArrayBlockingQueue<>(DISCOVERY_QUEUE_CAPACITY);
+        this.read = new ArrayBlockingQueue<>(queueCapacity);
+        this.translated = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public List<StageStats> getStageStats() {
+        synchronized (stageStats) {
+            return new ArrayList<>(stageStats);
+        }
+    }
+
+    /**
+     * Files found by the discovery stage, in discovery order. Complete once
+     * {@link #run} has returned.
+     */
+    List<File> getDiscoveredFiles() {
+        return discoveredFiles;
+    }
+
+    MigrationResult run(Callable<Stream<File>> discovery, long startTime) throws MigrationException {
+        long startNanos = System.nanoTime();
+        StageStats discoverStats = new StageStats("discover", 1, null, startNanos);
+        StageStats readStats = new StageStats("read", readerThreads, discovered, startNanos);
+        StageStats translateStats = new StageStats("translate", workerThreads, read, startNanos);
+        StageStats writeStats = new StageStats("write", 1, translated, startNanos);
+        synchronized (stageStats) {
+            stageStats.add(discoverStats);
+            stageStats.add(readStats);
+            stageStats.add(translateStats);
+            stageStats.add(writeStats);
+        }
+
+        AtomicInteger activeReaders = new AtomicInteger(readerThreads);
+        AtomicInteger activeWorkers = new AtomicInteger(workerThreads);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2 + readerThreads + workerThreads, r -> {
+            Thread t = new Thread(r, "MigrationPipeline-" + threadNumber.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+        int taskCount = 0;
+
+        completion.submit(() -> discover(discovery, discoverStats));
+        taskCount++;
+        for (int i = 0; i < readerThreads; i++) {
+            completion.submit(() -> runStage(readStats, discovered, read, activeReaders, workerThreads, this::readSource));
+            taskCount++;
+        }
+        for (int i = 0; i < workerThreads; i++) {
+            completion.submit(() -> runStage(translateStats, read, translated, activeWorkers, 1, this::translate));
+            taskCount++;
+        }
+        completion.submit(() -> runStage(writeStats, translated, null, new AtomicInteger(1), 0, this::write));
+        taskCount++;
+
+        try {
+            // Wait in completion order so that a failing stage is noticed before
+            // the stages blocked behind it
+            for (int i = 0; i < taskCount; i++) {
+                completion.take().get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Migration interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw new MigrationException("Migration pipeline failed: " + cause.getMessage(), cause,
+                                         buildResult(startTime));
+        } finally {
+            executor.shutdownNow();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return buildResult(startTime);
+    }
+
+    private Void discover(Callable<Stream<File>> discovery, StageStats stats) throws Exception {
+        try (Stream<File> files = discovery.call()) {
+            Iterator<File> iterator = files.iterator();
+            long sequence = 0;
+            while (true) {
+                long begin = System.nanoTime();
+                if (!iterator.hasNext()) {
+                    break;
+                }
+                File file = iterator.next();
+                stats.record(System.nanoTime() - begin);
+
+                discoveredFiles.add(file);
+                discovered.put(new WorkItem(sequence++, file));
+            }
+        } finally {
+            stats.finish();
+            for (int i = 0; i < readerThreads; i++) {
+                discovered.put(END_OF_STREAM);
+            }
+        }
+        return null;
+    }
+
+    private Void runStage(StageStats stats, BlockingQueue<WorkItem> input, BlockingQueue<WorkItem> next,
+                          AtomicInteger activeThreads, int downstreamThreads, StageWork work)
+            throws InterruptedException {
+        try {
+            while (true) {
+                WorkItem item = input.take();
+                if (item == END_OF_STREAM) {
+                    break;
+                }
+
+                long begin = System.nanoTime();
+                boolean passOn = work.process(item);
+                stats.record(System.nanoTime() - begin);
+
+                if (passOn && next != null) {
+                    next.put(item);
+                }
+            }
+        } finally {
+            // The last thread of a stage to finish closes the stream for the next stage
+            if (activeThreads.decrementAndGet() == 0) {
+                stats.finish();
+                for (int i = 0; i < downstreamThreads; i++) {
+                    next.put(END_OF_STREAM);
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean readSource(WorkItem item) {
+        item.startMillis = System.currentTimeMillis();
+        try {
+            item.source = SourceContent.read(item.file.toPath());
+            return true;
+        } catch (Exception e) {
+            fail(item, e);
+            return false;
+        }
+    }
+
+    private boolean translate(WorkItem item) {
+        try {
+            item.translated = translation.translate(item.file, item.source);
+            item.source = null;
+            return true;
+        } catch (Exception e) {
+            fail(item, e);
+            return false;
+        }
+    }
+
+    private boolean write(WorkItem item) {
+        TranslatedFile file = item.translated;
+        try {
+            MigrationResult.Status status;
+            Long newer = file.isSkipped() ? null
+                : latestWrite.merge(file.getOutputPath(), item.sequence, Math::max);
+
+            if (newer != null && newer > item.sequence) {
+                // A later file with the same output name was already written
+                status = MigrationResult.Status.MIGRATED;
+            } else {
+                status = output.write(file);
+            }
+
+            results.put(item.sequence, new MigrationResult.FileResult(
+                item.file, file.getOutputPath(), status, null, System.currentTimeMillis() - item.startMillis));
+            return true;
+        } catch (Exception e) {
+            fail(item, e);
+            return false;
+        }
+    }
+
+    private void fail(WorkItem item, Exception e) {
+        logger.warning("Failed to migrate " + item.file.getPath() + ": " + e.getMessage());
+        MigrationException failure = new MigrationException("Failed to migrate file: " + item.file.getPath(), e);
+        results.put(item.sequence, new MigrationResult.FileResult(
+            item.file, null, MigrationResult.Status.FAILED, failure, System.currentTimeMillis() - item.startMillis));
+    }
+
+    private MigrationResult buildResult(long startTime) {
+        List<MigrationResult.FileResult> ordered = new ArrayList<>(results.size());
+        for (long sequence = 0; sequence < discoveredFiles.size(); sequence++) {
+            MigrationResult.FileResult result = results.get(sequence);
+            if (result != null) {
+                ordered.add(result);
+            }
+        }
+        return new MigrationResult(ordered, System.currentTimeMillis() - startTime);
+    }
+}
@@ -0,0 +1,82 @@
+package com.davajava.migrator.core;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aggregated outcome of a migration run, with one entry per input file.
+ */
+public class MigrationResult {
+
+    public enum Status {
+        MIGRATED,   // Translated and written
+        UNCHANGED,  // Translated, but the output bytes were identical so the file was left alone
+        SKIPPED,    // Source, translator and options unchanged since the last incremental run
+        FAILED
+    }
+
+    public static class FileResult {
+        private final File sourceFile;
+        private final Path outputPath;
+        private final Status status;
+        private final Exception error;
+        private final long durationMillis;
+
+        public FileResult(File sourceFile, Path outputPath, Status status, Exception error, long durationMillis) {
+            this.sourceFile = sourceFile;
+            this.outputPath = outputPath;
+            this.status = status;
+            this.error = error;
+            this.durationMillis = durationMillis;
+        }
+
+        public File getSourceFile() { return sourceFile; }
+        public Path getOutputPath() { return outputPath; }
+        public Status getStatus() { return status; }
+        public Exception getError() { return error; }
+        public long getDurationMillis() { return durationMillis; }
+        public boolean isSuccess() { return status != Status.FAILED; }
+    }
+
+    private final List<FileResult> fileResults;
+    private final long elapsedMillis;
+
+    public MigrationResult(List<FileResult> fileResults, long elapsedMillis) {
+        this.fileResults = Collections.unmodifiableList(new ArrayList<>(fileResults));
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public List<FileResult> getFileResults() { return fileResults; }
+    public long getElapsedMillis() { return elapsedMillis; }
+
+    public int getTotalCount() {
+        return fileResults.size();
+    }
+
+    public int getCount(Status status) {
+        int count = 0;
+        for (FileResult result : fileResults) {
+            if (result.getStatus() == status) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public List<FileResult> getFailures() {
+        List<FileResult> failures = new ArrayList<>();
+        for (FileResult result : fileResults) {
+            if (!result.isSuccess()) {
+                failures.add(result);
+            }
+        }
+        return failures;
+    }
+
+    public boolean hasFailures() {
+        return getCount(Status.FAILED) > 0;
+    }
+}
@@ -2,78 +2,438 @@ package com.davajava.migrator.core;
 
 import com.davajava.migrator.core.MigrationCommand;
 import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.output.AsyncFileWriter;
 import com.davajava.migrator.output.JavaFileGenerator;
+import com.davajava.migrator.output.SpillingOutputStream;
 import com.davajava.migrator.parser.ParserRegistry;
 import com.davajava.migrator.translator.TranslatorRegistry;
+import com.polytype.migrator.core.cache.PolyTypeCache;
+import com.polytype.migrator.core.config.PolyTypeConfig;
 import java.util.logging.Logger;
 
+import java.io.OutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class MigrationService {
     private static final Logger logger = Logger.getLogger(MigrationService.class.getName());
     
-    private final ParserRegistry parserRegistry;
-    private final TranslatorRegistry translatorRegistry;
+    // Translators keep their visitor state between calls, so every worker thread gets its own registries
+    private final ThreadLocal<ParserRegistry> parserRegistry;
+    private final ThreadLocal<TranslatorRegistry> translatorRegistry;
     private final JavaFileGenerator fileGenerator;
+    private final ExecutionMode executionMode;
+    private final int threadCount;
+    private final PolyTypeCache translationCache; // Null to translate every file afresh
+    private final int streamThreshold;
+    private volatile MigrationPipeline activePipeline;
+    
+    private static final int DEFAULT_STREAM_THRESHOLD = 1024 * 1024; // Larger outputs stream to disk as they are rendered
+    private static final int PIPELINE_READER_THREADS = 2;
+    private static final int PIPELINE_QUEUE_CAPACITY_PER_THREAD = 4;
+
+    /**
+     * Translated output keyed by source content, language, translator version
+     * and options. Shared by the services not given a cache of their own and
+     * backed by the on-disk cache tier, so unchanged files are not translated
+     * again by the next run either.
+     */
+    private static final class TranslationCache {
+        static final PolyTypeCache INSTANCE = new PolyTypeCache(PolyTypeCache.CacheType.TRANSLATION_RESULT);
+    }
+
+    /**
+     * Output of a non-incremental run handed to the background writer. The
+     * results of these files are settled once their writes have finished.
+     */
+    private static class DeferredWrites {
+        private final AsyncFileWriter writer;
+        private final Map<File, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+
+        DeferredWrites(AsyncFileWriter writer) {
+            this.writer = writer;
+        }
+    }
+
+    public enum ExecutionMode {
+        SEQUENTIAL,  // One file at a time, stopping at the first failure
+        PARALLEL,    // Whole files spread over a work-stealing pool
+        PIPELINED    // Discovery, reads, translation and writes overlapped through bounded queues
+    }
 
     public MigrationService() {
-        this.parserRegistry = new ParserRegistry();
-        this.translatorRegistry = new TranslatorRegistry();
+        this(configuredExecutionMode(), PolyTypeConfig.getInstance().getInt(PolyTypeConfig.THREAD_POOL_SIZE));
+    }
+
+    public MigrationService(boolean parallel, int threadCount) {
+        this(parallel ? ExecutionMode.PARALLEL : ExecutionMode.SEQUENTIAL, threadCount);
+    }
+
+    public MigrationService(ExecutionMode executionMode, int threadCount) {
+        this(executionMode, threadCount, TranslationCache.INSTANCE);
+    }
+
+    /**
+     * @param translationCache where translated output is looked up before
+     *        translating a file and kept afterwards, or null to always translate
+     */
+    public MigrationService(ExecutionMode executionMode, int threadCount, PolyTypeCache translationCache) {
+        this(executionMode, threadCount, translationCache, DEFAULT_STREAM_THRESHOLD);
+    }
+
+    MigrationService(ExecutionMode executionMode, int threadCount, PolyTypeCache translationCache,
+                     int streamThreshold) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threadCount);
+        }
+        this.parserRegistry = ThreadLocal.withInitial(ParserRegistry::new);
+        this.translatorRegistry = ThreadLocal.withInitial(TranslatorRegistry::new);
         this.fileGenerator = new JavaFileGenerator();
+        this.executionMode = executionMode;
+        this.threadCount = threadCount;
+        this.translationCache = translationCache;
+        this.streamThreshold = streamThreshold;
+    }
+
+    private static ExecutionMode configuredExecutionMode() {
+        PolyTypeConfig config = PolyTypeConfig.getInstance();
+        if (config.getBoolean(PolyTypeConfig.ENABLE_PIPELINED_MIGRATION)) {
+            return ExecutionMode.PIPELINED;
+        }
+        return config.getBoolean(PolyTypeConfig.ENABLE_PARALLEL_TRANSLATION)
+            ? ExecutionMode.PARALLEL : ExecutionMode.SEQUENTIAL;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    /**
+     * Live per-stage queue depth and throughput of the running (or most
+     * recent) pipelined migration; empty for the other execution modes.
+     */
+    public List<MigrationPipeline.StageStats> getPipelineStats() {
+        MigrationPipeline pipeline = activePipeline;
+        return pipeline != null ? pipeline.getStageStats() : new ArrayList<>();
     }
 
-    public void migrate(MigrationCommand command) throws MigrationException {
+    public MigrationResult migrate(MigrationCommand command) throws MigrationException {
+        long startTime = System.currentTimeMillis();
+        List<File> filesToMigrate = null;
+        TranslationOptions options;
+        MigrationManifest manifest = null;
+        
         try {
             logger.info("Starting migration from " + command.getInputPath() + " to " + command.getOutputPath());
             
-            List<File> filesToMigrate = collectFiles(command);
-            logger.info("Found " + filesToMigrate.size() + " files to migrate");
+            // The pipeline discovers files while it migrates them
+            if (executionMode != ExecutionMode.PIPELINED) {
+                filesToMigrate = collectFiles(command);
+                logger.info("Found " + filesToMigrate.size() + " files to migrate");
+            }
 
-            TranslationOptions options = createTranslationOptions(command);
+            options = createTranslationOptions(command);
             
-            for (File file : filesToMigrate) {
-                migrateFile(file, command, options);
+            if (command.isIncremental()) {
+                manifest = MigrationManifest.load(Paths.get(command.getOutputPath()));
             }
-            
-            logger.info("Migration completed successfully");
-            
         } catch (Exception e) {
             throw new MigrationException("Migration failed: " + e.getMessage(), e);
         }
+        
+        MigrationResult result;
+        if (executionMode == ExecutionMode.PIPELINED) {
+            result = migratePipelined(command, options, manifest, startTime);
+            throwIfFailed(result);
+        } else if (executionMode == ExecutionMode.PARALLEL && threadCount > 1 && filesToMigrate.size() > 1) {
+            result = migrateParallel(filesToMigrate, command, options, manifest, startTime);
+            commitManifest(manifest, filesToMigrate);
+            throwIfFailed(result);
+        } else {
+            try {
+                result = migrateSequential(filesToMigrate, command, options, manifest, startTime);
+            } catch (MigrationException e) {
+                // Keep the journal so the next incremental run resumes after the last completed file
+                closeManifest(manifest);
+                throw e;
+            }
+            commitManifest(manifest, filesToMigrate);
+        }
+        
+        logger.info("Migration completed successfully (" + result.getTotalCount() + " files in "
+                    + result.getElapsedMillis() + " ms" + describeIncremental(result, manifest) + ")");
+        return result;
     }
 
-    private List<File> collectFiles(MigrationCommand command) throws IOException {
-        List<File> files = new ArrayList<>();
-        Path inputPath = Paths.get(command.getInputPath());
+    private void throwIfFailed(MigrationResult result) throws MigrationException {
+        if (!result.hasFailures()) {
+            return;
+        }
         
-        if (Files.isRegularFile(inputPath)) {
-            files.add(inputPath.toFile());
-        } else if (Files.isDirectory(inputPath)) {
-            if (command.isRecursive()) {
-                try (Stream<Path> paths = Files.walk(inputPath)) {
-                    paths.filter(Files::isRegularFile)
-                         .filter(this::isSupportedFile)
-                         .map(Path::toFile)
-                         .forEach(files::add);
+        List<MigrationResult.FileResult> failures = result.getFailures();
+        MigrationException exception = new MigrationException(
+            "Migration failed for " + failures.size() + " of " + result.getTotalCount() + " files",
+            failures.get(0).getError(), result);
+        for (int i = 1; i < failures.size(); i++) {
+            exception.addSuppressed(failures.get(i).getError());
+        }
+        throw exception;
+    }
+
+    private void commitManifest(MigrationManifest manifest, List<File> files) throws MigrationException {
+        if (manifest == null) {
+            return;
+        }
+        
+        Set<String> liveSources = new HashSet<>();
+        for (File file : files) {
+            liveSources.add(manifestKey(file));
+        }
+        
+        try {
+            manifest.commit(liveSources);
+        } catch (IOException e) {
+            throw new MigrationException("Failed to write migration manifest: " + e.getMessage(), e);
+        }
+    }
+
+    private void closeManifest(MigrationManifest manifest) {
+        if (manifest == null) {
+            return;
+        }
+        
+        try {
+            manifest.close();
+        } catch (IOException e) {
+            logger.warning("Failed to close migration manifest journal: " + e.getMessage());
+        }
+    }
+
+    private String describeIncremental(MigrationResult result, MigrationManifest manifest) {
+        if (manifest == null) {
+            return "";
+        }
+        return ", " + result.getCount(MigrationResult.Status.SKIPPED) + " skipped, "
+               + result.getCount(MigrationResult.Status.UNCHANGED) + " unchanged";
+    }
+
+    private MigrationResult migrateSequential(List<File> files, MigrationCommand command, TranslationOptions options,
+                                              MigrationManifest manifest, long startTime) throws MigrationException {
+        List<MigrationResult.FileResult> results = new ArrayList<>();
+        DeferredWrites deferred = null;
+        
+        // Closing the writer waits for every queued write
+        try (AsyncFileWriter writer = manifest == null ? new AsyncFileWriter(fileGenerator) : null) {
+            deferred = writer != null ? new DeferredWrites(writer) : null;
+            for (File file : files) {
+                results.add(migrateFile(file, command, options, manifest, deferred));
+            }
+        } catch (Exception e) {
+            throw new MigrationException("Migration failed: " + e.getMessage(), e,
+                                         new MigrationResult(settleDeferredWrites(results, deferred),
+                                                             System.currentTimeMillis() - startTime));
+        }
+        
+        MigrationResult result = new MigrationResult(settleDeferredWrites(results, deferred),
+                                                     System.currentTimeMillis() - startTime);
+        if (result.hasFailures()) {
+            Exception error = result.getFailures().get(0).getError();
+            throw new MigrationException("Migration failed: " + error.getMessage(), error, result);
+        }
+        return result;
+    }
+
+    private MigrationResult migrateParallel(List<File> files, MigrationCommand command, TranslationOptions options,
+                                            MigrationManifest manifest, long startTime) throws MigrationException {
+        // Files that map to the same output path stay in one task, in discovery order,
+        // so the last one written wins exactly as it would in a sequential run
+        Map<Path, List<File>> filesByOutput = new LinkedHashMap<>();
+        for (File file : files) {
+            filesByOutput.computeIfAbsent(resolveOutputPath(file, command), k -> new ArrayList<>()).add(file);
+        }
+        
+        AsyncFileWriter writer = manifest == null ? new AsyncFileWriter(fileGenerator) : null;
+        DeferredWrites deferred = writer != null ? new DeferredWrites(writer) : null;
+        
+        List<Callable<List<MigrationResult.FileResult>>> tasks = new ArrayList<>();
+        for (List<File> group : filesByOutput.values()) {
+            tasks.add(() -> {
+                TranslationOptions taskOptions = options.copy();
+                List<MigrationResult.FileResult> groupResults = new ArrayList<>();
+                for (File file : group) {
+                    groupResults.add(migrateFileIsolated(file, command, taskOptions, manifest, deferred));
                 }
-            } else {
-                try (Stream<Path> paths = Files.list(inputPath)) {
-                    paths.filter(Files::isRegularFile)
-                         .filter(this::isSupportedFile)
-                         .map(Path::toFile)
-                         .forEach(files::add);
+                return groupResults;
+            });
+        }
+        
+        logger.info("Migrating " + files.size() + " files on " + threadCount + " worker threads");
+        
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        Map<File, MigrationResult.FileResult> resultsByFile = new HashMap<>();
+        try {
+            for (Future<List<MigrationResult.FileResult>> future : pool.invokeAll(tasks)) {
+                for (MigrationResult.FileResult fileResult : future.get()) {
+                    resultsByFile.put(fileResult.getSourceFile(), fileResult);
                 }
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MigrationException("Migration interrupted", e);
+        } catch (ExecutionException e) {
+            throw new MigrationException("Migration failed: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            pool.shutdownNow();
+            closeWriter(writer);
+        }
+        
+        // Report in discovery order regardless of completion order
+        List<MigrationResult.FileResult> results = new ArrayList<>(files.size());
+        for (File file : files) {
+            results.add(resultsByFile.get(file));
         }
         
-        return files;
+        return new MigrationResult(settleDeferredWrites(results, deferred), System.currentTimeMillis() - startTime);
+    }
+
+    private void closeWriter(AsyncFileWriter writer) {
+        if (writer == null) {
+            return;
+        }
+        
+        try {
+            writer.close();
+        } catch (IOException e) {
+            logger.warning("Failed to close output writer: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Turns the results of files whose deferred write failed into failures.
+     * The writer must have been closed, so that every write has finished.
+     */
+    private List<MigrationResult.FileResult> settleDeferredWrites(List<MigrationResult.FileResult> results,
+                                                                  DeferredWrites deferred) {
+        if (deferred == null) {
+            return results;
+        }
+        
+        List<MigrationResult.FileResult> settled = new ArrayList<>(results.size());
+        for (MigrationResult.FileResult fileResult : results) {
+            CompletableFuture<Void> write = deferred.pending.get(fileResult.getSourceFile());
+            Exception error = write != null ? writeError(write) : null;
+            if (error == null) {
+                settled.add(fileResult);
+                continue;
+            }
+            
+            File file = fileResult.getSourceFile();
+            logger.warning("Failed to write " + fileResult.getOutputPath() + ": " + error.getMessage());
+            settled.add(new MigrationResult.FileResult(
+                file, fileResult.getOutputPath(), MigrationResult.Status.FAILED,
+                new MigrationException("Failed to migrate file: " + file.getPath(), error),
+                fileResult.getDurationMillis()));
+        }
+        return settled;
+    }
+
+    private static Exception writeError(CompletableFuture<Void> write) {
+        try {
+            write.join();
+            return null;
+        } catch (CompletionException e) {
+            return e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private MigrationResult migratePipelined(MigrationCommand command, TranslationOptions options,
+                                             MigrationManifest manifest, long startTime) throws MigrationException {
+        MigrationPipeline pipeline = new MigrationPipeline(
+            PIPELINE_READER_THREADS, threadCount, PIPELINE_QUEUE_CAPACITY_PER_THREAD * threadCount,
+            (file, source) -> translateFile(file, source, command, options.copy(), manifest),
+            translated -> writeOutput(translated, manifest));
+        activePipeline = pipeline;
+        
+        logger.info("Migrating through pipeline with " + PIPELINE_READER_THREADS + " readers and "
+                    + threadCount + " translation workers");
+        
+        MigrationResult result;
+        try {
+            result = pipeline.run(() -> streamFiles(command), startTime);
+        } catch (MigrationException e) {
+            closeManifest(manifest);
+            throw e;
+        }
+        
+        logger.info("Found " + pipeline.getDiscoveredFiles().size() + " files to migrate");
+        for (MigrationPipeline.StageStats stage : pipeline.getStageStats()) {
+            logger.info("Pipeline " + stage);
+        }
+        
+        commitManifest(manifest, pipeline.getDiscoveredFiles());
+        return result;
+    }
+
+    private MigrationResult.FileResult migrateFileIsolated(File file, MigrationCommand command,
+                                                           TranslationOptions options, MigrationManifest manifest,
+                                                           DeferredWrites deferred) {
+        long fileStart = System.currentTimeMillis();
+        try {
+            return migrateFile(file, command, options, manifest, deferred);
+        } catch (Exception e) {
+            logger.warning("Failed to migrate " + file.getPath() + ": " + e.getMessage());
+            return new MigrationResult.FileResult(file, null, MigrationResult.Status.FAILED,
+                                                  e, System.currentTimeMillis() - fileStart);
+        }
+    }
+
+    private List<File> collectFiles(MigrationCommand command) throws IOException {
+        try (Stream<File> files = streamFiles(command)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Lazily lists the files to migrate; the caller must close the stream.
+     */
+    private Stream<File> streamFiles(MigrationCommand command) throws IOException {
+        Path inputPath = Paths.get(command.getInputPath());
+        
+        if (Files.isRegularFile(inputPath)) {
+            return Stream.of(inputPath.toFile());
+        } else if (!Files.isDirectory(inputPath)) {
+            return Stream.empty();
+        }
+        
+        Stream<Path> paths = command.isRecursive() ? Files.walk(inputPath) : Files.list(inputPath);
+        return paths.filter(Files::isRegularFile)
+                    .filter(this::isSupportedFile)
+                    .map(Path::toFile);
     }
 
     private boolean isSupportedFile(Path path) {
@@ -86,38 +446,163 @@ public class MigrationService {
         }
     }
 
-    private void migrateFile(File file, MigrationCommand command, TranslationOptions options) 
+    private MigrationResult.FileResult migrateFile(File file, MigrationCommand command, TranslationOptions options,
+                                                   MigrationManifest manifest, DeferredWrites deferred)
             throws MigrationException {
+        long fileStart = System.currentTimeMillis();
         try {
             logger.fine("Migrating file: " + file.getPath());
             
-            SourceLanguage language = determineLanguage(file, command);
-            Parser parser = parserRegistry.getParser(language);
-            Translator translator = translatorRegistry.getTranslator(language);
-            
-            if (parser == null) {
-                throw new MigrationException("No parser available for language: " + language);
-            }
-            
-            if (translator == null) {
-                throw new MigrationException("No translator available for language: " + language);
+            SourceContent source = SourceContent.read(file.toPath());
+            TranslatedFile translated = translateFile(file, source, command, options, manifest);
+            MigrationResult.Status status;
+            if (deferred != null && translated.getContent() != null) {
+                deferred.pending.put(file, deferred.writer.write(translated.getOutputPath(), translated.getContent()));
+                status = MigrationResult.Status.MIGRATED;
+            } else {
+                status = writeOutput(translated, manifest);
             }
-
-            ASTNode ast = parser.parseFile(file.getPath());
-            String javaCode = translator.translate(ast, options);
-            
-            String outputFileName = generateOutputFileName(file, command.getPackageName());
-            Path outputPath = Paths.get(command.getOutputPath(), outputFileName);
             
-            fileGenerator.generateFile(outputPath, javaCode, command.getPackageName());
-            
-            logger.fine("Successfully migrated " + file.getPath() + " to " + outputPath);
+            logger.fine("Successfully migrated " + file.getPath() + " to " + translated.getOutputPath()
+                        + " (" + status + ")");
+            return new MigrationResult.FileResult(file, translated.getOutputPath(), status, null,
+                                                  System.currentTimeMillis() - fileStart);
             
         } catch (Exception e) {
             throw new MigrationException("Failed to migrate file: " + file.getPath(), e);
         }
     }
 
+    /**
+     * CPU half of migrating a file: parse, translate and render the output,
+     * or decide from the manifest that the file can be skipped.
+     */
+    private TranslatedFile translateFile(File file, SourceContent source, MigrationCommand command,
+                                         TranslationOptions options, MigrationManifest manifest)
+            throws MigrationException, IOException, ParseException, TranslationException {
+        SourceLanguage language = determineLanguage(file, command);
+        Parser parser = parserRegistry.get().getParser(language);
+        Translator translator = translatorRegistry.get().getTranslator(language);
+        
+        if (parser == null) {
+            throw new MigrationException("No parser available for language: " + language);
+        }
+        
+        if (translator == null) {
+            throw new MigrationException("No translator available for language: " + language);
+        }
+        
+        Path outputPath = resolveOutputPath(file, command);
+        String sourceKey = null;
+        String sourceHash = null;
+        String translatorVersion = translator.getVersion();
+        String optionsFingerprint = MigrationManifest.hash(
+            (options.fingerprint() + "package=" + command.getPackageName()).getBytes(StandardCharsets.UTF_8));
+        
+        if (manifest != null) {
+            sourceKey = manifestKey(file);
+            sourceHash = MigrationManifest.hash(source.getBytes());
+            if (manifest.isUpToDate(sourceKey, sourceHash, translatorVersion, optionsFingerprint, outputPath)) {
+                return TranslatedFile.skipped(file, outputPath);
+            }
+        }
+        
+        String cacheKey = null;
+        byte[] content = null;
+        Path contentFile = null;
+        String contentHash = null;
+        if (translationCache != null) {
+            cacheKey = PolyTypeCache.buildTranslationKey(source.getFingerprint(), language.name(), "JAVA",
+                                                         parser.getVersion(), translatorVersion, optionsFingerprint);
+            content = translationCache.get(cacheKey, byte[].class);
+        }
+        if (content == null) {
+            // Decode strictly, like Files.readString, so malformed input still fails the file
+            String sourceCode = StandardCharsets.UTF_8.newDecoder().decode(ByteBuffer.wrap(source.getBytes())).toString();
+            ASTNode ast = parser.parse(sourceCode);
+            MessageDigest digest = manifest != null ? MigrationManifest.newDigest() : null;
+            SpillingOutputStream output = render(translator, ast, options, command.getPackageName(), outputPath,
+                                                 source.length(), digest);
+            if (output.isSpilled()) {
+                contentFile = output.getSpillFile(); // Too large to keep in the cache
+            } else {
+                content = output.toByteArray();
+                if (translationCache != null) {
+                    translationCache.put(cacheKey, content);
+                }
+            }
+            contentHash = digest != null ? MigrationManifest.hash(digest) : null;
+        }
+        
+        MigrationManifest.Entry manifestEntry = null;
+        if (manifest != null) {
+            manifestEntry = new MigrationManifest.Entry(sourceKey, sourceHash, translatorVersion, optionsFingerprint,
+                                                        outputPath.toString(),
+                                                        contentHash != null ? contentHash : MigrationManifest.hash(content));
+        }
+        
+        return new TranslatedFile(file, outputPath, content, contentFile, manifestEntry);
+    }
+
+    /**
+     * Streams the translation into UTF-8 bytes as it is produced. Output up to
+     * the stream threshold stays in memory; a larger file goes on to a temp
+     * file beside its output, so it never exists whole on the heap.
+     *
+     * @param digest hashes the bytes as they pass, or null
+     */
+    private SpillingOutputStream render(Translator translator, ASTNode ast, TranslationOptions options,
+                                        String packageName, Path outputPath, int sizeHint, MessageDigest digest)
+            throws TranslationException, IOException {
+        SpillingOutputStream output = new SpillingOutputStream(fileGenerator, outputPath, streamThreshold, sizeHint);
+        OutputStream sink = digest != null ? new DigestOutputStream(output, digest) : output;
+        try (Writer writer = new OutputStreamWriter(sink, StandardCharsets.UTF_8)) {
+            fileGenerator.writePackageDeclaration(writer, packageName);
+            translator.translate(ast, options, writer);
+        } catch (TranslationException | IOException | RuntimeException e) {
+            output.discard();
+            throw e;
+        }
+        return output;
+    }
+
+    /**
+     * I/O half of migrating a file: write the rendered output and record it
+     * in the manifest.
+     */
+    private MigrationResult.Status writeOutput(TranslatedFile translated, MigrationManifest manifest)
+            throws IOException {
+        if (translated.isSkipped()) {
+            return MigrationResult.Status.SKIPPED;
+        }
+        
+        Path contentFile = translated.getContentFile();
+        if (manifest == null) {
+            if (contentFile != null) {
+                fileGenerator.moveFile(contentFile, translated.getOutputPath());
+            } else {
+                fileGenerator.writeFile(translated.getOutputPath(), translated.getContent());
+            }
+            return MigrationResult.Status.MIGRATED;
+        }
+        
+        boolean written = contentFile != null
+            ? fileGenerator.moveIfChanged(contentFile, translated.getOutputPath())
+            : fileGenerator.writeIfChanged(translated.getOutputPath(), translated.getContent());
+        manifest.record(translated.getManifestEntry());
+        
+        return written ? MigrationResult.Status.MIGRATED : MigrationResult.Status.UNCHANGED;
+    }
+
+    private String manifestKey(File file) {
+        return file.toPath().toAbsolutePath().normalize().toString();
+    }
+
+    private Path resolveOutputPath(File file, MigrationCommand command) {
+        String outputFileName = generateOutputFileName(file, command.getPackageName());
+        return Paths.get(command.getOutputPath(), outputFileName);
+    }
+
     private SourceLanguage determineLanguage(File file, MigrationCommand command) {
         if (command.getSourceLanguage() != null) {
             return command.getSourceLanguage();
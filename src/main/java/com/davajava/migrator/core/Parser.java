@@ -8,4 +8,13 @@ public interface Parser {
     ASTNode parseFile(String filePath) throws IOException, ParseException;
     SourceLanguage getSupportedLanguage();
     boolean canHandle(String fileName);
+
+    /**
+     * Identifies the parsing logic, so cached results produced from an
+     * earlier parser are not reused. The default is derived from the build
+     * the parser was loaded from.
+     */
+    default String getVersion() {
+        return getClass().getName() + "/" + BuildIdentity.of(getClass());
+    }
 }
\ No newline at end of file
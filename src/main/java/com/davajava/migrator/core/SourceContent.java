@@ -0,0 +1,69 @@
+package com.davajava.migrator.core;
+
+import com.polytype.migrator.core.cache.ContentFingerprint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Raw bytes of a source file together with their fingerprint, which is
+ * computed chunk by chunk as the file is read and then reused for every
+ * cache lookup of the file.
+ */
+final class SourceContent {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final byte[] bytes;
+    private final ContentFingerprint fingerprint;
+
+    SourceContent(byte[] bytes, ContentFingerprint fingerprint) {
+        this.bytes = bytes;
+        this.fingerprint = fingerprint;
+    }
+
+    static SourceContent of(byte[] bytes) {
+        return new SourceContent(bytes, ContentFingerprint.of(bytes));
+    }
+
+    static SourceContent read(Path path) throws IOException {
+        ContentFingerprint.Hasher hasher = ContentFingerprint.newHasher();
+        long expected = Files.size(path);
+        if (expected > Integer.MAX_VALUE - 8) {
+            throw new OutOfMemoryError("File too large to migrate: " + path);
+        }
+
+        byte[] buffer = new byte[(int) expected];
+        int length = 0;
+        try (InputStream in = Files.newInputStream(path)) {
+            while (true) {
+                if (length == buffer.length) {
+                    // At the expected end; keep going only if the file grew since its size was taken
+                    int next = in.read();
+                    if (next < 0) {
+                        break;
+                    }
+                    buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, CHUNK_SIZE));
+                    buffer[length] = (byte) next;
+                    hasher.update(buffer, length, 1);
+                    length++;
+                }
+                int read = in.read(buffer, length, Math.min(CHUNK_SIZE, buffer.length - length));
+                if (read < 0) {
+                    break;
+                }
+                hasher.update(buffer, length, read);
+                length += read;
+            }
+        }
+
+        byte[] bytes = length == buffer.length ? buffer : Arrays.copyOf(buffer, length);
+        return new SourceContent(bytes, hasher.finish());
+    }
+
+    byte[] getBytes() { return bytes; }
+    ContentFingerprint getFingerprint() { return fingerprint; }
+    int length() { return bytes.length; }
+}
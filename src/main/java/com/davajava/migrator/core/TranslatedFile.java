@@ -0,0 +1,40 @@
+package com.davajava.migrator.core;
+
+import java.io.File;
+import java.nio.file.Path;
+
+/**
+ * Rendered output of one source file, waiting to be written: in memory, or
+ * for a large file already in a temp file beside its output.
+ */
+class TranslatedFile {
+    private final File sourceFile;
+    private final Path outputPath;
+    private final byte[] content;
+    private final Path contentFile;
+    private final MigrationManifest.Entry manifestEntry;
+
+    TranslatedFile(File sourceFile, Path outputPath, byte[] content, MigrationManifest.Entry manifestEntry) {
+        this(sourceFile, outputPath, content, null, manifestEntry);
+    }
+
+    TranslatedFile(File sourceFile, Path outputPath, byte[] content, Path contentFile,
+                   MigrationManifest.Entry manifestEntry) {
+        this.sourceFile = sourceFile;
+        this.outputPath = outputPath;
+        this.content = content;
+        this.contentFile = contentFile;
+        this.manifestEntry = manifestEntry;
+    }
+
+    static TranslatedFile skipped(File sourceFile, Path outputPath) {
+        return new TranslatedFile(sourceFile, outputPath, null, null);
+    }
+
+    File getSourceFile() { return sourceFile; }
+    Path getOutputPath() { return outputPath; }
+    byte[] getContent() { return content; }
+    Path getContentFile() { return contentFile; }
+    MigrationManifest.Entry getManifestEntry() { return manifestEntry; }
+    boolean isSkipped() { return content == null && contentFile == null; }
+}
@@ -2,6 +2,7 @@ package com.davajava.migrator.core;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class TranslationOptions {
     private final Map<String, Object> options;
@@ -38,6 +39,17 @@ public class TranslationOptions {
         return getOption(key, Integer.class, defaultValue);
     }
 
+    /**
+     * Stable textual form of these options, independent of insertion order.
+     */
+    public String fingerprint() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Object> entry : new TreeMap<>(options).entrySet()) {
+            sb.append(entry.getKey()).append('=').append(entry.getValue()).append(';');
+        }
+        return sb.toString();
+    }
+
     public TranslationOptions copy() {
         return new TranslationOptions(this.options);
     }
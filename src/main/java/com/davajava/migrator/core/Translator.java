@@ -2,9 +2,31 @@ package com.davajava.migrator.core;
 
 import com.davajava.migrator.core.ast.ASTNode;
 
+import java.io.IOException;
+
 public interface Translator {
     String translate(ASTNode ast) throws TranslationException;
     SourceLanguage getSourceLanguage();
     TranslationOptions getDefaultOptions();
     String translate(ASTNode ast, TranslationOptions options) throws TranslationException;
+
+    /**
+     * Translates straight into the given output instead of returning the
+     * whole file as one string. Translators that can emit incrementally
+     * override this; the default renders the file first.
+     */
+    default void translate(ASTNode ast, TranslationOptions options, Appendable out)
+            throws TranslationException, IOException {
+        out.append(translate(ast, options));
+    }
+
+    /**
+     * Identifies the translation logic; a different value invalidates
+     * results recorded by earlier incremental runs. The default is derived
+     * from the build the translator was loaded from, so any rebuild of its
+     * code changes it.
+     */
+    default String getVersion() {
+        return getClass().getName() + "/" + BuildIdentity.of(getClass());
+    }
 }
\ No newline at end of file
@@ -1,18 +1,29 @@
 package com.davajava.migrator.core.ast;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
 
 public abstract class ASTNode {
+    private static final ASTNode[] NO_CHILDREN = new ASTNode[0];
+
     protected final NodeType type;
-    protected final List<ASTNode> children;
     protected ASTNode parent;
     protected final int lineNumber;
     protected final int columnNumber;
 
+    // Children are childArray[childOffset .. childOffset + childCount). Leaves share
+    // NO_CHILDREN; after compact() the whole subtree shares one array.
+    private ASTNode[] childArray = NO_CHILDREN;
+    private int childOffset;
+    private int childCount;
+    private boolean sharedChildren;
+    private List<ASTNode> childView;
+
     public ASTNode(NodeType type, int lineNumber, int columnNumber) {
         this.type = type;
-        this.children = new ArrayList<>();
         this.lineNumber = lineNumber;
         this.columnNumber = columnNumber;
     }
@@ -21,15 +32,76 @@ public abstract class ASTNode {
         return type;
     }
 
+    /**
+     * Read-only view of the children. The view is not a copy: it is created
+     * once per node and reflects children added later.
+     */
     public List<ASTNode> getChildren() {
-        return new ArrayList<>(children);
+        List<ASTNode> view = childView;
+        if (view == null) {
+            view = new ChildView();
+            childView = view;
+        }
+        return view;
+    }
+
+    public int getChildCount() {
+        return childCount;
+    }
+
+    public ASTNode getChild(int index) {
+        Objects.checkIndex(index, childCount);
+        return childArray[childOffset + index];
     }
 
     public void addChild(ASTNode child) {
-        children.add(child);
+        if (sharedChildren || childCount == childArray.length) {
+            ASTNode[] grown = new ASTNode[Math.max(4, childCount * 2)];
+            System.arraycopy(childArray, childOffset, grown, 0, childCount);
+            childArray = grown;
+            childOffset = 0;
+            sharedChildren = false;
+        }
+        childArray[childOffset + childCount++] = child;
         child.parent = this;
     }
 
+    /**
+     * Packs the child lists of this node and all of its descendants into a
+     * single shared array, dropping the spare capacity each node keeps while
+     * the tree is being built. The parsers call this on the finished tree.
+     * Adding a child to a compacted node later gives that node its own array
+     * again.
+     */
+    public void compact() {
+        ArrayDeque<ASTNode> pending = new ArrayDeque<>();
+        int total = 0;
+        pending.add(this);
+        while (!pending.isEmpty()) {
+            ASTNode node = pending.poll();
+            total += node.childCount;
+            for (int i = 0; i < node.childCount; i++) {
+                pending.add(node.childArray[node.childOffset + i]);
+            }
+        }
+
+        ASTNode[] shared = new ASTNode[total];
+        int position = 0;
+        pending.add(this);
+        while (!pending.isEmpty()) {
+            ASTNode node = pending.poll();
+            System.arraycopy(node.childArray, node.childOffset, shared, position, node.childCount);
+            boolean hasChildren = node.childCount > 0;
+            node.childArray = hasChildren ? shared : NO_CHILDREN;
+            node.childOffset = hasChildren ? position : 0;
+            node.sharedChildren = hasChildren;
+            for (int i = 0; i < node.childCount; i++) {
+                pending.add(shared[position + i]);
+            }
+            position += node.childCount;
+        }
+    }
+
     public ASTNode getParent() {
         return parent;
     }
@@ -43,4 +115,16 @@ public abstract class ASTNode {
     }
 
     public abstract String accept(ASTVisitor visitor);
-}
\ No newline at end of file
+
+    private final class ChildView extends AbstractList<ASTNode> implements RandomAccess {
+        @Override
+        public ASTNode get(int index) {
+            return getChild(index);
+        }
+
+        @Override
+        public int size() {
+            return childCount;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.davajava.migrator.output;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Logger;
+
+/**
+ * Writes rendered files on a background thread so translation never waits
+ * on the disk. Submitting blocks only while the queue is full.
+ *
+ * <p>The writer thread takes everything that has queued up in one wakeup,
+ * then lingers briefly for more until the batch is full, holds enough bytes,
+ * or reaches a flush. Within a batch only the last content queued for a path
+ * is written; earlier writes to that path complete without touching the
+ * disk. Directories come from the {@link JavaFileGenerator}'s cache.
+ *
+ * <p>Every future handed out completes: once written, or exceptionally if
+ * the write failed or the writer was stopped before reaching it.
+ */
+public class AsyncFileWriter implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(AsyncFileWriter.class.getName());
+    
+    private static final int DEFAULT_QUEUE_CAPACITY = 256;
+    private static final int DEFAULT_BATCH_SIZE = 64;
+    private static final long DEFAULT_LINGER_MILLIS = 2;
+    private static final long MAX_BATCH_BYTES = 1024 * 1024;
+    
+    private static class PendingWrite {
+        final Path path;       // null for flush markers and the shutdown marker
+        final byte[] content;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        
+        PendingWrite(Path path, byte[] content) {
+            this.path = path;
+            this.content = content;
+        }
+    }
+    
+    private final PendingWrite shutdown = new PendingWrite(null, null);
+    
+    private final JavaFileGenerator fileGenerator;
+    private final BlockingQueue<PendingWrite> queue;
+    private final int batchSize;
+    private final long lingerNanos;
+    private final Thread worker;
+    // Writers queue under the read lock; close takes the write lock, so nothing lands behind the shutdown marker
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private volatile boolean closed;
+    private volatile boolean abandoned; // Set by an interrupted close: stop without the shutdown marker
+    
+    private final AtomicLong filesWritten = new AtomicLong();
+    private final AtomicLong writesSuperseded = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    
+    public AsyncFileWriter(JavaFileGenerator fileGenerator) {
+        this(fileGenerator, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE);
+    }
+    
+    public AsyncFileWriter(JavaFileGenerator fileGenerator, int queueCapacity, int batchSize) {
+        this(fileGenerator, queueCapacity, batchSize, DEFAULT_LINGER_MILLIS);
+    }
+    
+    /**
+     * @param lingerMillis how long the writer waits for a batch to fill once
+     *                     it has something to write
+     */
+    public AsyncFileWriter(JavaFileGenerator fileGenerator, int queueCapacity, int batchSize, long lingerMillis) {
+        if (queueCapacity < 1 || batchSize < 1 || lingerMillis < 0) {
+            throw new IllegalArgumentException("Queue capacity and batch size must be positive");
+        }
+        this.fileGenerator = fileGenerator;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+        this.worker = new Thread(this::run, "AsyncFileWriter");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+    
+    /**
+     * Queues a file for writing. The returned future completes once the
+     * content is on disk, or exceptionally if the write failed.
+     */
+    public CompletableFuture<Void> write(Path outputPath, byte[] content) throws InterruptedException {
+        PendingWrite write = new PendingWrite(outputPath, content);
+        stateLock.readLock().lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Writer is closed");
+            }
+            queue.put(write);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        return write.future;
+    }
+    
+    /**
+     * Waits until every write queued before this call has finished. Failed
+     * writes are reported through their own futures, not here. Returns at
+     * once after {@link #close()}, which has already finished every write.
+     */
+    public void flush() throws InterruptedException {
+        PendingWrite marker = new PendingWrite(null, null);
+        stateLock.readLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            queue.put(marker);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        try {
+            marker.future.get();
+        } catch (ExecutionException e) {
+            // Markers never fail
+        }
+    }
+    
+    public long getFilesWritten() { return filesWritten.get(); }
+    public long getWritesSuperseded() { return writesSuperseded.get(); }
+    public long getBatchCount() { return batches.get(); }
+    
+    /**
+     * Waits for every queued write to finish and stops the writer thread. If
+     * the caller is interrupted while waiting, the writer thread is stopped
+     * too, the writes it has not taken fail, and the interrupt is reported as
+     * an IOException with the thread's interrupt status restored.
+     */
+    @Override
+    public void close() throws IOException {
+        stateLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+        try {
+            queue.put(shutdown);
+            worker.join();
+        } catch (InterruptedException e) {
+            abandoned = true;
+            worker.interrupt();
+            failAbandoned();
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for queued writes", e);
+        }
+        
+        logger.fine("Wrote " + filesWritten.get() + " files in " + batches.get() + " batches ("
+                    + writesSuperseded.get() + " superseded writes skipped)");
+    }
+    
+    private void failAbandoned() {
+        List<PendingWrite> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        fail(abandoned);
+    }
+    
+    private static void fail(List<PendingWrite> writes) {
+        for (PendingWrite write : writes) {
+            write.future.completeExceptionally(new IllegalStateException("Writer is closed"));
+        }
+    }
+    
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        boolean running = true;
+        while (running && !abandoned) {
+            try {
+                collectBatch(batch);
+            } catch (InterruptedException e) {
+                fail(batch); // Stopped by an interrupted close; it fails whatever is still queued
+                return;
+            }
+            running = writeBatch(batch);
+            batch.clear();
+        }
+    }
+    
+    /**
+     * Waits for the first write, then gathers more until the batch is full,
+     * holds {@link #MAX_BATCH_BYTES}, reaches a marker, or the linger time
+     * runs out.
+     */
+    private void collectBatch(List<PendingWrite> batch) throws InterruptedException {
+        batch.add(queue.take());
+        queue.drainTo(batch, batchSize - 1);
+        long bytes = 0;
+        for (PendingWrite write : batch) {
+            if (write.path == null) {
+                return;
+            }
+            bytes += write.content.length;
+        }
+        
+        long deadline = System.nanoTime() + lingerNanos;
+        while (batch.size() < batchSize && bytes < MAX_BATCH_BYTES) {
+            PendingWrite next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+            if (next.path == null) {
+                return;
+            }
+            bytes += next.content.length;
+        }
+    }
+    
+    /** Returns false once the shutdown marker has been reached. */
+    private boolean writeBatch(List<PendingWrite> batch) {
+        batches.incrementAndGet();
+        
+        // Later writes to the same path replace earlier ones in the batch
+        Map<Path, PendingWrite> latest = new HashMap<>();
+        for (PendingWrite write : batch) {
+            if (write.path != null) {
+                latest.put(write.path, write);
+            }
+        }
+        
+        boolean running = true;
+        for (PendingWrite write : batch) {
+            if (write.path == null) {
+                continue;
+            }
+            if (latest.get(write.path) != write) {
+                writesSuperseded.incrementAndGet();
+                write.future.complete(null);
+                continue;
+            }
+            try {
+                fileGenerator.writeFile(write.path, write.content);
+                filesWritten.incrementAndGet();
+                write.future.complete(null);
+            } catch (IOException | RuntimeException e) {
+                write.future.completeExceptionally(e);
+            }
+        }
+        
+        // Markers complete after the writes around them, so a flush sees the final content
+        for (PendingWrite write : batch) {
+            if (write == shutdown) {
+                running = false;
+            } else if (write.path == null) {
+                write.future.complete(null);
+            }
+        }
+        return running;
+    }
+}
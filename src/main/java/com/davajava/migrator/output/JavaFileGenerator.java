@@ -1,29 +1,101 @@
 package com.davajava.migrator.output;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JavaFileGenerator {
+    private static final int COMPARE_BUFFER_SIZE = 64 * 1024;
     
-    public void generateFile(Path outputPath, String javaCode, String packageName) throws IOException {
-        // Ensure output directory exists
-        if (outputPath.getParent() != null) {
-            Files.createDirectories(outputPath.getParent());
-        }
-        
-        // Generate complete Java file with package declaration
-        StringBuilder completeJavaFile = new StringBuilder();
+    // Directories already created or found to exist, so each one costs a single
+    // createDirectories call per generator rather than one per file
+    private final Set<Path> knownDirectories = ConcurrentHashMap.newKeySet();
+    
+    public void writeFile(Path outputPath, byte[] content) throws IOException {
+        ensureParentDirectory(outputPath);
         
+        // Write file
+        Files.write(outputPath, content, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+    
+    public void writePackageDeclaration(Appendable out, String packageName) throws IOException {
         if (packageName != null && !packageName.isEmpty()) {
-            completeJavaFile.append("package ").append(packageName).append(";\n\n");
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+    }
+    
+    /**
+     * Writes the content only when it differs from what is already on disk,
+     * so unchanged outputs keep their timestamps.
+     *
+     * @return true if the file was written
+     */
+    public boolean writeIfChanged(Path outputPath, byte[] content) throws IOException {
+        if (Files.isRegularFile(outputPath) && Files.size(outputPath) == content.length
+                && Arrays.equals(Files.readAllBytes(outputPath), content)) {
+            return false;
         }
         
-        completeJavaFile.append(javaCode);
+        writeFile(outputPath, content);
+        return true;
+    }
+    
+    /** Renames a file rendered beside the output, such as a spilled one, over the output. */
+    public void moveFile(Path source, Path outputPath) throws IOException {
+        ensureParentDirectory(outputPath);
+        try {
+            Files.move(source, outputPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, outputPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+    
+    /**
+     * Like {@link #writeIfChanged}, for content already in a file: renames it
+     * over the output only when they differ, and deletes it otherwise.
+     *
+     * @return true if the output was replaced
+     */
+    public boolean moveIfChanged(Path source, Path outputPath) throws IOException {
+        if (Files.isRegularFile(outputPath) && sameContent(source, outputPath)) {
+            Files.delete(source);
+            return false;
+        }
         
-        // Write file
-        Files.writeString(outputPath, completeJavaFile.toString(), 
-            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        moveFile(source, outputPath);
+        return true;
+    }
+    
+    private static boolean sameContent(Path first, Path second) throws IOException {
+        if (Files.size(first) != Files.size(second)) {
+            return false;
+        }
+        try (InputStream a = Files.newInputStream(first); InputStream b = Files.newInputStream(second)) {
+            byte[] bufferA = new byte[COMPARE_BUFFER_SIZE];
+            byte[] bufferB = new byte[COMPARE_BUFFER_SIZE];
+            int read;
+            while ((read = a.readNBytes(bufferA, 0, bufferA.length)) > 0) {
+                if (b.readNBytes(bufferB, 0, read) != read
+                        || !Arrays.equals(bufferA, 0, read, bufferB, 0, read)) {
+                    return false;
+                }
+            }
+            return b.read() < 0;
+        }
+    }
+    
+    void ensureParentDirectory(Path outputPath) throws IOException {
+        Path parent = outputPath.getParent();
+        if (parent != null && !knownDirectories.contains(parent)) {
+            Files.createDirectories(parent);
+            knownDirectories.add(parent);
+        }
     }
-}
\ No newline at end of file
+}
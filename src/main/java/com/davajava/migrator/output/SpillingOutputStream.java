@@ -0,0 +1,129 @@
+package com.davajava.migrator.output;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Collects a rendered file in memory until it outgrows a threshold, then
+ * moves what it holds to a temp file beside the output and streams the rest
+ * there. Small files stay on the heap for the cache and the
+ * {@link AsyncFileWriter}; large ones never exist whole in memory.
+ */
+public class SpillingOutputStream extends OutputStream {
+    private static final int SPILL_BUFFER_SIZE = 64 * 1024;
+
+    private final JavaFileGenerator fileGenerator;
+    private final Path outputPath;
+    private final int threshold;
+    private byte[] buffer;
+    private int count;
+    private Path spillFile;
+    private OutputStream spill;
+
+    /**
+     * @param threshold bytes kept in memory before spilling to disk
+     * @param sizeHint expected size, to avoid growing the buffer repeatedly
+     */
+    public SpillingOutputStream(JavaFileGenerator fileGenerator, Path outputPath, int threshold, int sizeHint) {
+        this.fileGenerator = fileGenerator;
+        this.outputPath = outputPath;
+        this.threshold = threshold;
+        this.buffer = new byte[Math.max(256, Math.min(threshold, sizeHint))];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (spill == null && count == threshold) {
+            spillToFile();
+        }
+        if (spill != null) {
+            spill.write(b);
+            return;
+        }
+        ensureCapacity(count + 1);
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (spill == null && len > threshold - count) {
+            spillToFile();
+        }
+        if (spill != null) {
+            spill.write(b, off, len);
+            return;
+        }
+        ensureCapacity(count + len);
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (spill != null) {
+            spill.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (spill != null) {
+            spill.close();
+        }
+    }
+
+    /** Whether the content went to {@link #getSpillFile()} rather than memory. */
+    public boolean isSpilled() {
+        return spillFile != null;
+    }
+
+    /** The temp file holding the content once spilled, or null. */
+    public Path getSpillFile() {
+        return spillFile;
+    }
+
+    /** The content, if it was not spilled. */
+    public byte[] toByteArray() {
+        if (spillFile != null) {
+            throw new IllegalStateException("Content was spilled to " + spillFile);
+        }
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /** Closes the stream and deletes the temp file, if any, after a failed render. */
+    public void discard() {
+        try {
+            close();
+        } catch (IOException e) {
+            // Deleted below regardless
+        }
+        if (spillFile != null) {
+            try {
+                Files.deleteIfExists(spillFile);
+            } catch (IOException e) {
+                // Left beside the output; the next run overwrites its target anyway
+            }
+        }
+        buffer = null;
+    }
+
+    private void spillToFile() throws IOException {
+        fileGenerator.ensureParentDirectory(outputPath);
+        Path directory = outputPath.toAbsolutePath().getParent();
+        spillFile = Files.createTempFile(directory, "." + outputPath.getFileName(), ".tmp");
+        spill = new BufferedOutputStream(Files.newOutputStream(spillFile), SPILL_BUFFER_SIZE);
+        spill.write(buffer, 0, count);
+        buffer = null;
+        count = 0;
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.min(threshold, Math.max(needed, buffer.length * 2)));
+        }
+    }
+}
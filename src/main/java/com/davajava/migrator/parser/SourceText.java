@@ -0,0 +1,100 @@
+package com.davajava.migrator.parser;
+
+import java.util.Arrays;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Source code with a table of line start offsets, built once per file, so
+ * that parsers can turn match offsets into line and column numbers with a
+ * binary search instead of rescanning the text for every match.
+ */
+public class SourceText {
+    private final String text;
+    private final int[] lineStarts;
+    private final int lineCount;
+
+    public SourceText(String text) {
+        this.text = text;
+
+        int[] starts = new int[Math.max(16, text.length() / 32)];
+        int count = 1;
+        for (int i = text.indexOf('\n'); i >= 0; i = text.indexOf('\n', i + 1)) {
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = i + 1;
+        }
+        this.lineStarts = starts;
+        this.lineCount = count;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int length() {
+        return text.length();
+    }
+
+    public int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns the 1-based line containing the given offset. Offsets past the
+     * end of the text belong to the last line.
+     */
+    public int getLineNumber(int offset) {
+        return lineIndex(offset) + 1;
+    }
+
+    /**
+     * Returns the 1-based column of the given offset within its line.
+     */
+    public int getColumnNumber(int offset) {
+        int clamped = clamp(offset);
+        return clamped - lineStarts[lineIndex(clamped)] + 1;
+    }
+
+    /**
+     * Returns the offset of the first character of a 1-based line.
+     */
+    public int getLineStart(int lineNumber) {
+        if (lineNumber < 1 || lineNumber > lineCount) {
+            throw new IndexOutOfBoundsException("Line " + lineNumber + " of " + lineCount);
+        }
+        return lineStarts[lineNumber - 1];
+    }
+
+    /**
+     * Replaces every match of the pattern with spaces, keeping line breaks,
+     * so that text a parser wants to ignore is dropped without moving the
+     * offsets of anything after it.
+     */
+    public static String blank(String text, Pattern pattern) {
+        Matcher matcher = pattern.matcher(text);
+        if (!matcher.find()) {
+            return text;
+        }
+        char[] chars = text.toCharArray();
+        do {
+            for (int i = matcher.start(); i < matcher.end(); i++) {
+                if (chars[i] != '\n' && chars[i] != '\r') {
+                    chars[i] = ' ';
+                }
+            }
+        } while (matcher.find());
+        return new String(chars);
+    }
+
+    private int lineIndex(int offset) {
+        int index = Arrays.binarySearch(lineStarts, 0, lineCount, clamp(offset));
+        // A miss returns -(insertion point) - 1; the line is the one before the insertion point
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private int clamp(int offset) {
+        return Math.max(0, Math.min(offset, text.length()));
+    }
+}
@@ -4,6 +4,11 @@ import com.davajava.migrator.core.ParseException;
 import com.davajava.migrator.core.Parser;
 import com.davajava.migrator.core.SourceLanguage;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.parser.SourceText;
+import com.davajava.migrator.parser.lexer.DeclarationMatcher;
+import com.davajava.migrator.parser.lexer.Lexer;
+import com.davajava.migrator.parser.lexer.LexerSyntax;
+import com.davajava.migrator.parser.lexer.TokenStream;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -23,10 +28,15 @@ public class CParser implements Parser {
     );
     
     private static final Pattern STRUCT_PATTERN = Pattern.compile(
-        "^\\s*(?:typedef\\s+)?struct\\s+(\\w+)?\\s*\\{([^}]*)\\}\\s*(\\w+)?\\s*;",
+        "^\\s*(?:typedef\\s+)?struct\\s+(\\w+)?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
+    // Follows the closing brace of a struct
+    private static final Pattern STRUCT_TRAILER_PATTERN = Pattern.compile(
+        "\\s*(\\w+)?\\s*;"
+    );
+    
     private static final Pattern VARIABLE_PATTERN = Pattern.compile(
         "^\\s*([\\w\\s*]+)\\s+(\\w+)(?:\\s*=\\s*([^;]+))?\\s*;",
         Pattern.MULTILINE
@@ -35,28 +45,39 @@ public class CParser implements Parser {
     @Override
     public ASTNode parse(String sourceCode) throws ParseException {
         try {
-            sourceCode = preprocessSource(sourceCode);
             ProgramNode program = new ProgramNode(1, 1);
+            SourceText source = new SourceText(sourceCode);
+            TokenStream tokens = Lexer.tokenize(sourceCode, LexerSyntax.C);
             
             // Parse structs first
-            Matcher structMatcher = STRUCT_PATTERN.matcher(sourceCode);
+            DeclarationMatcher structMatcher = tokens.match(STRUCT_PATTERN);
+            Matcher trailerMatcher = STRUCT_TRAILER_PATTERN.matcher(tokens.getCode());
             while (structMatcher.find()) {
+                TokenStream.Block structBody = structMatcher.body();
+                if (structBody == null) {
+                    continue;
+                }
+                
+                trailerMatcher.region(Math.min(structBody.getEnd() + 1, sourceCode.length()), sourceCode.length());
+                if (!trailerMatcher.lookingAt()) {
+                    continue;
+                }
+                
                 String structName = structMatcher.group(1);
-                String structBody = structMatcher.group(2);
-                String typedefName = structMatcher.group(3);
+                String typedefName = trailerMatcher.group(1);
                 
                 // Use typedef name if available, otherwise struct name
                 String finalName = (typedefName != null && !typedefName.isEmpty()) ? typedefName : structName;
                 
                 if (finalName != null && !finalName.isEmpty()) {
-                    StructDeclarationNode structNode = parseStruct(finalName, structBody, 
-                        getLineNumber(sourceCode, structMatcher.start()));
+                    StructDeclarationNode structNode = parseStruct(finalName, tokens, structBody, 
+                        structMatcher.start(), source);
                     program.addChild(structNode);
                 }
             }
             
-            // Parse functions
-            Matcher functionMatcher = FUNCTION_PATTERN.matcher(sourceCode);
+            // Parse functions; C has no nested functions, so only top-level statements qualify
+            DeclarationMatcher functionMatcher = tokens.matchTopLevel(FUNCTION_PATTERN);
             while (functionMatcher.find()) {
                 String returnType = functionMatcher.group(1).trim();
                 String functionName = functionMatcher.group(2);
@@ -70,16 +91,17 @@ public class CParser implements Parser {
                 // Map C types to Java types
                 returnType = mapCTypeToJava(returnType);
                 
-                List<ParameterNode> paramList = parseParameters(parameters);
+                List<ParameterNode> paramList = parseParameters(parameters, functionMatcher.start(3), source);
                 
                 FunctionDeclarationNode funcNode = new FunctionDeclarationNode(
                     functionName, returnType, paramList, true, false,
-                    getLineNumber(sourceCode, functionMatcher.start()), 1
+                    source.getLineNumber(functionMatcher.start()), source.getColumnNumber(functionMatcher.start())
                 );
                 
                 program.addChild(funcNode);
             }
             
+            program.compact();
             return program;
             
         } catch (Exception e) {
@@ -103,22 +125,12 @@ public class CParser implements Parser {
         return fileName.endsWith(".c") || fileName.endsWith(".h");
     }
     
-    private String preprocessSource(String sourceCode) {
-        // Remove comments
-        sourceCode = sourceCode.replaceAll("/\\*[\\s\\S]*?\\*/", "");
-        sourceCode = sourceCode.replaceAll("//.*", "");
-        
-        // Remove preprocessor directives (basic)
-        sourceCode = sourceCode.replaceAll("^\\s*#.*$", "");
-        
-        return sourceCode;
-    }
-    
-    private StructDeclarationNode parseStruct(String structName, String structBody, int lineNumber) {
+    private StructDeclarationNode parseStruct(String structName, TokenStream tokens, TokenStream.Block structBody,
+                                              int offset, SourceText source) {
         List<FieldDeclarationNode> fields = new ArrayList<>();
         
         // Parse struct fields
-        Matcher fieldMatcher = VARIABLE_PATTERN.matcher(structBody);
+        DeclarationMatcher fieldMatcher = tokens.match(VARIABLE_PATTERN, structBody);
         while (fieldMatcher.find()) {
             String fieldType = fieldMatcher.group(1).trim();
             String fieldName = fieldMatcher.group(2);
@@ -127,17 +139,19 @@ public class CParser implements Parser {
             
             FieldDeclarationNode fieldNode = new FieldDeclarationNode(
                 fieldName, fieldType, true, false,
-                getLineNumber(structBody, fieldMatcher.start()), 1
+                source.getLineNumber(fieldMatcher.start()),
+                source.getColumnNumber(fieldMatcher.start())
             );
             
             fields.add(fieldNode);
         }
         
-        StructDeclarationNode structNode = new StructDeclarationNode(structName, true, fields, lineNumber, 1);
+        StructDeclarationNode structNode = new StructDeclarationNode(structName, true, fields,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
         return structNode;
     }
     
-    private List<ParameterNode> parseParameters(String paramString) {
+    private List<ParameterNode> parseParameters(String paramString, int offset, SourceText source) {
         List<ParameterNode> parameters = new ArrayList<>();
         
         if (paramString == null || paramString.trim().isEmpty() || "void".equals(paramString.trim())) {
@@ -145,7 +159,10 @@ public class CParser implements Parser {
         }
         
         String[] params = paramString.split(",");
+        int paramStart = offset;
         for (String param : params) {
+            int paramOffset = paramStart + (param.length() - param.stripLeading().length());
+            paramStart += param.length() + 1;
             param = param.trim();
             if (param.isEmpty()) continue;
             
@@ -165,7 +182,8 @@ public class CParser implements Parser {
                     name = name.substring(1);
                 }
                 
-                parameters.add(new ParameterNode(name, type, false, 1, 1));
+                parameters.add(new ParameterNode(name, type, false,
+                    source.getLineNumber(paramOffset), source.getColumnNumber(paramOffset)));
             }
         }
         
@@ -214,13 +232,4 @@ public class CParser implements Parser {
         }
     }
     
-    private int getLineNumber(String text, int position) {
-        int lineNumber = 1;
-        for (int i = 0; i < position && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') {
-                lineNumber++;
-            }
-        }
-        return lineNumber;
-    }
 }
\ No newline at end of file
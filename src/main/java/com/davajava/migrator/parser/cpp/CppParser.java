@@ -4,12 +4,19 @@ import com.davajava.migrator.core.ParseException;
 import com.davajava.migrator.core.Parser;
 import com.davajava.migrator.core.SourceLanguage;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.parser.SourceText;
+import com.davajava.migrator.parser.lexer.DeclarationMatcher;
+import com.davajava.migrator.parser.lexer.Lexer;
+import com.davajava.migrator.parser.lexer.LexerSyntax;
+import com.davajava.migrator.parser.lexer.TokenStream;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.logging.Logger;
@@ -17,17 +24,23 @@ import java.util.logging.Logger;
 public class CppParser implements Parser {
     private static final Logger logger = Logger.getLogger(CppParser.class.getName());
     
-    // C++ specific patterns
+    // C++ specific patterns; class and namespace bodies come from the token stream's brace matching
     private static final Pattern CLASS_PATTERN = Pattern.compile(
-        "^\\s*class\\s+(\\w+)(?:\\s*:\\s*(?:public|private|protected)\\s+(\\w+))?\\s*\\{([^}]*)\\}\\s*;",
+        "^\\s*class\\s+(\\w+)(?:\\s*:\\s*(?:public|private|protected)\\s+(\\w+))?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
     private static final Pattern NAMESPACE_PATTERN = Pattern.compile(
-        "^\\s*namespace\\s+(\\w+)\\s*\\{([^}]*)\\}",
+        "^\\s*namespace\\s+(\\w+)\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
+    // One whole member statement, optionally preceded by an access label
+    private static final Pattern MEMBER_PATTERN = Pattern.compile(
+        "(?:(public|private|protected)\\s*:)?\\s*(.*)",
+        Pattern.DOTALL
+    );
+    
     private static final Pattern METHOD_PATTERN = Pattern.compile(
         "^\\s*(?:(public|private|protected)\\s*:)?\\s*([\\w\\s*<>:]+)\\s+(\\w+)\\s*\\(([^)]*)\\)(?:\\s*const)?\\s*(?:\\{|;)",
         Pattern.MULTILINE
@@ -47,37 +60,58 @@ public class CppParser implements Parser {
         "^\\s*([\\w\\s*<>:]+)\\s+(\\w+)\\s*\\(([^)]*)\\)\\s*(?:\\{|;)",
         Pattern.MULTILINE
     );
+    
+    private static final Pattern TEMPLATE_PATTERN = Pattern.compile(
+        "template\\s*<[^>]*>\\s*"
+    );
 
     @Override
     public ASTNode parse(String sourceCode) throws ParseException {
         try {
             sourceCode = preprocessSource(sourceCode);
             ProgramNode program = new ProgramNode(1, 1);
+            SourceText source = new SourceText(sourceCode);
+            TokenStream tokens = Lexer.tokenize(sourceCode, LexerSyntax.CPP);
             
             // Parse namespaces first
-            Matcher namespaceMatcher = NAMESPACE_PATTERN.matcher(sourceCode);
+            Set<Integer> namespaceBodies = new HashSet<>();
+            DeclarationMatcher namespaceMatcher = tokens.match(NAMESPACE_PATTERN);
             while (namespaceMatcher.find()) {
+                TokenStream.Block namespaceBody = namespaceMatcher.body();
+                if (namespaceBody == null) {
+                    continue;
+                }
+                
                 // For simplicity, we'll treat namespace content as part of the main program
                 // In a full implementation, you'd create namespace nodes
-                String namespaceContent = namespaceMatcher.group(2);
-                parseNamespaceContent(program, namespaceContent);
+                namespaceBodies.add(namespaceBody.getStart());
+                parseNamespaceContent(program, namespaceBody.getCode());
             }
             
             // Parse classes
-            Matcher classMatcher = CLASS_PATTERN.matcher(sourceCode);
+            DeclarationMatcher classMatcher = tokens.match(CLASS_PATTERN);
             while (classMatcher.find()) {
+                TokenStream.Block classBody = classMatcher.body();
+                if (classBody == null) {
+                    continue;
+                }
+                
                 String className = classMatcher.group(1);
                 String baseClass = classMatcher.group(2);
-                String classBody = classMatcher.group(3);
                 
-                ClassDeclarationNode classNode = parseClass(className, baseClass, classBody, 
-                    getLineNumber(sourceCode, classMatcher.start()));
+                ClassDeclarationNode classNode = parseClass(className, baseClass, tokens, classBody, 
+                    classMatcher.start(), source);
                 program.addChild(classNode);
             }
             
-            // Parse standalone functions
-            Matcher functionMatcher = FUNCTION_PATTERN.matcher(sourceCode);
+            // Parse standalone functions, which live at the top level or directly in a namespace
+            DeclarationMatcher functionMatcher = tokens.match(FUNCTION_PATTERN);
             while (functionMatcher.find()) {
+                TokenStream.Block enclosing = functionMatcher.enclosingBlock();
+                if (enclosing != null && !namespaceBodies.contains(enclosing.getStart())) {
+                    continue;
+                }
+                
                 String returnType = functionMatcher.group(1).trim();
                 String functionName = functionMatcher.group(2);
                 String parameters = functionMatcher.group(3);
@@ -88,16 +122,17 @@ public class CppParser implements Parser {
                 }
                 
                 returnType = mapCppTypeToJava(returnType);
-                List<ParameterNode> paramList = parseParameters(parameters);
+                List<ParameterNode> paramList = parseParameters(parameters, functionMatcher.start(3), source);
                 
                 FunctionDeclarationNode funcNode = new FunctionDeclarationNode(
                     functionName, returnType, paramList, true, false,
-                    getLineNumber(sourceCode, functionMatcher.start()), 1
+                    source.getLineNumber(functionMatcher.start()), source.getColumnNumber(functionMatcher.start())
                 );
                 
                 program.addChild(funcNode);
             }
             
+            program.compact();
             return program;
             
         } catch (Exception e) {
@@ -122,15 +157,8 @@ public class CppParser implements Parser {
     }
     
     private String preprocessSource(String sourceCode) {
-        // Remove comments
-        sourceCode = sourceCode.replaceAll("/\\*[\\s\\S]*?\\*/", "");
-        sourceCode = sourceCode.replaceAll("//.*", "");
-        
-        // Remove preprocessor directives (basic)
-        sourceCode = sourceCode.replaceAll("^\\s*#.*$", "");
-        
         // Remove template declarations for simplicity
-        sourceCode = sourceCode.replaceAll("template\\s*<[^>]*>\\s*", "");
+        sourceCode = SourceText.blank(sourceCode, TEMPLATE_PATTERN);
         
         return sourceCode;
     }
@@ -140,23 +168,27 @@ public class CppParser implements Parser {
         // In a full implementation, you'd maintain namespace context
     }
     
-    private ClassDeclarationNode parseClass(String className, String baseClass, String classBody, int lineNumber) {
-        ClassDeclarationNode classNode = new ClassDeclarationNode(className, true, lineNumber, 1);
+    private ClassDeclarationNode parseClass(String className, String baseClass, TokenStream tokens,
+                                            TokenStream.Block classBody, int offset, SourceText source) {
+        ClassDeclarationNode classNode = new ClassDeclarationNode(className, true,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
         
         String currentVisibility = "private"; // C++ default
         
-        // Parse methods and fields in the class
-        String[] lines = classBody.split("\n");
-        StringBuilder currentSection = new StringBuilder();
-        
-        for (String line : lines) {
-            line = line.trim();
-            
+        // Parse methods and fields in the class, one member statement at a time;
+        // statements inside method bodies are nested deeper and never visited
+        DeclarationMatcher memberMatcher = tokens.match(MEMBER_PATTERN, classBody);
+        while (memberMatcher.find()) {
             // Check for visibility modifiers
-            if (line.matches("(public|private|protected)\\s*:")) {
-                currentVisibility = line.replaceAll("\\s*:", "").trim();
+            if (memberMatcher.group(1) != null) {
+                currentVisibility = memberMatcher.group(1);
+            }
+            
+            String line = memberMatcher.group(2).trim();
+            if (line.isEmpty()) {
                 continue;
             }
+            int lineOffset = memberMatcher.start(2) + memberMatcher.group(2).indexOf(line);
             
             // Parse methods
             Matcher methodMatcher = METHOD_PATTERN.matcher(line);
@@ -166,11 +198,13 @@ public class CppParser implements Parser {
                 String parameters = methodMatcher.group(4);
                 
                 returnType = mapCppTypeToJava(returnType);
-                List<ParameterNode> paramList = parseParameters(parameters);
+                List<ParameterNode> paramList = parseParameters(parameters, lineOffset + methodMatcher.start(4), source);
                 boolean isPublic = "public".equals(currentVisibility);
+                int memberOffset = lineOffset + methodMatcher.start();
                 
                 FunctionDeclarationNode methodNode = new FunctionDeclarationNode(
-                    methodName, returnType, paramList, isPublic, false, lineNumber, 1
+                    methodName, returnType, paramList, isPublic, false,
+                    source.getLineNumber(memberOffset), source.getColumnNumber(memberOffset)
                 );
                 
                 classNode.addChild(methodNode);
@@ -181,11 +215,13 @@ public class CppParser implements Parser {
             Matcher constructorMatcher = CONSTRUCTOR_PATTERN.matcher(line);
             if (constructorMatcher.find() && constructorMatcher.group(2).equals(className)) {
                 String parameters = constructorMatcher.group(3);
-                List<ParameterNode> paramList = parseParameters(parameters);
+                List<ParameterNode> paramList = parseParameters(parameters, lineOffset + constructorMatcher.start(3), source);
                 boolean isPublic = "public".equals(currentVisibility);
+                int memberOffset = lineOffset + constructorMatcher.start();
                 
                 FunctionDeclarationNode constructorNode = new FunctionDeclarationNode(
-                    className, "void", paramList, isPublic, false, lineNumber, 1
+                    className, "void", paramList, isPublic, false,
+                    source.getLineNumber(memberOffset), source.getColumnNumber(memberOffset)
                 );
                 
                 classNode.addChild(constructorNode);
@@ -200,9 +236,11 @@ public class CppParser implements Parser {
                 
                 fieldType = mapCppTypeToJava(fieldType);
                 boolean isPublic = "public".equals(currentVisibility);
+                int memberOffset = lineOffset + fieldMatcher.start();
                 
                 VariableDeclarationNode fieldNode = new VariableDeclarationNode(
-                    fieldName, fieldType, true, null, lineNumber, 1
+                    fieldName, fieldType, true, null,
+                    source.getLineNumber(memberOffset), source.getColumnNumber(memberOffset)
                 );
                 
                 classNode.addChild(fieldNode);
@@ -212,7 +250,7 @@ public class CppParser implements Parser {
         return classNode;
     }
     
-    private List<ParameterNode> parseParameters(String paramString) {
+    private List<ParameterNode> parseParameters(String paramString, int offset, SourceText source) {
         List<ParameterNode> parameters = new ArrayList<>();
         
         if (paramString == null || paramString.trim().isEmpty() || "void".equals(paramString.trim())) {
@@ -220,7 +258,10 @@ public class CppParser implements Parser {
         }
         
         String[] params = paramString.split(",");
+        int paramStart = offset;
         for (String param : params) {
+            int paramOffset = paramStart + (param.length() - param.stripLeading().length());
+            paramStart += param.length() + 1;
             param = param.trim();
             if (param.isEmpty()) continue;
             
@@ -246,7 +287,8 @@ public class CppParser implements Parser {
                     name = name.substring(1);
                 }
                 
-                parameters.add(new ParameterNode(name, type, false, 1, 1));
+                parameters.add(new ParameterNode(name, type, false,
+                    source.getLineNumber(paramOffset), source.getColumnNumber(paramOffset)));
             }
         }
         
@@ -325,13 +367,4 @@ public class CppParser implements Parser {
         }
     }
     
-    private int getLineNumber(String text, int position) {
-        int lineNumber = 1;
-        for (int i = 0; i < position && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') {
-                lineNumber++;
-            }
-        }
-        return lineNumber;
-    }
 }
\ No newline at end of file
@@ -4,27 +4,31 @@ import com.davajava.migrator.core.ParseException;
 import com.davajava.migrator.core.Parser;
 import com.davajava.migrator.core.SourceLanguage;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.parser.SourceText;
+import com.davajava.migrator.parser.lexer.DeclarationMatcher;
+import com.davajava.migrator.parser.lexer.Lexer;
+import com.davajava.migrator.parser.lexer.LexerSyntax;
+import com.davajava.migrator.parser.lexer.TokenStream;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.logging.Logger;
 
 public class CSharpParser implements Parser {
     private static final Logger logger = Logger.getLogger(CSharpParser.class.getName());
     
-    // C# specific patterns
+    // C# specific patterns; bodies come from the token stream's brace matching
     private static final Pattern NAMESPACE_PATTERN = Pattern.compile(
-        "^\\s*namespace\\s+(\\w+(?:\\.\\w+)*)\\s*\\{([^}]*)\\}",
+        "^\\s*namespace\\s+(\\w+(?:\\.\\w+)*)\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
     private static final Pattern CLASS_PATTERN = Pattern.compile(
-        "^\\s*(?:(public|private|protected|internal)\\s+)?(?:(static|sealed|abstract)\\s+)?class\\s+(\\w+)(?:\\s*:\\s*([\\w\\s,<>]+))?\\s*\\{([^}]*)\\}",
+        "^\\s*(?:(public|private|protected|internal)\\s+)?(?:(static|sealed|abstract)\\s+)?class\\s+(\\w+)(?:\\s*:\\s*([\\w\\s,<>]+))?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
@@ -34,7 +38,7 @@ public class CSharpParser implements Parser {
     );
     
     private static final Pattern PROPERTY_PATTERN = Pattern.compile(
-        "^\\s*(?:(public|private|protected|internal)\\s+)?(?:(static)\\s+)?([\\w\\[\\]<>]+)\\s+(\\w+)\\s*\\{[^}]*\\}",
+        "^\\s*(?:(public|private|protected|internal)\\s+)?(?:(static)\\s+)?([\\w\\[\\]<>]+)\\s+(\\w+)\\s*\\{",
         Pattern.MULTILINE
     );
     
@@ -51,33 +55,27 @@ public class CSharpParser implements Parser {
     @Override
     public ASTNode parse(String sourceCode) throws ParseException {
         try {
-            sourceCode = preprocessSource(sourceCode);
             ProgramNode program = new ProgramNode(1, 1);
+            SourceText source = new SourceText(sourceCode);
+            TokenStream tokens = Lexer.tokenize(sourceCode, LexerSyntax.CSHARP);
             
             // Parse namespaces
-            Matcher namespaceMatcher = NAMESPACE_PATTERN.matcher(sourceCode);
+            DeclarationMatcher namespaceMatcher = tokens.match(NAMESPACE_PATTERN);
             while (namespaceMatcher.find()) {
+                TokenStream.Block namespaceBody = namespaceMatcher.body();
+                if (namespaceBody == null) {
+                    continue;
+                }
                 String namespaceName = namespaceMatcher.group(1);
-                String namespaceContent = namespaceMatcher.group(2);
                 
                 // For simplicity, parse namespace content directly into program
-                parseNamespaceContent(program, namespaceContent, namespaceName);
+                parseNamespaceContent(program, tokens, namespaceBody, namespaceName, source);
             }
             
             // Also parse any classes outside of namespaces
-            Matcher classMatcher = CLASS_PATTERN.matcher(sourceCode);
-            while (classMatcher.find()) {
-                String visibility = classMatcher.group(1);
-                String modifiers = classMatcher.group(2);
-                String className = classMatcher.group(3);
-                String baseClasses = classMatcher.group(4);
-                String classBody = classMatcher.group(5);
-                
-                ClassDeclarationNode classNode = parseClass(className, visibility, modifiers, baseClasses, classBody, 
-                    getLineNumber(sourceCode, classMatcher.start()));
-                program.addChild(classNode);
-            }
+            parseClasses(program, tokens.matchTopLevel(CLASS_PATTERN), tokens, source);
             
+            program.compact();
             return program;
             
         } catch (Exception e) {
@@ -101,53 +99,48 @@ public class CSharpParser implements Parser {
         return fileName.endsWith(".cs");
     }
     
-    private String preprocessSource(String sourceCode) {
-        // Remove single-line comments
-        sourceCode = sourceCode.replaceAll("//.*", "");
-        
-        // Remove multi-line comments
-        sourceCode = sourceCode.replaceAll("/\\*[\\s\\S]*?\\*/", "");
-        
-        // Remove regions for simplicity
-        sourceCode = sourceCode.replaceAll("^\\s*#region[^\\n]*\\n", "");
-        sourceCode = sourceCode.replaceAll("^\\s*#endregion[^\\n]*\\n", "");
-        
-        // Remove other preprocessor directives
-        sourceCode = sourceCode.replaceAll("^\\s*#.*$", "");
-        
-        return sourceCode;
+    private void parseNamespaceContent(ProgramNode program, TokenStream tokens, TokenStream.Block namespaceBody,
+                                       String namespaceName, SourceText source) {
+        // Parse classes within the namespace
+        parseClasses(program, tokens.match(CLASS_PATTERN, namespaceBody), tokens, source);
     }
     
-    private void parseNamespaceContent(ProgramNode program, String namespaceContent, String namespaceName) {
-        // Parse classes within the namespace
-        Matcher classMatcher = CLASS_PATTERN.matcher(namespaceContent);
+    private void parseClasses(ProgramNode program, DeclarationMatcher classMatcher, TokenStream tokens, SourceText source) {
         while (classMatcher.find()) {
+            TokenStream.Block classBody = classMatcher.body();
+            if (classBody == null) {
+                continue;
+            }
             String visibility = classMatcher.group(1);
             String modifiers = classMatcher.group(2);
             String className = classMatcher.group(3);
             String baseClasses = classMatcher.group(4);
-            String classBody = classMatcher.group(5);
             
-            ClassDeclarationNode classNode = parseClass(className, visibility, modifiers, baseClasses, classBody, 
-                getLineNumber(namespaceContent, classMatcher.start()));
+            ClassDeclarationNode classNode = parseClass(className, visibility, modifiers, baseClasses, tokens, classBody, 
+                classMatcher.start(), source);
             program.addChild(classNode);
         }
     }
     
     private ClassDeclarationNode parseClass(String className, String visibility, String modifiers, 
-                                          String baseClasses, String classBody, int lineNumber) {
+                                          String baseClasses, TokenStream tokens, TokenStream.Block classBody,
+                                          int offset, SourceText source) {
         boolean isPublic = "public".equals(visibility) || visibility == null; // Default to public for simplicity
-        ClassDeclarationNode classNode = new ClassDeclarationNode(className, isPublic, lineNumber, 1);
+        ClassDeclarationNode classNode = new ClassDeclarationNode(className, isPublic,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
         
         // Parse methods, properties, and fields in the class
-        parseClassMembers(classNode, classBody);
+        parseClassMembers(classNode, tokens, classBody, source);
         
         return classNode;
     }
     
-    private void parseClassMembers(ClassDeclarationNode classNode, String classBody) {
+    private void parseClassMembers(ClassDeclarationNode classNode, TokenStream tokens, TokenStream.Block classBody,
+                                   SourceText source) {
+        // Only direct members are matched, so statements inside method bodies are never taken for fields
+        
         // Parse methods
-        Matcher methodMatcher = METHOD_PATTERN.matcher(classBody);
+        DeclarationMatcher methodMatcher = tokens.match(METHOD_PATTERN, classBody);
         while (methodMatcher.find()) {
             String visibility = methodMatcher.group(1);
             String modifiers = methodMatcher.group(2);
@@ -155,20 +148,26 @@ public class CSharpParser implements Parser {
             String methodName = methodMatcher.group(4);
             String parameters = methodMatcher.group(5);
             
+            // "public Name(...)" also fits the pattern, with the modifier taken for the return type
+            if (methodName.equals(classNode.getName())) {
+                continue;
+            }
+            
             returnType = mapCSharpTypeToJava(returnType);
-            List<ParameterNode> paramList = parseParameters(parameters);
+            List<ParameterNode> paramList = parseParameters(parameters, methodMatcher.start(5), source);
             boolean isPublic = "public".equals(visibility) || visibility == null;
             boolean isStatic = "static".equals(modifiers);
             
             FunctionDeclarationNode methodNode = new FunctionDeclarationNode(
-                methodName, returnType, paramList, isPublic, isStatic, 1, 1
+                methodName, returnType, paramList, isPublic, isStatic,
+                source.getLineNumber(methodMatcher.start()), source.getColumnNumber(methodMatcher.start())
             );
             
             classNode.addChild(methodNode);
         }
         
         // Parse properties (treat as getter/setter methods)
-        Matcher propertyMatcher = PROPERTY_PATTERN.matcher(classBody);
+        DeclarationMatcher propertyMatcher = tokens.match(PROPERTY_PATTERN, classBody);
         while (propertyMatcher.find()) {
             String visibility = propertyMatcher.group(1);
             String modifiers = propertyMatcher.group(2);
@@ -178,24 +177,26 @@ public class CSharpParser implements Parser {
             propertyType = mapCSharpTypeToJava(propertyType);
             boolean isPublic = "public".equals(visibility) || visibility == null;
             boolean isStatic = "static".equals(modifiers);
+            int line = source.getLineNumber(propertyMatcher.start());
+            int column = source.getColumnNumber(propertyMatcher.start());
             
             // Create getter
             FunctionDeclarationNode getter = new FunctionDeclarationNode(
-                "get" + capitalize(propertyName), propertyType, new ArrayList<>(), isPublic, isStatic, 1, 1
+                "get" + capitalize(propertyName), propertyType, new ArrayList<>(), isPublic, isStatic, line, column
             );
             classNode.addChild(getter);
             
             // Create setter
             List<ParameterNode> setterParams = new ArrayList<>();
-            setterParams.add(new ParameterNode("value", propertyType, false, 1, 1));
+            setterParams.add(new ParameterNode("value", propertyType, false, line, column));
             FunctionDeclarationNode setter = new FunctionDeclarationNode(
-                "set" + capitalize(propertyName), "void", setterParams, isPublic, isStatic, 1, 1
+                "set" + capitalize(propertyName), "void", setterParams, isPublic, isStatic, line, column
             );
             classNode.addChild(setter);
         }
         
         // Parse fields
-        Matcher fieldMatcher = FIELD_PATTERN.matcher(classBody);
+        DeclarationMatcher fieldMatcher = tokens.match(FIELD_PATTERN, classBody);
         while (fieldMatcher.find()) {
             String visibility = fieldMatcher.group(1);
             String modifiers = fieldMatcher.group(2);
@@ -205,14 +206,15 @@ public class CSharpParser implements Parser {
             fieldType = mapCSharpTypeToJava(fieldType);
             
             VariableDeclarationNode fieldNode = new VariableDeclarationNode(
-                fieldName, fieldType, true, null, 1, 1
+                fieldName, fieldType, true, null,
+                source.getLineNumber(fieldMatcher.start()), source.getColumnNumber(fieldMatcher.start())
             );
             
             classNode.addChild(fieldNode);
         }
     }
     
-    private List<ParameterNode> parseParameters(String paramString) {
+    private List<ParameterNode> parseParameters(String paramString, int offset, SourceText source) {
         List<ParameterNode> parameters = new ArrayList<>();
         
         if (paramString == null || paramString.trim().isEmpty()) {
@@ -220,7 +222,10 @@ public class CSharpParser implements Parser {
         }
         
         String[] params = paramString.split(",");
+        int paramStart = offset;
         for (String param : params) {
+            int paramOffset = paramStart + (param.length() - param.stripLeading().length());
+            paramStart += param.length() + 1;
             param = param.trim();
             if (param.isEmpty()) continue;
             
@@ -243,7 +248,8 @@ public class CSharpParser implements Parser {
                 String type = mapCSharpTypeToJava(typeBuilder.toString());
                 String name = parts[parts.length - 1];
                 
-                parameters.add(new ParameterNode(name, type, false, 1, 1));
+                parameters.add(new ParameterNode(name, type, false,
+                    source.getLineNumber(paramOffset), source.getColumnNumber(paramOffset)));
             }
         }
         
@@ -306,13 +312,4 @@ public class CSharpParser implements Parser {
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
     
-    private int getLineNumber(String text, int position) {
-        int lineNumber = 1;
-        for (int i = 0; i < position && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') {
-                lineNumber++;
-            }
-        }
-        return lineNumber;
-    }
 }
\ No newline at end of file
@@ -4,6 +4,11 @@ import com.davajava.migrator.core.ParseException;
 import com.davajava.migrator.core.Parser;
 import com.davajava.migrator.core.SourceLanguage;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.parser.SourceText;
+import com.davajava.migrator.parser.lexer.DeclarationMatcher;
+import com.davajava.migrator.parser.lexer.Lexer;
+import com.davajava.migrator.parser.lexer.LexerSyntax;
+import com.davajava.migrator.parser.lexer.TokenStream;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -17,19 +22,19 @@ import java.util.logging.Logger;
 public class GoParser implements Parser {
     private static final Logger logger = Logger.getLogger(GoParser.class.getName());
     
-    // Go specific patterns
+    // Go specific patterns; struct and interface bodies come from the token stream's brace matching
     private static final Pattern PACKAGE_PATTERN = Pattern.compile(
         "^\\s*package\\s+(\\w+)",
         Pattern.MULTILINE
     );
     
     private static final Pattern STRUCT_PATTERN = Pattern.compile(
-        "^\\s*type\\s+(\\w+)\\s+struct\\s*\\{([^}]*)\\}",
+        "^\\s*type\\s+(\\w+)\\s+struct\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
     private static final Pattern INTERFACE_PATTERN = Pattern.compile(
-        "^\\s*type\\s+(\\w+)\\s+interface\\s*\\{([^}]*)\\}",
+        "^\\s*type\\s+(\\w+)\\s+interface\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
@@ -57,37 +62,53 @@ public class GoParser implements Parser {
         "^\\s*type\\s+(\\w+)\\s+([\\w\\[\\]\\*\\s,<>]+)",
         Pattern.MULTILINE
     );
+    
+    private static final Pattern IMPORT_PATTERN = Pattern.compile(
+        "^\\s*import\\s+[^\\n]*\\n"
+    );
+    
+    private static final Pattern IMPORT_BLOCK_PATTERN = Pattern.compile(
+        "^\\s*import\\s*\\([^\\)]*\\)"
+    );
 
     @Override
     public ASTNode parse(String sourceCode) throws ParseException {
         try {
             sourceCode = preprocessSource(sourceCode);
             ProgramNode program = new ProgramNode(1, 1);
+            SourceText source = new SourceText(sourceCode);
+            TokenStream tokens = Lexer.tokenize(sourceCode, LexerSyntax.GO);
             
             // Parse interfaces first
-            Matcher interfaceMatcher = INTERFACE_PATTERN.matcher(sourceCode);
+            DeclarationMatcher interfaceMatcher = tokens.match(INTERFACE_PATTERN);
             while (interfaceMatcher.find()) {
+                TokenStream.Block interfaceBody = interfaceMatcher.body();
+                if (interfaceBody == null) {
+                    continue;
+                }
                 String interfaceName = interfaceMatcher.group(1);
-                String interfaceBody = interfaceMatcher.group(2);
                 
                 ClassDeclarationNode interfaceNode = parseInterface(interfaceName, interfaceBody,
-                    getLineNumber(sourceCode, interfaceMatcher.start()));
+                    interfaceMatcher.start(), source);
                 program.addChild(interfaceNode);
             }
             
             // Parse structs
-            Matcher structMatcher = STRUCT_PATTERN.matcher(sourceCode);
+            DeclarationMatcher structMatcher = tokens.match(STRUCT_PATTERN);
             while (structMatcher.find()) {
+                TokenStream.Block body = structMatcher.body();
+                if (body == null) {
+                    continue;
+                }
                 String structName = structMatcher.group(1);
-                String structBody = structMatcher.group(2);
                 
-                ClassDeclarationNode structClass = parseStruct(structName, structBody,
-                    getLineNumber(sourceCode, structMatcher.start()));
+                ClassDeclarationNode structClass = parseStruct(structName, body,
+                    structMatcher.start(), source);
                 program.addChild(structClass);
             }
             
             // Parse standalone functions
-            Matcher functionMatcher = FUNCTION_PATTERN.matcher(sourceCode);
+            DeclarationMatcher functionMatcher = tokens.match(FUNCTION_PATTERN);
             while (functionMatcher.find()) {
                 String functionName = functionMatcher.group(1);
                 String parameters = functionMatcher.group(2);
@@ -96,28 +117,31 @@ public class GoParser implements Parser {
                 
                 FunctionDeclarationNode funcNode = parseFunction(functionName, parameters, 
                     namedReturns != null ? namedReturns : simpleReturn,
-                    getLineNumber(sourceCode, functionMatcher.start()));
+                    functionMatcher.start(2), functionMatcher.start(), source);
                 program.addChild(funcNode);
             }
             
             // Parse type aliases
-            Matcher typeAliasMatcher = TYPE_ALIAS_PATTERN.matcher(sourceCode);
+            Matcher typeAliasMatcher = TYPE_ALIAS_PATTERN.matcher(tokens.getCode());
             while (typeAliasMatcher.find()) {
                 String aliasName = typeAliasMatcher.group(1);
                 String baseType = typeAliasMatcher.group(2);
                 
                 // Create a simple class for type alias
+                int aliasOffset = typeAliasMatcher.start() + typeAliasMatcher.group().indexOf("type");
                 ClassDeclarationNode aliasClass = new ClassDeclarationNode(aliasName, true,
-                    getLineNumber(sourceCode, typeAliasMatcher.start()), 1);
+                    source.getLineNumber(aliasOffset), source.getColumnNumber(aliasOffset));
                 
                 // Add a field to represent the underlying type
                 VariableDeclarationNode valueField = new VariableDeclarationNode(
-                    "value", mapGoTypeToJava(baseType), false, null, 1, 1);
+                    "value", mapGoTypeToJava(baseType), false, null,
+                    source.getLineNumber(typeAliasMatcher.start(2)), source.getColumnNumber(typeAliasMatcher.start(2)));
                 aliasClass.addChild(valueField);
                 
                 program.addChild(aliasClass);
             }
             
+            program.compact();
             return program;
             
         } catch (Exception e) {
@@ -142,23 +166,24 @@ public class GoParser implements Parser {
     }
     
     private String preprocessSource(String sourceCode) {
-        // Remove comments
-        sourceCode = sourceCode.replaceAll("/\\*[\\s\\S]*?\\*/", "");
-        sourceCode = sourceCode.replaceAll("//.*", "");
-        
         // Remove import statements for now
-        sourceCode = sourceCode.replaceAll("^\\s*import\\s+[^\\n]*\\n", "");
-        sourceCode = sourceCode.replaceAll("^\\s*import\\s*\\([^\\)]*\\)", "");
+        sourceCode = SourceText.blank(sourceCode, IMPORT_PATTERN);
+        sourceCode = SourceText.blank(sourceCode, IMPORT_BLOCK_PATTERN);
         
         return sourceCode;
     }
     
-    private ClassDeclarationNode parseInterface(String interfaceName, String interfaceBody, int lineNumber) {
-        ClassDeclarationNode interfaceNode = new ClassDeclarationNode(interfaceName, true, lineNumber, 1);
+    private ClassDeclarationNode parseInterface(String interfaceName, TokenStream.Block interfaceBody,
+                                                int offset, SourceText source) {
+        ClassDeclarationNode interfaceNode = new ClassDeclarationNode(interfaceName, true,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
         
         // Parse interface methods
-        String[] methods = interfaceBody.split("\\n");
+        String[] methods = interfaceBody.getCode().split("\\n");
+        int lineStart = interfaceBody.getStart();
         for (String method : methods) {
+            int methodOffset = lineStart + (method.length() - method.stripLeading().length());
+            lineStart += method.length() + 1;
             method = method.trim();
             if (method.isEmpty()) continue;
             
@@ -173,10 +198,12 @@ public class GoParser implements Parser {
                 String simpleReturn = methodMatcher.group(4);
                 
                 String returnType = namedReturns != null ? "Object" : (simpleReturn != null ? mapGoTypeToJava(simpleReturn.trim()) : "void");
-                List<ParameterNode> paramList = parseParameters(parameters);
+                List<ParameterNode> paramList = parseParameters(parameters, methodOffset + methodMatcher.start(2), source);
                 
                 FunctionDeclarationNode interfaceMethod = new FunctionDeclarationNode(
-                    methodName, returnType, paramList, true, false, lineNumber, 1
+                    methodName, returnType, paramList, true, false,
+                    source.getLineNumber(methodOffset + methodMatcher.start()),
+                    source.getColumnNumber(methodOffset + methodMatcher.start())
                 );
                 interfaceNode.addChild(interfaceMethod);
             }
@@ -185,8 +212,11 @@ public class GoParser implements Parser {
         return interfaceNode;
     }
     
-    private ClassDeclarationNode parseStruct(String structName, String structBody, int lineNumber) {
-        ClassDeclarationNode structClass = new ClassDeclarationNode(structName, true, lineNumber, 1);
+    private ClassDeclarationNode parseStruct(String structName, TokenStream.Block body, int offset, SourceText source) {
+        int line = source.getLineNumber(offset);
+        int column = source.getColumnNumber(offset);
+        ClassDeclarationNode structClass = new ClassDeclarationNode(structName, true, line, column);
+        String structBody = body.getCode();
         
         // Parse struct fields
         Matcher fieldMatcher = FIELD_PATTERN.matcher(structBody);
@@ -196,23 +226,26 @@ public class GoParser implements Parser {
             String tags = fieldMatcher.group(3); // JSON tags, etc.
             
             String javaType = mapGoTypeToJava(fieldType.trim());
+            int fieldOffset = body.getStart() + fieldMatcher.start(1);
+            int fieldLine = source.getLineNumber(fieldOffset);
+            int fieldColumn = source.getColumnNumber(fieldOffset);
             
             VariableDeclarationNode field = new VariableDeclarationNode(
-                fieldName, javaType, true, null, lineNumber, 1
+                fieldName, javaType, true, null, fieldLine, fieldColumn
             );
             structClass.addChild(field);
             
             // Generate getter
             FunctionDeclarationNode getter = new FunctionDeclarationNode(
-                "get" + capitalize(fieldName), javaType, new ArrayList<>(), true, false, lineNumber, 1
+                "get" + capitalize(fieldName), javaType, new ArrayList<>(), true, false, fieldLine, fieldColumn
             );
             structClass.addChild(getter);
             
             // Generate setter
             List<ParameterNode> setterParams = new ArrayList<>();
-            setterParams.add(new ParameterNode("value", javaType, false, lineNumber, 1));
+            setterParams.add(new ParameterNode("value", javaType, false, fieldLine, fieldColumn));
             FunctionDeclarationNode setter = new FunctionDeclarationNode(
-                "set" + capitalize(fieldName), "void", setterParams, true, false, lineNumber, 1
+                "set" + capitalize(fieldName), "void", setterParams, true, false, fieldLine, fieldColumn
             );
             structClass.addChild(setter);
         }
@@ -225,19 +258,22 @@ public class GoParser implements Parser {
             String fieldName = constructorFieldMatcher.group(1);
             String fieldType = constructorFieldMatcher.group(2);
             String javaType = mapGoTypeToJava(fieldType.trim());
+            int fieldOffset = body.getStart() + constructorFieldMatcher.start(1);
             
-            constructorParams.add(new ParameterNode(fieldName, javaType, false, lineNumber, 1));
+            constructorParams.add(new ParameterNode(fieldName, javaType, false,
+                source.getLineNumber(fieldOffset), source.getColumnNumber(fieldOffset)));
         }
         
         FunctionDeclarationNode constructor = new FunctionDeclarationNode(
-            structName, "void", constructorParams, true, false, lineNumber, 1
+            structName, "void", constructorParams, true, false, line, column
         );
         structClass.addChild(constructor);
         
         return structClass;
     }
     
-    private FunctionDeclarationNode parseFunction(String functionName, String parameters, String returnType, int lineNumber) {
+    private FunctionDeclarationNode parseFunction(String functionName, String parameters, String returnType,
+                                                  int parametersOffset, int offset, SourceText source) {
         String javaReturnType = "void";
         
         if (returnType != null && !returnType.trim().isEmpty()) {
@@ -249,14 +285,15 @@ public class GoParser implements Parser {
             }
         }
         
-        List<ParameterNode> paramList = parseParameters(parameters);
+        List<ParameterNode> paramList = parseParameters(parameters, parametersOffset, source);
         
         return new FunctionDeclarationNode(
-            functionName, javaReturnType, paramList, true, true, lineNumber, 1
+            functionName, javaReturnType, paramList, true, true,
+            source.getLineNumber(offset), source.getColumnNumber(offset)
         );
     }
     
-    private List<ParameterNode> parseParameters(String paramString) {
+    private List<ParameterNode> parseParameters(String paramString, int offset, SourceText source) {
         List<ParameterNode> parameters = new ArrayList<>();
         
         if (paramString == null || paramString.trim().isEmpty()) {
@@ -265,7 +302,11 @@ public class GoParser implements Parser {
         
         // Go parameters can be: name type, name1 name2 type, etc.
         String[] parts = paramString.split(",");
+        int partStart = offset;
         for (String part : parts) {
+            int partOffset = partStart;
+            partStart += part.length() + 1;
+            String rawPart = part;
             part = part.trim();
             if (part.isEmpty()) continue;
             
@@ -276,15 +317,21 @@ public class GoParser implements Parser {
                 String javaType = mapGoTypeToJava(type);
                 
                 // All but last tokens are parameter names
+                int searchFrom = 0;
                 for (int i = 0; i < tokens.length - 1; i++) {
                     String name = tokens[i];
-                    parameters.add(new ParameterNode(name, javaType, false, 1, 1));
+                    int nameIndex = rawPart.indexOf(name, searchFrom);
+                    searchFrom = nameIndex + name.length();
+                    parameters.add(new ParameterNode(name, javaType, false,
+                        source.getLineNumber(partOffset + nameIndex), source.getColumnNumber(partOffset + nameIndex)));
                 }
             } else if (tokens.length == 1) {
                 // Only type provided, generate name
                 String type = tokens[0];
                 String javaType = mapGoTypeToJava(type);
-                parameters.add(new ParameterNode("param" + parameters.size(), javaType, false, 1, 1));
+                int typeOffset = partOffset + rawPart.indexOf(type);
+                parameters.add(new ParameterNode("param" + parameters.size(), javaType, false,
+                    source.getLineNumber(typeOffset), source.getColumnNumber(typeOffset)));
             }
         }
         
@@ -385,13 +432,4 @@ public class GoParser implements Parser {
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
     
-    private int getLineNumber(String text, int position) {
-        int lineNumber = 1;
-        for (int i = 0; i < position && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') {
-                lineNumber++;
-            }
-        }
-        return lineNumber;
-    }
 }
\ No newline at end of file
@@ -4,22 +4,26 @@ import com.davajava.migrator.core.ParseException;
 import com.davajava.migrator.core.Parser;
 import com.davajava.migrator.core.SourceLanguage;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.parser.SourceText;
+import com.davajava.migrator.parser.lexer.DeclarationMatcher;
+import com.davajava.migrator.parser.lexer.Lexer;
+import com.davajava.migrator.parser.lexer.LexerSyntax;
+import com.davajava.migrator.parser.lexer.TokenStream;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.logging.Logger;
 
 public class JavaScriptParser implements Parser {
     private static final Logger logger = Logger.getLogger(JavaScriptParser.class.getName());
     
-    // JavaScript/ES6+ patterns
+    // JavaScript/ES6+ patterns; class and interface bodies come from the token stream's brace matching
     private static final Pattern CLASS_PATTERN = Pattern.compile(
-        "^\\s*(?:export\\s+)?(?:default\\s+)?class\\s+(\\w+)(?:\\s+extends\\s+(\\w+))?\\s*\\{([^}]*)\\}",
+        "^\\s*(?:export\\s+)?(?:default\\s+)?class\\s+(\\w+)(?:\\s+extends\\s+(\\w+))?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
@@ -49,72 +53,85 @@ public class JavaScriptParser implements Parser {
     );
     
     private static final Pattern INTERFACE_PATTERN = Pattern.compile(
-        "^\\s*(?:export\\s+)?interface\\s+(\\w+)(?:\\s+extends\\s+([\\w\\s,<>]+))?\\s*\\{([^}]*)\\}",
+        "^\\s*(?:export\\s+)?interface\\s+(\\w+)(?:\\s+extends\\s+([\\w\\s,<>]+))?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
+    
+    private static final Pattern IMPORT_PATTERN = Pattern.compile(
+        "^\\s*(?:import|const|let|var)\\s+[^\\n]*(?:from|require)[^\\n]*\\n"
+    );
 
     @Override
     public ASTNode parse(String sourceCode) throws ParseException {
         try {
             sourceCode = preprocessSource(sourceCode);
             ProgramNode program = new ProgramNode(1, 1);
+            SourceText source = new SourceText(sourceCode);
+            TokenStream tokens = Lexer.tokenize(sourceCode, LexerSyntax.JAVASCRIPT);
             
             // Parse TypeScript interfaces first (if present)
-            Matcher interfaceMatcher = INTERFACE_PATTERN.matcher(sourceCode);
+            DeclarationMatcher interfaceMatcher = tokens.match(INTERFACE_PATTERN);
             while (interfaceMatcher.find()) {
+                TokenStream.Block interfaceBody = interfaceMatcher.body();
+                if (interfaceBody == null) {
+                    continue;
+                }
                 String interfaceName = interfaceMatcher.group(1);
                 String extendsTypes = interfaceMatcher.group(2);
-                String interfaceBody = interfaceMatcher.group(3);
                 
-                ClassDeclarationNode interfaceNode = parseInterface(interfaceName, interfaceBody, 
-                    getLineNumber(sourceCode, interfaceMatcher.start()));
+                ClassDeclarationNode interfaceNode = parseInterface(interfaceName, tokens, interfaceBody, 
+                    interfaceMatcher.start(), source);
                 program.addChild(interfaceNode);
             }
             
             // Parse ES6 classes
-            Matcher classMatcher = CLASS_PATTERN.matcher(sourceCode);
+            DeclarationMatcher classMatcher = tokens.match(CLASS_PATTERN);
             while (classMatcher.find()) {
+                TokenStream.Block classBody = classMatcher.body();
+                if (classBody == null) {
+                    continue;
+                }
                 String className = classMatcher.group(1);
                 String superClass = classMatcher.group(2);
-                String classBody = classMatcher.group(3);
                 
-                ClassDeclarationNode classNode = parseClass(className, superClass, classBody, 
-                    getLineNumber(sourceCode, classMatcher.start()));
+                ClassDeclarationNode classNode = parseClass(className, superClass, tokens, classBody, 
+                    classMatcher.start(), source);
                 program.addChild(classNode);
             }
             
             // Parse standalone functions
-            Matcher functionMatcher = FUNCTION_PATTERN.matcher(sourceCode);
+            DeclarationMatcher functionMatcher = tokens.match(FUNCTION_PATTERN);
             while (functionMatcher.find()) {
                 String functionName = functionMatcher.group(1);
                 String parameters = functionMatcher.group(2);
                 
-                List<ParameterNode> paramList = parseParameters(parameters);
+                List<ParameterNode> paramList = parseParameters(parameters, functionMatcher.start(2), source);
                 
                 FunctionDeclarationNode funcNode = new FunctionDeclarationNode(
                     functionName, "Object", paramList, true, true,
-                    getLineNumber(sourceCode, functionMatcher.start()), 1
+                    source.getLineNumber(functionMatcher.start()), source.getColumnNumber(functionMatcher.start())
                 );
                 
                 program.addChild(funcNode);
             }
             
             // Parse arrow functions assigned to variables
-            Matcher arrowMatcher = ARROW_FUNCTION_PATTERN.matcher(sourceCode);
+            DeclarationMatcher arrowMatcher = tokens.match(ARROW_FUNCTION_PATTERN);
             while (arrowMatcher.find()) {
                 String functionName = arrowMatcher.group(1);
                 String parameters = arrowMatcher.group(2);
                 
-                List<ParameterNode> paramList = parseParameters(parameters);
+                List<ParameterNode> paramList = parseParameters(parameters, arrowMatcher.start(2), source);
                 
                 FunctionDeclarationNode arrowFunc = new FunctionDeclarationNode(
                     functionName, "Object", paramList, true, true,
-                    getLineNumber(sourceCode, arrowMatcher.start()), 1
+                    source.getLineNumber(arrowMatcher.start()), source.getColumnNumber(arrowMatcher.start())
                 );
                 
                 program.addChild(arrowFunc);
             }
             
+            program.compact();
             return program;
             
         } catch (Exception e) {
@@ -139,33 +156,30 @@ public class JavaScriptParser implements Parser {
     }
     
     private String preprocessSource(String sourceCode) {
-        // Remove single-line comments
-        sourceCode = sourceCode.replaceAll("//.*", "");
-        
-        // Remove multi-line comments
-        sourceCode = sourceCode.replaceAll("/\\*[\\s\\S]*?\\*/", "");
-        
         // Remove import/require statements for now
-        sourceCode = sourceCode.replaceAll("^\\s*(?:import|const|let|var)\\s+[^\\n]*(?:from|require)[^\\n]*\\n", "");
+        sourceCode = SourceText.blank(sourceCode, IMPORT_PATTERN);
         
         return sourceCode;
     }
     
-    private ClassDeclarationNode parseInterface(String interfaceName, String interfaceBody, int lineNumber) {
+    private ClassDeclarationNode parseInterface(String interfaceName, TokenStream tokens, TokenStream.Block interfaceBody,
+                                                int offset, SourceText source) {
         // TypeScript interfaces become abstract classes or interfaces in Java
-        ClassDeclarationNode interfaceNode = new ClassDeclarationNode(interfaceName, true, lineNumber, 1);
+        ClassDeclarationNode interfaceNode = new ClassDeclarationNode(interfaceName, true,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
         
         // Parse interface methods (they become abstract methods)
-        Matcher methodMatcher = METHOD_PATTERN.matcher(interfaceBody);
+        DeclarationMatcher methodMatcher = tokens.match(METHOD_PATTERN, interfaceBody);
         while (methodMatcher.find()) {
             String modifiers = methodMatcher.group(1);
             String methodName = methodMatcher.group(2);
             String parameters = methodMatcher.group(3);
             
-            List<ParameterNode> paramList = parseParameters(parameters);
+            List<ParameterNode> paramList = parseParameters(parameters, methodMatcher.start(3), source);
             
             FunctionDeclarationNode method = new FunctionDeclarationNode(
-                methodName, "Object", paramList, true, false, lineNumber, 1
+                methodName, "Object", paramList, true, false,
+                source.getLineNumber(methodMatcher.start()), source.getColumnNumber(methodMatcher.start())
             );
             interfaceNode.addChild(method);
         }
@@ -173,23 +187,29 @@ public class JavaScriptParser implements Parser {
         return interfaceNode;
     }
     
-    private ClassDeclarationNode parseClass(String className, String superClass, String classBody, int lineNumber) {
-        ClassDeclarationNode classNode = new ClassDeclarationNode(className, true, lineNumber, 1);
+    private ClassDeclarationNode parseClass(String className, String superClass, TokenStream tokens,
+                                            TokenStream.Block classBody, int offset, SourceText source) {
+        ClassDeclarationNode classNode = new ClassDeclarationNode(className, true,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
+        
+        // Only direct members are matched, so statements inside method bodies are never taken for
+        // properties or methods
         
         // Parse constructor
-        Matcher constructorMatcher = CONSTRUCTOR_PATTERN.matcher(classBody);
+        DeclarationMatcher constructorMatcher = tokens.match(CONSTRUCTOR_PATTERN, classBody);
         if (constructorMatcher.find()) {
             String parameters = constructorMatcher.group(1);
-            List<ParameterNode> paramList = parseParameters(parameters);
+            List<ParameterNode> paramList = parseParameters(parameters, constructorMatcher.start(1), source);
             
             FunctionDeclarationNode constructor = new FunctionDeclarationNode(
-                className, "void", paramList, true, false, lineNumber, 1
+                className, "void", paramList, true, false,
+                source.getLineNumber(constructorMatcher.start()), source.getColumnNumber(constructorMatcher.start())
             );
             classNode.addChild(constructor);
         }
         
         // Parse class properties
-        Matcher propertyMatcher = PROPERTY_PATTERN.matcher(classBody);
+        DeclarationMatcher propertyMatcher = tokens.match(PROPERTY_PATTERN, classBody);
         while (propertyMatcher.find()) {
             String isStatic = propertyMatcher.group(1);
             String propertyName = propertyMatcher.group(2);
@@ -198,17 +218,20 @@ public class JavaScriptParser implements Parser {
             // Infer type from initializer or default to Object
             String propertyType = inferTypeFromValue(initializer);
             
+            int line = source.getLineNumber(propertyMatcher.start());
+            int column = source.getColumnNumber(propertyMatcher.start());
+            
             VariableDeclarationNode property = new VariableDeclarationNode(
-                propertyName, propertyType, true, null, lineNumber, 1
+                propertyName, propertyType, true, null, line, column
             );
             classNode.addChild(property);
             
             // Generate getter/setter for properties
-            generatePropertyAccessors(classNode, propertyName, propertyType);
+            generatePropertyAccessors(classNode, propertyName, propertyType, line, column);
         }
         
         // Parse methods
-        Matcher methodMatcher = METHOD_PATTERN.matcher(classBody);
+        DeclarationMatcher methodMatcher = tokens.match(METHOD_PATTERN, classBody);
         while (methodMatcher.find()) {
             String modifiers = methodMatcher.group(1);
             String methodName = methodMatcher.group(2);
@@ -217,14 +240,15 @@ public class JavaScriptParser implements Parser {
             // Skip constructor (already handled)
             if ("constructor".equals(methodName)) continue;
             
-            List<ParameterNode> paramList = parseParameters(parameters);
+            List<ParameterNode> paramList = parseParameters(parameters, methodMatcher.start(3), source);
             boolean isStatic = "static".equals(modifiers);
             boolean isAsync = "async".equals(modifiers);
             
             String returnType = isAsync ? "CompletableFuture<Object>" : "Object";
             
             FunctionDeclarationNode method = new FunctionDeclarationNode(
-                methodName, returnType, paramList, true, isStatic, lineNumber, 1
+                methodName, returnType, paramList, true, isStatic,
+                source.getLineNumber(methodMatcher.start()), source.getColumnNumber(methodMatcher.start())
             );
             classNode.addChild(method);
         }
@@ -232,23 +256,24 @@ public class JavaScriptParser implements Parser {
         return classNode;
     }
     
-    private void generatePropertyAccessors(ClassDeclarationNode classNode, String propertyName, String propertyType) {
+    private void generatePropertyAccessors(ClassDeclarationNode classNode, String propertyName, String propertyType,
+                                           int line, int column) {
         // Getter
         FunctionDeclarationNode getter = new FunctionDeclarationNode(
-            "get" + capitalize(propertyName), propertyType, new ArrayList<>(), true, false, 1, 1
+            "get" + capitalize(propertyName), propertyType, new ArrayList<>(), true, false, line, column
         );
         classNode.addChild(getter);
         
         // Setter
         List<ParameterNode> setterParams = new ArrayList<>();
-        setterParams.add(new ParameterNode("value", propertyType, false, 1, 1));
+        setterParams.add(new ParameterNode("value", propertyType, false, line, column));
         FunctionDeclarationNode setter = new FunctionDeclarationNode(
-            "set" + capitalize(propertyName), "void", setterParams, true, false, 1, 1
+            "set" + capitalize(propertyName), "void", setterParams, true, false, line, column
         );
         classNode.addChild(setter);
     }
     
-    private List<ParameterNode> parseParameters(String paramString) {
+    private List<ParameterNode> parseParameters(String paramString, int offset, SourceText source) {
         List<ParameterNode> parameters = new ArrayList<>();
         
         if (paramString == null || paramString.trim().isEmpty()) {
@@ -256,7 +281,10 @@ public class JavaScriptParser implements Parser {
         }
         
         String[] params = paramString.split(",");
+        int paramStart = offset;
         for (String param : params) {
+            int paramOffset = paramStart + (param.length() - param.stripLeading().length());
+            paramStart += param.length() + 1;
             param = param.trim();
             if (param.isEmpty()) continue;
             
@@ -279,7 +307,8 @@ public class JavaScriptParser implements Parser {
                 type = "Object";
             }
             
-            parameters.add(new ParameterNode(name, type, false, 1, 1));
+            parameters.add(new ParameterNode(name, type, false,
+                source.getLineNumber(paramOffset), source.getColumnNumber(paramOffset)));
         }
         
         return parameters;
@@ -357,13 +386,4 @@ public class JavaScriptParser implements Parser {
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
     
-    private int getLineNumber(String text, int position) {
-        int lineNumber = 1;
-        for (int i = 0; i < position && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') {
-                lineNumber++;
-            }
-        }
-        return lineNumber;
-    }
 }
\ No newline at end of file
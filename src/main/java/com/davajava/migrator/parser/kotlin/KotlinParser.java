@@ -4,27 +4,31 @@ import com.davajava.migrator.core.ParseException;
 import com.davajava.migrator.core.Parser;
 import com.davajava.migrator.core.SourceLanguage;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.parser.SourceText;
+import com.davajava.migrator.parser.lexer.DeclarationMatcher;
+import com.davajava.migrator.parser.lexer.Lexer;
+import com.davajava.migrator.parser.lexer.LexerSyntax;
+import com.davajava.migrator.parser.lexer.TokenStream;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.logging.Logger;
 
 public class KotlinParser implements Parser {
     private static final Logger logger = Logger.getLogger(KotlinParser.class.getName());
     
-    // Kotlin specific patterns
+    // Kotlin specific patterns; class bodies come from the token stream's brace matching
     private static final Pattern PACKAGE_PATTERN = Pattern.compile(
         "^\\s*package\\s+([\\w\\.]+)",
         Pattern.MULTILINE
     );
     
     private static final Pattern CLASS_PATTERN = Pattern.compile(
-        "^\\s*(?:(open|abstract|sealed|final|inner)\\s+)?class\\s+(\\w+)(?:\\s*<([^>]+)>)?(?:\\s*\\(([^)]*)\\))?(?:\\s*:\\s*([\\w\\s,<>()]+))?\\s*\\{([^}]*)\\}",
+        "^\\s*(?:(open|abstract|sealed|final|inner)\\s+)?class\\s+(\\w+)(?:\\s*<([^>]+)>)?(?:\\s*\\(([^)]*)\\))?(?:\\s*:\\s*([\\w\\s,<>()]+))?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
@@ -38,6 +42,11 @@ public class KotlinParser implements Parser {
         Pattern.MULTILINE
     );
     
+    private static final Pattern OBJECT_PATTERN = Pattern.compile(
+        "^\\s*(?:(companion)\\s+)?object(?:\\s+(\\w+))?(?:\\s*:\\s*[^\\{]+)?\\s*\\{",
+        Pattern.MULTILINE
+    );
+    
     private static final Pattern PROPERTY_PATTERN = Pattern.compile(
         "^\\s*(?:(val|var)\\s+)(\\w+)(?:\\s*:\\s*([^\\=\\n]+))?(?:\\s*=\\s*([^\\n]+))?",
         Pattern.MULTILINE
@@ -47,62 +56,63 @@ public class KotlinParser implements Parser {
         "^\\s*(?:(override|open|final)\\s+)?fun\\s+([\\w\\.<>]+)\\.(\\w+)\\s*\\(([^)]*)\\)(?:\\s*:\\s*([^\\{\\=]+))?(?:\\s*\\{|\\s*=)",
         Pattern.MULTILINE
     );
+    
+    private static final Pattern ANNOTATION_PATTERN = Pattern.compile(
+        "@\\w+(?:\\([^)]*\\))?"
+    );
 
     @Override
     public ASTNode parse(String sourceCode) throws ParseException {
         try {
             sourceCode = preprocessSource(sourceCode);
             ProgramNode program = new ProgramNode(1, 1);
+            SourceText source = new SourceText(sourceCode);
+            TokenStream tokens = Lexer.tokenize(sourceCode, LexerSyntax.KOTLIN);
             
             // Parse data classes first (simpler structure)
-            Matcher dataClassMatcher = DATA_CLASS_PATTERN.matcher(sourceCode);
+            DeclarationMatcher dataClassMatcher = tokens.match(DATA_CLASS_PATTERN);
             while (dataClassMatcher.find()) {
                 String className = dataClassMatcher.group(1);
                 String generics = dataClassMatcher.group(2);
                 String parameters = dataClassMatcher.group(3);
                 
                 ClassDeclarationNode dataClass = parseDataClass(className, parameters, 
-                    getLineNumber(sourceCode, dataClassMatcher.start()));
+                    dataClassMatcher.start(3), dataClassMatcher.start(), source);
                 program.addChild(dataClass);
             }
             
             // Parse regular classes
-            Matcher classMatcher = CLASS_PATTERN.matcher(sourceCode);
+            DeclarationMatcher classMatcher = tokens.match(CLASS_PATTERN);
             while (classMatcher.find()) {
+                TokenStream.Block classBody = classMatcher.body();
+                if (classBody == null) {
+                    continue;
+                }
                 String modifiers = classMatcher.group(1);
                 String className = classMatcher.group(2);
                 String generics = classMatcher.group(3);
                 String constructorParams = classMatcher.group(4);
                 String superTypes = classMatcher.group(5);
-                String classBody = classMatcher.group(6);
                 
                 ClassDeclarationNode classNode = parseClass(className, modifiers, constructorParams, 
-                    superTypes, classBody, getLineNumber(sourceCode, classMatcher.start()));
+                    classMatcher.start(4), superTypes, tokens, classBody, classMatcher.start(), source);
                 program.addChild(classNode);
             }
             
-            // Parse top-level functions
-            Matcher functionMatcher = FUNCTION_PATTERN.matcher(sourceCode);
-            while (functionMatcher.find()) {
-                String modifiers = functionMatcher.group(1);
-                String generics = functionMatcher.group(2);
-                String functionName = functionMatcher.group(3);
-                String parameters = functionMatcher.group(4);
-                String returnType = functionMatcher.group(5);
-                
-                returnType = returnType != null ? mapKotlinTypeToJava(returnType.trim()) : "void";
-                List<ParameterNode> paramList = parseParameters(parameters);
-                
-                FunctionDeclarationNode funcNode = new FunctionDeclarationNode(
-                    functionName, returnType, paramList, true, true,
-                    getLineNumber(sourceCode, functionMatcher.start()), 1
-                );
-                
-                program.addChild(funcNode);
+            // Parse top-level functions; methods are picked up with their class
+            parseStaticFunctions(program, tokens.matchTopLevel(FUNCTION_PATTERN), source);
+            
+            // Functions of objects and companion objects are static, like top-level ones
+            DeclarationMatcher objectMatcher = tokens.match(OBJECT_PATTERN);
+            while (objectMatcher.find()) {
+                TokenStream.Block objectBody = objectMatcher.body();
+                if (objectBody != null) {
+                    parseStaticFunctions(program, tokens.match(FUNCTION_PATTERN, objectBody), source);
+                }
             }
             
             // Parse extension functions
-            Matcher extensionMatcher = EXTENSION_FUNCTION_PATTERN.matcher(sourceCode);
+            DeclarationMatcher extensionMatcher = tokens.matchTopLevel(EXTENSION_FUNCTION_PATTERN);
             while (extensionMatcher.find()) {
                 String modifiers = extensionMatcher.group(1);
                 String receiverType = extensionMatcher.group(2);
@@ -111,20 +121,22 @@ public class KotlinParser implements Parser {
                 String returnType = extensionMatcher.group(5);
                 
                 returnType = returnType != null ? mapKotlinTypeToJava(returnType.trim()) : "void";
-                List<ParameterNode> paramList = parseParameters(parameters);
+                List<ParameterNode> paramList = parseParameters(parameters, extensionMatcher.start(4), source);
                 
                 // Add receiver as first parameter for Java static method
-                ParameterNode receiver = new ParameterNode("receiver", mapKotlinTypeToJava(receiverType), false, 1, 1);
+                ParameterNode receiver = new ParameterNode("receiver", mapKotlinTypeToJava(receiverType), false,
+                    source.getLineNumber(extensionMatcher.start(2)), source.getColumnNumber(extensionMatcher.start(2)));
                 paramList.add(0, receiver);
                 
                 FunctionDeclarationNode extensionFunc = new FunctionDeclarationNode(
                     functionName, returnType, paramList, true, true,
-                    getLineNumber(sourceCode, extensionMatcher.start()), 1
+                    source.getLineNumber(extensionMatcher.start()), source.getColumnNumber(extensionMatcher.start())
                 );
                 
                 program.addChild(extensionFunc);
             }
             
+            program.compact();
             return program;
             
         } catch (Exception e) {
@@ -149,31 +161,50 @@ public class KotlinParser implements Parser {
     }
     
     private String preprocessSource(String sourceCode) {
-        // Remove comments
-        sourceCode = sourceCode.replaceAll("/\\*[\\s\\S]*?\\*/", "");
-        sourceCode = sourceCode.replaceAll("//.*", "");
-        
         // Remove annotations for simplicity
-        sourceCode = sourceCode.replaceAll("@\\w+(?:\\([^)]*\\))?", "");
+        sourceCode = SourceText.blank(sourceCode, ANNOTATION_PATTERN);
         
         return sourceCode;
     }
     
-    private ClassDeclarationNode parseDataClass(String className, String parameters, int lineNumber) {
-        ClassDeclarationNode dataClass = new ClassDeclarationNode(className, true, lineNumber, 1);
+    private void parseStaticFunctions(ProgramNode program, DeclarationMatcher functionMatcher, SourceText source) {
+        while (functionMatcher.find()) {
+            String modifiers = functionMatcher.group(1);
+            String generics = functionMatcher.group(2);
+            String functionName = functionMatcher.group(3);
+            String parameters = functionMatcher.group(4);
+            String returnType = functionMatcher.group(5);
+            
+            returnType = returnType != null ? mapKotlinTypeToJava(returnType.trim()) : "void";
+            List<ParameterNode> paramList = parseParameters(parameters, functionMatcher.start(4), source);
+            
+            FunctionDeclarationNode funcNode = new FunctionDeclarationNode(
+                functionName, returnType, paramList, true, true,
+                source.getLineNumber(functionMatcher.start()), source.getColumnNumber(functionMatcher.start())
+            );
+            
+            program.addChild(funcNode);
+        }
+    }
+    
+    private ClassDeclarationNode parseDataClass(String className, String parameters, int parametersOffset,
+                                                int offset, SourceText source) {
+        ClassDeclarationNode dataClass = new ClassDeclarationNode(className, true,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
         
         // Parse primary constructor parameters as properties
-        List<ParameterNode> params = parseParameters(parameters);
+        List<ParameterNode> params = parseParameters(parameters, parametersOffset, source);
         for (ParameterNode param : params) {
             // Data class parameters become fields
             VariableDeclarationNode field = new VariableDeclarationNode(
-                param.getName(), param.getDataType(), false, null, lineNumber, 1
+                param.getName(), param.getDataType(), false, null, param.getLineNumber(), param.getColumnNumber()
             );
             dataClass.addChild(field);
             
             // Generate getter
             FunctionDeclarationNode getter = new FunctionDeclarationNode(
-                "get" + capitalize(param.getName()), param.getDataType(), new ArrayList<>(), true, false, lineNumber, 1
+                "get" + capitalize(param.getName()), param.getDataType(), new ArrayList<>(), true, false,
+                param.getLineNumber(), param.getColumnNumber()
             );
             dataClass.addChild(getter);
         }
@@ -185,29 +216,35 @@ public class KotlinParser implements Parser {
     }
     
     private ClassDeclarationNode parseClass(String className, String modifiers, String constructorParams, 
-                                          String superTypes, String classBody, int lineNumber) {
-        ClassDeclarationNode classNode = new ClassDeclarationNode(className, true, lineNumber, 1);
+                                          int constructorParamsOffset, String superTypes, TokenStream tokens,
+                                          TokenStream.Block classBody, int offset, SourceText source) {
+        int line = source.getLineNumber(offset);
+        int column = source.getColumnNumber(offset);
+        ClassDeclarationNode classNode = new ClassDeclarationNode(className, true, line, column);
         
         // Parse primary constructor if exists
         if (constructorParams != null && !constructorParams.trim().isEmpty()) {
-            List<ParameterNode> params = parseParameters(constructorParams);
+            List<ParameterNode> params = parseParameters(constructorParams, constructorParamsOffset, source);
             FunctionDeclarationNode constructor = new FunctionDeclarationNode(
-                className, "void", params, true, false, lineNumber, 1
+                className, "void", params, true, false, line, column
             );
             classNode.addChild(constructor);
         }
         
         // Parse class body
         if (classBody != null) {
-            parseClassBody(classNode, classBody);
+            parseClassBody(classNode, tokens, classBody, source);
         }
         
         return classNode;
     }
     
-    private void parseClassBody(ClassDeclarationNode classNode, String classBody) {
+    private void parseClassBody(ClassDeclarationNode classNode, TokenStream tokens, TokenStream.Block classBody,
+                                SourceText source) {
+        // Only direct members are matched, so locals inside method bodies are never taken for properties
+        
         // Parse properties
-        Matcher propertyMatcher = PROPERTY_PATTERN.matcher(classBody);
+        DeclarationMatcher propertyMatcher = tokens.match(PROPERTY_PATTERN, classBody);
         while (propertyMatcher.find()) {
             String keyword = propertyMatcher.group(1); // val or var
             String propertyName = propertyMatcher.group(2);
@@ -221,31 +258,33 @@ public class KotlinParser implements Parser {
             }
             
             boolean isMutable = "var".equals(keyword);
+            int line = source.getLineNumber(propertyMatcher.start());
+            int column = source.getColumnNumber(propertyMatcher.start());
             
             VariableDeclarationNode property = new VariableDeclarationNode(
-                propertyName, propertyType, isMutable, null, 1, 1
+                propertyName, propertyType, isMutable, null, line, column
             );
             classNode.addChild(property);
             
             // Generate getter
             FunctionDeclarationNode getter = new FunctionDeclarationNode(
-                "get" + capitalize(propertyName), propertyType, new ArrayList<>(), true, false, 1, 1
+                "get" + capitalize(propertyName), propertyType, new ArrayList<>(), true, false, line, column
             );
             classNode.addChild(getter);
             
             // Generate setter for var properties
             if (isMutable) {
                 List<ParameterNode> setterParams = new ArrayList<>();
-                setterParams.add(new ParameterNode("value", propertyType, false, 1, 1));
+                setterParams.add(new ParameterNode("value", propertyType, false, line, column));
                 FunctionDeclarationNode setter = new FunctionDeclarationNode(
-                    "set" + capitalize(propertyName), "void", setterParams, true, false, 1, 1
+                    "set" + capitalize(propertyName), "void", setterParams, true, false, line, column
                 );
                 classNode.addChild(setter);
             }
         }
         
         // Parse methods
-        Matcher methodMatcher = FUNCTION_PATTERN.matcher(classBody);
+        DeclarationMatcher methodMatcher = tokens.match(FUNCTION_PATTERN, classBody);
         while (methodMatcher.find()) {
             String modifiers = methodMatcher.group(1);
             String generics = methodMatcher.group(2);
@@ -254,38 +293,43 @@ public class KotlinParser implements Parser {
             String returnType = methodMatcher.group(5);
             
             returnType = returnType != null ? mapKotlinTypeToJava(returnType.trim()) : "void";
-            List<ParameterNode> paramList = parseParameters(parameters);
+            List<ParameterNode> paramList = parseParameters(parameters, methodMatcher.start(4), source);
             
             FunctionDeclarationNode method = new FunctionDeclarationNode(
-                methodName, returnType, paramList, true, false, 1, 1
+                methodName, returnType, paramList, true, false,
+                source.getLineNumber(methodMatcher.start()), source.getColumnNumber(methodMatcher.start())
             );
             classNode.addChild(method);
         }
     }
     
     private void addDataClassMethods(ClassDeclarationNode dataClass, String className) {
+        // Generated members take the position of the data class itself
+        int line = dataClass.getLineNumber();
+        int column = dataClass.getColumnNumber();
+        
         // equals method
         List<ParameterNode> equalsParams = new ArrayList<>();
-        equalsParams.add(new ParameterNode("other", "Object", false, 1, 1));
+        equalsParams.add(new ParameterNode("other", "Object", false, line, column));
         FunctionDeclarationNode equals = new FunctionDeclarationNode(
-            "equals", "boolean", equalsParams, true, false, 1, 1
+            "equals", "boolean", equalsParams, true, false, line, column
         );
         dataClass.addChild(equals);
         
         // hashCode method
         FunctionDeclarationNode hashCode = new FunctionDeclarationNode(
-            "hashCode", "int", new ArrayList<>(), true, false, 1, 1
+            "hashCode", "int", new ArrayList<>(), true, false, line, column
         );
         dataClass.addChild(hashCode);
         
         // toString method
         FunctionDeclarationNode toString = new FunctionDeclarationNode(
-            "toString", "String", new ArrayList<>(), true, false, 1, 1
+            "toString", "String", new ArrayList<>(), true, false, line, column
         );
         dataClass.addChild(toString);
     }
     
-    private List<ParameterNode> parseParameters(String paramString) {
+    private List<ParameterNode> parseParameters(String paramString, int offset, SourceText source) {
         List<ParameterNode> parameters = new ArrayList<>();
         
         if (paramString == null || paramString.trim().isEmpty()) {
@@ -293,7 +337,10 @@ public class KotlinParser implements Parser {
         }
         
         String[] params = paramString.split(",");
+        int paramStart = offset;
         for (String param : params) {
+            int paramOffset = paramStart + (param.length() - param.stripLeading().length());
+            paramStart += param.length() + 1;
             param = param.trim();
             if (param.isEmpty()) continue;
             
@@ -307,7 +354,8 @@ public class KotlinParser implements Parser {
                 name = name.replaceAll("^(val|var)\\s+", "");
                 
                 type = mapKotlinTypeToJava(type);
-                parameters.add(new ParameterNode(name, type, false, 1, 1));
+                parameters.add(new ParameterNode(name, type, false,
+                    source.getLineNumber(paramOffset), source.getColumnNumber(paramOffset)));
             }
         }
         
@@ -366,13 +414,4 @@ public class KotlinParser implements Parser {
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
     
-    private int getLineNumber(String text, int position) {
-        int lineNumber = 1;
-        for (int i = 0; i < position && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') {
-                lineNumber++;
-            }
-        }
-        return lineNumber;
-    }
 }
\ No newline at end of file
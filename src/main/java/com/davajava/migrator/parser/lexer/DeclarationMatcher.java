@@ -0,0 +1,103 @@
+package com.davajava.migrator.parser.lexer;
+
+import java.util.regex.Matcher;
+
+/**
+ * Runs a declaration pattern over statement heads instead of the whole file.
+ * Used like a {@link Matcher}: call {@link #find()} until it returns false
+ * and read groups in between. The underlying matcher is reused for every
+ * head, so a full scan allocates nothing per head.
+ *
+ * <p>Patterns should end at the opening brace of the declaration, if any;
+ * the body is then available from {@link #body()} with nested braces,
+ * strings and comments already accounted for.
+ */
+public class DeclarationMatcher {
+    private final TokenStream tokens;
+    private final Matcher matcher;
+    private final int toHead;
+    private final int depth;
+    private int head;
+    private boolean inHead;
+
+    DeclarationMatcher(TokenStream tokens, Matcher matcher, int fromHead, int toHead, int depth) {
+        this.tokens = tokens;
+        this.matcher = matcher;
+        this.toHead = toHead;
+        this.depth = depth;
+        this.head = fromHead - 1;
+    }
+
+    public boolean find() {
+        while (true) {
+            if (inHead && matcher.find()) {
+                return true;
+            }
+            inHead = false;
+
+            do {
+                head++;
+            } while (head < toHead && depth >= 0 && tokens.getHeadDepth(head) != depth);
+            if (head >= toHead) {
+                return false;
+            }
+
+            matcher.region(tokens.getHeadStart(head), tokens.getHeadEnd(head));
+            inHead = true;
+        }
+    }
+
+    public String group() {
+        return matcher.group();
+    }
+
+    public String group(int group) {
+        return matcher.group(group);
+    }
+
+    /**
+     * Offset of the declaration itself: patterns open with <code>^\\s*</code>,
+     * so the raw match start would point at the blank lines before it.
+     */
+    public int start() {
+        int start = matcher.start();
+        int end = matcher.end();
+        String code = tokens.getCode();
+        while (start < end && Character.isWhitespace(code.charAt(start))) {
+            start++;
+        }
+        return start;
+    }
+
+    public int start(int group) {
+        return matcher.start(group);
+    }
+
+    public int end() {
+        return matcher.end();
+    }
+
+    /**
+     * Body of the current declaration, or null when the match did not end
+     * at the opening brace of its statement (a prototype, a field, or a
+     * pattern that stopped short).
+     */
+    public TokenStream.Block body() {
+        int brace = tokens.getHeadBrace(head);
+        if (brace < 0 || matcher.end() != tokens.getEnd(brace)) {
+            return null;
+        }
+        return tokens.getBlock(brace);
+    }
+
+    /** Block that contains the current declaration, or null at the top level. */
+    public TokenStream.Block enclosingBlock() {
+        int parent = tokens.getHeadParent(head);
+        return parent >= 0 ? tokens.getBlock(parent) : null;
+    }
+
+    /** Indentation of the line on which the current statement starts. */
+    public int indent() {
+        return tokens.getHeadIndent(head);
+    }
+}
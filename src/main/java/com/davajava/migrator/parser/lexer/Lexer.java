@@ -0,0 +1,377 @@
+package com.davajava.migrator.parser.lexer;
+
+import com.davajava.migrator.parser.lexer.LexerSyntax.Feature;
+
+import java.util.Arrays;
+
+/**
+ * Single-pass tokenizer shared by the brace-delimited language parsers. It
+ * skips comments, keeps string literals whole, pairs braces and records
+ * statement heads as it goes, so every later lookup is done against the
+ * token arrays rather than by rescanning the source. Skipped comments and
+ * directives are blanked out of the stream's code view as they are found.
+ */
+public class Lexer {
+    private final String text;
+    private final LexerSyntax syntax;
+    private final int length;
+    private final TokenStream tokens;
+
+    private int pos;
+    private int lineStart;
+    private int lineIndent = -1;
+
+    private int[] openBraces = new int[16];
+    private int braceDepth;
+
+    private int headStart = -1;
+    private int headIndent;
+
+    private char[] code;
+
+    private Lexer(String text, LexerSyntax syntax) {
+        this.text = text;
+        this.syntax = syntax;
+        this.length = text.length();
+        this.tokens = new TokenStream(text);
+    }
+
+    public static TokenStream tokenize(String text, LexerSyntax syntax) {
+        Lexer lexer = new Lexer(text, syntax);
+        lexer.run();
+        if (lexer.code != null) {
+            lexer.tokens.setCode(new String(lexer.code));
+        }
+        return lexer.tokens;
+    }
+
+    private void run() {
+        while (pos < length) {
+            char c = text.charAt(pos);
+
+            if (c == '\n') {
+                pos++;
+                lineStart = pos;
+                lineIndent = -1;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                pos++;
+                continue;
+            }
+            if (c == '/' && peek(1) == '/') {
+                int start = pos;
+                skipLineComment();
+                blank(start, pos);
+                continue;
+            }
+            if (c == '/' && peek(1) == '*') {
+                int start = pos;
+                skipBlockComment();
+                blank(start, pos);
+                continue;
+            }
+
+            int start = pos;
+            if (lineIndent < 0) {
+                lineIndent = start - lineStart;
+            }
+
+            if (c == '#' && syntax.has(Feature.DIRECTIVES) && start - lineStart == lineIndent) {
+                // A directive is a statement of its own; it never joins the surrounding head
+                endHead(start, -1);
+                skipDirective();
+                tokens.add(TokenType.DIRECTIVE, start, pos, braceDepth);
+                blank(start, pos);
+            } else if (scanString(c)) {
+                emit(TokenType.STRING, start);
+            } else if (Character.isJavaIdentifierStart(c)) {
+                pos++;
+                while (pos < length && Character.isJavaIdentifierPart(text.charAt(pos))) {
+                    pos++;
+                }
+                emit(TokenType.IDENTIFIER, start);
+            } else if (Character.isDigit(c)) {
+                scanNumber();
+                emit(TokenType.NUMBER, start);
+            } else {
+                pos++;
+                scanPunctuation(c, start);
+            }
+        }
+
+        endHead(length, -1);
+    }
+
+    private void scanPunctuation(char c, int start) {
+        switch (c) {
+            case '{': {
+                int index = emit(TokenType.OPEN_BRACE, start);
+                endHead(pos, index);
+                if (braceDepth == openBraces.length) {
+                    openBraces = Arrays.copyOf(openBraces, braceDepth * 2);
+                }
+                openBraces[braceDepth++] = index;
+                break;
+            }
+            case '}': {
+                // The statement before a closing brace belongs to the block being closed
+                endHead(start, -1);
+                int open = braceDepth > 0 ? openBraces[--braceDepth] : -1;
+                int index = tokens.add(TokenType.CLOSE_BRACE, start, pos, braceDepth);
+                if (open >= 0) {
+                    tokens.pair(open, index);
+                }
+                break;
+            }
+            case ';':
+                emit(TokenType.SEMICOLON, start);
+                endHead(pos, -1);
+                break;
+            case '(':
+                emit(TokenType.OPEN_PAREN, start);
+                break;
+            case ')':
+                emit(TokenType.CLOSE_PAREN, start);
+                break;
+            case '[':
+                emit(TokenType.OPEN_BRACKET, start);
+                break;
+            case ']':
+                emit(TokenType.CLOSE_BRACKET, start);
+                break;
+            default:
+                emit(TokenType.PUNCTUATION, start);
+        }
+    }
+
+    private int emit(TokenType type, int start) {
+        if (headStart < 0) {
+            headStart = start;
+            headIndent = lineIndent;
+        }
+        return tokens.add(type, start, pos, braceDepth);
+    }
+
+    private void endHead(int end, int brace) {
+        if (headStart >= 0) {
+            int parent = braceDepth > 0 ? openBraces[braceDepth - 1] : -1;
+            tokens.addHead(headStart, end, braceDepth, headIndent, brace, parent);
+            headStart = -1;
+        }
+    }
+
+    /** Replaces a skipped range with spaces in the code view, keeping line breaks. */
+    private void blank(int start, int end) {
+        if (code == null) {
+            code = text.toCharArray();
+        }
+        for (int i = start; i < end; i++) {
+            if (code[i] != '\n' && code[i] != '\r') {
+                code[i] = ' ';
+            }
+        }
+    }
+
+    private char peek(int ahead) {
+        int index = pos + ahead;
+        return index < length ? text.charAt(index) : '\0';
+    }
+
+    private void skipLineComment() {
+        int newline = text.indexOf('\n', pos);
+        pos = newline >= 0 ? newline : length;
+    }
+
+    private void skipBlockComment() {
+        int start = pos;
+        int nesting = 0;
+        boolean nested = syntax.has(Feature.NESTED_COMMENTS);
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (c == '/' && peek(1) == '*' && (nesting == 0 || nested)) {
+                nesting++;
+                pos += 2;
+            } else if (c == '*' && peek(1) == '/') {
+                pos += 2;
+                if (--nesting == 0) {
+                    break;
+                }
+            } else {
+                pos++;
+            }
+        }
+        skippedLines(start);
+    }
+
+    private void skipDirective() {
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (c == '\n' && text.charAt(pos - 1) != '\\') {
+                break;
+            }
+            pos++;
+        }
+        skippedLines(lineStart);
+    }
+
+    /**
+     * Keeps the line bookkeeping right after skipping text that may contain
+     * newlines. Only the skipped range is searched.
+     */
+    private void skippedLines(int from) {
+        int newline = text.lastIndexOf('\n', pos - 1);
+        if (newline >= from) {
+            lineStart = newline + 1;
+            lineIndent = -1;
+        }
+    }
+
+    private boolean scanString(char c) {
+        int start = pos;
+        if (c == '"') {
+            if (syntax.has(Feature.TRIPLE_QUOTED_STRINGS) && text.startsWith("\"\"\"", pos)) {
+                int close = text.indexOf("\"\"\"", pos + 3);
+                pos = close >= 0 ? close + 3 : length;
+                // """" closes with the last of a run of quotes
+                while (pos < length && text.charAt(pos) == '"') {
+                    pos++;
+                }
+            } else {
+                scanQuoted('"');
+            }
+        } else if (c == '\'' && syntax.has(Feature.SINGLE_QUOTED_STRINGS)) {
+            scanQuoted('\'');
+        } else if (c == '\'' && syntax.has(Feature.CHAR_LITERALS)) {
+            if (!scanCharLiteral()) {
+                return false;
+            }
+        } else if (c == '`' && syntax.has(Feature.TEMPLATE_STRINGS)) {
+            scanDelimited('`', true);
+        } else if (c == '`' && syntax.has(Feature.BACKTICK_STRINGS)) {
+            scanDelimited('`', false);
+        } else if (c == '@' && syntax.has(Feature.VERBATIM_STRINGS) && (peek(1) == '"' || (peek(1) == '$' && peek(2) == '"'))) {
+            pos = text.indexOf('"', pos) + 1;
+            scanVerbatim();
+        } else if (c == 'r' && syntax.has(Feature.RAW_STRINGS) && (peek(1) == '"' || peek(1) == '#')) {
+            if (!scanRawString()) {
+                return false;
+            }
+        } else {
+            return false;
+        }
+        skippedLines(start);
+        return true;
+    }
+
+    /** Ordinary string ending at the closing quote or, if unterminated, at the end of the line. */
+    private void scanQuoted(char quote) {
+        pos++;
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (c == '\\') {
+                pos += 2;
+            } else if (c == quote) {
+                pos++;
+                return;
+            } else if (c == '\n') {
+                return;
+            } else {
+                pos++;
+            }
+        }
+        pos = length;
+    }
+
+    private void scanDelimited(char quote, boolean escapes) {
+        pos++;
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (escapes && c == '\\') {
+                pos += 2;
+            } else {
+                pos++;
+                if (c == quote) {
+                    return;
+                }
+            }
+        }
+        pos = length;
+    }
+
+    private void scanVerbatim() {
+        while (pos < length) {
+            if (text.charAt(pos) == '"') {
+                if (peek(1) != '"') {
+                    pos++;
+                    return;
+                }
+                pos += 2;
+            } else {
+                pos++;
+            }
+        }
+    }
+
+    /**
+     * Scans 'c' or '\n'. A quote that does not start a literal of that shape
+     * is a Rust lifetime or a Scala symbol and is left to the caller.
+     */
+    private boolean scanCharLiteral() {
+        if (peek(1) == '\\') {
+            int close = pos + 3;
+            int limit = Math.min(length, pos + 12);
+            while (close < limit && text.charAt(close) != '\'' && text.charAt(close) != '\n') {
+                close++;
+            }
+            if (close < limit && text.charAt(close) == '\'') {
+                pos = close + 1;
+                return true;
+            }
+            return false;
+        }
+        if (peek(1) != '\0' && peek(1) != '\n' && peek(2) == '\'') {
+            pos += 3;
+            return true;
+        }
+        if (Character.isHighSurrogate(peek(1)) && peek(3) == '\'') {
+            pos += 4;
+            return true;
+        }
+        return false;
+    }
+
+    /** Scans r"..." or r#"..."#; r#ident is a raw identifier and is left to the caller. */
+    private boolean scanRawString() {
+        int hashes = 0;
+        while (peek(1 + hashes) == '#') {
+            hashes++;
+        }
+        if (peek(1 + hashes) != '"') {
+            return false;
+        }
+
+        StringBuilder terminator = new StringBuilder("\"");
+        for (int i = 0; i < hashes; i++) {
+            terminator.append('#');
+        }
+        int close = text.indexOf(terminator.toString(), pos + 2 + hashes);
+        pos = close >= 0 ? close + terminator.length() : length;
+        return true;
+    }
+
+    private void scanNumber() {
+        pos++;
+        while (pos < length) {
+            char c = text.charAt(pos);
+            if (Character.isLetterOrDigit(c) || c == '_') {
+                pos++;
+            } else if (c == '.' && Character.isDigit(peek(1))) {
+                // 1.5 continues the number, 1..5 does not
+                pos++;
+            } else {
+                break;
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.davajava.migrator.parser.lexer;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Comment and literal rules of each source language, as far as the lexer
+ * needs them to tell code braces apart from braces inside comments and
+ * strings. All languages share // line comments, block comments and
+ * double-quoted strings.
+ */
+public enum LexerSyntax {
+    C(Feature.DIRECTIVES, Feature.CHAR_LITERALS),
+    CPP(Feature.DIRECTIVES, Feature.CHAR_LITERALS),
+    CSHARP(Feature.DIRECTIVES, Feature.CHAR_LITERALS, Feature.VERBATIM_STRINGS),
+    GO(Feature.CHAR_LITERALS, Feature.BACKTICK_STRINGS),
+    JAVASCRIPT(Feature.SINGLE_QUOTED_STRINGS, Feature.TEMPLATE_STRINGS),
+    KOTLIN(Feature.NESTED_COMMENTS, Feature.CHAR_LITERALS, Feature.TRIPLE_QUOTED_STRINGS),
+    RUST(Feature.NESTED_COMMENTS, Feature.CHAR_LITERALS, Feature.RAW_STRINGS),
+    SCALA(Feature.NESTED_COMMENTS, Feature.CHAR_LITERALS, Feature.TRIPLE_QUOTED_STRINGS),
+    SWIFT(Feature.NESTED_COMMENTS, Feature.TRIPLE_QUOTED_STRINGS);
+
+    public enum Feature {
+        DIRECTIVES,             // # lines are preprocessor directives
+        NESTED_COMMENTS,        // /* /* */ */ nests
+        CHAR_LITERALS,          // 'c' is a character; a lone ' (Rust lifetime, Scala symbol) is punctuation
+        SINGLE_QUOTED_STRINGS,  // 'text' is a string
+        BACKTICK_STRINGS,       // `text` is a raw string without escapes
+        TEMPLATE_STRINGS,       // `text` is a template string with backslash escapes
+        TRIPLE_QUOTED_STRINGS,  // """text""" spans lines without escapes
+        VERBATIM_STRINGS,       // @"text" with "" as the only escape
+        RAW_STRINGS             // r"text" and r#"text"#
+    }
+
+    private final Set<Feature> features;
+
+    LexerSyntax(Feature... features) {
+        this.features = EnumSet.noneOf(Feature.class);
+        for (Feature feature : features) {
+            this.features.add(feature);
+        }
+    }
+
+    public boolean has(Feature feature) {
+        return features.contains(feature);
+    }
+}
@@ -0,0 +1,225 @@
+package com.davajava.migrator.parser.lexer;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * Tokens of one source file, stored in parallel arrays rather than one
+ * object per token, together with the statement heads found while lexing.
+ *
+ * <p>A statement head is the text from the first token after a <code>{</code>,
+ * <code>}</code> or <code>;</code> up to and including the next one of those.
+ * Declarations such as <code>fn name(..) -&gt; T {</code> always fit inside a
+ * single head, so parsers match their declaration patterns against heads
+ * only and read bodies through the matched braces instead of capturing them
+ * with <code>[^}]*</code>.
+ *
+ * <p>Patterns run against {@link #getCode()}, a copy of the text in which
+ * comments and preprocessor directives are replaced by spaces. Line breaks
+ * are kept, so every offset still points at the same place in the original
+ * text and no parser has to strip comments before lexing.
+ */
+public class TokenStream {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final String text;
+    private String code;
+
+    private byte[] types = new byte[64];
+    private int[] starts = new int[64];
+    private int[] ends = new int[64];
+    private int[] depths = new int[64];
+    private int[] matches = new int[64];
+    private int size;
+
+    private int[] headStarts = new int[16];
+    private int[] headEnds = new int[16];
+    private int[] headDepths = new int[16];
+    private int[] headIndents = new int[16];
+    private int[] headBraces = new int[16];
+    private int[] headParents = new int[16];
+    private int headCount;
+
+    /**
+     * Body of a brace pair: the text between <code>{</code> and its matching
+     * <code>}</code>, exclusive.
+     */
+    public class Block {
+        private final int openBrace;
+
+        private Block(int openBrace) {
+            this.openBrace = openBrace;
+        }
+
+        /** Offset just after the opening brace. */
+        public int getStart() {
+            return ends[openBrace];
+        }
+
+        /** Offset of the closing brace, or the end of the text if it is missing. */
+        public int getEnd() {
+            int close = matches[openBrace];
+            return close >= 0 ? starts[close] : text.length();
+        }
+
+        /** Brace depth of the statements directly inside this block. */
+        public int getDepth() {
+            return depths[openBrace] + 1;
+        }
+
+        public String getText() {
+            return text.substring(getStart(), getEnd());
+        }
+
+        /** Text of the block with comments and directives blanked out. */
+        public String getCode() {
+            return code.substring(getStart(), getEnd());
+        }
+    }
+
+    TokenStream(String text) {
+        this.text = text;
+        this.code = text;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * The text with comments and directives replaced by spaces, line breaks
+     * kept. It is the same object as {@link #getText()} when there are none.
+     */
+    public String getCode() {
+        return code;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public TokenType getType(int index) {
+        return TYPES[types[index]];
+    }
+
+    public int getStart(int index) {
+        return starts[index];
+    }
+
+    public int getEnd(int index) {
+        return ends[index];
+    }
+
+    /** Number of braces enclosing the token. */
+    public int getDepth(int index) {
+        return depths[index];
+    }
+
+    public String getText(int index) {
+        return text.substring(starts[index], ends[index]);
+    }
+
+    /** Index of the brace matching the given brace token, or -1. */
+    public int getMatchingBrace(int index) {
+        return matches[index];
+    }
+
+    public Block getBlock(int openBrace) {
+        if (TYPES[types[openBrace]] != TokenType.OPEN_BRACE) {
+            throw new IllegalArgumentException("Token " + describe(openBrace) + " is not an opening brace");
+        }
+        return new Block(openBrace);
+    }
+
+    /**
+     * Matches a declaration pattern against every statement head in the
+     * file, at any depth.
+     */
+    public DeclarationMatcher match(Pattern pattern) {
+        return new DeclarationMatcher(this, pattern.matcher(code), 0, headCount, -1);
+    }
+
+    /**
+     * Matches a declaration pattern against statements outside of any braces.
+     */
+    public DeclarationMatcher matchTopLevel(Pattern pattern) {
+        return new DeclarationMatcher(this, pattern.matcher(code), 0, headCount, 0);
+    }
+
+    /**
+     * Matches a declaration pattern against the statements directly inside
+     * a block, skipping anything nested deeper such as method bodies.
+     */
+    public DeclarationMatcher match(Pattern pattern, Block block) {
+        int from = firstHeadAtOrAfter(block.getStart());
+        int to = firstHeadAtOrAfter(block.getEnd());
+        return new DeclarationMatcher(this, pattern.matcher(code), from, to, block.getDepth());
+    }
+
+    private int firstHeadAtOrAfter(int offset) {
+        int index = Arrays.binarySearch(headStarts, 0, headCount, offset);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private String describe(int token) {
+        return token + " (" + getText(token) + ")";
+    }
+
+    // Heads, for DeclarationMatcher
+
+    int getHeadStart(int head) { return headStarts[head]; }
+    int getHeadEnd(int head) { return headEnds[head]; }
+    int getHeadDepth(int head) { return headDepths[head]; }
+    int getHeadBrace(int head) { return headBraces[head]; }
+    int getHeadParent(int head) { return headParents[head]; }
+
+    /** Indentation of the line on which the head starts. */
+    int getHeadIndent(int head) { return headIndents[head]; }
+
+    // Building, for Lexer
+
+    int add(TokenType type, int start, int end, int depth) {
+        if (size == types.length) {
+            int capacity = size * 2;
+            types = Arrays.copyOf(types, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            depths = Arrays.copyOf(depths, capacity);
+            matches = Arrays.copyOf(matches, capacity);
+        }
+        types[size] = (byte) type.ordinal();
+        starts[size] = start;
+        ends[size] = end;
+        depths[size] = depth;
+        matches[size] = -1;
+        return size++;
+    }
+
+    void setCode(String code) {
+        this.code = code;
+    }
+
+    void pair(int openBrace, int closeBrace) {
+        matches[openBrace] = closeBrace;
+        matches[closeBrace] = openBrace;
+    }
+
+    void addHead(int start, int end, int depth, int indent, int brace, int parent) {
+        if (headCount == headStarts.length) {
+            int capacity = headCount * 2;
+            headStarts = Arrays.copyOf(headStarts, capacity);
+            headEnds = Arrays.copyOf(headEnds, capacity);
+            headDepths = Arrays.copyOf(headDepths, capacity);
+            headIndents = Arrays.copyOf(headIndents, capacity);
+            headBraces = Arrays.copyOf(headBraces, capacity);
+            headParents = Arrays.copyOf(headParents, capacity);
+        }
+        headStarts[headCount] = start;
+        headEnds[headCount] = end;
+        headDepths[headCount] = depth;
+        headIndents[headCount] = indent;
+        headBraces[headCount] = brace;
+        headParents[headCount] = parent;
+        headCount++;
+    }
+}
@@ -0,0 +1,16 @@
+package com.davajava.migrator.parser.lexer;
+
+public enum TokenType {
+    IDENTIFIER,
+    NUMBER,
+    STRING,     // String, character and raw string literals, quotes included
+    DIRECTIVE,  // Preprocessor line such as #include or #region
+    OPEN_BRACE,
+    CLOSE_BRACE,
+    OPEN_PAREN,
+    CLOSE_PAREN,
+    OPEN_BRACKET,
+    CLOSE_BRACKET,
+    SEMICOLON,
+    PUNCTUATION
+}
@@ -17,6 +17,7 @@ import com.davajava.migrator.core.ast.AssignmentNode;
 import com.davajava.migrator.core.ast.ExpressionNode;
 import com.davajava.migrator.core.ast.LiteralNode;
 import com.davajava.migrator.core.ast.IdentifierNode;
+import com.davajava.migrator.parser.SourceText;
 import java.util.logging.Logger;
 
 import java.io.IOException;
@@ -69,6 +70,7 @@ public class PythonParser implements Parser {
     public ASTNode parse(String sourceCode) throws ParseException {
         try {
             ProgramNode program = new ProgramNode(1, 1);
+            SourceText source = new SourceText(sourceCode);
             
             // Parse classes
             Matcher classMatcher = CLASS_PATTERN.matcher(sourceCode);
@@ -77,7 +79,7 @@ public class PythonParser implements Parser {
                 
                 ClassDeclarationNode classNode = new ClassDeclarationNode(
                     className, true, // Assume public for now
-                    getLineNumber(sourceCode, classMatcher.start()), 1
+                    source.getLineNumber(classMatcher.start()), source.getColumnNumber(classMatcher.start())
                 );
                 
                 program.addChild(classNode);
@@ -96,7 +98,7 @@ public class PythonParser implements Parser {
                     returnType = mapPythonTypeToJava(returnType.trim());
                 }
                 
-                List<ParameterNode> paramList = parseParameters(parameters);
+                List<ParameterNode> paramList = parseParameters(parameters, functionMatcher.start(2), source);
                 
                 // Skip __init__ and other special methods for now
                 if (functionName.startsWith("__") && functionName.endsWith("__")) {
@@ -105,12 +107,13 @@ public class PythonParser implements Parser {
                 
                 FunctionDeclarationNode funcNode = new FunctionDeclarationNode(
                     functionName, returnType, paramList, true, false, // Assume public for now
-                    getLineNumber(sourceCode, functionMatcher.start()), 1
+                    source.getLineNumber(functionMatcher.start()), source.getColumnNumber(functionMatcher.start())
                 );
                 
                 program.addChild(funcNode);
             }
             
+            program.compact();
             return program;
             
         } catch (Exception e) {
@@ -134,7 +137,7 @@ public class PythonParser implements Parser {
         return fileName.endsWith(".py");
     }
 
-    private List<ParameterNode> parseParameters(String paramString) {
+    private List<ParameterNode> parseParameters(String paramString, int offset, SourceText source) {
         List<ParameterNode> parameters = new ArrayList<>();
         
         if (paramString == null || paramString.trim().isEmpty()) {
@@ -142,7 +145,10 @@ public class PythonParser implements Parser {
         }
         
         String[] params = paramString.split(",");
+        int paramStart = offset;
         for (String param : params) {
+            int paramOffset = paramStart + (param.length() - param.stripLeading().length());
+            paramStart += param.length() + 1;
             param = param.trim();
             if (param.isEmpty() || "self".equals(param)) continue;
             
@@ -160,7 +166,8 @@ public class PythonParser implements Parser {
                 name = param;
             }
             
-            parameters.add(new ParameterNode(name, type, false, 1, 1));
+            parameters.add(new ParameterNode(name, type, false,
+                source.getLineNumber(paramOffset), source.getColumnNumber(paramOffset)));
         }
         
         return parameters;
@@ -200,14 +207,4 @@ public class PythonParser implements Parser {
                 return pythonType.substring(0, 1).toUpperCase() + pythonType.substring(1);
         }
     }
-
-    private int getLineNumber(String text, int position) {
-        int lineNumber = 1;
-        for (int i = 0; i < position && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') {
-                lineNumber++;
-            }
-        }
-        return lineNumber;
-    }
 }
\ No newline at end of file
@@ -9,6 +9,11 @@ import com.davajava.migrator.core.ast.FunctionDeclarationNode;
 import com.davajava.migrator.core.ast.ParameterNode;
 import com.davajava.migrator.core.ast.StructDeclarationNode;
 import com.davajava.migrator.core.ast.FieldDeclarationNode;
+import com.davajava.migrator.parser.SourceText;
+import com.davajava.migrator.parser.lexer.DeclarationMatcher;
+import com.davajava.migrator.parser.lexer.Lexer;
+import com.davajava.migrator.parser.lexer.LexerSyntax;
+import com.davajava.migrator.parser.lexer.TokenStream;
 import java.util.logging.Logger;
 
 import java.io.IOException;
@@ -16,19 +21,19 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class RustParser implements Parser {
     private static final Logger logger = Logger.getLogger(RustParser.class.getName());
     
+    // Declaration heads; bodies come from the token stream's brace matching
     private static final Pattern FUNCTION_PATTERN = Pattern.compile(
-        "(?:pub\\s+)?fn\\s+(\\w+)\\s*\\(([^)]*)\\)(?:\\s*->\\s*([^{]+))?\\s*\\{([^}]*)\\}", 
+        "(?:pub\\s+)?fn\\s+(\\w+)\\s*\\(([^)]*)\\)(?:\\s*->\\s*([^{]+))?\\s*\\{", 
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
     private static final Pattern STRUCT_PATTERN = Pattern.compile(
-        "(?:pub\\s+)?struct\\s+(\\w+)(?:<[^>]*>)?\\s*\\{([^}]*)\\}",
+        "(?:pub\\s+)?struct\\s+(\\w+)(?:<[^>]*>)?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
 
@@ -36,31 +41,43 @@ public class RustParser implements Parser {
     public ASTNode parse(String sourceCode) throws ParseException {
         try {
             ProgramNode program = new ProgramNode(1, 1);
+            SourceText source = new SourceText(sourceCode);
+            TokenStream tokens = Lexer.tokenize(sourceCode, LexerSyntax.RUST);
             
             // Parse structs
-            Matcher structMatcher = STRUCT_PATTERN.matcher(sourceCode);
+            DeclarationMatcher structMatcher = tokens.match(STRUCT_PATTERN);
             while (structMatcher.find()) {
+                TokenStream.Block structBody = structMatcher.body();
+                if (structBody == null) {
+                    continue; // The brace was inside a string on the same line
+                }
+                
                 String visibility = sourceCode.substring(
                     Math.max(0, structMatcher.start() - 10), structMatcher.start()
                 ).trim();
                 boolean isPublic = visibility.contains("pub");
                 
                 String structName = structMatcher.group(1);
-                String fieldsBlock = structMatcher.group(2);
+                String fieldsBlock = structBody.getText();
                 
-                List<FieldDeclarationNode> fields = parseStructFields(fieldsBlock);
+                List<FieldDeclarationNode> fields = parseStructFields(fieldsBlock, structBody.getStart(), source);
                 
                 StructDeclarationNode structNode = new StructDeclarationNode(
                     structName, isPublic, fields,
-                    getLineNumber(sourceCode, structMatcher.start()), 1
+                    source.getLineNumber(structMatcher.start()), source.getColumnNumber(structMatcher.start())
                 );
                 
                 program.addChild(structNode);
             }
             
             // Parse functions
-            Matcher functionMatcher = FUNCTION_PATTERN.matcher(sourceCode);
+            DeclarationMatcher functionMatcher = tokens.match(FUNCTION_PATTERN);
             while (functionMatcher.find()) {
+                TokenStream.Block body = functionMatcher.body();
+                if (body == null) {
+                    continue;
+                }
+                
                 String visibility = sourceCode.substring(
                     Math.max(0, functionMatcher.start() - 10), functionMatcher.start()
                 ).trim();
@@ -69,7 +86,7 @@ public class RustParser implements Parser {
                 String functionName = functionMatcher.group(1);
                 String parameters = functionMatcher.group(2);
                 String returnType = functionMatcher.group(3);
-                String functionBody = functionMatcher.group(4); // NEW: capture function body
+                String functionBody = body.getText(); // NEW: capture function body
                 
                 if (returnType == null || returnType.trim().isEmpty()) {
                     returnType = "void";
@@ -77,11 +94,11 @@ public class RustParser implements Parser {
                     returnType = mapRustTypeToJava(returnType.trim());
                 }
                 
-                List<ParameterNode> paramList = parseParameters(parameters);
+                List<ParameterNode> paramList = parseParameters(parameters, functionMatcher.start(2), source);
                 
                 FunctionDeclarationNode funcNode = new FunctionDeclarationNode(
                     functionName, returnType, paramList, isPublic, false, 
-                    getLineNumber(sourceCode, functionMatcher.start()), 1
+                    source.getLineNumber(functionMatcher.start()), source.getColumnNumber(functionMatcher.start())
                 );
                 
                 // NEW: Store the raw function body for translation
@@ -92,6 +109,7 @@ public class RustParser implements Parser {
                 program.addChild(funcNode);
             }
             
+            program.compact();
             return program;
             
         } catch (Exception e) {
@@ -115,7 +133,7 @@ public class RustParser implements Parser {
         return fileName.endsWith(".rs");
     }
 
-    private List<ParameterNode> parseParameters(String paramString) {
+    private List<ParameterNode> parseParameters(String paramString, int offset, SourceText source) {
         List<ParameterNode> parameters = new ArrayList<>();
         
         if (paramString == null || paramString.trim().isEmpty()) {
@@ -123,7 +141,10 @@ public class RustParser implements Parser {
         }
         
         String[] params = paramString.split(",");
+        int paramStart = offset;
         for (String param : params) {
+            int paramOffset = paramStart + (param.length() - param.stripLeading().length());
+            paramStart += param.length() + 1;
             param = param.trim();
             if (param.isEmpty()) continue;
             
@@ -137,14 +158,15 @@ public class RustParser implements Parser {
                 String name = parts[0].trim();
                 String type = mapRustTypeToJava(parts[1].trim());
                 
-                parameters.add(new ParameterNode(name, type, isMutable, 1, 1));
+                parameters.add(new ParameterNode(name, type, isMutable,
+                    source.getLineNumber(paramOffset), source.getColumnNumber(paramOffset)));
             }
         }
         
         return parameters;
     }
 
-    private List<FieldDeclarationNode> parseStructFields(String fieldsBlock) {
+    private List<FieldDeclarationNode> parseStructFields(String fieldsBlock, int offset, SourceText source) {
         List<FieldDeclarationNode> fields = new ArrayList<>();
         
         if (fieldsBlock == null || fieldsBlock.trim().isEmpty()) {
@@ -153,7 +175,10 @@ public class RustParser implements Parser {
         
         // Split by comma, but handle nested types properly
         String[] fieldLines = fieldsBlock.split(",");
+        int fieldStart = offset;
         for (String fieldLine : fieldLines) {
+            int fieldOffset = fieldStart + (fieldLine.length() - fieldLine.stripLeading().length());
+            fieldStart += fieldLine.length() + 1;
             fieldLine = fieldLine.trim();
             if (fieldLine.isEmpty()) continue;
             
@@ -168,7 +193,8 @@ public class RustParser implements Parser {
                 String fieldName = parts[0].trim();
                 String fieldType = mapRustTypeToJava(parts[1].trim());
                 
-                fields.add(new FieldDeclarationNode(fieldName, fieldType, isPublic, false, 1, 1));
+                fields.add(new FieldDeclarationNode(fieldName, fieldType, isPublic, false,
+                    source.getLineNumber(fieldOffset), source.getColumnNumber(fieldOffset)));
             }
         }
         
@@ -207,14 +233,4 @@ public class RustParser implements Parser {
                 return rustType; // Return as-is for unknown types
         }
     }
-
-    private int getLineNumber(String text, int position) {
-        int lineNumber = 1;
-        for (int i = 0; i < position && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') {
-                lineNumber++;
-            }
-        }
-        return lineNumber;
-    }
 }
\ No newline at end of file
@@ -4,27 +4,31 @@ import com.davajava.migrator.core.ParseException;
 import com.davajava.migrator.core.Parser;
 import com.davajava.migrator.core.SourceLanguage;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.parser.SourceText;
+import com.davajava.migrator.parser.lexer.DeclarationMatcher;
+import com.davajava.migrator.parser.lexer.Lexer;
+import com.davajava.migrator.parser.lexer.LexerSyntax;
+import com.davajava.migrator.parser.lexer.TokenStream;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.logging.Logger;
 
 public class ScalaParser implements Parser {
     private static final Logger logger = Logger.getLogger(ScalaParser.class.getName());
     
-    // Scala specific patterns
+    // Scala specific patterns; class, object and trait bodies come from the token stream's brace matching
     private static final Pattern PACKAGE_PATTERN = Pattern.compile(
         "^\\s*package\\s+([\\w\\.]+)",
         Pattern.MULTILINE
     );
     
     private static final Pattern CLASS_PATTERN = Pattern.compile(
-        "^\\s*(?:(abstract|final|sealed)\\s+)?class\\s+(\\w+)(?:\\[([^\\]]+)\\])?(?:\\s*\\(([^)]*)\\))?(?:\\s+extends\\s+([\\w\\s\\[\\],<>]+))?(?:\\s+with\\s+([\\w\\s\\[\\],<>]+))?\\s*\\{([^}]*)\\}",
+        "^\\s*(?:(abstract|final|sealed)\\s+)?class\\s+(\\w+)(?:\\[([^\\]]+)\\])?(?:\\s*\\(([^)]*)\\))?(?:\\s+extends\\s+([\\w\\s\\[\\],<>]+))?(?:\\s+with\\s+([\\w\\s\\[\\],<>]+))?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
@@ -34,12 +38,12 @@ public class ScalaParser implements Parser {
     );
     
     private static final Pattern OBJECT_PATTERN = Pattern.compile(
-        "^\\s*(?:(case)\\s+)?object\\s+(\\w+)(?:\\s+extends\\s+([\\w\\s\\[\\],<>]+))?(?:\\s+with\\s+([\\w\\s\\[\\],<>]+))?\\s*\\{([^}]*)\\}",
+        "^\\s*(?:(case)\\s+)?object\\s+(\\w+)(?:\\s+extends\\s+([\\w\\s\\[\\],<>]+))?(?:\\s+with\\s+([\\w\\s\\[\\],<>]+))?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
     private static final Pattern TRAIT_PATTERN = Pattern.compile(
-        "^\\s*trait\\s+(\\w+)(?:\\[([^\\]]+)\\])?(?:\\s+extends\\s+([\\w\\s\\[\\],<>]+))?\\s*\\{([^}]*)\\}",
+        "^\\s*trait\\s+(\\w+)(?:\\[([^\\]]+)\\])?(?:\\s+extends\\s+([\\w\\s\\[\\],<>]+))?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
@@ -52,68 +56,84 @@ public class ScalaParser implements Parser {
         "^\\s*(val|var)\\s+(\\w+)(?:\\s*:\\s*([^\\=\\n]+))?(?:\\s*=\\s*([^\\n]+))?",
         Pattern.MULTILINE
     );
+    
+    private static final Pattern IMPORT_PATTERN = Pattern.compile(
+        "^\\s*import\\s+[^\\n]+\\n"
+    );
 
     @Override
     public ASTNode parse(String sourceCode) throws ParseException {
         try {
             sourceCode = preprocessSource(sourceCode);
             ProgramNode program = new ProgramNode(1, 1);
+            SourceText source = new SourceText(sourceCode);
+            TokenStream tokens = Lexer.tokenize(sourceCode, LexerSyntax.SCALA);
             
             // Parse case classes first (immutable data structures)
-            Matcher caseClassMatcher = CASE_CLASS_PATTERN.matcher(sourceCode);
+            DeclarationMatcher caseClassMatcher = tokens.match(CASE_CLASS_PATTERN);
             while (caseClassMatcher.find()) {
                 String className = caseClassMatcher.group(1);
                 String generics = caseClassMatcher.group(2);
                 String parameters = caseClassMatcher.group(3);
                 
                 ClassDeclarationNode caseClass = parseCaseClass(className, parameters, 
-                    getLineNumber(sourceCode, caseClassMatcher.start()));
+                    caseClassMatcher.start(3), caseClassMatcher.start(), source);
                 program.addChild(caseClass);
             }
             
             // Parse traits (similar to interfaces)
-            Matcher traitMatcher = TRAIT_PATTERN.matcher(sourceCode);
+            DeclarationMatcher traitMatcher = tokens.match(TRAIT_PATTERN);
             while (traitMatcher.find()) {
+                TokenStream.Block traitBody = traitMatcher.body();
+                if (traitBody == null) {
+                    continue;
+                }
                 String traitName = traitMatcher.group(1);
                 String generics = traitMatcher.group(2);
                 String superTypes = traitMatcher.group(3);
-                String traitBody = traitMatcher.group(4);
                 
-                ClassDeclarationNode traitClass = parseTrait(traitName, traitBody, 
-                    getLineNumber(sourceCode, traitMatcher.start()));
+                ClassDeclarationNode traitClass = parseTrait(traitName, tokens, traitBody, 
+                    traitMatcher.start(), source);
                 program.addChild(traitClass);
             }
             
             // Parse objects (singletons)
-            Matcher objectMatcher = OBJECT_PATTERN.matcher(sourceCode);
+            DeclarationMatcher objectMatcher = tokens.match(OBJECT_PATTERN);
             while (objectMatcher.find()) {
+                TokenStream.Block objectBody = objectMatcher.body();
+                if (objectBody == null) {
+                    continue;
+                }
                 String caseObject = objectMatcher.group(1);
                 String objectName = objectMatcher.group(2);
                 String superTypes = objectMatcher.group(3);
                 String mixins = objectMatcher.group(4);
-                String objectBody = objectMatcher.group(5);
                 
-                ClassDeclarationNode objectClass = parseObject(objectName, objectBody, 
-                    getLineNumber(sourceCode, objectMatcher.start()));
+                ClassDeclarationNode objectClass = parseObject(objectName, tokens, objectBody, 
+                    objectMatcher.start(), source);
                 program.addChild(objectClass);
             }
             
             // Parse regular classes
-            Matcher classMatcher = CLASS_PATTERN.matcher(sourceCode);
+            DeclarationMatcher classMatcher = tokens.match(CLASS_PATTERN);
             while (classMatcher.find()) {
+                TokenStream.Block classBody = classMatcher.body();
+                if (classBody == null) {
+                    continue;
+                }
                 String modifiers = classMatcher.group(1);
                 String className = classMatcher.group(2);
                 String generics = classMatcher.group(3);
                 String constructorParams = classMatcher.group(4);
                 String superClass = classMatcher.group(5);
                 String mixins = classMatcher.group(6);
-                String classBody = classMatcher.group(7);
                 
                 ClassDeclarationNode classNode = parseClass(className, modifiers, constructorParams, 
-                    classBody, getLineNumber(sourceCode, classMatcher.start()));
+                    classMatcher.start(4), tokens, classBody, classMatcher.start(), source);
                 program.addChild(classNode);
             }
             
+            program.compact();
             return program;
             
         } catch (Exception e) {
@@ -138,31 +158,30 @@ public class ScalaParser implements Parser {
     }
     
     private String preprocessSource(String sourceCode) {
-        // Remove comments
-        sourceCode = sourceCode.replaceAll("/\\*[\\s\\S]*?\\*/", "");
-        sourceCode = sourceCode.replaceAll("//.*", "");
-        
-        // Remove imports for now (basic preprocessing)
-        sourceCode = sourceCode.replaceAll("^\\s*import\\s+[^\\n]+\\n", "");
+        // Remove imports for now
+        sourceCode = SourceText.blank(sourceCode, IMPORT_PATTERN);
         
         return sourceCode;
     }
     
-    private ClassDeclarationNode parseCaseClass(String className, String parameters, int lineNumber) {
-        ClassDeclarationNode caseClass = new ClassDeclarationNode(className, true, lineNumber, 1);
+    private ClassDeclarationNode parseCaseClass(String className, String parameters, int parametersOffset,
+                                                int offset, SourceText source) {
+        ClassDeclarationNode caseClass = new ClassDeclarationNode(className, true,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
         
         // Parse parameters as immutable fields
-        List<ParameterNode> params = parseParameters(parameters);
+        List<ParameterNode> params = parseParameters(parameters, parametersOffset, source);
         for (ParameterNode param : params) {
             // Case class parameters are immutable fields with getters
             VariableDeclarationNode field = new VariableDeclarationNode(
-                param.getName(), param.getDataType(), false, null, lineNumber, 1
+                param.getName(), param.getDataType(), false, null, param.getLineNumber(), param.getColumnNumber()
             );
             caseClass.addChild(field);
             
             // Generate getter
             FunctionDeclarationNode getter = new FunctionDeclarationNode(
-                "get" + capitalize(param.getName()), param.getDataType(), new ArrayList<>(), true, false, lineNumber, 1
+                "get" + capitalize(param.getName()), param.getDataType(), new ArrayList<>(), true, false,
+                param.getLineNumber(), param.getColumnNumber()
             );
             caseClass.addChild(getter);
         }
@@ -173,55 +192,65 @@ public class ScalaParser implements Parser {
         return caseClass;
     }
     
-    private ClassDeclarationNode parseTrait(String traitName, String traitBody, int lineNumber) {
+    private ClassDeclarationNode parseTrait(String traitName, TokenStream tokens, TokenStream.Block traitBody,
+                                            int offset, SourceText source) {
         // Traits become abstract classes or interfaces in Java
-        ClassDeclarationNode traitClass = new ClassDeclarationNode(traitName, true, lineNumber, 1);
+        ClassDeclarationNode traitClass = new ClassDeclarationNode(traitName, true,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
         
         if (traitBody != null) {
-            parseClassBody(traitClass, traitBody, true);
+            parseClassBody(traitClass, tokens, traitBody, true, source);
         }
         
         return traitClass;
     }
     
-    private ClassDeclarationNode parseObject(String objectName, String objectBody, int lineNumber) {
+    private ClassDeclarationNode parseObject(String objectName, TokenStream tokens, TokenStream.Block objectBody,
+                                             int offset, SourceText source) {
         // Objects become classes with static members (singleton pattern)
-        ClassDeclarationNode objectClass = new ClassDeclarationNode(objectName, true, lineNumber, 1);
+        ClassDeclarationNode objectClass = new ClassDeclarationNode(objectName, true,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
         
         // Add singleton pattern
         addSingletonPattern(objectClass, objectName);
         
         if (objectBody != null) {
-            parseClassBody(objectClass, objectBody, false);
+            parseClassBody(objectClass, tokens, objectBody, false, source);
         }
         
         return objectClass;
     }
     
     private ClassDeclarationNode parseClass(String className, String modifiers, String constructorParams, 
-                                          String classBody, int lineNumber) {
-        ClassDeclarationNode classNode = new ClassDeclarationNode(className, true, lineNumber, 1);
+                                          int constructorParamsOffset, TokenStream tokens, TokenStream.Block classBody,
+                                          int offset, SourceText source) {
+        int line = source.getLineNumber(offset);
+        int column = source.getColumnNumber(offset);
+        ClassDeclarationNode classNode = new ClassDeclarationNode(className, true, line, column);
         
         // Parse primary constructor if exists
         if (constructorParams != null && !constructorParams.trim().isEmpty()) {
-            List<ParameterNode> params = parseParameters(constructorParams);
+            List<ParameterNode> params = parseParameters(constructorParams, constructorParamsOffset, source);
             FunctionDeclarationNode constructor = new FunctionDeclarationNode(
-                className, "void", params, true, false, lineNumber, 1
+                className, "void", params, true, false, line, column
             );
             classNode.addChild(constructor);
         }
         
         // Parse class body
         if (classBody != null) {
-            parseClassBody(classNode, classBody, false);
+            parseClassBody(classNode, tokens, classBody, false, source);
         }
         
         return classNode;
     }
     
-    private void parseClassBody(ClassDeclarationNode classNode, String classBody, boolean isTrait) {
+    private void parseClassBody(ClassDeclarationNode classNode, TokenStream tokens, TokenStream.Block classBody,
+                                boolean isTrait, SourceText source) {
+        // Only direct members are matched, so locals inside method bodies are never taken for fields
+        
         // Parse val/var declarations
-        Matcher valVarMatcher = VAL_VAR_PATTERN.matcher(classBody);
+        DeclarationMatcher valVarMatcher = tokens.match(VAL_VAR_PATTERN, classBody);
         while (valVarMatcher.find()) {
             String keyword = valVarMatcher.group(1);
             String fieldName = valVarMatcher.group(2);
@@ -235,31 +264,33 @@ public class ScalaParser implements Parser {
             }
             
             boolean isMutable = "var".equals(keyword);
+            int line = source.getLineNumber(valVarMatcher.start());
+            int column = source.getColumnNumber(valVarMatcher.start());
             
             VariableDeclarationNode field = new VariableDeclarationNode(
-                fieldName, fieldType, isMutable, null, 1, 1
+                fieldName, fieldType, isMutable, null, line, column
             );
             classNode.addChild(field);
             
             // Generate getter
             FunctionDeclarationNode getter = new FunctionDeclarationNode(
-                "get" + capitalize(fieldName), fieldType, new ArrayList<>(), true, false, 1, 1
+                "get" + capitalize(fieldName), fieldType, new ArrayList<>(), true, false, line, column
             );
             classNode.addChild(getter);
             
             // Generate setter for var fields
             if (isMutable) {
                 List<ParameterNode> setterParams = new ArrayList<>();
-                setterParams.add(new ParameterNode("value", fieldType, false, 1, 1));
+                setterParams.add(new ParameterNode("value", fieldType, false, line, column));
                 FunctionDeclarationNode setter = new FunctionDeclarationNode(
-                    "set" + capitalize(fieldName), "void", setterParams, true, false, 1, 1
+                    "set" + capitalize(fieldName), "void", setterParams, true, false, line, column
                 );
                 classNode.addChild(setter);
             }
         }
         
         // Parse methods
-        Matcher methodMatcher = METHOD_PATTERN.matcher(classBody);
+        DeclarationMatcher methodMatcher = tokens.match(METHOD_PATTERN, classBody);
         while (methodMatcher.find()) {
             String modifiers = methodMatcher.group(1);
             String methodName = methodMatcher.group(2);
@@ -268,54 +299,63 @@ public class ScalaParser implements Parser {
             String returnType = methodMatcher.group(5);
             
             returnType = returnType != null ? mapScalaTypeToJava(returnType.trim()) : "Object";
-            List<ParameterNode> paramList = parseParameters(parameters);
+            List<ParameterNode> paramList = parseParameters(parameters, methodMatcher.start(4), source);
             
             boolean isAbstract = isTrait && !methodName.equals("apply");
             
             FunctionDeclarationNode method = new FunctionDeclarationNode(
-                methodName, returnType, paramList, true, false, 1, 1
+                methodName, returnType, paramList, true, false,
+                source.getLineNumber(methodMatcher.start()), source.getColumnNumber(methodMatcher.start())
             );
             classNode.addChild(method);
         }
     }
     
     private void addCaseClassMethods(ClassDeclarationNode caseClass, String className) {
+        // Generated members take the position of the case class itself
+        int line = caseClass.getLineNumber();
+        int column = caseClass.getColumnNumber();
+        
         // equals method
         List<ParameterNode> equalsParams = new ArrayList<>();
-        equalsParams.add(new ParameterNode("other", "Object", false, 1, 1));
+        equalsParams.add(new ParameterNode("other", "Object", false, line, column));
         FunctionDeclarationNode equals = new FunctionDeclarationNode(
-            "equals", "boolean", equalsParams, true, false, 1, 1
+            "equals", "boolean", equalsParams, true, false, line, column
         );
         caseClass.addChild(equals);
         
         // hashCode method
         FunctionDeclarationNode hashCode = new FunctionDeclarationNode(
-            "hashCode", "int", new ArrayList<>(), true, false, 1, 1
+            "hashCode", "int", new ArrayList<>(), true, false, line, column
         );
         caseClass.addChild(hashCode);
         
         // toString method
         FunctionDeclarationNode toString = new FunctionDeclarationNode(
-            "toString", "String", new ArrayList<>(), true, false, 1, 1
+            "toString", "String", new ArrayList<>(), true, false, line, column
         );
         caseClass.addChild(toString);
     }
     
     private void addSingletonPattern(ClassDeclarationNode objectClass, String objectName) {
+        // Generated members take the position of the object itself
+        int line = objectClass.getLineNumber();
+        int column = objectClass.getColumnNumber();
+        
         // Private constructor
         FunctionDeclarationNode privateConstructor = new FunctionDeclarationNode(
-            objectName, "void", new ArrayList<>(), false, false, 1, 1
+            objectName, "void", new ArrayList<>(), false, false, line, column
         );
         objectClass.addChild(privateConstructor);
         
         // getInstance method
         FunctionDeclarationNode getInstance = new FunctionDeclarationNode(
-            "getInstance", objectName, new ArrayList<>(), true, true, 1, 1
+            "getInstance", objectName, new ArrayList<>(), true, true, line, column
         );
         objectClass.addChild(getInstance);
     }
     
-    private List<ParameterNode> parseParameters(String paramString) {
+    private List<ParameterNode> parseParameters(String paramString, int offset, SourceText source) {
         List<ParameterNode> parameters = new ArrayList<>();
         
         if (paramString == null || paramString.trim().isEmpty()) {
@@ -323,7 +363,10 @@ public class ScalaParser implements Parser {
         }
         
         String[] params = paramString.split(",");
+        int paramStart = offset;
         for (String param : params) {
+            int paramOffset = paramStart + (param.length() - param.stripLeading().length());
+            paramStart += param.length() + 1;
             param = param.trim();
             if (param.isEmpty()) continue;
             
@@ -337,7 +380,8 @@ public class ScalaParser implements Parser {
                 name = name.replaceAll("^(val|var)\\s+", "");
                 
                 type = mapScalaTypeToJava(type);
-                parameters.add(new ParameterNode(name, type, false, 1, 1));
+                parameters.add(new ParameterNode(name, type, false,
+                    source.getLineNumber(paramOffset), source.getColumnNumber(paramOffset)));
             }
         }
         
@@ -389,13 +433,4 @@ public class ScalaParser implements Parser {
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
     
-    private int getLineNumber(String text, int position) {
-        int lineNumber = 1;
-        for (int i = 0; i < position && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') {
-                lineNumber++;
-            }
-        }
-        return lineNumber;
-    }
 }
\ No newline at end of file
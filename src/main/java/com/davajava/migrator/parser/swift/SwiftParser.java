@@ -4,37 +4,41 @@ import com.davajava.migrator.core.ParseException;
 import com.davajava.migrator.core.Parser;
 import com.davajava.migrator.core.SourceLanguage;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.parser.SourceText;
+import com.davajava.migrator.parser.lexer.DeclarationMatcher;
+import com.davajava.migrator.parser.lexer.Lexer;
+import com.davajava.migrator.parser.lexer.LexerSyntax;
+import com.davajava.migrator.parser.lexer.TokenStream;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.logging.Logger;
 
 public class SwiftParser implements Parser {
     private static final Logger logger = Logger.getLogger(SwiftParser.class.getName());
     
-    // Swift specific patterns
+    // Swift specific patterns; type and accessor bodies come from the token stream's brace matching
     private static final Pattern CLASS_PATTERN = Pattern.compile(
-        "^\\s*(?:(open|public|internal|fileprivate|private)\\s+)?(?:(final)\\s+)?class\\s+(\\w+)(?:\\s*:\\s*([\\w\\s,<>]+))?\\s*\\{([^}]*)\\}",
+        "^\\s*(?:(open|public|internal|fileprivate|private)\\s+)?(?:(final)\\s+)?class\\s+(\\w+)(?:\\s*:\\s*([\\w\\s,<>]+))?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
     private static final Pattern STRUCT_PATTERN = Pattern.compile(
-        "^\\s*(?:(public|internal|fileprivate|private)\\s+)?struct\\s+(\\w+)(?:\\s*:\\s*([\\w\\s,<>]+))?\\s*\\{([^}]*)\\}",
+        "^\\s*(?:(public|internal|fileprivate|private)\\s+)?struct\\s+(\\w+)(?:\\s*:\\s*([\\w\\s,<>]+))?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
     private static final Pattern PROTOCOL_PATTERN = Pattern.compile(
-        "^\\s*(?:(public|internal|fileprivate|private)\\s+)?protocol\\s+(\\w+)(?:\\s*:\\s*([\\w\\s,<>]+))?\\s*\\{([^}]*)\\}",
+        "^\\s*(?:(public|internal|fileprivate|private)\\s+)?protocol\\s+(\\w+)(?:\\s*:\\s*([\\w\\s,<>]+))?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
     private static final Pattern ENUM_PATTERN = Pattern.compile(
-        "^\\s*(?:(public|internal|fileprivate|private)\\s+)?enum\\s+(\\w+)(?:\\s*:\\s*([\\w\\s,<>]+))?\\s*\\{([^}]*)\\}",
+        "^\\s*(?:(public|internal|fileprivate|private)\\s+)?enum\\s+(\\w+)(?:\\s*:\\s*([\\w\\s,<>]+))?\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
@@ -49,76 +53,94 @@ public class SwiftParser implements Parser {
     );
     
     private static final Pattern PROPERTY_PATTERN = Pattern.compile(
-        "^\\s*(?:(open|public|internal|fileprivate|private)\\s+)?(?:(static|class)\\s+)?(?:(var|let)\\s+)(\\w+)\\s*:\\s*([^\\{\\=\\n]+)(?:\\s*=\\s*([^\\{\\n]+))?(?:\\s*\\{([^}]*)\\})?",
+        "^\\s*(?:(open|public|internal|fileprivate|private)\\s+)?(?:(static|class)\\s+)?(?:(var|let)\\s+)(\\w+)\\s*:\\s*([^\\{\\=\\n]+)(?:\\s*=\\s*([^\\{\\n]+))?(?:\\s*\\{)?",
         Pattern.MULTILINE | Pattern.DOTALL
     );
     
     private static final Pattern COMPUTED_PROPERTY_PATTERN = Pattern.compile(
-        "^\\s*(?:(open|public|internal|fileprivate|private)\\s+)?(?:(static|class)\\s+)?var\\s+(\\w+)\\s*:\\s*([^\\{\\n]+)\\s*\\{([^}]*)\\}",
+        "^\\s*(?:(open|public|internal|fileprivate|private)\\s+)?(?:(static|class)\\s+)?var\\s+(\\w+)\\s*:\\s*([^\\{\\n]+)\\s*\\{",
         Pattern.MULTILINE | Pattern.DOTALL
     );
+    
+    private static final Pattern IMPORT_PATTERN = Pattern.compile(
+        "^\\s*import\\s+[^\\n]+\\n"
+    );
 
     @Override
     public ASTNode parse(String sourceCode) throws ParseException {
         try {
             sourceCode = preprocessSource(sourceCode);
             ProgramNode program = new ProgramNode(1, 1);
+            SourceText source = new SourceText(sourceCode);
+            TokenStream tokens = Lexer.tokenize(sourceCode, LexerSyntax.SWIFT);
             
             // Parse protocols first (similar to interfaces)
-            Matcher protocolMatcher = PROTOCOL_PATTERN.matcher(sourceCode);
+            DeclarationMatcher protocolMatcher = tokens.match(PROTOCOL_PATTERN);
             while (protocolMatcher.find()) {
+                TokenStream.Block protocolBody = protocolMatcher.body();
+                if (protocolBody == null) {
+                    continue;
+                }
                 String accessLevel = protocolMatcher.group(1);
                 String protocolName = protocolMatcher.group(2);
                 String inheritance = protocolMatcher.group(3);
-                String protocolBody = protocolMatcher.group(4);
                 
-                ClassDeclarationNode protocolClass = parseProtocol(protocolName, protocolBody,
-                    getLineNumber(sourceCode, protocolMatcher.start()));
+                ClassDeclarationNode protocolClass = parseProtocol(protocolName, tokens, protocolBody,
+                    protocolMatcher.start(), source);
                 program.addChild(protocolClass);
             }
             
             // Parse enums
-            Matcher enumMatcher = ENUM_PATTERN.matcher(sourceCode);
+            DeclarationMatcher enumMatcher = tokens.match(ENUM_PATTERN);
             while (enumMatcher.find()) {
+                TokenStream.Block enumBody = enumMatcher.body();
+                if (enumBody == null) {
+                    continue;
+                }
                 String accessLevel = enumMatcher.group(1);
                 String enumName = enumMatcher.group(2);
                 String rawType = enumMatcher.group(3);
-                String enumBody = enumMatcher.group(4);
                 
-                ClassDeclarationNode enumClass = parseEnum(enumName, rawType, enumBody,
-                    getLineNumber(sourceCode, enumMatcher.start()));
+                ClassDeclarationNode enumClass = parseEnum(enumName, rawType, tokens, enumBody,
+                    enumMatcher.start(), source);
                 program.addChild(enumClass);
             }
             
             // Parse structs
-            Matcher structMatcher = STRUCT_PATTERN.matcher(sourceCode);
+            DeclarationMatcher structMatcher = tokens.match(STRUCT_PATTERN);
             while (structMatcher.find()) {
+                TokenStream.Block structBody = structMatcher.body();
+                if (structBody == null) {
+                    continue;
+                }
                 String accessLevel = structMatcher.group(1);
                 String structName = structMatcher.group(2);
                 String protocols = structMatcher.group(3);
-                String structBody = structMatcher.group(4);
                 
-                ClassDeclarationNode structClass = parseStruct(structName, structBody,
-                    getLineNumber(sourceCode, structMatcher.start()));
+                ClassDeclarationNode structClass = parseStruct(structName, tokens, structBody,
+                    structMatcher.start(), source);
                 program.addChild(structClass);
             }
             
             // Parse classes
-            Matcher classMatcher = CLASS_PATTERN.matcher(sourceCode);
+            DeclarationMatcher classMatcher = tokens.match(CLASS_PATTERN);
             while (classMatcher.find()) {
+                TokenStream.Block classBody = classMatcher.body();
+                if (classBody == null) {
+                    continue;
+                }
                 String accessLevel = classMatcher.group(1);
                 String finalModifier = classMatcher.group(2);
                 String className = classMatcher.group(3);
                 String inheritance = classMatcher.group(4);
-                String classBody = classMatcher.group(5);
                 
-                ClassDeclarationNode classNode = parseClass(className, classBody,
-                    getLineNumber(sourceCode, classMatcher.start()));
+                ClassDeclarationNode classNode = parseClass(className, tokens, classBody,
+                    classMatcher.start(), source);
                 program.addChild(classNode);
             }
             
-            // Parse standalone functions
-            Matcher functionMatcher = FUNCTION_PATTERN.matcher(sourceCode);
+            // Parse standalone functions; methods are picked up with their type
+            DeclarationMatcher functionMatcher = tokens.matchTopLevel(FUNCTION_PATTERN);
             while (functionMatcher.find()) {
                 String accessLevel = functionMatcher.group(1);
                 String staticModifier = functionMatcher.group(2);
@@ -128,10 +150,11 @@ public class SwiftParser implements Parser {
                 String returnType = functionMatcher.group(6);
                 
                 FunctionDeclarationNode funcNode = parseFunction(functionName, parameters, returnType,
-                    getLineNumber(sourceCode, functionMatcher.start()));
+                    functionMatcher.start(5), functionMatcher.start(), source);
                 program.addChild(funcNode);
             }
             
+            program.compact();
             return program;
             
         } catch (Exception e) {
@@ -156,31 +179,34 @@ public class SwiftParser implements Parser {
     }
     
     private String preprocessSource(String sourceCode) {
-        // Remove comments
-        sourceCode = sourceCode.replaceAll("/\\*[\\s\\S]*?\\*/", "");
-        sourceCode = sourceCode.replaceAll("//.*", "");
-        
-        // Remove import statements for now
-        sourceCode = sourceCode.replaceAll("^\\s*import\\s+[^\\n]+\\n", "");
+        // Remove imports for now
+        sourceCode = SourceText.blank(sourceCode, IMPORT_PATTERN);
         
         return sourceCode;
     }
     
-    private ClassDeclarationNode parseProtocol(String protocolName, String protocolBody, int lineNumber) {
-        ClassDeclarationNode protocolClass = new ClassDeclarationNode(protocolName, true, lineNumber, 1);
+    private ClassDeclarationNode parseProtocol(String protocolName, TokenStream tokens, TokenStream.Block protocolBody,
+                                               int offset, SourceText source) {
+        ClassDeclarationNode protocolClass = new ClassDeclarationNode(protocolName, true,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
         
         // Parse protocol methods and properties
-        parseClassBody(protocolClass, protocolBody, true);
+        parseClassBody(protocolClass, tokens, protocolBody, true, source);
         
         return protocolClass;
     }
     
-    private ClassDeclarationNode parseEnum(String enumName, String rawType, String enumBody, int lineNumber) {
-        ClassDeclarationNode enumClass = new ClassDeclarationNode(enumName, true, lineNumber, 1);
+    private ClassDeclarationNode parseEnum(String enumName, String rawType, TokenStream tokens, TokenStream.Block enumBody,
+                                           int offset, SourceText source) {
+        ClassDeclarationNode enumClass = new ClassDeclarationNode(enumName, true,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
         
         // Parse enum cases and methods
-        String[] lines = enumBody.split("\\n");
+        String[] lines = enumBody.getCode().split("\\n");
+        int lineStart = enumBody.getStart();
         for (String line : lines) {
+            int caseOffset = lineStart + (line.length() - line.stripLeading().length());
+            lineStart += line.length() + 1;
             line = line.trim();
             if (line.startsWith("case ")) {
                 // Parse enum cases
@@ -188,20 +214,23 @@ public class SwiftParser implements Parser {
                 
                 // Create a static constant for each case
                 VariableDeclarationNode caseConstant = new VariableDeclarationNode(
-                    caseName.toUpperCase(), enumName, false, null, lineNumber, 1);
+                    caseName.toUpperCase(), enumName, false, null,
+                    source.getLineNumber(caseOffset), source.getColumnNumber(caseOffset));
                 enumClass.addChild(caseConstant);
             }
         }
         
-        parseClassBody(enumClass, enumBody, false);
+        parseClassBody(enumClass, tokens, enumBody, false, source);
         
         return enumClass;
     }
     
-    private ClassDeclarationNode parseStruct(String structName, String structBody, int lineNumber) {
-        ClassDeclarationNode structClass = new ClassDeclarationNode(structName, true, lineNumber, 1);
+    private ClassDeclarationNode parseStruct(String structName, TokenStream tokens, TokenStream.Block structBody,
+                                             int offset, SourceText source) {
+        ClassDeclarationNode structClass = new ClassDeclarationNode(structName, true,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
         
-        parseClassBody(structClass, structBody, false);
+        parseClassBody(structClass, tokens, structBody, false, source);
         
         // Add memberwise initializer (Swift feature)
         addMemberwiseInitializer(structClass, structName);
@@ -209,17 +238,22 @@ public class SwiftParser implements Parser {
         return structClass;
     }
     
-    private ClassDeclarationNode parseClass(String className, String classBody, int lineNumber) {
-        ClassDeclarationNode classNode = new ClassDeclarationNode(className, true, lineNumber, 1);
+    private ClassDeclarationNode parseClass(String className, TokenStream tokens, TokenStream.Block classBody,
+                                            int offset, SourceText source) {
+        ClassDeclarationNode classNode = new ClassDeclarationNode(className, true,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
         
-        parseClassBody(classNode, classBody, false);
+        parseClassBody(classNode, tokens, classBody, false, source);
         
         return classNode;
     }
     
-    private void parseClassBody(ClassDeclarationNode classNode, String body, boolean isProtocol) {
+    private void parseClassBody(ClassDeclarationNode classNode, TokenStream tokens, TokenStream.Block body,
+                                boolean isProtocol, SourceText source) {
+        // Only direct members are matched, so locals inside method and accessor bodies are never taken for properties
+        
         // Parse properties
-        Matcher propertyMatcher = PROPERTY_PATTERN.matcher(body);
+        DeclarationMatcher propertyMatcher = tokens.match(PROPERTY_PATTERN, body);
         while (propertyMatcher.find()) {
             String accessLevel = propertyMatcher.group(1);
             String staticModifier = propertyMatcher.group(2);
@@ -227,62 +261,64 @@ public class SwiftParser implements Parser {
             String propertyName = propertyMatcher.group(4);
             String propertyType = propertyMatcher.group(5);
             String initializer = propertyMatcher.group(6);
-            String propertyBody = propertyMatcher.group(7);
             
             boolean isMutable = "var".equals(varLet);
             String javaType = mapSwiftTypeToJava(propertyType.trim());
+            int line = source.getLineNumber(propertyMatcher.start());
+            int column = source.getColumnNumber(propertyMatcher.start());
             
             VariableDeclarationNode property = new VariableDeclarationNode(
-                propertyName, javaType, isMutable, null, 1, 1);
+                propertyName, javaType, isMutable, null, line, column);
             classNode.addChild(property);
             
             // Generate getter
             FunctionDeclarationNode getter = new FunctionDeclarationNode(
-                "get" + capitalize(propertyName), javaType, new ArrayList<>(), true, false, 1, 1);
+                "get" + capitalize(propertyName), javaType, new ArrayList<>(), true, false, line, column);
             classNode.addChild(getter);
             
             // Generate setter for var properties
             if (isMutable) {
                 List<ParameterNode> setterParams = new ArrayList<>();
-                setterParams.add(new ParameterNode("value", javaType, false, 1, 1));
+                setterParams.add(new ParameterNode("value", javaType, false, line, column));
                 FunctionDeclarationNode setter = new FunctionDeclarationNode(
-                    "set" + capitalize(propertyName), "void", setterParams, true, false, 1, 1);
+                    "set" + capitalize(propertyName), "void", setterParams, true, false, line, column);
                 classNode.addChild(setter);
             }
         }
         
         // Parse computed properties
-        Matcher computedPropertyMatcher = COMPUTED_PROPERTY_PATTERN.matcher(body);
+        DeclarationMatcher computedPropertyMatcher = tokens.match(COMPUTED_PROPERTY_PATTERN, body);
         while (computedPropertyMatcher.find()) {
             String accessLevel = computedPropertyMatcher.group(1);
             String staticModifier = computedPropertyMatcher.group(2);
             String propertyName = computedPropertyMatcher.group(3);
             String propertyType = computedPropertyMatcher.group(4);
-            String propertyBody = computedPropertyMatcher.group(5);
             
             String javaType = mapSwiftTypeToJava(propertyType.trim());
             
             // Computed property becomes a getter method
             FunctionDeclarationNode getter = new FunctionDeclarationNode(
-                "get" + capitalize(propertyName), javaType, new ArrayList<>(), true, false, 1, 1);
+                "get" + capitalize(propertyName), javaType, new ArrayList<>(), true, false,
+                source.getLineNumber(computedPropertyMatcher.start()), source.getColumnNumber(computedPropertyMatcher.start()));
             classNode.addChild(getter);
         }
         
         // Parse initializers
-        Matcher initMatcher = INIT_PATTERN.matcher(body);
+        DeclarationMatcher initMatcher = tokens.match(INIT_PATTERN, body);
         while (initMatcher.find()) {
             String accessLevel = initMatcher.group(1);
             String initModifier = initMatcher.group(2);
             String parameters = initMatcher.group(3);
             
-            List<ParameterNode> paramList = parseParameters(parameters);
+            List<ParameterNode> paramList = parseParameters(parameters, initMatcher.start(3), source);
             FunctionDeclarationNode constructor = new FunctionDeclarationNode(
-                classNode.getName(), "void", paramList, true, false, 1, 1);
+                classNode.getName(), "void", paramList, true, false,
+                source.getLineNumber(initMatcher.start()), source.getColumnNumber(initMatcher.start()));
             classNode.addChild(constructor);
         }
         
         // Parse functions
-        Matcher functionMatcher = FUNCTION_PATTERN.matcher(body);
+        DeclarationMatcher functionMatcher = tokens.match(FUNCTION_PATTERN, body);
         while (functionMatcher.find()) {
             String accessLevel = functionMatcher.group(1);
             String staticModifier = functionMatcher.group(2);
@@ -291,27 +327,31 @@ public class SwiftParser implements Parser {
             String parameters = functionMatcher.group(5);
             String returnType = functionMatcher.group(6);
             
-            FunctionDeclarationNode method = parseFunction(functionName, parameters, returnType, 1);
+            FunctionDeclarationNode method = parseFunction(functionName, parameters, returnType,
+                functionMatcher.start(5), functionMatcher.start(), source);
             if ("static".equals(staticModifier) || "class".equals(staticModifier)) {
                 // Mark as static
                 method = new FunctionDeclarationNode(
-                    functionName, method.getReturnType(), method.getParameters(), true, true, 1, 1);
+                    functionName, method.getReturnType(), method.getParameters(), true, true,
+                    method.getLineNumber(), method.getColumnNumber());
             }
             classNode.addChild(method);
         }
     }
     
-    private FunctionDeclarationNode parseFunction(String functionName, String parameters, String returnType, int lineNumber) {
+    private FunctionDeclarationNode parseFunction(String functionName, String parameters, String returnType,
+                                                  int parametersOffset, int offset, SourceText source) {
         String javaReturnType = "void";
         
         if (returnType != null && !returnType.trim().isEmpty()) {
             javaReturnType = mapSwiftTypeToJava(returnType.trim());
         }
         
-        List<ParameterNode> paramList = parseParameters(parameters);
+        List<ParameterNode> paramList = parseParameters(parameters, parametersOffset, source);
         
         return new FunctionDeclarationNode(
-            functionName, javaReturnType, paramList, true, false, lineNumber, 1);
+            functionName, javaReturnType, paramList, true, false,
+            source.getLineNumber(offset), source.getColumnNumber(offset));
     }
     
     private void addMemberwiseInitializer(ClassDeclarationNode structClass, String structName) {
@@ -321,18 +361,20 @@ public class SwiftParser implements Parser {
         for (ASTNode child : structClass.getChildren()) {
             if (child instanceof VariableDeclarationNode) {
                 VariableDeclarationNode property = (VariableDeclarationNode) child;
-                memberwiseParams.add(new ParameterNode(property.getName(), property.getDataType(), false, 1, 1));
+                memberwiseParams.add(new ParameterNode(property.getName(), property.getDataType(), false,
+                    property.getLineNumber(), property.getColumnNumber()));
             }
         }
         
         if (!memberwiseParams.isEmpty()) {
             FunctionDeclarationNode memberwiseInit = new FunctionDeclarationNode(
-                structName, "void", memberwiseParams, true, false, 1, 1);
+                structName, "void", memberwiseParams, true, false,
+                structClass.getLineNumber(), structClass.getColumnNumber());
             structClass.addChild(memberwiseInit);
         }
     }
     
-    private List<ParameterNode> parseParameters(String paramString) {
+    private List<ParameterNode> parseParameters(String paramString, int offset, SourceText source) {
         List<ParameterNode> parameters = new ArrayList<>();
         
         if (paramString == null || paramString.trim().isEmpty()) {
@@ -340,7 +382,10 @@ public class SwiftParser implements Parser {
         }
         
         String[] params = paramString.split(",");
+        int paramStart = offset;
         for (String param : params) {
+            int paramOffset = paramStart + (param.length() - param.stripLeading().length());
+            paramStart += param.length() + 1;
             param = param.trim();
             if (param.isEmpty()) continue;
             
@@ -369,7 +414,8 @@ public class SwiftParser implements Parser {
                 type = mapSwiftTypeToJava(typePart);
             }
             
-            parameters.add(new ParameterNode(name, type, false, 1, 1));
+            parameters.add(new ParameterNode(name, type, false,
+                source.getLineNumber(paramOffset), source.getColumnNumber(paramOffset)));
         }
         
         return parameters;
@@ -512,13 +558,4 @@ public class SwiftParser implements Parser {
         return str.substring(0, 1).toUpperCase() + str.substring(1);
     }
     
-    private int getLineNumber(String text, int position) {
-        int lineNumber = 1;
-        for (int i = 0; i < position && i < text.length(); i++) {
-            if (text.charAt(i) == '\n') {
-                lineNumber++;
-            }
-        }
-        return lineNumber;
-    }
 }
\ No newline at end of file
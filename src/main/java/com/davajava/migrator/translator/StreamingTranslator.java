@@ -0,0 +1,67 @@
+package com.davajava.migrator.translator;
+
+import com.davajava.migrator.core.BuildIdentity;
+import com.davajava.migrator.core.TranslationException;
+import com.davajava.migrator.core.TranslationOptions;
+import com.davajava.migrator.core.Translator;
+import com.davajava.migrator.core.ast.ASTNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Base for the translators backed by a {@link StreamingVisitor}. Subclasses
+ * supply the visitor, the source language and their default options.
+ */
+public abstract class StreamingTranslator<V extends StreamingVisitor> implements Translator {
+    protected final V visitor;
+    private final String sourceName;
+
+    /**
+     * @param sourceName how the source language is named in error messages
+     */
+    protected StreamingTranslator(V visitor, String sourceName) {
+        this.visitor = visitor;
+        this.sourceName = sourceName;
+    }
+
+    /**
+     * Also covers this base class and the visitor base, which live outside
+     * the translator's package.
+     */
+    @Override
+    public String getVersion() {
+        return Translator.super.getVersion() + "+" + BuildIdentity.of(StreamingTranslator.class);
+    }
+
+    @Override
+    public String translate(ASTNode ast) throws TranslationException {
+        return translate(ast, getDefaultOptions());
+    }
+
+    @Override
+    public String translate(ASTNode ast, TranslationOptions options) throws TranslationException {
+        try {
+            visitor.setOptions(options);
+            return ast.accept(visitor);
+        } catch (Exception e) {
+            throw new TranslationException("Failed to translate " + sourceName + " AST to Java", e);
+        }
+    }
+
+    @Override
+    public void translate(ASTNode ast, TranslationOptions options, Appendable out)
+            throws TranslationException, IOException {
+        try {
+            visitor.setOptions(options);
+            visitor.setSink(out);
+            ast.accept(visitor);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (Exception e) {
+            throw new TranslationException("Failed to translate " + sourceName + " AST to Java", e);
+        } finally {
+            visitor.setSink(null);
+        }
+    }
+}
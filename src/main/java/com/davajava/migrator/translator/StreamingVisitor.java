@@ -0,0 +1,65 @@
+package com.davajava.migrator.translator;
+
+import com.davajava.migrator.core.TranslationOptions;
+import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.core.ast.ASTVisitor;
+import com.davajava.migrator.core.ast.ProgramNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Base for the target visitors that render Java into a buffer. With a sink
+ * set, the buffer is drained into it after each top-level declaration, so a
+ * translation holds one declaration in memory rather than the whole file.
+ *
+ * <p>Visitor methods cannot throw checked exceptions; a failing sink is
+ * reported as an {@link UncheckedIOException} for the translator to unwrap.
+ */
+public abstract class StreamingVisitor implements ASTVisitor {
+    protected final StringBuilder output = new StringBuilder();
+    private Appendable sink;
+
+    /**
+     * Prepares the visitor for the next file, clearing anything left in the
+     * buffer.
+     */
+    public abstract void setOptions(TranslationOptions options);
+
+    /**
+     * Streams the translated file into the sink one top-level declaration at
+     * a time; {@link #visitProgram} then returns an empty string. Pass null to
+     * collect and return the whole file again.
+     */
+    public void setSink(Appendable sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Visits the top-level declarations of the program after whatever header
+     * is already in the buffer, and returns what was not streamed.
+     */
+    protected String emitDeclarations(ProgramNode node) {
+        for (ASTNode child : node.getChildren()) {
+            child.accept(this);
+            output.append("\n");
+            drain();
+        }
+
+        drain();
+        return output.toString();
+    }
+
+    private void drain() {
+        if (sink == null || output.length() == 0) {
+            return;
+        }
+
+        try {
+            sink.append(output);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        output.setLength(0);
+    }
+}
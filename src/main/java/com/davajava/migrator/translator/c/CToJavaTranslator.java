@@ -1,31 +1,13 @@
 package com.davajava.migrator.translator.c;
 
 import com.davajava.migrator.core.SourceLanguage;
-import com.davajava.migrator.core.TranslationException;
 import com.davajava.migrator.core.TranslationOptions;
-import com.davajava.migrator.core.Translator;
-import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.translator.StreamingTranslator;
 
-public class CToJavaTranslator implements Translator {
-    private final CToJavaVisitor visitor;
+public class CToJavaTranslator extends StreamingTranslator<CToJavaVisitor> {
 
     public CToJavaTranslator() {
-        this.visitor = new CToJavaVisitor();
-    }
-
-    @Override
-    public String translate(ASTNode ast) throws TranslationException {
-        return translate(ast, getDefaultOptions());
-    }
-
-    @Override
-    public String translate(ASTNode ast, TranslationOptions options) throws TranslationException {
-        try {
-            visitor.setOptions(options);
-            return ast.accept(visitor);
-        } catch (Exception e) {
-            throw new TranslationException("Failed to translate C AST to Java", e);
-        }
+        super(new CToJavaVisitor(), "C");
     }
 
     @Override
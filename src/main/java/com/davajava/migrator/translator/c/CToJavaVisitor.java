@@ -2,17 +2,17 @@ package com.davajava.migrator.translator.c;
 
 import com.davajava.migrator.core.TranslationOptions;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.translator.StreamingVisitor;
 
-public class CToJavaVisitor implements ASTVisitor {
+public class CToJavaVisitor extends StreamingVisitor {
     private TranslationOptions options;
-    private final StringBuilder output;
     private int indentLevel;
 
     public CToJavaVisitor() {
-        this.output = new StringBuilder();
         this.indentLevel = 0;
     }
 
+    @Override
     public void setOptions(TranslationOptions options) {
         this.options = options;
         this.output.setLength(0);
@@ -29,12 +29,7 @@ public class CToJavaVisitor implements ASTVisitor {
             output.append("import java.util.*;\n\n");
         }
         
-        for (ASTNode child : node.getChildren()) {
-            child.accept(this);
-            output.append("\n");
-        }
-        
-        return output.toString();
+        return emitDeclarations(node);
     }
 
     @Override
@@ -2,17 +2,17 @@ package com.davajava.migrator.translator.cpp;
 
 import com.davajava.migrator.core.TranslationOptions;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.translator.StreamingVisitor;
 
-public class CppToJavaVisitor implements ASTVisitor {
+public class CppToJavaVisitor extends StreamingVisitor {
     private TranslationOptions options;
-    private final StringBuilder output;
     private int indentLevel;
 
     public CppToJavaVisitor() {
-        this.output = new StringBuilder();
         this.indentLevel = 0;
     }
 
+    @Override
     public void setOptions(TranslationOptions options) {
         this.options = options;
         this.output.setLength(0);
@@ -30,12 +30,7 @@ public class CppToJavaVisitor implements ASTVisitor {
             output.append("import java.io.*;\n\n");
         }
         
-        for (ASTNode child : node.getChildren()) {
-            child.accept(this);
-            output.append("\n");
-        }
-        
-        return output.toString();
+        return emitDeclarations(node);
     }
 
     @Override
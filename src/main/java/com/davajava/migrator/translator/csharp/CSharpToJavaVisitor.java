@@ -2,17 +2,17 @@ package com.davajava.migrator.translator.csharp;
 
 import com.davajava.migrator.core.TranslationOptions;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.translator.StreamingVisitor;
 
-public class CSharpToJavaVisitor implements ASTVisitor {
+public class CSharpToJavaVisitor extends StreamingVisitor {
     private TranslationOptions options;
-    private final StringBuilder output;
     private int indentLevel;
 
     public CSharpToJavaVisitor() {
-        this.output = new StringBuilder();
         this.indentLevel = 0;
     }
 
+    @Override
     public void setOptions(TranslationOptions options) {
         this.options = options;
         this.output.setLength(0);
@@ -31,12 +31,7 @@ public class CSharpToJavaVisitor implements ASTVisitor {
             output.append("import java.util.function.*;\n\n");
         }
         
-        for (ASTNode child : node.getChildren()) {
-            child.accept(this);
-            output.append("\n");
-        }
-        
-        return output.toString();
+        return emitDeclarations(node);
     }
 
     @Override
@@ -2,17 +2,17 @@ package com.davajava.migrator.translator.go;
 
 import com.davajava.migrator.core.TranslationOptions;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.translator.StreamingVisitor;
 
-public class GoToJavaVisitor implements ASTVisitor {
+public class GoToJavaVisitor extends StreamingVisitor {
     private TranslationOptions options;
-    private final StringBuilder output;
     private int indentLevel;
 
     public GoToJavaVisitor() {
-        this.output = new StringBuilder();
         this.indentLevel = 0;
     }
 
+    @Override
     public void setOptions(TranslationOptions options) {
         this.options = options;
         this.output.setLength(0);
@@ -37,12 +37,7 @@ public class GoToJavaVisitor implements ASTVisitor {
             output.append("import java.util.concurrent.atomic.*;\n\n");
         }
         
-        for (ASTNode child : node.getChildren()) {
-            child.accept(this);
-            output.append("\n");
-        }
-        
-        return output.toString();
+        return emitDeclarations(node);
     }
 
     @Override
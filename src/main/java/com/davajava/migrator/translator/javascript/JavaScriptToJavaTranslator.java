@@ -1,31 +1,13 @@
 package com.davajava.migrator.translator.javascript;
 
 import com.davajava.migrator.core.SourceLanguage;
-import com.davajava.migrator.core.TranslationException;
 import com.davajava.migrator.core.TranslationOptions;
-import com.davajava.migrator.core.Translator;
-import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.translator.StreamingTranslator;
 
-public class JavaScriptToJavaTranslator implements Translator {
-    private final JavaScriptToJavaVisitor visitor;
+public class JavaScriptToJavaTranslator extends StreamingTranslator<JavaScriptToJavaVisitor> {
 
     public JavaScriptToJavaTranslator() {
-        this.visitor = new JavaScriptToJavaVisitor();
-    }
-
-    @Override
-    public String translate(ASTNode ast) throws TranslationException {
-        return translate(ast, getDefaultOptions());
-    }
-
-    @Override
-    public String translate(ASTNode ast, TranslationOptions options) throws TranslationException {
-        try {
-            visitor.setOptions(options);
-            return ast.accept(visitor);
-        } catch (Exception e) {
-            throw new TranslationException("Failed to translate JavaScript/TypeScript AST to Java", e);
-        }
+        super(new JavaScriptToJavaVisitor(), "JavaScript/TypeScript");
     }
 
     @Override
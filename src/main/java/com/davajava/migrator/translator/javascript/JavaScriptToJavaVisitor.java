@@ -2,17 +2,17 @@ package com.davajava.migrator.translator.javascript;
 
 import com.davajava.migrator.core.TranslationOptions;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.translator.StreamingVisitor;
 
-public class JavaScriptToJavaVisitor implements ASTVisitor {
+public class JavaScriptToJavaVisitor extends StreamingVisitor {
     private TranslationOptions options;
-    private final StringBuilder output;
     private int indentLevel;
 
     public JavaScriptToJavaVisitor() {
-        this.output = new StringBuilder();
         this.indentLevel = 0;
     }
 
+    @Override
     public void setOptions(TranslationOptions options) {
         this.options = options;
         this.output.setLength(0);
@@ -36,12 +36,7 @@ public class JavaScriptToJavaVisitor implements ASTVisitor {
             output.append("import java.util.regex.Pattern;\n\n");
         }
         
-        for (ASTNode child : node.getChildren()) {
-            child.accept(this);
-            output.append("\n");
-        }
-        
-        return output.toString();
+        return emitDeclarations(node);
     }
 
     @Override
@@ -1,31 +1,13 @@
 package com.davajava.migrator.translator.kotlin;
 
 import com.davajava.migrator.core.SourceLanguage;
-import com.davajava.migrator.core.TranslationException;
 import com.davajava.migrator.core.TranslationOptions;
-import com.davajava.migrator.core.Translator;
-import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.translator.StreamingTranslator;
 
-public class KotlinToJavaTranslator implements Translator {
-    private final KotlinToJavaVisitor visitor;
+public class KotlinToJavaTranslator extends StreamingTranslator<KotlinToJavaVisitor> {
 
     public KotlinToJavaTranslator() {
-        this.visitor = new KotlinToJavaVisitor();
-    }
-
-    @Override
-    public String translate(ASTNode ast) throws TranslationException {
-        return translate(ast, getDefaultOptions());
-    }
-
-    @Override
-    public String translate(ASTNode ast, TranslationOptions options) throws TranslationException {
-        try {
-            visitor.setOptions(options);
-            return ast.accept(visitor);
-        } catch (Exception e) {
-            throw new TranslationException("Failed to translate Kotlin AST to Java", e);
-        }
+        super(new KotlinToJavaVisitor(), "Kotlin");
     }
 
     @Override
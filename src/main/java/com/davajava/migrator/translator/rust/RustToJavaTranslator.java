@@ -1,31 +1,13 @@
 package com.davajava.migrator.translator.rust;
 
 import com.davajava.migrator.core.SourceLanguage;
-import com.davajava.migrator.core.TranslationException;
 import com.davajava.migrator.core.TranslationOptions;
-import com.davajava.migrator.core.Translator;
-import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.translator.StreamingTranslator;
 
-public class RustToJavaTranslator implements Translator {
-    private final RustToJavaVisitor visitor;
+public class RustToJavaTranslator extends StreamingTranslator<RustToJavaVisitor> {
 
     public RustToJavaTranslator() {
-        this.visitor = new RustToJavaVisitor();
-    }
-
-    @Override
-    public String translate(ASTNode ast) throws TranslationException {
-        return translate(ast, getDefaultOptions());
-    }
-
-    @Override
-    public String translate(ASTNode ast, TranslationOptions options) throws TranslationException {
-        try {
-            visitor.setOptions(options);
-            return ast.accept(visitor);
-        } catch (Exception e) {
-            throw new TranslationException("Failed to translate Rust AST to Java", e);
-        }
+        super(new RustToJavaVisitor(), "Rust");
     }
 
     @Override
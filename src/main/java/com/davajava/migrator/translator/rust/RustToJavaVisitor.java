@@ -2,17 +2,17 @@ package com.davajava.migrator.translator.rust;
 
 import com.davajava.migrator.core.TranslationOptions;
 import com.davajava.migrator.core.ast.*;
+import com.davajava.migrator.translator.StreamingVisitor;
 
-public class RustToJavaVisitor implements ASTVisitor {
+public class RustToJavaVisitor extends StreamingVisitor {
     private TranslationOptions options;
-    private final StringBuilder output;
     private int indentLevel;
 
     public RustToJavaVisitor() {
-        this.output = new StringBuilder();
         this.indentLevel = 0;
     }
 
+    @Override
     public void setOptions(TranslationOptions options) {
         this.options = options;
         this.output.setLength(0);
@@ -24,12 +24,7 @@ public class RustToJavaVisitor implements ASTVisitor {
         output.append("// Generated from Rust source code\n");
         output.append("// Migrated using DavaJava Code Migrator\n\n");
         
-        for (ASTNode child : node.getChildren()) {
-            child.accept(this);
-            output.append("\n");
-        }
-        
-        return output.toString();
+        return emitDeclarations(node);
     }
 
     @Override
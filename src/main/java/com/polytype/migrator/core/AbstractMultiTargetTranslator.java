@@ -1,23 +1,43 @@
 package com.polytype.migrator.core;
 
 import com.polytype.migrator.core.ast.ASTNode;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
 /**
  * Abstract base class for multi-target translators.
  * Provides common functionality for translating to multiple target languages.
+ *
+ * <p>Target visitors keep per-translation state (output buffers, indentation,
+ * collected imports), so each translation borrows its own visitor from a
+ * per-language pool, which resets the visitor when it is returned.
+ * Translators are therefore safe to call from many threads at once without
+ * any shared lock.
  */
 public abstract class AbstractMultiTargetTranslator implements MultiTargetTranslator {
     protected static final Logger logger = Logger.getLogger(AbstractMultiTargetTranslator.class.getName());
     
-    protected final Map<TargetLanguage, TargetVisitor> visitors;
+    protected final Map<TargetLanguage, Supplier<? extends TargetVisitor>> visitors;
     protected final SourceLanguage sourceLanguage;
     
+    private final Map<TargetLanguage, VisitorPool> visitorPools;
+    
     public AbstractMultiTargetTranslator(SourceLanguage sourceLanguage) {
         this.sourceLanguage = sourceLanguage;
-        this.visitors = new HashMap<>();
+        this.visitors = new ConcurrentHashMap<>();
+        this.visitorPools = new ConcurrentHashMap<>();
         initializeVisitors();
     }
     
@@ -49,16 +69,105 @@ public abstract class AbstractMultiTargetTranslator implements MultiTargetTransl
             throw new TranslationException("Target language " + targetLanguage + " not supported by " + getSourceLanguage() + " translator");
         }
         
-        TargetVisitor visitor = visitors.get(targetLanguage);
-        if (visitor == null) {
-            throw new TranslationException("No visitor available for target language: " + targetLanguage);
-        }
-        
+        TargetVisitor visitor = acquireVisitor(targetLanguage);
+        boolean completed = false;
         try {
             visitor.setOptions(options);
-            return ast.accept(visitor);
+            String result = ast.accept(visitor);
+            completed = true;
+            return result;
         } catch (Exception e) {
             throw new TranslationException("Failed to translate " + getSourceLanguage() + " to " + targetLanguage, e);
+        } finally {
+            // A visitor that failed part-way through is dropped rather than reused
+            if (completed) {
+                releaseVisitor(targetLanguage, visitor);
+            }
+        }
+    }
+    
+    /**
+     * Borrows a visitor for one translation. Every visitor borrowed here must
+     * be handed back with {@link #releaseVisitor} once its output has been
+     * taken, or dropped if the translation failed part-way through.
+     */
+    protected TargetVisitor acquireVisitor(TargetLanguage targetLanguage) throws TranslationException {
+        VisitorPool pool = visitorPools.get(targetLanguage);
+        if (pool == null) {
+            throw new TranslationException("No visitor available for target language: " + targetLanguage);
+        }
+        return pool.borrow();
+    }
+    
+    /**
+     * Resets the visitor and returns it to its pool.
+     */
+    protected void releaseVisitor(TargetLanguage targetLanguage, TargetVisitor visitor) {
+        visitorPools.get(targetLanguage).release(visitor);
+    }
+    
+    /**
+     * Translates the AST to every requested target concurrently. Parsing
+     * happens once in the caller; each target only pays for its own emission,
+     * and gets its own copy of the options to adjust.
+     */
+    @Override
+    public Map<TargetLanguage, String> translateToAll(ASTNode ast, Set<TargetLanguage> targetLanguages,
+                                                      TranslationOptions options) throws TranslationException {
+        return translateConcurrently(targetLanguages, targetLanguage -> translateTo(ast, targetLanguage, options.copy()));
+    }
+    
+    /**
+     * One target's share of a {@link #translateToAll} call.
+     */
+    @FunctionalInterface
+    protected interface TargetTranslation {
+        String translate(TargetLanguage targetLanguage) throws TranslationException;
+    }
+    
+    /**
+     * Runs the translation for each target on the common pool, the calling
+     * thread taking the first target itself. Subclasses that compute
+     * something shared by all targets do so before calling this.
+     */
+    protected Map<TargetLanguage, String> translateConcurrently(Set<TargetLanguage> targetLanguages,
+                                                                TargetTranslation translation) throws TranslationException {
+        for (TargetLanguage targetLanguage : targetLanguages) {
+            if (!supportsTarget(targetLanguage)) {
+                throw new TranslationException("Target language " + targetLanguage + " not supported by " + getSourceLanguage() + " translator");
+            }
+        }
+        
+        List<TargetLanguage> targets = new ArrayList<>(targetLanguages);
+        Map<TargetLanguage, String> results = new EnumMap<>(TargetLanguage.class);
+        if (targets.isEmpty()) {
+            return results;
+        }
+        
+        List<Future<String>> pending = new ArrayList<>(targets.size() - 1);
+        for (TargetLanguage targetLanguage : targets.subList(1, targets.size())) {
+            pending.add(ForkJoinPool.commonPool().submit(() -> translation.translate(targetLanguage)));
+        }
+        
+        try {
+            results.put(targets.get(0), translation.translate(targets.get(0)));
+            for (int i = 0; i < pending.size(); i++) {
+                results.put(targets.get(i + 1), pending.get(i).get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TranslationException("Interrupted while translating " + getSourceLanguage() + " to " + targets, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TranslationException) {
+                throw (TranslationException) cause;
+            }
+            throw new TranslationException("Failed to translate " + getSourceLanguage() + " to " + targets, cause);
+        } finally {
+            for (Future<String> future : pending) {
+                future.cancel(false);
+            }
         }
     }
     
@@ -78,10 +187,13 @@ public abstract class AbstractMultiTargetTranslator implements MultiTargetTransl
     }
     
     /**
-     * Register a visitor for a specific target language
+     * Register a visitor factory for a specific target language. The factory
+     * is called whenever every pooled visitor for the language is in use, so
+     * it must return a new instance each time.
      */
-    protected void registerVisitor(TargetLanguage targetLanguage, TargetVisitor visitor) {
-        visitors.put(targetLanguage, visitor);
+    protected void registerVisitor(TargetLanguage targetLanguage, Supplier<? extends TargetVisitor> factory) {
+        visitors.put(targetLanguage, factory);
+        visitorPools.put(targetLanguage, new VisitorPool(factory));
     }
     
     /**
@@ -90,4 +202,38 @@ public abstract class AbstractMultiTargetTranslator implements MultiTargetTransl
     public TranslationOptions getDefaultOptions() {
         return TranslationOptions.defaultOptions();
     }
-}
\ No newline at end of file
+    
+    /**
+     * Lock-free pool of idle visitors for one target language. Visitors are
+     * created on demand, and at most one per processor is kept once released.
+     */
+    private static class VisitorPool {
+        private static final int MAX_IDLE = Runtime.getRuntime().availableProcessors();
+        
+        private final Supplier<? extends TargetVisitor> factory;
+        private final Queue<TargetVisitor> idle = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger idleCount = new AtomicInteger();
+        
+        VisitorPool(Supplier<? extends TargetVisitor> factory) {
+            this.factory = factory;
+        }
+        
+        TargetVisitor borrow() {
+            TargetVisitor visitor = idle.poll();
+            if (visitor != null) {
+                idleCount.decrementAndGet();
+                return visitor;
+            }
+            return factory.get();
+        }
+        
+        void release(TargetVisitor visitor) {
+            visitor.reset(); // Also lets go of the last translation's output
+            if (idleCount.incrementAndGet() <= MAX_IDLE) {
+                idle.offer(visitor);
+            } else {
+                idleCount.decrementAndGet();
+            }
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package com.polytype.migrator.core;
 
 import com.polytype.migrator.core.ast.ASTNode;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Interface for translating AST nodes to multiple target languages.
@@ -18,6 +21,20 @@ public interface MultiTargetTranslator extends Translator {
      */
     String translateTo(ASTNode ast, TargetLanguage targetLanguage, TranslationOptions options) throws TranslationException;
     
+    /**
+     * Translate one parsed AST to several target languages. The AST is
+     * shared by all targets and must not be modified while translating.
+     * Results are keyed by target language in enum order.
+     */
+    default Map<TargetLanguage, String> translateToAll(ASTNode ast, Set<TargetLanguage> targetLanguages,
+                                                       TranslationOptions options) throws TranslationException {
+        Map<TargetLanguage, String> results = new EnumMap<>(TargetLanguage.class);
+        for (TargetLanguage targetLanguage : targetLanguages) {
+            results.put(targetLanguage, translateTo(ast, targetLanguage, options));
+        }
+        return results;
+    }
+    
     /**
      * Check if this translator supports the given target language
      */
@@ -8,6 +8,12 @@ import com.polytype.migrator.core.ast.ASTVisitor;
  */
 public interface TargetVisitor extends ASTVisitor {
     
+    /**
+     * Discard all per-translation state (output, indentation, collected
+     * imports, context flags) so the visitor can be reused for another AST
+     */
+    void reset();
+    
     /**
      * Set translation options for this visitor
      */
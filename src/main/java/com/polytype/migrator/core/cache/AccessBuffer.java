@@ -0,0 +1,74 @@
+package com.polytype.migrator.core.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Cache hits waiting to be applied to the eviction policy. Readers record a
+ * hit without taking the eviction lock; the hits are replayed in bulk by
+ * whichever thread next holds it. Each thread maps to one of several ring
+ * buffers, so readers rarely touch the same memory.
+ *
+ * <p>The buffer is lossy: a hit that finds its ring full is dropped, which
+ * costs the policy a little recency information and never blocks a reader.
+ */
+final class AccessBuffer {
+    private static final int RING_CAPACITY = 64;
+    private static final int RING_MASK = RING_CAPACITY - 1;
+    private static final int DRAIN_THRESHOLD = RING_CAPACITY / 2;
+
+    private static final class Ring {
+        final AtomicReferenceArray<String> slots = new AtomicReferenceArray<>(RING_CAPACITY);
+        final AtomicLong tail = new AtomicLong();
+        volatile long head; // Written only by the draining thread
+    }
+
+    private final Ring[] rings;
+    private final int ringMask;
+
+    AccessBuffer() {
+        int count = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1;
+        this.rings = new Ring[count];
+        for (int i = 0; i < count; i++) {
+            rings[i] = new Ring();
+        }
+        this.ringMask = count - 1;
+    }
+
+    /**
+     * Records a hit. Returns true when the ring is filling up and the
+     * caller should try to drain.
+     */
+    boolean offer(String key) {
+        Ring ring = rings[(int) Thread.currentThread().getId() & ringMask];
+        long tail = ring.tail.get();
+        long size = tail - ring.head;
+        if (size >= RING_CAPACITY) {
+            return true;
+        }
+        if (ring.tail.compareAndSet(tail, tail + 1)) {
+            ring.slots.lazySet((int) (tail & RING_MASK), key);
+            return size + 1 >= DRAIN_THRESHOLD;
+        }
+        return false; // Lost the race to another reader; drop the hit
+    }
+
+    /** Replays buffered hits. The caller must hold the eviction lock. */
+    void drainTo(Consumer<String> consumer) {
+        for (Ring ring : rings) {
+            long head = ring.head;
+            long tail = ring.tail.get();
+            for (; head < tail; head++) {
+                int index = (int) (head & RING_MASK);
+                String key = ring.slots.get(index);
+                if (key == null) {
+                    break; // Claimed but not yet published; pick it up next time
+                }
+                ring.slots.lazySet(index, null);
+                consumer.accept(key);
+            }
+            ring.head = head;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.polytype.migrator.core.cache;
+
+/**
+ * Thrown by {@link PolyTypeCache#getOrCompute} when the loader failed with a
+ * checked exception, which is available as the cause. Unchecked exceptions
+ * and errors from the loader are rethrown as they are.
+ */
+public class CacheLoadException extends RuntimeException {
+
+    public CacheLoadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
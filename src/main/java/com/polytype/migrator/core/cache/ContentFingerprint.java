@@ -0,0 +1,191 @@
+package com.polytype.migrator.core.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 128-bit fingerprint of some content, computed with MurmurHash3 (x64, 128
+ * bit, seed 0). It is fast and well distributed but not cryptographic: use
+ * it to recognize content that was seen before, not to defend against
+ * deliberately colliding input.
+ *
+ * <p>A {@link Hasher} takes the content in chunks of any size, so a file can
+ * be fingerprinted while it is read. Text is fingerprinted as UTF-8, so a
+ * string and the file it was decoded from have the same fingerprint.
+ */
+public final class ContentFingerprint {
+    private static final long C1 = 0x87c37b91114253d5L;
+    private static final long C2 = 0x4cf5ad432745937fL;
+    private static final int BLOCK = 16;
+
+    private static final VarHandle LONG_LE =
+        MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final long high;
+    private final long low;
+
+    private ContentFingerprint(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    public static ContentFingerprint of(byte[] data) {
+        return of(data, 0, data.length);
+    }
+
+    public static ContentFingerprint of(byte[] data, int offset, int length) {
+        return newHasher().update(data, offset, length).finish();
+    }
+
+    /** Fingerprints the UTF-8 encoding of the text. */
+    public static ContentFingerprint of(String text) {
+        return of(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static Hasher newHasher() {
+        return new Hasher();
+    }
+
+    public long getHigh() { return high; }
+    public long getLow() { return low; }
+
+    /** The fingerprint as 32 lowercase hex digits. */
+    public String toHex() {
+        char[] hex = new char[32];
+        writeHex(high, hex, 0);
+        writeHex(low, hex, 16);
+        return new String(hex);
+    }
+
+    private static void writeHex(long value, char[] out, int offset) {
+        for (int i = 15; i >= 0; i--) {
+            out[offset + i] = Character.forDigit((int) (value & 0xF), 16);
+            value >>>= 4;
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) return true;
+        if (!(other instanceof ContentFingerprint)) return false;
+        ContentFingerprint that = (ContentFingerprint) other;
+        return high == that.high && low == that.low;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (high ^ (high >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return toHex();
+    }
+
+    /** Accumulates content; not thread-safe and good for one fingerprint. */
+    public static final class Hasher {
+        private final byte[] pending = new byte[BLOCK];
+        private int pendingLength;
+        private long length;
+        private long h1;
+        private long h2;
+
+        private Hasher() {
+        }
+
+        public Hasher update(byte[] data) {
+            return update(data, 0, data.length);
+        }
+
+        public Hasher update(byte[] data, int offset, int count) {
+            length += count;
+            int end = offset + count;
+
+            // Complete a block left over from the previous chunk
+            if (pendingLength > 0) {
+                int fill = Math.min(BLOCK - pendingLength, count);
+                System.arraycopy(data, offset, pending, pendingLength, fill);
+                pendingLength += fill;
+                offset += fill;
+                if (pendingLength < BLOCK) {
+                    return this;
+                }
+                mixBlock(pending, 0);
+                pendingLength = 0;
+            }
+
+            for (; offset + BLOCK <= end; offset += BLOCK) {
+                mixBlock(data, offset);
+            }
+
+            pendingLength = end - offset;
+            System.arraycopy(data, offset, pending, 0, pendingLength);
+            return this;
+        }
+
+        public ContentFingerprint finish() {
+            long k1 = 0;
+            long k2 = 0;
+            for (int i = pendingLength - 1; i >= 8; i--) {
+                k2 = (k2 << 8) | (pending[i] & 0xFF);
+            }
+            for (int i = Math.min(pendingLength, 8) - 1; i >= 0; i--) {
+                k1 = (k1 << 8) | (pending[i] & 0xFF);
+            }
+            if (pendingLength > 8) {
+                h2 ^= mixK2(k2);
+            }
+            if (pendingLength > 0) {
+                h1 ^= mixK1(k1);
+            }
+
+            long a = h1 ^ length;
+            long b = h2 ^ length;
+            a += b;
+            b += a;
+            a = fmix(a);
+            b = fmix(b);
+            a += b;
+            b += a;
+            return new ContentFingerprint(a, b);
+        }
+
+        private void mixBlock(byte[] data, int offset) {
+            long k1 = (long) LONG_LE.get(data, offset);
+            long k2 = (long) LONG_LE.get(data, offset + 8);
+
+            h1 ^= mixK1(k1);
+            h1 = Long.rotateLeft(h1, 27);
+            h1 += h2;
+            h1 = h1 * 5 + 0x52dce729;
+
+            h2 ^= mixK2(k2);
+            h2 = Long.rotateLeft(h2, 31);
+            h2 += h1;
+            h2 = h2 * 5 + 0x38495ab5;
+        }
+
+        private static long mixK1(long k1) {
+            k1 *= C1;
+            k1 = Long.rotateLeft(k1, 31);
+            return k1 * C2;
+        }
+
+        private static long mixK2(long k2) {
+            k2 *= C2;
+            k2 = Long.rotateLeft(k2, 33);
+            return k2 * C1;
+        }
+
+        private static long fmix(long k) {
+            k ^= k >>> 33;
+            k *= 0xff51afd7ed558ccdL;
+            k ^= k >>> 33;
+            k *= 0xc4ceb9fe1a85ec53L;
+            k ^= k >>> 33;
+            return k;
+        }
+    }
+}
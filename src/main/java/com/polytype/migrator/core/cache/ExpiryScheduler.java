@@ -0,0 +1,78 @@
+package com.polytype.migrator.core.cache;
+
+import com.polytype.migrator.core.logging.PolyTypeLogger;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One daemon thread that advances the timer wheels of every open cache once
+ * a second, so expired entries are removed without a thread or a full scan
+ * per cache. Entries that expire between ticks are also dropped when read.
+ *
+ * <p>The same thread runs other maintenance handed over by threads that must
+ * not wait for a cache's eviction lock, such as shedding entries after a GC
+ * notification.
+ */
+final class ExpiryScheduler {
+    private static final long TICK_MILLIS = 1000;
+
+    private static volatile ExpiryScheduler instance;
+
+    private final PolyTypeLogger logger = PolyTypeLogger.getLogger(ExpiryScheduler.class);
+    private final Set<PolyTypeCache> caches = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService executor;
+
+    private ExpiryScheduler() {
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "PolyTypeCache-Expiry");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleWithFixedDelay(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    static ExpiryScheduler getInstance() {
+        if (instance == null) {
+            synchronized (ExpiryScheduler.class) {
+                if (instance == null) {
+                    instance = new ExpiryScheduler();
+                }
+            }
+        }
+        return instance;
+    }
+
+    void register(PolyTypeCache cache) {
+        caches.add(cache);
+    }
+
+    void unregister(PolyTypeCache cache) {
+        caches.remove(cache);
+    }
+
+    /** Runs the task on the maintenance thread, after any tick in progress. */
+    void execute(Runnable task) {
+        executor.execute(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.warn(PolyTypeLogger.LogCategory.CACHE, "Cache maintenance task failed", e);
+            }
+        });
+    }
+
+    private void tick() {
+        for (PolyTypeCache cache : caches) {
+            try {
+                cache.expireEntries();
+            } catch (RuntimeException e) {
+                // Keep the schedule alive for the other caches
+                logger.warn(PolyTypeLogger.LogCategory.CACHE, "Expiring cache entries failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.polytype.migrator.core.cache;
+
+/**
+ * Count-min sketch of 4-bit counters estimating how often each key has been
+ * seen recently. Four counters per key live in one long; once the number of
+ * increments reaches ten times the cache capacity every counter is halved,
+ * so the estimate follows the current workload rather than all history.
+ *
+ * <p>Not thread-safe; the cache updates it under its eviction lock.
+ */
+final class FrequencySketch {
+    private static final long[] SEEDS = {
+        0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+    };
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAX_TABLE_SIZE = 1 << 30;
+
+    private long[] table = new long[0];
+    private int tableMask;
+    private int sampleSize;
+    private int additions;
+
+    /**
+     * Sizes the table for the given number of entries. Only ever grows, and
+     * growing discards the counts gathered so far.
+     */
+    void ensureCapacity(long maximumEntries) {
+        int capacity = (int) Math.min(Math.max(maximumEntries, 8), MAX_TABLE_SIZE);
+        if (table.length >= capacity) {
+            return;
+        }
+
+        table = new long[Integer.highestOneBit(capacity - 1) << 1];
+        tableMask = table.length - 1;
+        sampleSize = (int) Math.min(10L * capacity, Integer.MAX_VALUE);
+        additions = 0;
+    }
+
+    /** Estimated number of recent occurrences, from 0 to 15. */
+    int frequency(int hashCode) {
+        int hash = spread(hashCode);
+        int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    void increment(int hashCode) {
+        int hash = spread(hashCode);
+        int start = (hash & 3) << 2;
+
+        boolean added = false;
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /** Halves every counter. */
+    private void reset() {
+        int odd = 0;
+        for (int i = 0; i < table.length; i++) {
+            odd += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions = (additions - (odd >>> 2)) >>> 1;
+    }
+
+    private int indexOf(int hash, int depth) {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+        return ((int) h) & tableMask;
+    }
+
+    private static int spread(int x) {
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
@@ -0,0 +1,175 @@
+package com.polytype.migrator.core.cache;
+
+import com.polytype.migrator.core.config.PolyTypeConfig;
+import com.polytype.migrator.core.logging.PolyTypeLogger;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.DoubleSupplier;
+import javax.management.NotificationEmitter;
+
+/**
+ * Watches heap occupancy after each garbage collection and tells caches how
+ * much of their memory budget they may use. While the heap stays above the
+ * pressure threshold after collecting, the allowed fraction halves on every
+ * collection, down to a floor; once the heap recovers it grows back in
+ * steps. Caches evict down to the reduced budget on their maintenance
+ * thread as soon as it changes.
+ *
+ * <p>Occupancy is measured on the tenured pools only. Eden and the survivor
+ * spaces are meant to fill up between young collections, so a survivor space
+ * that is nearly full after a routine minor GC is not pressure. Collections
+ * that do not touch a tenured pool are ignored, since its usage after
+ * collection would be stale. Without a recognisable tenured pool the whole
+ * heap is measured.
+ */
+public final class MemoryPressureMonitor {
+    // Sent by HotSpot collectors after every collection
+    private static final String GC_NOTIFICATION = "com.sun.management.gc.notification";
+
+    private static final double MIN_BUDGET_FACTOR = 0.05;
+    private static final double RECOVERY_STEP = 0.125;
+    private static final double RECOVERY_MARGIN = 0.10;
+
+    /**
+     * Receives the new budget factor, between the floor and 1.0. Called on
+     * the JVM's GC notification thread, so it must not block.
+     */
+    public interface Listener {
+        void onBudgetFactorChanged(double budgetFactor);
+    }
+
+    private static volatile MemoryPressureMonitor instance;
+
+    private final PolyTypeLogger logger = PolyTypeLogger.getLogger(MemoryPressureMonitor.class);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final DoubleSupplier occupancySource;
+    private volatile double budgetFactor = 1.0;
+    private volatile double lastOccupancy;
+    private volatile long pressureEvents;
+
+    private MemoryPressureMonitor() {
+        List<MemoryPoolMXBean> tenured = tenuredPools();
+        this.occupancySource = tenured.isEmpty() ? MemoryPressureMonitor::heapOccupancy : () -> occupancy(tenured);
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter && (tenured.isEmpty() || collects(collector, tenured))) {
+                ((NotificationEmitter) collector).addNotificationListener((notification, handback) -> {
+                    if (GC_NOTIFICATION.equals(notification.getType())) {
+                        afterCollection();
+                    }
+                }, null, null);
+            }
+        }
+    }
+
+    /** A monitor fed by the given occupancy instead of the JVM's collectors; call {@link #afterCollection} to drive it. */
+    MemoryPressureMonitor(DoubleSupplier occupancySource) {
+        this.occupancySource = occupancySource;
+    }
+
+    public static MemoryPressureMonitor getInstance() {
+        if (instance == null) {
+            synchronized (MemoryPressureMonitor.class) {
+                if (instance == null) {
+                    instance = new MemoryPressureMonitor();
+                }
+            }
+        }
+        return instance;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /** Fraction of their configured budget caches may currently use. */
+    public double getBudgetFactor() { return budgetFactor; }
+
+    /** Occupancy of the tenured pools, or of the heap, after the last GC. */
+    public double getLastOccupancy() { return lastOccupancy; }
+
+    /** Collections that ended with the heap above the pressure threshold. */
+    public long getPressureEvents() { return pressureEvents; }
+
+    void afterCollection() {
+        double occupancy = occupancySource.getAsDouble();
+        lastOccupancy = occupancy;
+
+        double threshold = PolyTypeConfig.getInstance().getDouble(PolyTypeConfig.CACHE_PRESSURE_THRESHOLD);
+        double previous = budgetFactor;
+        double next = previous;
+        if (occupancy > threshold) {
+            pressureEvents++;
+            next = Math.max(MIN_BUDGET_FACTOR, previous / 2);
+        } else if (occupancy < threshold - RECOVERY_MARGIN && previous < 1.0) {
+            next = Math.min(1.0, previous + RECOVERY_STEP);
+        }
+
+        if (next != previous) {
+            budgetFactor = next;
+            logger.info(PolyTypeLogger.LogCategory.CACHE,
+                       String.format("Heap at %.0f%% after GC; cache budgets now %.0f%% of configured",
+                                     occupancy * 100, next * 100));
+            for (Listener listener : listeners) {
+                listener.onBudgetFactorChanged(next);
+            }
+        }
+    }
+
+    /**
+     * The heap pools that hold long-lived objects. HotSpot supports a usage
+     * threshold only on those: the old generation, or the single pool of a
+     * collector without generations. Eden and survivor spaces have none.
+     */
+    static List<MemoryPoolMXBean> tenuredPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported()
+                    && pool.isCollectionUsageThresholdSupported()) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+
+    private static boolean collects(GarbageCollectorMXBean collector, List<MemoryPoolMXBean> pools) {
+        List<String> collected = Arrays.asList(collector.getMemoryPoolNames());
+        for (MemoryPoolMXBean pool : pools) {
+            if (collected.contains(pool.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Used over maximum of the pools as they were after their last collection. */
+    private static double occupancy(List<MemoryPoolMXBean> pools) {
+        long used = 0;
+        long max = 0;
+        for (MemoryPoolMXBean pool : pools) {
+            MemoryUsage usage = pool.getCollectionUsage();
+            if (usage != null && usage.getMax() > 0) {
+                used += usage.getUsed();
+                max += usage.getMax();
+            }
+        }
+        return max > 0 ? (double) used / max : heapOccupancy();
+    }
+
+    private static double heapOccupancy() {
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+        return heap.getMax() > 0 ? (double) heap.getUsed() / heap.getMax() : 0.0;
+    }
+}
@@ -0,0 +1,368 @@
+package com.polytype.migrator.core.cache;
+
+import com.polytype.migrator.core.config.PolyTypeConfig;
+import com.polytype.migrator.core.logging.PolyTypeLogger;
+import com.polytype.migrator.core.storage.PolyTypeStorage;
+import com.polytype.migrator.core.storage.PolyTypeStorage.DataCategory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * On-disk second tier behind a {@link PolyTypeCache}. Entries are stored
+ * through a file-system {@link PolyTypeStorage} in a directory per cache
+ * type, so results computed by one run are found by the next.
+ *
+ * <p>The tier keeps an index of every entry's size in least recently used
+ * order, evicts from its head once the stored bytes exceed the cap, and
+ * saves the index next to the entries every so often and at exit. Entries
+ * written after the last save are adopted on the next start.
+ *
+ * <p>Writes are applied by a background thread. When its queue is full the
+ * write is dropped; the tier only ever holds copies. {@link #flush} waits
+ * for room instead.
+ */
+public final class PersistentCacheTier {
+    private static final String INDEX_FILE = "l2-index";
+    private static final String INDEX_HEADER = "# PolyType cache index v1";
+    private static final DataCategory CATEGORY = DataCategory.TRANSLATIONS;
+    private static final int WRITE_QUEUE_CAPACITY = 1024;
+    private static final int INDEX_SAVE_INTERVAL = 256; // Mutations between index saves
+
+    private static final Map<PolyTypeCache.CacheType, PersistentCacheTier> tiers = new ConcurrentHashMap<>();
+
+    private static final class IndexEntry {
+        final long size;
+
+        IndexEntry(long size) {
+            this.size = size;
+        }
+    }
+
+    private final PolyTypeLogger logger = PolyTypeLogger.getLogger(PersistentCacheTier.class);
+    private final Path directory;
+    private final long maxBytes;
+    private final PolyTypeStorage storage;
+    private final ThreadPoolExecutor writer;
+
+    // Access order, least recently used first; guarded by this
+    private final LinkedHashMap<String, IndexEntry> index = new LinkedHashMap<>(256, 0.75f, true);
+    private long totalBytes;
+    private int unsavedChanges;
+
+    // Serializes index saves from the writer thread, flush() and the shutdown hook, which share one temp file
+    private final Object saveLock = new Object();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong droppedWrites = new AtomicLong();
+
+    PersistentCacheTier(Path directory, long maxBytes) throws IOException {
+        this(directory, maxBytes, WRITE_QUEUE_CAPACITY);
+    }
+
+    PersistentCacheTier(Path directory, long maxBytes, int writeQueueCapacity) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.storage = new PolyTypeStorage(new PolyTypeStorage.FileSystemBackend(directory.toString()));
+        this.writer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(writeQueueCapacity),
+            r -> {
+                Thread t = new Thread(r, "PolyTypeCache-DiskWriter-" + directory.getFileName());
+                t.setDaemon(true);
+                return t;
+            },
+            (task, executor) -> {
+                if (task instanceof Future) {
+                    // A flush marker: its caller waits for room rather than returning with writes pending
+                    try {
+                        if (executor.isShutdown() || !executor.getQueue().offer(task, 30, TimeUnit.SECONDS)) {
+                            ((Future<?>) task).cancel(false);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        ((Future<?>) task).cancel(false);
+                    }
+                } else {
+                    droppedWrites.incrementAndGet();
+                }
+            });
+
+        loadIndex();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "PolyTypeCache-DiskFlush"));
+    }
+
+    /** Whether results of this cache type are kept on disk. */
+    public static boolean supports(PolyTypeCache.CacheType type) {
+        return type == PolyTypeCache.CacheType.TRANSLATION_RESULT || type == PolyTypeCache.CacheType.AST_CACHE;
+    }
+
+    /**
+     * Returns the process-wide tier of a cache type, opening it on first
+     * use, or null when the disk tier is disabled, the type is not
+     * supported or the directory cannot be used.
+     */
+    public static PersistentCacheTier forType(PolyTypeCache.CacheType type) {
+        PolyTypeConfig config = PolyTypeConfig.getInstance();
+        if (!supports(type) || !config.getBoolean(PolyTypeConfig.CACHE_DISK_ENABLED)) {
+            return null;
+        }
+
+        return tiers.computeIfAbsent(type, t -> {
+            Path directory = Paths.get(config.getString(PolyTypeConfig.CACHE_DISK_DIR), t.name().toLowerCase());
+            long maxBytes = config.getInt(PolyTypeConfig.CACHE_DISK_MAX_SIZE_MB) * 1024L * 1024L;
+            try {
+                return new PersistentCacheTier(directory, maxBytes);
+            } catch (IOException e) {
+                PolyTypeLogger.getLogger(PersistentCacheTier.class).warn(PolyTypeLogger.LogCategory.CACHE,
+                    "Disk cache unavailable at " + directory + ", continuing in memory only", e);
+                return null;
+            }
+        });
+    }
+
+    /** Returns the stored bytes of the key, or null. */
+    public byte[] get(String key) {
+        synchronized (this) {
+            if (index.get(key) == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+        }
+
+        byte[] data = null;
+        try {
+            data = storage.retrieve(key);
+        } catch (IOException e) {
+            logger.debug(PolyTypeLogger.LogCategory.CACHE, "Unreadable disk cache entry " + key + ": " + e.getMessage());
+        }
+
+        if (data == null) {
+            // Deleted or damaged behind our back
+            forget(key);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return data;
+    }
+
+    /** Queues the bytes to be stored under the key. */
+    public void put(String key, byte[] data) {
+        if (data.length > maxBytes) {
+            return;
+        }
+        writer.execute(() -> write(key, data));
+    }
+
+    /** Queues removal of the key. */
+    public void remove(String key) {
+        writer.execute(() -> {
+            if (forget(key)) {
+                deleteQuietly(key);
+            }
+        });
+    }
+
+    /** Waits for queued writes and saves the index. */
+    public void flush() {
+        if (writer.isShutdown()) {
+            return; // Closed at exit, which saved the index
+        }
+        try {
+            writer.submit(() -> { }).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException | CancellationException e) {
+            logger.warn(PolyTypeLogger.LogCategory.CACHE, "Disk cache writes still pending at flush", e);
+        }
+        saveIndex();
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+
+    /** Writes dropped because the write queue was full. */
+    public long getDroppedWrites() { return droppedWrites.get(); }
+
+    public synchronized int getEntryCount() { return index.size(); }
+    public synchronized long getTotalBytes() { return totalBytes; }
+    public long getMaxBytes() { return maxBytes; }
+    public Path getDirectory() { return directory; }
+
+    private void write(String key, byte[] data) {
+        try {
+            storage.store(key, CATEGORY, data);
+        } catch (IOException e) {
+            logger.debug(PolyTypeLogger.LogCategory.CACHE, "Could not write disk cache entry " + key + ": " + e.getMessage());
+            return;
+        }
+
+        List<String> victims = new ArrayList<>();
+        boolean save;
+        synchronized (this) {
+            IndexEntry old = index.put(key, new IndexEntry(data.length));
+            totalBytes += data.length - (old != null ? old.size : 0);
+
+            Iterator<Map.Entry<String, IndexEntry>> eldest = index.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, IndexEntry> victim = eldest.next();
+                if (victim.getKey().equals(key)) {
+                    continue;
+                }
+                totalBytes -= victim.getValue().size;
+                victims.add(victim.getKey());
+                eldest.remove();
+            }
+
+            unsavedChanges += 1 + victims.size();
+            save = unsavedChanges >= INDEX_SAVE_INTERVAL;
+        }
+
+        for (String victim : victims) {
+            deleteQuietly(victim);
+            evictions.incrementAndGet();
+        }
+        if (save) {
+            saveIndex();
+        }
+    }
+
+    private synchronized boolean forget(String key) {
+        IndexEntry removed = index.remove(key);
+        if (removed == null) {
+            return false;
+        }
+        totalBytes -= removed.size;
+        unsavedChanges++;
+        return true;
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            storage.delete(key);
+        } catch (IOException e) {
+            logger.debug(PolyTypeLogger.LogCategory.CACHE, "Could not delete disk cache entry " + key + ": " + e.getMessage());
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        Path indexPath = directory.resolve(INDEX_FILE);
+        if (Files.exists(indexPath)) {
+            try (BufferedReader reader = Files.newBufferedReader(indexPath, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int tab = line.indexOf('\t');
+                    if (line.startsWith("#") || tab < 0) {
+                        continue;
+                    }
+                    try {
+                        index.put(line.substring(0, tab), new IndexEntry(Long.parseLong(line.substring(tab + 1))));
+                    } catch (NumberFormatException e) {
+                        // Damaged line; the entry is adopted below if its file is intact
+                    }
+                }
+            }
+        }
+
+        // Reconcile with the files: drop what is gone, adopt what was written after the last save
+        Set<String> stored = new HashSet<>(storage.listKeys(CATEGORY));
+        index.keySet().retainAll(stored);
+        stored.removeAll(index.keySet());
+        for (String key : stored) {
+            PolyTypeStorage.StorageEntry entry = storage.retrieveEntry(key);
+            if (entry != null) {
+                index.put(key, new IndexEntry(entry.getSize()));
+            }
+        }
+
+        for (IndexEntry entry : index.values()) {
+            totalBytes += entry.size;
+        }
+        logger.info(PolyTypeLogger.LogCategory.CACHE,
+                   "Opened disk cache " + directory + " (" + index.size() + " entries, "
+                   + (totalBytes / 1024) + " KB of " + (maxBytes / 1024) + " KB)");
+    }
+
+    private void saveIndex() {
+        synchronized (saveLock) {
+            // Snapshot under the save lock, so a later save never writes an older index
+            List<String> lines;
+            synchronized (this) {
+                lines = new ArrayList<>(index.size() + 1);
+                lines.add(INDEX_HEADER);
+                for (Map.Entry<String, IndexEntry> entry : index.entrySet()) {
+                    lines.add(entry.getKey() + "\t" + entry.getValue().size);
+                }
+                unsavedChanges = 0;
+            }
+            writeIndex(lines);
+        }
+    }
+
+    private void writeIndex(List<String> lines) {
+        Path indexPath = directory.resolve(INDEX_FILE);
+        Path tempPath = directory.resolve(INDEX_FILE + ".tmp");
+        try {
+            try (BufferedWriter out = Files.newBufferedWriter(tempPath, StandardCharsets.UTF_8)) {
+                for (String line : lines) {
+                    out.write(line);
+                    out.newLine();
+                }
+            }
+            try {
+                Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            logger.warn(PolyTypeLogger.LogCategory.CACHE, "Could not save disk cache index " + indexPath, e);
+        }
+    }
+
+    /** Finishes queued writes, saves the index and closes the storage. Runs at exit. */
+    void close() {
+        if (writer.isTerminated()) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+        }
+        saveIndex();
+        try {
+            storage.close();
+        } catch (IOException e) {
+            logger.warn(PolyTypeLogger.LogCategory.CACHE, "Could not close disk cache " + directory, e);
+        }
+    }
+}
@@ -2,62 +2,98 @@ package com.polytype.migrator.core.cache;
 
 import com.polytype.migrator.core.logging.PolyTypeLogger;
 import com.polytype.migrator.core.config.PolyTypeConfig;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.lang.management.ManagementFactory;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * High-performance multi-level caching system for PolyType.
- * Supports LRU eviction, TTL expiration, memory monitoring, and cache statistics.
+ * Supports W-TinyLFU eviction, TTL expiration, memory monitoring, and cache statistics.
+ *
+ * <p>Each cache type gets a share of the configured memory budget, and every
+ * entry is charged the retained size its {@link Weigher} reports. When the
+ * heap stays full after garbage collection the {@link MemoryPressureMonitor}
+ * shrinks all budgets and caches shed entries until it recovers.
+ *
+ * <p>Reads take no lock: a hit is recorded in a lossy buffer and applied to
+ * the eviction policy later, in bulk, by whichever thread holds the
+ * eviction lock. Writes, removals and eviction run under that lock.
+ *
+ * <p>Entries with a TTL are scheduled on a {@link TimerWheel}. A single
+ * shared thread advances the wheels of all caches every second; an expired
+ * entry read before then is dropped on the spot.
+ *
+ * <p>Translation results and ASTs are also written to a
+ * {@link PersistentCacheTier} on disk, which survives the process. A miss in
+ * memory is looked up there and the value promoted back into memory. Only
+ * strings, byte arrays and {@link Serializable} values go to disk, and
+ * objects read back are limited to JDK value types and PolyType's own.
+ *
+ * <p>{@link #getOrCompute} and {@link #getOrComputeAsync} run one load per
+ * missing key: callers that miss while a load is in flight wait for its
+ * result instead of computing the value again.
  */
 public class PolyTypeCache {
     
     public enum CacheType {
-        TRANSLATION_RESULT,    // Translated code cache
-        AST_CACHE,            // Parsed AST cache
-        PATTERN_CACHE,        // ML pattern recognition cache
-        SIMILARITY_CACHE,     // Semantic similarity cache
-        BINARY_ANALYSIS,      // Binary analysis results
-        METADATA_CACHE        // File metadata cache
+        TRANSLATION_RESULT(25),    // Translated code cache
+        AST_CACHE(30),            // Parsed AST cache
+        PATTERN_CACHE(10),        // ML pattern recognition cache
+        SIMILARITY_CACHE(5),      // Semantic similarity cache
+        BINARY_ANALYSIS(25),      // Binary analysis results
+        METADATA_CACHE(5);        // File metadata cache
+        
+        private final int memoryPercent;
+        
+        CacheType(int memoryPercent) {
+            this.memoryPercent = memoryPercent;
+        }
+        
+        /** Share of the configured cache memory this type may use. */
+        public int getMemoryPercent() { return memoryPercent; }
     }
     
     public static class CacheEntry<T> {
         private final String key;
         private final T value;
         private final long createTime;
-        private final long lastAccess;
+        private volatile long lastAccess;
         private final long ttl;
-        private final int size;
+        private final long size;
         private volatile int accessCount;
+        // Pending expiration, owned by the cache's timer wheel
+        TimerWheel.Timer expiryTimer;
         
         public CacheEntry(String key, T value, long ttl) {
+            this(key, value, ttl, Weighers.retainedSize().weigh(value));
+        }
+        
+        public CacheEntry(String key, T value, long ttl, long size) {
             this.key = key;
             this.value = value;
             this.createTime = System.currentTimeMillis();
             this.lastAccess = this.createTime;
             this.ttl = ttl;
-            this.size = estimateSize(value);
+            this.size = size;
             this.accessCount = 0;
         }
         
-        private int estimateSize(T value) {
-            if (value == null) return 0;
-            if (value instanceof String) return ((String) value).length() * 2; // UTF-16
-            if (value instanceof byte[]) return ((byte[]) value).length;
-            if (value instanceof Collection) return ((Collection<?>) value).size() * 50; // Estimate
-            if (value instanceof Map) return ((Map<?, ?>) value).size() * 100; // Estimate
-            return 100; // Default estimate
-        }
-        
         public String getKey() { return key; }
         public T getValue() { return value; }
         public long getCreateTime() { return createTime; }
         public long getLastAccess() { return lastAccess; }
         public long getTtl() { return ttl; }
-        public int getSize() { return size; }
+        /** Retained size in bytes, as weighed when the entry was created. */
+        public long getSize() { return size; }
         public int getAccessCount() { return accessCount; }
         
         public boolean isExpired() {
@@ -66,6 +102,7 @@ public class PolyTypeCache {
         
         public void recordAccess() {
             accessCount++;
+            lastAccess = System.currentTimeMillis();
         }
         
         public long getAge() {
@@ -73,74 +110,216 @@ public class PolyTypeCache {
         }
     }
     
+    /** Why an entry left the cache. */
+    public enum RemovalCause {
+        SIZE,       // Evicted to stay within the entry or memory budget
+        EXPIRED,    // Its TTL passed
+        EXPLICIT    // Removed or cleared by a caller
+    }
+    
+    /**
+     * Counters are striped, so concurrent updates are never lost; sizes are
+     * gauges set under the eviction lock. Lookup and load times go into
+     * histograms when metrics are enabled.
+     */
     public static class CacheStats {
-        private volatile long hits = 0;
-        private volatile long misses = 0;
-        private volatile long evictions = 0;
-        private volatile long expirations = 0;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final Map<RemovalCause, LongAdder> removals = new EnumMap<>(RemovalCause.class);
+        private final LongAdder admissionRejections = new LongAdder();
+        private final LongAdder evictionNanos = new LongAdder();
+        private final LongAdder pressureEvictions = new LongAdder();
+        private final LongAdder diskHits = new LongAdder();
+        private final LongAdder diskMisses = new LongAdder();
+        private final LongAdder loadSuccesses = new LongAdder();
+        private final LongAdder loadFailures = new LongAdder();
+        private final LongAdder coalescedLoads = new LongAdder();
+        private final LatencyHistogram lookupLatency = new LatencyHistogram();
+        private final LatencyHistogram loadLatency = new LatencyHistogram();
         private volatile long totalSize = 0;
         private volatile int entryCount = 0;
         
-        public void recordHit() { hits++; }
-        public void recordMiss() { misses++; }
-        public void recordEviction() { evictions++; }
-        public void recordExpiration() { expirations++; }
+        public CacheStats() {
+            for (RemovalCause cause : RemovalCause.values()) {
+                removals.put(cause, new LongAdder());
+            }
+        }
+        
+        public void recordHit() { hits.increment(); }
+        public void recordMiss() { misses.increment(); }
+        public void recordEviction() { recordRemovals(RemovalCause.SIZE, 1); }
+        public void recordExpiration() { recordRemovals(RemovalCause.EXPIRED, 1); }
+        public void recordRemovals(RemovalCause cause, long count) { removals.get(cause).add(count); }
+        public void recordEvictionTime(long nanos) { evictionNanos.add(nanos); }
+        public void recordAdmissionRejections(long count) { admissionRejections.add(count); }
+        public void recordPressureEvictions(long count) { pressureEvictions.add(count); }
+        public void recordDiskHit() { diskHits.increment(); }
+        public void recordDiskMiss() { diskMisses.increment(); }
+        public void recordLookupTime(long nanos) { lookupLatency.record(nanos); }
+        public void recordLoadSuccess(long nanos) { loadSuccesses.increment(); loadLatency.record(nanos); }
+        public void recordLoadFailure(long nanos) { loadFailures.increment(); loadLatency.record(nanos); }
+        public void recordCoalescedLoad() { coalescedLoads.increment(); }
         public void setTotalSize(long size) { totalSize = size; }
         public void setEntryCount(int count) { entryCount = count; }
         
-        public long getHits() { return hits; }
-        public long getMisses() { return misses; }
-        public long getEvictions() { return evictions; }
-        public long getExpirations() { return expirations; }
+        public long getHits() { return hits.sum(); }
+        public long getMisses() { return misses.sum(); }
+        public long getEvictions() { return getRemovals(RemovalCause.SIZE); }
+        public long getExpirations() { return getRemovals(RemovalCause.EXPIRED); }
+        public long getRemovals(RemovalCause cause) { return removals.get(cause).sum(); }
         public long getTotalSize() { return totalSize; }
         public int getEntryCount() { return entryCount; }
         
+        /** Evictions where the newcomer, not the resident entry, was dropped. */
+        public long getAdmissionRejections() { return admissionRejections.sum(); }
+        
+        /** Evictions made to shed memory while the heap was under pressure. */
+        public long getPressureEvictions() { return pressureEvictions.sum(); }
+        
+        /** Memory misses answered by the disk tier. These also count as misses. */
+        public long getDiskHits() { return diskHits.sum(); }
+        
+        public long getDiskMisses() { return diskMisses.sum(); }
+        
+        public long getLoadSuccesses() { return loadSuccesses.sum(); }
+        public long getLoadFailures() { return loadFailures.sum(); }
+        
+        /** Total time spent in loaders, successful or not. */
+        public long getLoadTimeNanos() { return loadLatency.getTotalNanos(); }
+        
+        /** Misses that waited for a load already in flight instead of loading. */
+        public long getCoalescedLoads() { return coalescedLoads.sum(); }
+        
+        public double getAverageLoadNanos() { return loadLatency.getMeanNanos(); }
+        
+        /** Time taken by get, including disk lookups on a memory miss. */
+        public LatencyHistogram getLookupLatency() { return lookupLatency; }
+        
+        /** Time taken by loaders run through getOrCompute. */
+        public LatencyHistogram getLoadLatency() { return loadLatency; }
+        
+        /** Total time spent choosing and removing eviction victims. */
+        public long getEvictionTimeNanos() { return evictionNanos.sum(); }
+        
+        public double getAverageEvictionNanos() {
+            long evictions = getEvictions();
+            return evictions > 0 ? (double) evictionNanos.sum() / evictions : 0.0;
+        }
+        
         public double getHitRatio() {
-            long total = hits + misses;
-            return total > 0 ? (double) hits / total : 0.0;
+            long hitCount = getHits();
+            long total = hitCount + getMisses();
+            return total > 0 ? (double) hitCount / total : 0.0;
+        }
+        
+        /** Flat view of every counter and percentile, for health checks and exports. */
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("entries", getEntryCount());
+            map.put("totalSize", getTotalSize());
+            map.put("hits", getHits());
+            map.put("misses", getMisses());
+            map.put("hitRatio", getHitRatio());
+            map.put("diskHits", getDiskHits());
+            map.put("diskMisses", getDiskMisses());
+            for (RemovalCause cause : RemovalCause.values()) {
+                map.put("removals." + cause.name().toLowerCase(), getRemovals(cause));
+            }
+            map.put("pressureEvictions", getPressureEvictions());
+            map.put("admissionRejections", getAdmissionRejections());
+            map.put("loadSuccesses", getLoadSuccesses());
+            map.put("loadFailures", getLoadFailures());
+            map.put("coalescedLoads", getCoalescedLoads());
+            putLatency(map, "lookup", lookupLatency);
+            putLatency(map, "load", loadLatency);
+            return map;
+        }
+        
+        private static void putLatency(Map<String, Object> map, String name, LatencyHistogram histogram) {
+            map.put(name + ".count", histogram.getCount());
+            map.put(name + ".meanNanos", histogram.getMeanNanos());
+            map.put(name + ".p50Nanos", histogram.getPercentileNanos(50));
+            map.put(name + ".p99Nanos", histogram.getPercentileNanos(99));
+            map.put(name + ".p999Nanos", histogram.getPercentileNanos(99.9));
+            map.put(name + ".maxNanos", histogram.getMaxNanos());
         }
         
         public void reset() {
-            hits = misses = evictions = expirations = totalSize = entryCount = 0;
+            for (LongAdder counter : Arrays.asList(hits, misses, admissionRejections, evictionNanos, pressureEvictions,
+                                                   diskHits, diskMisses, loadSuccesses, loadFailures, coalescedLoads)) {
+                counter.reset();
+            }
+            for (LongAdder counter : removals.values()) {
+                counter.reset();
+            }
+            lookupLatency.reset();
+            loadLatency.reset();
+            totalSize = entryCount = 0;
         }
     }
     
     private final CacheType type;
+    private final Weigher<Object> weigher;
     private final Map<String, CacheEntry<?>> cache = new ConcurrentHashMap<>();
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AccessBuffer accessBuffer = new AccessBuffer();
+    private final WindowTinyLfuPolicy policy;
+    private final TimerWheel timerWheel = new TimerWheel(System.nanoTime());
     private final CacheStats stats = new CacheStats();
+    // Loads in progress by hashed key; a future leaves before it completes
+    private final ConcurrentMap<String, CompletableFuture<Object>> loadsInFlight = new ConcurrentHashMap<>();
     private final PolyTypeLogger logger = PolyTypeLogger.getLogger(PolyTypeCache.class);
     private final PolyTypeConfig config = PolyTypeConfig.getInstance();
     
+    // On-disk tier shared by all caches of the type, or null
+    private final PersistentCacheTier diskTier;
+    
     // Configuration
     private volatile int maxSize;
+    private volatile long memoryBudget;
     private volatile long defaultTtl;
     private volatile boolean enabled;
+    private volatile boolean metricsEnabled;
+    
+    // Set while registered with the platform MBean server
+    private volatile ObjectName mbeanName;
     
-    // Background cleanup
-    private final ScheduledExecutorService cleanupExecutor;
+    // Sum of entry sizes, maintained under the eviction lock
+    private volatile long totalSize;
+    
+    // Fraction of the memory budget usable under the current heap pressure
+    private volatile double budgetFactor;
+    private final MemoryPressureMonitor.Listener pressureListener = this::onBudgetFactorChanged;
+    private final AtomicBoolean shedScheduled = new AtomicBoolean();
     
     public PolyTypeCache(CacheType type) {
+        this(type, Weighers.forType(type));
+    }
+    
+    public PolyTypeCache(CacheType type, Weigher<Object> weigher) {
         this.type = type;
+        this.weigher = weigher;
         loadConfiguration();
+        this.policy = new WindowTinyLfuPolicy(memoryBudget, maxSize);
+        this.diskTier = PersistentCacheTier.forType(type);
         
-        // Initialize cleanup executor
-        this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "PolyTypeCache-Cleanup-" + type);
-            t.setDaemon(true);
-            return t;
-        });
-        
-        // Start cleanup task
-        cleanupExecutor.scheduleAtFixedRate(this::cleanup, 60, 60, TimeUnit.SECONDS);
+        MemoryPressureMonitor monitor = MemoryPressureMonitor.getInstance();
+        this.budgetFactor = monitor.getBudgetFactor();
+        monitor.addListener(pressureListener);
+        ExpiryScheduler.getInstance().register(this);
+        registerMBean();
         
         logger.info(PolyTypeLogger.LogCategory.CACHE, 
-                   "Initialized cache: " + type + " (maxSize=" + maxSize + ", ttl=" + defaultTtl + "ms)");
+                   "Initialized cache: " + type + " (maxSize=" + maxSize + ", budget=" + formatBytes(memoryBudget)
+                   + ", ttl=" + defaultTtl + "ms" + (diskTier != null ? ", disk=" + diskTier.getDirectory() : "") + ")");
     }
     
     private void loadConfiguration() {
         this.enabled = config.getBoolean(PolyTypeConfig.ENABLE_CACHE);
+        this.metricsEnabled = config.getBoolean(PolyTypeConfig.ENABLE_METRICS);
         this.maxSize = config.getInt(PolyTypeConfig.CACHE_MAX_SIZE);
+        this.memoryBudget = config.getInt(PolyTypeConfig.CACHE_MAX_MEMORY_MB) * 1024L * 1024L
+                            * type.getMemoryPercent() / 100;
         this.defaultTtl = config.getInt(PolyTypeConfig.CACHE_EXPIRE_MINUTES) * 60 * 1000L;
     }
     
@@ -148,23 +327,51 @@ public class PolyTypeCache {
         put(key, value, defaultTtl);
     }
     
-    @SuppressWarnings("unchecked")
     public <T> void put(String key, T value, long ttl) {
         if (!enabled || key == null || value == null) {
             return;
         }
         
         String hashedKey = hashKey(key);
-        CacheEntry<T> entry = new CacheEntry<>(hashedKey, value, ttl);
+        putInMemory(key, hashedKey, value, ttl);
+        if (diskTier != null) {
+            byte[] encoded = encode(value);
+            if (encoded != null) {
+                diskTier.put(hashedKey, encoded);
+            }
+        }
+    }
+    
+    private <T> void putInMemory(String key, String hashedKey, T value, long ttl) {
+        // Weigh outside the lock; walking a large graph can take a while
+        long weight = weigher.weigh(value);
+        if (weight > effectiveBudget()) {
+            // Would evict everything else; the stale value must not survive either
+            remove(key);
+            logger.debug(PolyTypeLogger.LogCategory.CACHE, 
+                       "Not caching " + type + " entry of " + formatBytes(weight) + ", above the budget");
+            return;
+        }
+        
+        CacheEntry<T> entry = new CacheEntry<>(hashedKey, value, ttl, weight);
         
-        lock.writeLock().lock();
+        evictionLock.lock();
         try {
-            // Check if we need to evict entries
-            if (cache.size() >= maxSize) {
-                evictLRU();
-            }
+            drainAccessBuffer();
             
             CacheEntry<?> oldEntry = cache.put(hashedKey, entry);
+            if (oldEntry != null) {
+                totalSize -= oldEntry.getSize();
+                timerWheel.cancel(oldEntry.expiryTimer);
+            }
+            totalSize += entry.getSize();
+            policy.onInsert(hashedKey, entry.getSize());
+            if (ttl > 0) {
+                entry.expiryTimer = new TimerWheel.Timer(hashedKey, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttl));
+                timerWheel.schedule(entry.expiryTimer);
+            }
+            
+            evict(maxSize, effectiveBudget());
             updateStats();
             
             if (oldEntry != null) {
@@ -176,78 +383,238 @@ public class PolyTypeCache {
             }
             
         } finally {
-            lock.writeLock().unlock();
+            evictionLock.unlock();
         }
     }
     
-    @SuppressWarnings("unchecked")
     public <T> T get(String key, Class<T> valueType) {
+        if (!metricsEnabled) {
+            return lookup(key, valueType);
+        }
+        
+        long start = System.nanoTime();
+        try {
+            return lookup(key, valueType);
+        } finally {
+            stats.recordLookupTime(System.nanoTime() - start);
+        }
+    }
+    
+    @SuppressWarnings("unchecked")
+    private <T> T lookup(String key, Class<T> valueType) {
         if (!enabled || key == null) {
             stats.recordMiss();
             return null;
         }
         
         String hashedKey = hashKey(key);
+        CacheEntry<?> entry = cache.get(hashedKey);
         
-        lock.readLock().lock();
-        try {
-            CacheEntry<?> entry = cache.get(hashedKey);
-            
-            if (entry == null) {
-                stats.recordMiss();
-                logger.trace(PolyTypeLogger.LogCategory.CACHE, 
-                           "Cache miss: " + type + ":" + hashedKey);
-                return null;
-            }
-            
-            if (entry.isExpired()) {
-                // Remove expired entry (upgrade to write lock)
-                lock.readLock().unlock();
-                lock.writeLock().lock();
-                try {
-                    cache.remove(hashedKey);
+        if (entry == null) {
+            stats.recordMiss();
+            logger.trace(PolyTypeLogger.LogCategory.CACHE, 
+                       "Cache miss: " + type + ":" + hashedKey);
+            return getFromDisk(key, hashedKey, valueType);
+        }
+        
+        if (entry.isExpired()) {
+            evictionLock.lock();
+            try {
+                // Another thread may have replaced the entry meanwhile
+                if (cache.remove(hashedKey, entry)) {
+                    onRemoved(hashedKey, entry);
                     stats.recordExpiration();
                     updateStats();
                     logger.trace(PolyTypeLogger.LogCategory.CACHE, 
                                "Expired cache entry: " + type + ":" + hashedKey);
-                } finally {
-                    lock.writeLock().unlock();
                 }
-                stats.recordMiss();
-                return null;
+            } finally {
+                evictionLock.unlock();
             }
-            
-            entry.recordAccess();
-            stats.recordHit();
-            
-            logger.trace(PolyTypeLogger.LogCategory.CACHE, 
-                       "Cache hit: " + type + ":" + hashedKey + " (age=" + entry.getAge() + "ms)");
-            
-            return (T) entry.getValue();
-            
-        } finally {
+            stats.recordMiss();
+            return getFromDisk(key, hashedKey, valueType);
+        }
+        
+        entry.recordAccess();
+        stats.recordHit();
+        recordPolicyAccess(hashedKey);
+        
+        logger.trace(PolyTypeLogger.LogCategory.CACHE, 
+                   "Cache hit: " + type + ":" + hashedKey + " (age=" + entry.getAge() + "ms)");
+        
+        return (T) entry.getValue();
+    }
+    
+    private <T> T getFromDisk(String key, String hashedKey, Class<T> valueType) {
+        if (diskTier == null) {
+            return null;
+        }
+        
+        byte[] data = diskTier.get(hashedKey);
+        Object value = data != null ? decode(data) : null;
+        if (value == null || !valueType.isInstance(value)) {
+            if (data != null) {
+                diskTier.remove(hashedKey); // Unreadable, or stored by an incompatible version
+            }
+            stats.recordDiskMiss();
+            return null;
+        }
+        
+        stats.recordDiskHit();
+        putInMemory(key, hashedKey, value, defaultTtl);
+        logger.trace(PolyTypeLogger.LogCategory.CACHE, "Disk hit: " + type + ":" + hashedKey);
+        return valueType.cast(value);
+    }
+    
+    /**
+     * Returns the cached value, or computes, caches and returns it. Concurrent
+     * callers missing on the same key share a single call of the loader.
+     * A loader that fails or returns null leaves nothing cached; its failure
+     * is thrown to every caller waiting on it, checked exceptions wrapped
+     * in a {@link CacheLoadException}.
+     */
+    public <T> T getOrCompute(String key, Class<T> valueType, Callable<? extends T> loader) {
+        T cached = get(key, valueType);
+        if (cached != null) {
+            return cached;
+        }
+        if (!enabled || key == null) {
+            return callLoader(key, loader);
+        }
+        
+        String hashedKey = hashKey(key);
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loadsInFlight.putIfAbsent(hashedKey, load);
+        if (inFlight != null) {
+            stats.recordCoalescedLoad();
             try {
-                lock.readLock().unlock();
-            } catch (IllegalMonitorStateException e) {
-                // Lock not held by current thread, ignore
+                return valueType.cast(inFlight.join());
+            } catch (CompletionException e) {
+                throw rethrow(key, e.getCause());
             }
         }
+        
+        try {
+            return valueType.cast(load(key, hashedKey, loader, load));
+        } catch (Throwable t) {
+            throw rethrow(key, t);
+        }
     }
     
-    public boolean containsKey(String key) {
+    public <T> CompletableFuture<T> getOrComputeAsync(String key, Class<T> valueType, Callable<? extends T> loader) {
+        return getOrComputeAsync(key, valueType, loader, ForkJoinPool.commonPool());
+    }
+    
+    /**
+     * Like {@link #getOrCompute}, but runs the loader on the executor. The
+     * future completes exceptionally with the loader's own exception.
+     */
+    public <T> CompletableFuture<T> getOrComputeAsync(String key, Class<T> valueType, Callable<? extends T> loader,
+                                                     Executor executor) {
+        T cached = get(key, valueType);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        CompletableFuture<Object> load = new CompletableFuture<>();
         if (!enabled || key == null) {
-            return false;
+            executor.execute(() -> {
+                try {
+                    load.complete(loader.call());
+                } catch (Throwable t) {
+                    load.completeExceptionally(t);
+                }
+            });
+            return load.thenApply(valueType::cast);
         }
         
         String hashedKey = hashKey(key);
+        CompletableFuture<Object> inFlight = loadsInFlight.putIfAbsent(hashedKey, load);
+        if (inFlight != null) {
+            stats.recordCoalescedLoad();
+            return inFlight.thenApply(valueType::cast);
+        }
         
-        lock.readLock().lock();
         try {
-            CacheEntry<?> entry = cache.get(hashedKey);
-            return entry != null && !entry.isExpired();
-        } finally {
-            lock.readLock().unlock();
+            executor.execute(() -> {
+                try {
+                    load(key, hashedKey, loader, load);
+                } catch (Throwable t) {
+                    // Delivered through the future
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loadsInFlight.remove(hashedKey, load);
+            load.completeExceptionally(e);
         }
+        return load.thenApply(valueType::cast);
+    }
+    
+    /**
+     * Runs the loader for a registered in-flight load, caches a non-null
+     * result and completes the load. The load is unregistered before it
+     * completes, and after the value is cached, so later callers either
+     * hit the cache or start a fresh load, never see a finished one.
+     */
+    private Object load(String key, String hashedKey, Callable<?> loader, CompletableFuture<Object> load)
+            throws Throwable {
+        // A load that finished between our miss and registering may have cached the value
+        CacheEntry<?> entry = cache.get(hashedKey);
+        if (entry != null && !entry.isExpired()) {
+            loadsInFlight.remove(hashedKey, load);
+            load.complete(entry.getValue());
+            return entry.getValue();
+        }
+        
+        long start = System.nanoTime();
+        try {
+            Object value = loader.call();
+            stats.recordLoadSuccess(System.nanoTime() - start);
+            if (value != null) {
+                put(key, value);
+            }
+            loadsInFlight.remove(hashedKey, load);
+            load.complete(value);
+            return value;
+        } catch (Throwable t) {
+            stats.recordLoadFailure(System.nanoTime() - start);
+            loadsInFlight.remove(hashedKey, load);
+            load.completeExceptionally(t);
+            logger.debug(PolyTypeLogger.LogCategory.CACHE, 
+                       "Load failed for " + type + ":" + hashedKey + ": " + t);
+            throw t;
+        }
+    }
+    
+    private <T> T callLoader(String key, Callable<? extends T> loader) {
+        long start = System.nanoTime();
+        try {
+            T value = loader.call();
+            stats.recordLoadSuccess(System.nanoTime() - start);
+            return value;
+        } catch (Throwable t) {
+            stats.recordLoadFailure(System.nanoTime() - start);
+            throw rethrow(key, t);
+        }
+    }
+    
+    private RuntimeException rethrow(String key, Throwable t) {
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+        if (t instanceof Error) {
+            throw (Error) t;
+        }
+        return new CacheLoadException("Failed to load " + type + " entry " + key, t);
+    }
+    
+    public boolean containsKey(String key) {
+        if (!enabled || key == null) {
+            return false;
+        }
+        
+        CacheEntry<?> entry = cache.get(hashKey(key));
+        return entry != null && !entry.isExpired();
     }
     
     public void remove(String key) {
@@ -256,144 +623,287 @@ public class PolyTypeCache {
         }
         
         String hashedKey = hashKey(key);
+        if (diskTier != null) {
+            diskTier.remove(hashedKey);
+        }
         
-        lock.writeLock().lock();
+        evictionLock.lock();
         try {
             CacheEntry<?> removed = cache.remove(hashedKey);
             if (removed != null) {
+                onRemoved(hashedKey, removed);
+                stats.recordRemovals(RemovalCause.EXPLICIT, 1);
                 updateStats();
                 logger.trace(PolyTypeLogger.LogCategory.CACHE, 
                            "Removed cache entry: " + type + ":" + hashedKey);
             }
         } finally {
-            lock.writeLock().unlock();
+            evictionLock.unlock();
         }
     }
     
+    /** Empties the in-memory level. Entries on disk are kept. */
     public void clear() {
-        lock.writeLock().lock();
+        evictionLock.lock();
         try {
             int size = cache.size();
             cache.clear();
+            policy.clear();
+            timerWheel.clear();
+            totalSize = 0;
+            stats.recordRemovals(RemovalCause.EXPLICIT, size);
             updateStats();
             logger.info(PolyTypeLogger.LogCategory.CACHE, 
                        "Cleared cache: " + type + " (" + size + " entries)");
         } finally {
-            lock.writeLock().unlock();
+            evictionLock.unlock();
         }
     }
     
-    private void cleanup() {
-        if (!enabled) return;
+    /** Removes entries whose TTL has passed; run by the shared {@link ExpiryScheduler}. */
+    void expireEntries() {
+        if (!enabled || timerWheel.size() == 0) return;
         
-        lock.writeLock().lock();
+        evictionLock.lock();
         try {
-            int initialSize = cache.size();
-            int expired = 0;
-            
-            // Remove expired entries
-            Iterator<Map.Entry<String, CacheEntry<?>>> iterator = cache.entrySet().iterator();
-            while (iterator.hasNext()) {
-                Map.Entry<String, CacheEntry<?>> entry = iterator.next();
-                if (entry.getValue().isExpired()) {
-                    iterator.remove();
-                    expired++;
-                }
-            }
+            drainAccessBuffer();
+            int before = cache.size();
+            timerWheel.advance(System.nanoTime(), this::onTimerExpired);
             
+            int expired = before - cache.size();
             if (expired > 0) {
-                stats.expirations += expired;
                 updateStats();
                 logger.debug(PolyTypeLogger.LogCategory.CACHE, 
-                           "Cleanup: " + type + " - removed " + expired + " expired entries");
+                           "Expired " + expired + " entries from " + type);
             }
-            
-            // Check memory usage and evict if needed
-            if (cache.size() > maxSize * 0.9) { // Start evicting at 90% capacity
-                int toEvict = (int) (cache.size() - maxSize * 0.8); // Evict down to 80%
-                evictLRU(toEvict);
-            }
-            
         } finally {
-            lock.writeLock().unlock();
+            evictionLock.unlock();
         }
     }
     
-    private void evictLRU() {
-        evictLRU(1);
+    // Callers hold the eviction lock
+    private void onTimerExpired(TimerWheel.Timer timer) {
+        CacheEntry<?> entry = cache.get(timer.key);
+        if (entry != null && entry.expiryTimer == timer && cache.remove(timer.key, entry)) {
+            policy.onRemove(timer.key);
+            totalSize -= entry.getSize();
+            stats.recordExpiration();
+        }
     }
     
-    private void evictLRU(int count) {
-        if (cache.isEmpty()) return;
-        
-        // Sort by last access time (LRU)
-        List<Map.Entry<String, CacheEntry<?>>> entries = new ArrayList<>(cache.entrySet());
-        entries.sort(Comparator.comparing(e -> e.getValue().getLastAccess()));
+    private void recordPolicyAccess(String hashedKey) {
+        if (accessBuffer.offer(hashedKey) && evictionLock.tryLock()) {
+            try {
+                drainAccessBuffer();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+    
+    // Callers hold the eviction lock
+    private void drainAccessBuffer() {
+        accessBuffer.drainTo(policy::recordAccess);
+    }
+    
+    // Callers hold the eviction lock
+    private void onRemoved(String hashedKey, CacheEntry<?> entry) {
+        policy.onRemove(hashedKey);
+        timerWheel.cancel(entry.expiryTimer);
+        totalSize -= entry.getSize();
+    }
+    
+    private long effectiveBudget() {
+        return (long) (memoryBudget * budgetFactor);
+    }
+    
+    /**
+     * Called on the GC notification thread, which must not wait for the
+     * eviction lock; the shedding runs on the maintenance thread instead.
+     * Changes arriving before it runs are folded into one pass.
+     */
+    private void onBudgetFactorChanged(double factor) {
+        budgetFactor = factor;
+        if (!enabled || !shedScheduled.compareAndSet(false, true)) return;
         
-        int evicted = 0;
-        for (Map.Entry<String, CacheEntry<?>> entry : entries) {
-            if (evicted >= count) break;
-            
-            cache.remove(entry.getKey());
-            evicted++;
-            stats.recordEviction();
-            
-            logger.trace(PolyTypeLogger.LogCategory.CACHE, 
-                       "Evicted LRU entry: " + type + ":" + entry.getKey());
+        ExpiryScheduler.getInstance().execute(this::shedToBudget);
+    }
+    
+    private void shedToBudget() {
+        shedScheduled.set(false);
+        evictionLock.lock();
+        try {
+            int before = cache.size();
+            evict(maxSize, effectiveBudget());
+            int shed = before - cache.size();
+            if (shed > 0) {
+                stats.recordPressureEvictions(shed);
+                logger.info(PolyTypeLogger.LogCategory.CACHE, 
+                           "Shed " + shed + " entries from " + type + " under memory pressure (now "
+                           + formatBytes(totalSize) + " of " + formatBytes(effectiveBudget()) + ")");
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+    
+    // Callers hold the eviction lock
+    private void evict(int targetEntries, long targetBytes) {
+        long start = System.nanoTime();
+        long rejectionsBefore = policy.getAdmissionRejections();
+        List<String> victims = new ArrayList<>();
+        policy.evict(targetBytes, targetEntries, victims);
+        if (victims.isEmpty()) {
+            return;
         }
         
-        if (evicted > 0) {
-            updateStats();
-            logger.debug(PolyTypeLogger.LogCategory.CACHE, 
-                       "Evicted " + evicted + " LRU entries from " + type);
+        for (String victim : victims) {
+            CacheEntry<?> removed = cache.remove(victim);
+            if (removed != null) {
+                totalSize -= removed.getSize();
+                timerWheel.cancel(removed.expiryTimer);
+                stats.recordEviction();
+                logger.trace(PolyTypeLogger.LogCategory.CACHE, 
+                           "Evicted entry: " + type + ":" + victim);
+            }
         }
+        
+        stats.recordEvictionTime(System.nanoTime() - start);
+        stats.recordAdmissionRejections(policy.getAdmissionRejections() - rejectionsBefore);
+        updateStats();
+        logger.debug(PolyTypeLogger.LogCategory.CACHE, 
+                   "Evicted " + victims.size() + " entries from " + type);
     }
     
     private void updateStats() {
-        long totalSize = cache.values().stream()
-                             .mapToInt(CacheEntry::getSize)
-                             .sum();
-        
         stats.setTotalSize(totalSize);
         stats.setEntryCount(cache.size());
     }
     
+    // Keys built by the helpers below carry content fingerprints, so they stay short
     private String hashKey(String key) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            byte[] hash = md.digest(key.getBytes());
-            
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hash) {
-                sb.append(String.format("%02x", b));
+        return ContentFingerprint.of(key).toHex();
+    }
+    
+    // Disk encoding: a tag byte, then UTF-8 text, raw bytes or a serialized object
+    private static final byte TAG_STRING = 'S';
+    private static final byte TAG_BYTES = 'B';
+    private static final byte TAG_OBJECT = 'O';
+    
+    // Anyone who can write the cache directory controls what is read back, so
+    // only plain JDK values and our own types are deserialized
+    static final ObjectInputFilter DISK_OBJECT_FILTER = ObjectInputFilter.Config.createFilter(
+        "maxdepth=64;maxrefs=1000000;maxarray=16777216;"
+        + "java.lang.*;java.util.*;java.time.*;java.math.*;"
+        + "com.polytype.migrator.**;com.davajava.migrator.**;!*");
+    
+    static byte[] encode(Object value) {
+        if (value instanceof String) {
+            return tagged(TAG_STRING, ((String) value).getBytes(StandardCharsets.UTF_8));
+        }
+        if (value instanceof byte[]) {
+            return tagged(TAG_BYTES, (byte[]) value);
+        }
+        if (value instanceof Serializable) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            buffer.write(TAG_OBJECT);
+            try (ObjectOutputStream out = new ObjectOutputStream(buffer)) {
+                out.writeObject(value);
+            } catch (IOException e) {
+                // Something in the graph is not serializable; keep it in memory only
+                return null;
             }
-            return sb.toString().substring(0, 16); // Use first 16 characters
-            
-        } catch (NoSuchAlgorithmException e) {
-            // Fallback to simple hash
-            return String.valueOf(key.hashCode());
+            return buffer.toByteArray();
+        }
+        return null;
+    }
+    
+    private static byte[] tagged(byte tag, byte[] payload) {
+        byte[] data = new byte[payload.length + 1];
+        data[0] = tag;
+        System.arraycopy(payload, 0, data, 1, payload.length);
+        return data;
+    }
+    
+    static Object decode(byte[] data) {
+        if (data.length == 0) {
+            return null;
+        }
+        switch (data[0]) {
+            case TAG_STRING:
+                return new String(data, 1, data.length - 1, StandardCharsets.UTF_8);
+            case TAG_BYTES:
+                return Arrays.copyOfRange(data, 1, data.length);
+            case TAG_OBJECT:
+                try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data, 1, data.length - 1))) {
+                    in.setObjectInputFilter(DISK_OBJECT_FILTER);
+                    return in.readObject();
+                } catch (IOException | ClassNotFoundException e) {
+                    return null;
+                }
+            default:
+                return null;
         }
     }
     
-    // Cache key builders for common use cases
+    // Cache key builders for common use cases. The String overloads fingerprint
+    // the text on every call; callers that already hold the content's
+    // fingerprint should pass it instead.
     public static String buildTranslationKey(String sourceCode, String fromLang, String toLang) {
-        return "trans:" + fromLang + ">" + toLang + ":" + sourceCode.hashCode();
+        return buildTranslationKey(ContentFingerprint.of(sourceCode), fromLang, toLang);
+    }
+    
+    public static String buildTranslationKey(ContentFingerprint source, String fromLang, String toLang) {
+        return "trans:" + fromLang + ">" + toLang + ":" + source.toHex();
+    }
+    
+    /**
+     * Key for a translation that may be stored on disk. Besides the source
+     * it covers everything that changes the output, so results from an
+     * older translator or different options are never returned.
+     *
+     * @param parserVersion build identity of the parser that reads the source
+     * @param translatorVersion build identity of the translator
+     * @param optionsFingerprint stable digest of the translation options
+     */
+    public static String buildTranslationKey(ContentFingerprint source, String fromLang, String toLang,
+                                             String parserVersion, String translatorVersion,
+                                             String optionsFingerprint) {
+        return "trans:" + fromLang + ">" + toLang + ":" + parserVersion + ":" + translatorVersion + ":"
+               + optionsFingerprint + ":" + source.toHex();
     }
     
     public static String buildASTKey(String sourceCode, String language) {
-        return "ast:" + language + ":" + sourceCode.hashCode();
+        return buildASTKey(ContentFingerprint.of(sourceCode), language);
+    }
+    
+    public static String buildASTKey(ContentFingerprint source, String language) {
+        return "ast:" + language + ":" + source.toHex();
+    }
+    
+    /** Key for an AST that may be stored on disk; see {@link #buildTranslationKey(ContentFingerprint, String, String, String, String, String)}. */
+    public static String buildASTKey(ContentFingerprint source, String language, String parserVersion) {
+        return "ast:" + language + ":" + parserVersion + ":" + source.toHex();
     }
     
     public static String buildPatternKey(String sourceCode, String language) {
-        return "pattern:" + language + ":" + sourceCode.hashCode();
+        return buildPatternKey(ContentFingerprint.of(sourceCode), language);
+    }
+    
+    public static String buildPatternKey(ContentFingerprint source, String language) {
+        return "pattern:" + language + ":" + source.toHex();
     }
     
     public static String buildSimilarityKey(String code1, String code2) {
-        int hash1 = code1.hashCode();
-        int hash2 = code2.hashCode();
+        return buildSimilarityKey(ContentFingerprint.of(code1), ContentFingerprint.of(code2));
+    }
+    
+    public static String buildSimilarityKey(ContentFingerprint code1, ContentFingerprint code2) {
+        String hash1 = code1.toHex();
+        String hash2 = code2.toHex();
         // Ensure consistent ordering
-        if (hash1 > hash2) {
-            int temp = hash1;
+        if (hash1.compareTo(hash2) > 0) {
+            String temp = hash1;
             hash1 = hash2;
             hash2 = temp;
         }
@@ -401,11 +911,11 @@ public class PolyTypeCache {
     }
     
     public static String buildBinaryKey(String binaryPath, String analysisType) {
-        return "binary:" + analysisType + ":" + binaryPath.hashCode();
+        return "binary:" + analysisType + ":" + ContentFingerprint.of(binaryPath).toHex();
     }
     
     public static String buildMetadataKey(String filePath) {
-        return "metadata:" + filePath.hashCode();
+        return "metadata:" + ContentFingerprint.of(filePath).toHex();
     }
     
     // Statistics and monitoring
@@ -425,12 +935,27 @@ public class PolyTypeCache {
         System.out.println("\n=== Cache Statistics: " + type + " ===");
         System.out.println("Enabled: " + enabled);
         System.out.println("Entries: " + currentStats.getEntryCount() + " / " + maxSize);
-        System.out.println("Total Size: " + formatBytes(currentStats.getTotalSize()));
+        System.out.println("Total Size: " + formatBytes(currentStats.getTotalSize()) + " / " + formatBytes(effectiveBudget())
+                           + (budgetFactor < 1.0 ? String.format(" (%.0f%% of budget, memory pressure)", budgetFactor * 100) : ""));
         System.out.println("Hit Ratio: " + String.format("%.2f%%", currentStats.getHitRatio() * 100));
         System.out.println("Hits: " + currentStats.getHits());
         System.out.println("Misses: " + currentStats.getMisses());
-        System.out.println("Evictions: " + currentStats.getEvictions());
+        System.out.println("Evictions: " + currentStats.getEvictions()
+                           + " (" + currentStats.getAdmissionRejections() + " newcomers rejected, "
+                           + String.format("%.0f ns avg", currentStats.getAverageEvictionNanos()) + ")");
         System.out.println("Expirations: " + currentStats.getExpirations());
+        System.out.println("Explicit Removals: " + currentStats.getRemovals(RemovalCause.EXPLICIT));
+        System.out.println("Lookup Latency: " + currentStats.getLookupLatency());
+        System.out.println("Loads: " + (currentStats.getLoadSuccesses() + currentStats.getLoadFailures())
+                           + " (" + currentStats.getLoadFailures() + " failed, " + currentStats.getCoalescedLoads() + " coalesced, "
+                           + String.format("%.2f ms avg", currentStats.getAverageLoadNanos() / 1_000_000.0) + ")");
+        System.out.println("Load Latency: " + currentStats.getLoadLatency());
+        System.out.println("Shed Under Memory Pressure: " + currentStats.getPressureEvictions());
+        if (diskTier != null) {
+            System.out.println("Disk Tier: " + currentStats.getDiskHits() + " hits, " + currentStats.getDiskMisses() + " misses, "
+                               + diskTier.getEntryCount() + " entries, " + formatBytes(diskTier.getTotalBytes())
+                               + " / " + formatBytes(diskTier.getMaxBytes()));
+        }
         System.out.println("Default TTL: " + (defaultTtl / 1000) + " seconds");
         System.out.println("=====================================\n");
     }
@@ -444,10 +969,11 @@ public class PolyTypeCache {
     
     // Configuration updates
     public void updateConfiguration() {
-        lock.writeLock().lock();
+        evictionLock.lock();
         try {
             boolean wasEnabled = enabled;
             loadConfiguration();
+            policy.setMaximum(memoryBudget, maxSize);
             
             if (!enabled && wasEnabled) {
                 clear();
@@ -456,16 +982,19 @@ public class PolyTypeCache {
                 logger.info(PolyTypeLogger.LogCategory.CACHE, "Cache enabled: " + type);
             }
             
-            // If max size decreased, evict excess entries
-            if (enabled && cache.size() > maxSize) {
-                int toEvict = cache.size() - maxSize;
-                evictLRU(toEvict);
-                logger.info(PolyTypeLogger.LogCategory.CACHE, 
-                           "Evicted " + toEvict + " entries due to size limit change");
+            // If max size or budget decreased, evict excess entries
+            if (enabled) {
+                int before = cache.size();
+                evict(maxSize, effectiveBudget());
+                int evicted = before - cache.size();
+                if (evicted > 0) {
+                    logger.info(PolyTypeLogger.LogCategory.CACHE, 
+                               "Evicted " + evicted + " entries due to size limit change");
+                }
             }
             
         } finally {
-            lock.writeLock().unlock();
+            evictionLock.unlock();
         }
     }
     
@@ -493,7 +1022,7 @@ public class PolyTypeCache {
         // Health criteria
         boolean sizeOk = currentStats.getEntryCount() <= maxSize;
         boolean hitRatioOk = currentStats.getHitRatio() >= 0.1 || (currentStats.getHits() + currentStats.getMisses()) < 100;
-        boolean memoryOk = currentStats.getTotalSize() < (maxSize * 1024L); // Rough memory check
+        boolean memoryOk = currentStats.getTotalSize() <= memoryBudget;
         
         return sizeOk && hitRatioOk && memoryOk;
     }
@@ -504,22 +1033,103 @@ public class PolyTypeCache {
         health.put("healthy", isHealthy());
         health.put("type", type);
         health.put("stats", getStats());
+        health.put("metrics", getStats().toMap());
+        health.put("maxEntries", maxSize);
+        health.put("memoryBudget", memoryBudget);
+        health.put("budgetFactor", budgetFactor);
+        health.put("diskTier", diskTier != null ? diskTier.getDirectory().toString() : "disabled");
+        health.put("mbean", mbeanName != null ? mbeanName.toString() : "unregistered");
         return health;
     }
     
-    // Shutdown
-    public void shutdown() {
-        logger.info(PolyTypeLogger.LogCategory.CACHE, "Shutting down cache: " + type);
+    // JMX
+    private void registerMBean() {
+        if (!metricsEnabled) return;
         
-        cleanupExecutor.shutdown();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String baseName = "com.polytype.migrator:type=Cache,name=" + type;
         try {
-            if (!cleanupExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                cleanupExecutor.shutdownNow();
+            // Several caches of a type may be open; later ones get a numbered name
+            for (int instance = 1; mbeanName == null; instance++) {
+                ObjectName name = new ObjectName(instance == 1 ? baseName : baseName + ",instance=" + instance);
+                try {
+                    server.registerMBean(new MXBeanView(), name);
+                    mbeanName = name;
+                } catch (InstanceAlreadyExistsException e) {
+                    // Taken; try the next number
+                }
             }
-        } catch (InterruptedException e) {
-            cleanupExecutor.shutdownNow();
+        } catch (JMException e) {
+            logger.warn(PolyTypeLogger.LogCategory.CACHE, "Could not register cache MBean for " + type, e);
         }
+    }
+    
+    private void unregisterMBean() {
+        ObjectName name = mbeanName;
+        if (name == null) return;
+        
+        mbeanName = null;
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            logger.debug(PolyTypeLogger.LogCategory.CACHE, "Cache MBean already gone: " + name);
+        }
+    }
+    
+    private final class MXBeanView implements PolyTypeCacheMXBean {
+        @Override public String getCacheType() { return type.name(); }
+        @Override public boolean isEnabled() { return enabled; }
+        
+        @Override public int getEntryCount() { return cache.size(); }
+        @Override public int getMaxEntries() { return maxSize; }
+        @Override public long getWeightedSize() { return totalSize; }
+        @Override public long getMemoryBudget() { return memoryBudget; }
+        @Override public double getBudgetFactor() { return budgetFactor; }
+        
+        @Override public long getHitCount() { return stats.getHits(); }
+        @Override public long getMissCount() { return stats.getMisses(); }
+        @Override public double getHitRatio() { return stats.getHitRatio(); }
+        @Override public long getDiskHitCount() { return stats.getDiskHits(); }
+        @Override public long getDiskMissCount() { return stats.getDiskMisses(); }
+        
+        @Override public long getSizeEvictionCount() { return stats.getRemovals(RemovalCause.SIZE); }
+        @Override public long getExpirationCount() { return stats.getRemovals(RemovalCause.EXPIRED); }
+        @Override public long getExplicitRemovalCount() { return stats.getRemovals(RemovalCause.EXPLICIT); }
+        @Override public long getPressureEvictionCount() { return stats.getPressureEvictions(); }
+        @Override public long getAdmissionRejectionCount() { return stats.getAdmissionRejections(); }
         
+        @Override public long getLoadSuccessCount() { return stats.getLoadSuccesses(); }
+        @Override public long getLoadFailureCount() { return stats.getLoadFailures(); }
+        @Override public long getCoalescedLoadCount() { return stats.getCoalescedLoads(); }
+        
+        @Override public long getLookupCount() { return stats.getLookupLatency().getCount(); }
+        @Override public double getLookupMeanNanos() { return stats.getLookupLatency().getMeanNanos(); }
+        @Override public long getLookupP50Nanos() { return stats.getLookupLatency().getPercentileNanos(50); }
+        @Override public long getLookupP99Nanos() { return stats.getLookupLatency().getPercentileNanos(99); }
+        @Override public long getLookupP999Nanos() { return stats.getLookupLatency().getPercentileNanos(99.9); }
+        @Override public long getLookupMaxNanos() { return stats.getLookupLatency().getMaxNanos(); }
+        
+        @Override public long getLoadCount() { return stats.getLoadLatency().getCount(); }
+        @Override public double getLoadMeanNanos() { return stats.getLoadLatency().getMeanNanos(); }
+        @Override public long getLoadP50Nanos() { return stats.getLoadLatency().getPercentileNanos(50); }
+        @Override public long getLoadP99Nanos() { return stats.getLoadLatency().getPercentileNanos(99); }
+        @Override public long getLoadP999Nanos() { return stats.getLoadLatency().getPercentileNanos(99.9); }
+        @Override public long getLoadMaxNanos() { return stats.getLoadLatency().getMaxNanos(); }
+        
+        @Override public void resetStats() { PolyTypeCache.this.resetStats(); }
+    }
+    
+    // Shutdown
+    public void shutdown() {
+        logger.info(PolyTypeLogger.LogCategory.CACHE, "Shutting down cache: " + type);
+        
+        MemoryPressureMonitor.getInstance().removeListener(pressureListener);
+        ExpiryScheduler.getInstance().unregister(this);
+        unregisterMBean();
+        
+        if (diskTier != null) {
+            diskTier.flush();
+        }
         clear();
         logger.info(PolyTypeLogger.LogCategory.CACHE, "Cache shutdown completed: " + type);
     }
@@ -0,0 +1,50 @@
+package com.polytype.migrator.core.cache;
+
+/**
+ * JMX view of one {@link PolyTypeCache}, registered as
+ * {@code com.polytype.migrator:type=Cache,name=<CacheType>} while the cache
+ * is open and metrics are enabled. Latencies are in nanoseconds.
+ */
+public interface PolyTypeCacheMXBean {
+
+    String getCacheType();
+    boolean isEnabled();
+
+    int getEntryCount();
+    int getMaxEntries();
+    long getWeightedSize();
+    long getMemoryBudget();
+    double getBudgetFactor();
+
+    long getHitCount();
+    long getMissCount();
+    double getHitRatio();
+    long getDiskHitCount();
+    long getDiskMissCount();
+
+    long getSizeEvictionCount();
+    long getExpirationCount();
+    long getExplicitRemovalCount();
+    long getPressureEvictionCount();
+    long getAdmissionRejectionCount();
+
+    long getLoadSuccessCount();
+    long getLoadFailureCount();
+    long getCoalescedLoadCount();
+
+    long getLookupCount();
+    double getLookupMeanNanos();
+    long getLookupP50Nanos();
+    long getLookupP99Nanos();
+    long getLookupP999Nanos();
+    long getLookupMaxNanos();
+
+    long getLoadCount();
+    double getLoadMeanNanos();
+    long getLoadP50Nanos();
+    long getLoadP99Nanos();
+    long getLoadP999Nanos();
+    long getLoadMaxNanos();
+
+    void resetStats();
+}
@@ -0,0 +1,158 @@
+package com.polytype.migrator.core.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel holding the expiration times of a cache's
+ * entries. Each level is a ring of buckets, every bucket a doubly linked
+ * list of timers due within its span: about a second on the first level,
+ * then a minute, an hour, a day and beyond. Scheduling and cancelling are
+ * constant time. Advancing the wheel visits only the buckets whose span has
+ * passed; timers found there that are not yet due move down to a finer
+ * level.
+ *
+ * <p>Times are {@link System#nanoTime()} values. Buckets are computed from
+ * the time elapsed since the wheel was created, which unlike nanoTime itself
+ * never goes negative. Not thread-safe; the cache calls it under its
+ * eviction lock.
+ */
+final class TimerWheel {
+    // Bucket spans are powers of two of nanoseconds: 1.07s, 1.14m, 1.22h, 1.63d, 6.5d
+    private static final int[] SHIFTS = { 30, 36, 42, 47, 49 };
+    private static final int[] BUCKETS = { 64, 64, 32, 4, 1 };
+
+    /** A scheduled expiration. */
+    static final class Timer {
+        final String key;
+        final long time;
+        Timer previous;
+        Timer next;
+
+        Timer(String key, long time) {
+            this.key = key;
+            this.time = time;
+        }
+
+        boolean isScheduled() {
+            return next != null;
+        }
+    }
+
+    private final Timer[][] wheel = new Timer[BUCKETS.length][];
+    private final long origin;
+    private long nanos; // Relative to origin
+    private int size;
+
+    TimerWheel(long nanos) {
+        this.origin = nanos;
+        for (int level = 0; level < BUCKETS.length; level++) {
+            wheel[level] = new Timer[BUCKETS[level]];
+            for (int bucket = 0; bucket < BUCKETS[level]; bucket++) {
+                wheel[level][bucket] = sentinel();
+            }
+        }
+    }
+
+    int size() { return size; }
+
+    void schedule(Timer timer) {
+        Timer sentinel = findBucket(timer.time);
+        timer.previous = sentinel.previous;
+        timer.next = sentinel;
+        sentinel.previous.next = timer;
+        sentinel.previous = timer;
+        size++;
+    }
+
+    void cancel(Timer timer) {
+        if (timer == null || !timer.isScheduled()) {
+            return;
+        }
+        timer.previous.next = timer.next;
+        timer.next.previous = timer.previous;
+        timer.previous = null;
+        timer.next = null;
+        size--;
+    }
+
+    /**
+     * Moves the wheel to the given time and hands every timer that is due
+     * to the consumer, already unscheduled.
+     */
+    void advance(long currentNanos, Consumer<Timer> expired) {
+        long previousNanos = nanos;
+        nanos = currentNanos - origin;
+        for (int level = 0; level < SHIFTS.length; level++) {
+            long previousTicks = previousNanos >>> SHIFTS[level];
+            long currentTicks = nanos >>> SHIFTS[level];
+            if (currentTicks - previousTicks <= 0) {
+                break; // Coarser levels have not ticked either
+            }
+            expire(level, previousTicks, currentTicks - previousTicks, expired);
+        }
+    }
+
+    void clear() {
+        for (Timer[] level : wheel) {
+            for (Timer sentinel : level) {
+                for (Timer timer = sentinel.next; timer != sentinel; ) {
+                    Timer next = timer.next;
+                    timer.previous = null;
+                    timer.next = null;
+                    timer = next;
+                }
+                sentinel.previous = sentinel;
+                sentinel.next = sentinel;
+            }
+        }
+        size = 0;
+    }
+
+    private void expire(int level, long previousTicks, long delta, Consumer<Timer> expired) {
+        Timer[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(delta + 1, buckets.length);
+        int start = (int) (previousTicks & mask);
+
+        for (int i = start; i < start + steps; i++) {
+            Timer sentinel = buckets[i & mask];
+            Timer timer = sentinel.next;
+            sentinel.previous = sentinel;
+            sentinel.next = sentinel;
+
+            while (timer != sentinel) {
+                Timer next = timer.next;
+                timer.previous = null;
+                timer.next = null;
+                size--;
+
+                if (timer.time - origin - nanos <= 0) {
+                    expired.accept(timer);
+                } else {
+                    schedule(timer); // Not due yet; lands on a finer level
+                }
+                timer = next;
+            }
+        }
+    }
+
+    private Timer findBucket(long time) {
+        long relative = time - origin;
+        long duration = relative - nanos;
+        int last = SHIFTS.length - 1;
+        for (int level = 0; level < last; level++) {
+            if (duration < 1L << SHIFTS[level + 1]) {
+                int bucket = (int) ((relative >>> SHIFTS[level]) & (BUCKETS[level] - 1));
+                return wheel[level][bucket];
+            }
+        }
+        return wheel[last][0];
+    }
+
+    private static Timer sentinel() {
+        Timer sentinel = new Timer(null, 0);
+        sentinel.previous = sentinel;
+        sentinel.next = sentinel;
+        return sentinel;
+    }
+}
@@ -0,0 +1,15 @@
+package com.polytype.migrator.core.cache;
+
+/**
+ * Computes how many bytes a cached value keeps alive. The cache charges each
+ * entry's weight against its type's memory budget. Weighing happens once,
+ * when the value is put, outside the cache's locks.
+ */
+@FunctionalInterface
+public interface Weigher<T> {
+
+    /**
+     * Returns the estimated retained size of the value in bytes.
+     */
+    long weigh(T value);
+}
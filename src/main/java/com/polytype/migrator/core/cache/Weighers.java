@@ -0,0 +1,229 @@
+package com.polytype.migrator.core.cache;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Standard weighers. Sizes assume a 64-bit JVM with compressed references:
+ * 12-byte object headers, 4-byte references and 8-byte alignment. The
+ * results are estimates, but they scale with what a value really holds.
+ */
+public final class Weighers {
+    private static final int OBJECT_HEADER = 12;
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+    private static final int STRING_SHALLOW = 24;
+
+    // Bookkeeping per element beyond the element itself: table slot and node
+    private static final int COLLECTION_SHALLOW = 40;
+    private static final int COLLECTION_PER_ELEMENT = 16;
+    private static final int MAP_SHALLOW = 48;
+    private static final int MAP_PER_ENTRY = 36;
+
+    // Bounds the walk over very large graphs; the rest goes uncounted
+    private static final int MAX_VISITED_OBJECTS = 1_000_000;
+
+    private static final Weigher<Object> RETAINED_SIZE = Weighers::retainedSize;
+
+    private static final Weigher<Object> STRINGS = value ->
+        value instanceof CharSequence ? sizeOfCharSequence((CharSequence) value) : retainedSize(value);
+
+    private static final ClassValue<ClassLayout> LAYOUTS = new ClassValue<ClassLayout>() {
+        @Override
+        protected ClassLayout computeValue(Class<?> type) {
+            return ClassLayout.of(type);
+        }
+    };
+
+    private Weighers() {
+    }
+
+    /**
+     * Weighs strings and builders by their character storage, and anything
+     * else by its retained size. Meant for translated code.
+     */
+    public static Weigher<Object> strings() {
+        return STRINGS;
+    }
+
+    /**
+     * Walks the object graph reachable from the value and sums the size of
+     * every object reached once. Objects shared with the rest of the heap,
+     * such as enum constants and classes, are not charged. Fields of JDK
+     * classes are not read; their collections, maps, arrays and strings are
+     * followed through their public API.
+     */
+    public static Weigher<Object> retainedSize() {
+        return RETAINED_SIZE;
+    }
+
+    /**
+     * The default weigher for a cache type: character storage for
+     * translated code, retained size for ASTs, analysis results and the rest.
+     */
+    public static Weigher<Object> forType(PolyTypeCache.CacheType type) {
+        return type == PolyTypeCache.CacheType.TRANSLATION_RESULT ? STRINGS : RETAINED_SIZE;
+    }
+
+    static long retainedSize(Object root) {
+        if (root == null) {
+            return 0;
+        }
+
+        Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        ArrayDeque<Object> pending = new ArrayDeque<>();
+        pending.push(root);
+        long total = 0;
+
+        while (!pending.isEmpty() && visited.size() < MAX_VISITED_OBJECTS) {
+            Object value = pending.pop();
+            if (isShared(value) || !visited.add(value)) {
+                continue;
+            }
+
+            Class<?> type = value.getClass();
+            if (value instanceof String) {
+                total += sizeOfCharSequence((String) value);
+            } else if (type.isArray()) {
+                total += sizeOfArray(value, pending);
+            } else if (value instanceof Collection) {
+                Collection<?> collection = (Collection<?>) value;
+                total += COLLECTION_SHALLOW + (long) COLLECTION_PER_ELEMENT * collection.size();
+                try {
+                    for (Object element : collection) {
+                        pushIfReference(pending, element);
+                    }
+                } catch (ConcurrentModificationException e) {
+                    // Changed while being weighed; count what was seen
+                }
+            } else if (value instanceof Map) {
+                Map<?, ?> map = (Map<?, ?>) value;
+                total += MAP_SHALLOW + (long) MAP_PER_ENTRY * map.size();
+                try {
+                    for (Map.Entry<?, ?> entry : map.entrySet()) {
+                        pushIfReference(pending, entry.getKey());
+                        pushIfReference(pending, entry.getValue());
+                    }
+                } catch (ConcurrentModificationException e) {
+                    // Changed while being weighed; count what was seen
+                }
+            } else if (value instanceof CharSequence && isJdkClass(type)) {
+                total += sizeOfCharSequence((CharSequence) value);
+            } else {
+                ClassLayout layout = LAYOUTS.get(type);
+                total += layout.shallowSize;
+                for (Field field : layout.referenceFields) {
+                    try {
+                        pushIfReference(pending, field.get(value));
+                    } catch (IllegalAccessException e) {
+                        // Counted shallowly
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    private static long sizeOfCharSequence(CharSequence text) {
+        int length = text.length();
+        boolean latin1 = true;
+        for (int i = 0; i < length && latin1; i++) {
+            latin1 = text.charAt(i) < 0x100;
+        }
+        // Compact strings keep Latin-1 text at one byte per character
+        return STRING_SHALLOW + align(ARRAY_HEADER + (long) length * (latin1 ? 1 : 2));
+    }
+
+    private static long sizeOfArray(Object array, ArrayDeque<Object> pending) {
+        Class<?> component = array.getClass().getComponentType();
+        int length = Array.getLength(array);
+        if (component.isPrimitive()) {
+            return align(ARRAY_HEADER + (long) length * primitiveSize(component));
+        }
+
+        Object[] elements = (Object[]) array;
+        for (Object element : elements) {
+            pushIfReference(pending, element);
+        }
+        return align(ARRAY_HEADER + (long) length * REFERENCE);
+    }
+
+    private static void pushIfReference(ArrayDeque<Object> pending, Object value) {
+        if (value != null) {
+            pending.push(value);
+        }
+    }
+
+    private static boolean isShared(Object value) {
+        return value instanceof Enum || value instanceof Class || value instanceof Boolean;
+    }
+
+    private static boolean isJdkClass(Class<?> type) {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("jdk.")
+            || name.startsWith("sun.") || name.startsWith("com.sun.");
+    }
+
+    private static int primitiveSize(Class<?> type) {
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + 7) & ~7L;
+    }
+
+    /** Shallow size and readable reference fields of one class. */
+    private static final class ClassLayout {
+        final long shallowSize;
+        final Field[] referenceFields;
+
+        private ClassLayout(long shallowSize, Field[] referenceFields) {
+            this.shallowSize = shallowSize;
+            this.referenceFields = referenceFields;
+        }
+
+        static ClassLayout of(Class<?> type) {
+            long size = OBJECT_HEADER;
+            List<Field> references = new ArrayList<>();
+            boolean jdk = isJdkClass(type);
+
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field field : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(field.getModifiers())) {
+                        continue;
+                    }
+                    Class<?> fieldType = field.getType();
+                    if (fieldType.isPrimitive()) {
+                        size += primitiveSize(fieldType);
+                        continue;
+                    }
+                    size += REFERENCE;
+
+                    // JDK internals stay closed; boxed numbers and the like are counted shallowly
+                    if (!jdk && !isJdkClass(c)) {
+                        try {
+                            field.setAccessible(true);
+                            references.add(field);
+                        } catch (RuntimeException e) {
+                            // Inaccessible field; counted shallowly
+                        }
+                    }
+                }
+            }
+            return new ClassLayout(align(size), references.toArray(new Field[0]));
+        }
+    }
+}
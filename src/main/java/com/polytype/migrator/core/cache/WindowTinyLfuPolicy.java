@@ -0,0 +1,285 @@
+package com.polytype.migrator.core.cache;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Window TinyLFU eviction policy. New entries go into a small LRU window.
+ * An entry leaving the window is admitted to the main space only if it has
+ * been seen more often than the entry the main space would evict in its
+ * place, so a burst of one-off keys cannot flush out a popular working set.
+ *
+ * <p>The main space is a segmented LRU: entries start in probation and move
+ * to the protected segment when hit again. Every operation is constant time.
+ * Sizes are in weight units; each entry counts its own weight. Eviction can
+ * also be bounded by the number of entries.
+ *
+ * <p>Not thread-safe; the cache calls it under its eviction lock.
+ */
+final class WindowTinyLfuPolicy {
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private enum Segment { WINDOW, PROBATION, PROTECTED }
+
+    private static final class Node {
+        final String key;
+        long weight;
+        Segment segment;
+        Node previous;
+        Node next;
+
+        Node(String key, long weight) {
+            this.key = key;
+            this.weight = weight;
+        }
+    }
+
+    /** Doubly linked list in access order, least recently used first. */
+    private static final class AccessOrderDeque {
+        private Node head;
+        private Node tail;
+
+        Node peekFirst() { return head; }
+        Node peekLast() { return tail; }
+        boolean isEmpty() { return head == null; }
+
+        void addLast(Node node) {
+            node.previous = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+        }
+
+        void remove(Node node) {
+            if (node.previous == null) {
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            node.previous = null;
+            node.next = null;
+        }
+
+        void moveToBack(Node node) {
+            if (node != tail) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        void clear() {
+            head = null;
+            tail = null;
+        }
+    }
+
+    private final Map<String, Node> nodes = new HashMap<>();
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final AccessOrderDeque window = new AccessOrderDeque();
+    private final AccessOrderDeque probation = new AccessOrderDeque();
+    private final AccessOrderDeque protectedSegment = new AccessOrderDeque();
+
+    private long maximum;
+    private long windowMaximum;
+    private int windowEntryMaximum;
+    private long protectedMaximum;
+    private int protectedEntryMaximum;
+
+    private long weightedSize;
+    private long windowWeight;
+    private int windowCount;
+    private long protectedWeight;
+    private int protectedCount;
+    private long admissionRejections;
+
+    WindowTinyLfuPolicy(long maximumWeight, int maximumEntries) {
+        setMaximum(maximumWeight, maximumEntries);
+    }
+
+    /**
+     * Sets the capacity the segments are sized from. The window and the
+     * protected segment are bounded by both weight and entry count, so
+     * whichever limit binds, the segments keep their proportions.
+     */
+    void setMaximum(long maximumWeight, int maximumEntries) {
+        this.maximum = maximumWeight;
+        this.windowMaximum = Math.max(1, maximumWeight * WINDOW_PERCENT / 100);
+        this.windowEntryMaximum = Math.max(1, maximumEntries * WINDOW_PERCENT / 100);
+        this.protectedMaximum = (maximumWeight - windowMaximum) * PROTECTED_PERCENT / 100;
+        this.protectedEntryMaximum = (maximumEntries - windowEntryMaximum) * PROTECTED_PERCENT / 100;
+        sketch.ensureCapacity(maximumEntries);
+    }
+
+    long getMaximum() { return maximum; }
+    long getWeightedSize() { return weightedSize; }
+    int size() { return nodes.size(); }
+    long getAdmissionRejections() { return admissionRejections; }
+
+    void recordAccess(String key) {
+        Node node = nodes.get(key);
+        if (node == null) {
+            return; // Removed before the access was applied
+        }
+
+        sketch.increment(key.hashCode());
+        switch (node.segment) {
+            case WINDOW:
+                window.moveToBack(node);
+                break;
+            case PROBATION:
+                promote(node);
+                break;
+            case PROTECTED:
+                protectedSegment.moveToBack(node);
+                break;
+        }
+    }
+
+    void onInsert(String key, long weight) {
+        Node node = nodes.get(key);
+        if (node != null) {
+            onUpdate(node, weight);
+            return;
+        }
+
+        node = new Node(key, weight);
+        node.segment = Segment.WINDOW;
+        nodes.put(key, node);
+        window.addLast(node);
+        windowWeight += weight;
+        windowCount++;
+        weightedSize += weight;
+        sketch.increment(key.hashCode());
+    }
+
+    void onRemove(String key) {
+        Node node = nodes.remove(key);
+        if (node != null) {
+            unlink(node);
+        }
+    }
+
+    /**
+     * Evicts until the policy holds no more than the target weight and
+     * entry count, adding the evicted keys to the list. Candidates leaving
+     * the window duel the probation victim on frequency; the loser is
+     * evicted.
+     */
+    void evict(long targetWeight, int targetEntries, List<String> evicted) {
+        int candidates = 0;
+        while ((windowWeight > windowMaximum || windowCount > windowEntryMaximum) && !window.isEmpty()) {
+            Node node = window.peekFirst();
+            window.remove(node);
+            windowWeight -= node.weight;
+            windowCount--;
+            node.segment = Segment.PROBATION;
+            probation.addLast(node);
+            candidates++;
+        }
+
+        while (weightedSize > targetWeight || nodes.size() > targetEntries) {
+            Node victim = probation.peekFirst();
+            Node candidate = candidates > 0 ? probation.peekLast() : null;
+            Node evict;
+
+            if (victim == null) {
+                evict = protectedSegment.isEmpty() ? window.peekFirst() : protectedSegment.peekFirst();
+                if (evict == null) {
+                    break;
+                }
+            } else if (candidate == null || candidate == victim) {
+                evict = victim;
+                if (candidate != null) {
+                    candidates--;
+                }
+            } else if (admit(candidate, victim)) {
+                evict = victim;
+            } else {
+                evict = candidate;
+                candidates--;
+                admissionRejections++;
+            }
+
+            nodes.remove(evict.key);
+            unlink(evict);
+            evicted.add(evict.key);
+        }
+    }
+
+    void clear() {
+        nodes.clear();
+        window.clear();
+        probation.clear();
+        protectedSegment.clear();
+        weightedSize = 0;
+        windowWeight = 0;
+        windowCount = 0;
+        protectedWeight = 0;
+        protectedCount = 0;
+    }
+
+    private boolean admit(Node candidate, Node victim) {
+        return sketch.frequency(candidate.key.hashCode()) > sketch.frequency(victim.key.hashCode());
+    }
+
+    private void onUpdate(Node node, long weight) {
+        long delta = weight - node.weight;
+        node.weight = weight;
+        weightedSize += delta;
+        if (node.segment == Segment.WINDOW) {
+            windowWeight += delta;
+        } else if (node.segment == Segment.PROTECTED) {
+            protectedWeight += delta;
+        }
+        recordAccess(node.key);
+    }
+
+    private void promote(Node node) {
+        probation.remove(node);
+        node.segment = Segment.PROTECTED;
+        protectedSegment.addLast(node);
+        protectedWeight += node.weight;
+        protectedCount++;
+
+        // Overflow from the protected segment gets another chance in probation
+        while ((protectedWeight > protectedMaximum || protectedCount > protectedEntryMaximum)
+                && !protectedSegment.isEmpty()) {
+            Node demoted = protectedSegment.peekFirst();
+            protectedSegment.remove(demoted);
+            protectedWeight -= demoted.weight;
+            protectedCount--;
+            demoted.segment = Segment.PROBATION;
+            probation.addLast(demoted);
+        }
+    }
+
+    private void unlink(Node node) {
+        switch (node.segment) {
+            case WINDOW:
+                window.remove(node);
+                windowWeight -= node.weight;
+                windowCount--;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protectedSegment.remove(node);
+                protectedWeight -= node.weight;
+                protectedCount--;
+                break;
+        }
+        weightedSize -= node.weight;
+    }
+}
@@ -109,6 +109,10 @@ public class PolyTypeConfig {
         new ConfigProperty<>("polytype.translation.threads", 4, "Translation thread pool size",
                            Integer.class, Integer::parseInt, i -> i > 0 && i <= 32);
     
+    public static final ConfigProperty<Boolean> ENABLE_PIPELINED_MIGRATION = 
+        new ConfigProperty<>("polytype.translation.pipelined", false, "Stream files through staged read/translate/write queues",
+                           Boolean.class, Boolean::parseBoolean, b -> true);
+    
     // ML configuration
     public static final ConfigProperty<Boolean> ENABLE_ML = 
         new ConfigProperty<>("polytype.ml.enabled", true, "Enable ML features",
@@ -135,6 +139,45 @@ public class PolyTypeConfig {
         new ConfigProperty<>("polytype.cache.expire_minutes", 60, "Cache expiration time in minutes",
                            Integer.class, Integer::parseInt, i -> i > 0);
     
+    public static final ConfigProperty<Integer> CACHE_MAX_MEMORY_MB = 
+        new ConfigProperty<>("polytype.cache.max_memory_mb", 256, "Memory budget shared by all cache types, in megabytes",
+                           Integer.class, Integer::parseInt, i -> i > 0);
+    
+    public static final ConfigProperty<Double> CACHE_PRESSURE_THRESHOLD = 
+        new ConfigProperty<>("polytype.cache.pressure_threshold", 0.85, "Heap occupancy after GC above which caches shed entries",
+                           Double.class, Double::parseDouble, d -> d > 0.0 && d <= 1.0);
+    
+    public static final ConfigProperty<Boolean> CACHE_DISK_ENABLED = 
+        new ConfigProperty<>("polytype.cache.disk.enabled", false, "Keep translation and AST results on disk between runs",
+                           Boolean.class, Boolean::parseBoolean, b -> true);
+    
+    public static final ConfigProperty<String> CACHE_DISK_DIR = 
+        new ConfigProperty<>("polytype.cache.disk.dir", System.getProperty("user.home") + File.separator + ".polytype"
+                           + File.separator + "cache", "Directory of the on-disk cache tier",
+                           String.class, s -> s, s -> !s.trim().isEmpty());
+    
+    public static final ConfigProperty<Integer> CACHE_DISK_MAX_SIZE_MB = 
+        new ConfigProperty<>("polytype.cache.disk.max_size_mb", 1024, "Size cap of each on-disk cache tier, in megabytes",
+                           Integer.class, Integer::parseInt, i -> i > 0);
+    
+    // Storage configuration
+    public static final ConfigProperty<String> STORAGE_CODEC = 
+        new ConfigProperty<>("polytype.storage.codec", "lz", "Compression codec for stored entries (lz, gzip or a plugged-in codec)",
+                           String.class, s -> s, s -> !s.trim().isEmpty());
+    
+    public static final ConfigProperty<String> STORAGE_DB_INDEXED_KEYS = 
+        new ConfigProperty<>("polytype.storage.db.indexed_keys", "source_language,target_language,translator_version,quality_score",
+                           "Comma-separated metadata keys the database storage backend indexes for queries",
+                           String.class, s -> s, s -> true);
+    
+    public static final ConfigProperty<Boolean> STORAGE_REPLICATION_ASYNC = 
+        new ConfigProperty<>("polytype.storage.replication.async", true, "Replicate writes to the secondary storage backend in the background",
+                           Boolean.class, Boolean::parseBoolean, b -> true);
+    
+    public static final ConfigProperty<Integer> STORAGE_REPLICATION_QUEUE_SIZE = 
+        new ConfigProperty<>("polytype.storage.replication.queue_size", 10000, "Writes queued for the secondary backend before writers wait",
+                           Integer.class, Integer::parseInt, i -> i > 0);
+    
     // Performance configuration
     public static final ConfigProperty<Boolean> ENABLE_METRICS = 
         new ConfigProperty<>("polytype.metrics.enabled", true, "Enable performance metrics",
@@ -199,12 +242,22 @@ public class PolyTypeConfig {
         registerProperty(TRANSLATION_TIMEOUT);
         registerProperty(ENABLE_PARALLEL_TRANSLATION);
         registerProperty(THREAD_POOL_SIZE);
+        registerProperty(ENABLE_PIPELINED_MIGRATION);
         registerProperty(ENABLE_ML);
         registerProperty(ML_CONFIDENCE_THRESHOLD);
         registerProperty(ML_FEEDBACK_BUFFER_SIZE);
         registerProperty(ENABLE_CACHE);
         registerProperty(CACHE_MAX_SIZE);
         registerProperty(CACHE_EXPIRE_MINUTES);
+        registerProperty(CACHE_MAX_MEMORY_MB);
+        registerProperty(CACHE_PRESSURE_THRESHOLD);
+        registerProperty(CACHE_DISK_ENABLED);
+        registerProperty(CACHE_DISK_DIR);
+        registerProperty(CACHE_DISK_MAX_SIZE_MB);
+        registerProperty(STORAGE_CODEC);
+        registerProperty(STORAGE_DB_INDEXED_KEYS);
+        registerProperty(STORAGE_REPLICATION_ASYNC);
+        registerProperty(STORAGE_REPLICATION_QUEUE_SIZE);
         registerProperty(ENABLE_METRICS);
         registerProperty(METRICS_BUFFER_SIZE);
         registerProperty(ENABLE_SANDBOX);
@@ -0,0 +1,32 @@
+package com.polytype.migrator.core.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A compression format for stored entries. Codecs are looked up by name in
+ * {@link CompressionCodecs}, and the name is written into a header ahead of
+ * each entry's compressed data, so entries stay readable when a category's
+ * codec changes.
+ * Further codecs can be plugged in through {@link java.util.ServiceLoader}.
+ *
+ * <p>Codecs are stateless and shared between threads. A dictionary, where
+ * given, is a block of bytes typical of the data; small entries that resemble
+ * it compress far better than they would alone.
+ */
+public interface CompressionCodec {
+
+    /** Name recorded with each compressed entry; must never change once data is written with it. */
+    String getName();
+
+    /** Whether {@link #compress} makes use of a dictionary. */
+    default boolean supportsDictionary() {
+        return false;
+    }
+
+    /** Compresses the data, against the dictionary when one is given and supported. */
+    byte[] compress(byte[] data, byte[] dictionary) throws IOException;
+
+    /** Wraps a stream of data compressed with the same dictionary, decompressing as it is read. */
+    InputStream decompress(InputStream in, byte[] dictionary) throws IOException;
+}
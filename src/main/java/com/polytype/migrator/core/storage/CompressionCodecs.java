@@ -0,0 +1,78 @@
+package com.polytype.migrator.core.storage;
+
+import com.polytype.migrator.core.logging.PolyTypeLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Registry of the compression codecs storage can read and write: the
+ * built-in {@code gzip} and {@code lz}, plus any found through
+ * {@link ServiceLoader} or registered at runtime.
+ */
+public final class CompressionCodecs {
+    public static final String GZIP = "gzip";
+    public static final String LZ = "lz";
+
+    private static final PolyTypeLogger logger = PolyTypeLogger.getLogger(CompressionCodecs.class);
+    private static final Map<String, CompressionCodec> codecs = new ConcurrentHashMap<>();
+
+    static {
+        register(new GzipCodec());
+        register(new LzCodec());
+        try {
+            for (CompressionCodec codec : ServiceLoader.load(CompressionCodec.class)) {
+                register(codec);
+            }
+        } catch (ServiceConfigurationError e) {
+            logger.warn(PolyTypeLogger.LogCategory.IO, "Failed to load compression codec plugins", e);
+        }
+    }
+
+    private CompressionCodecs() {
+    }
+
+    /** Adds a codec, replacing any registered under the same name. */
+    public static void register(CompressionCodec codec) {
+        codecs.put(codec.getName(), codec);
+    }
+
+    /** Returns the named codec, or null if none is registered. */
+    public static CompressionCodec get(String name) {
+        return codecs.get(name);
+    }
+
+    public static Set<String> getNames() {
+        return codecs.keySet();
+    }
+
+    /** The format storage used before codecs were pluggable; entries without a codec name are gzip. */
+    static final class GzipCodec implements CompressionCodec {
+        @Override
+        public String getName() {
+            return GZIP;
+        }
+
+        @Override
+        public byte[] compress(byte[] data, byte[] dictionary) throws IOException {
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+            try (GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
+                gzos.write(data);
+            }
+            return baos.toByteArray();
+        }
+
+        @Override
+        public InputStream decompress(InputStream in, byte[] dictionary) throws IOException {
+            return new GZIPInputStream(in, 64 * 1024);
+        }
+    }
+}
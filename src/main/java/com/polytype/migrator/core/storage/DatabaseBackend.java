@@ -0,0 +1,526 @@
+package com.polytype.migrator.core.storage;
+
+import com.polytype.migrator.core.logging.PolyTypeLogger;
+import com.polytype.migrator.core.storage.PolyTypeStorage.BatchCursor;
+import com.polytype.migrator.core.storage.PolyTypeStorage.DataCategory;
+import com.polytype.migrator.core.storage.PolyTypeStorage.EntryInfo;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageCursor;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageEntry;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageStats;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Embedded, file-backed store with secondary indexes. Entries live in a
+ * {@link SegmentLogBackend}; on top of it, in-memory indexes map each
+ * category and each value of the configured metadata keys (language pair,
+ * translator version, quality score and the like) to the keys of the
+ * entries, so a {@link Query} finds entries without reading any of them.
+ *
+ * <p>Metadata values that parse as numbers are indexed and compared as
+ * numbers, all others as strings; numbers sort before strings. Indexes are
+ * rebuilt from the record headers when the store is opened.
+ *
+ * <p>A {@link Transaction} writes its entries and deletions as one batch
+ * record, so after a crash either all of it is there or none of it. Other
+ * threads see a transaction's changes only once it commits, all at once.
+ */
+public class DatabaseBackend implements PolyTypeStorage.StorageBackend {
+    private static final long TEMPORARY_TTL_MILLIS = 24 * 60 * 60 * 1000;
+
+    /** Entries whose info matches every condition; an empty query matches all entries. */
+    public static final class Query {
+        private DataCategory category;
+        private final List<Condition> conditions = new ArrayList<>();
+
+        public Query inCategory(DataCategory category) {
+            this.category = category;
+            return this;
+        }
+
+        public Query equalTo(String metadataKey, String value) {
+            IndexValue bound = IndexValue.of(value);
+            conditions.add(new Condition(metadataKey, bound, bound));
+            return this;
+        }
+
+        /**
+         * Values between the bounds, both inclusive; a null bound leaves that
+         * end open. An open end stays within the kind of the other bound, so
+         * {@code atLeast("quality_score", "0.8")} matches no string values.
+         * Both bounds must be numbers or both strings.
+         */
+        public Query range(String metadataKey, String from, String to) {
+            if (from == null && to == null) {
+                throw new IllegalArgumentException("Range on " + metadataKey + " needs at least one bound");
+            }
+            IndexValue low = from != null ? IndexValue.of(from) : null;
+            IndexValue high = to != null ? IndexValue.of(to) : null;
+            if (low != null && high != null && low.isNumber() != high.isNumber()) {
+                throw new IllegalArgumentException("Range on " + metadataKey + " mixes a "
+                    + (low.isNumber() ? "number" : "string") + " lower bound '" + from + "' with a "
+                    + (high.isNumber() ? "number" : "string") + " upper bound '" + to + "'");
+            }
+            if (low == null) {
+                low = high.isNumber() ? IndexValue.NUMBER_MIN : IndexValue.STRING_MIN;
+            }
+            if (high == null && low.isNumber()) {
+                high = IndexValue.NUMBER_MAX;
+            }
+            conditions.add(new Condition(metadataKey, low, high));
+            return this;
+        }
+
+        public Query atLeast(String metadataKey, String from) {
+            return range(metadataKey, from, null);
+        }
+
+        public Query atMost(String metadataKey, String to) {
+            return range(metadataKey, null, to);
+        }
+    }
+
+    /** A bound on one indexed metadata key. */
+    private static final class Condition {
+        final String key;
+        final IndexValue low;
+        final IndexValue high; // Null for no upper bound
+
+        Condition(String key, IndexValue low, IndexValue high) {
+            this.key = key;
+            this.low = low;
+            this.high = high;
+        }
+
+        NavigableMap<IndexValue, Set<String>> select(NavigableMap<IndexValue, Set<String>> index) {
+            return high != null ? index.subMap(low, true, high, true) : index.tailMap(low, true);
+        }
+
+        boolean matches(IndexValue value) {
+            return value != null && value.compareTo(low) >= 0 && (high == null || value.compareTo(high) <= 0);
+        }
+    }
+
+    /** An indexed metadata value: a number if it parses as one, a string otherwise. */
+    private static final class IndexValue implements Comparable<IndexValue> {
+        static final IndexValue NUMBER_MIN = new IndexValue(Double.NEGATIVE_INFINITY, null);
+        static final IndexValue NUMBER_MAX = new IndexValue(Double.POSITIVE_INFINITY, null);
+        static final IndexValue STRING_MIN = new IndexValue(0, "");
+
+        final double number;
+        final String text; // Null for numbers
+
+        private IndexValue(double number, String text) {
+            this.number = number;
+            this.text = text;
+        }
+
+        static IndexValue of(String value) {
+            try {
+                double number = Double.parseDouble(value);
+                if (!Double.isNaN(number)) {
+                    return new IndexValue(number + 0.0, null); // Folds -0.0 into 0.0
+                }
+            } catch (NumberFormatException e) {
+                // Not a number
+            }
+            return new IndexValue(0, value);
+        }
+
+        boolean isNumber() {
+            return text == null;
+        }
+
+        @Override
+        public int compareTo(IndexValue other) {
+            if (isNumber() != other.isNumber()) {
+                return isNumber() ? -1 : 1;
+            }
+            return isNumber() ? Double.compare(number, other.number) : text.compareTo(other.text);
+        }
+    }
+
+    /** What the indexes hold for one entry, so it can be taken out again. */
+    private static final class Row {
+        final DataCategory category;
+        final Map<String, IndexValue> values;
+
+        Row(DataCategory category, Map<String, IndexValue> values) {
+            this.category = category;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Entries to store and keys to delete, applied together on {@link #commit}.
+     * Closing a transaction that was not committed rolls it back. Not meant
+     * to be shared between threads.
+     */
+    public final class Transaction implements Closeable {
+        private final Map<String, StorageEntry> entries = new LinkedHashMap<>();
+        private final Set<String> deletions = new LinkedHashSet<>();
+        private boolean finished;
+
+        private Transaction() {
+        }
+
+        public void store(StorageEntry entry) {
+            checkOpen();
+            deletions.remove(entry.getKey());
+            entries.put(entry.getKey(), entry);
+        }
+
+        public void delete(String key) {
+            checkOpen();
+            entries.remove(key);
+            deletions.add(key);
+        }
+
+        public void commit() throws IOException {
+            checkOpen();
+            finished = true;
+
+            lock.writeLock().lock();
+            try {
+                log.storeAll(entries.values(), deletions);
+                for (StorageEntry entry : entries.values()) {
+                    index(entry);
+                }
+                for (String key : deletions) {
+                    unindex(key);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            logger.debug(PolyTypeLogger.LogCategory.IO,
+                       "Committed transaction: " + entries.size() + " entries, " + deletions.size() + " deletions");
+        }
+
+        public void rollback() {
+            finished = true;
+            entries.clear();
+            deletions.clear();
+        }
+
+        @Override
+        public void close() {
+            if (!finished) {
+                rollback();
+            }
+        }
+
+        private void checkOpen() {
+            if (finished) {
+                throw new IllegalStateException("Transaction already committed or rolled back");
+            }
+        }
+    }
+
+    private final SegmentLogBackend log;
+    private final Set<String> indexedKeys;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final PolyTypeLogger logger = PolyTypeLogger.getLogger(DatabaseBackend.class);
+
+    private final Map<DataCategory, Set<String>> categoryIndex = new EnumMap<>(DataCategory.class);
+    private final Map<String, NavigableMap<IndexValue, Set<String>>> metadataIndexes = new HashMap<>();
+    private final Map<String, Row> rows = new HashMap<>();
+
+    public DatabaseBackend(String basePath, Collection<String> indexedKeys) {
+        this.log = new SegmentLogBackend(basePath);
+        this.indexedKeys = Collections.unmodifiableSet(new LinkedHashSet<>(indexedKeys));
+        for (String key : this.indexedKeys) {
+            metadataIndexes.put(key, new TreeMap<>());
+        }
+    }
+
+    @Override
+    public void initialize() throws IOException {
+        log.initialize();
+
+        lock.writeLock().lock();
+        try {
+            for (DataCategory category : DataCategory.values()) {
+                try (StorageCursor cursor = log.openCursor(category, null)) {
+                    while (cursor.next()) {
+                        EntryInfo info = cursor.info();
+                        index(info.getKey(), info.getCategory(), info.getMetadata());
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        logger.info(PolyTypeLogger.LogCategory.IO,
+                   "Initialized database storage: " + rows.size() + " entries, indexed on " + indexedKeys);
+    }
+
+    public Set<String> getIndexedKeys() {
+        return indexedKeys;
+    }
+
+    @Override
+    public void store(StorageEntry entry) throws IOException {
+        lock.writeLock().lock();
+        try {
+            log.store(entry);
+            index(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Stores and deletes in one transaction. */
+    public void storeAll(Collection<StorageEntry> entries, Collection<String> deletions) throws IOException {
+        try (Transaction transaction = beginTransaction()) {
+            for (StorageEntry entry : entries) {
+                transaction.store(entry);
+            }
+            for (String key : deletions) {
+                transaction.delete(key);
+            }
+            transaction.commit();
+        }
+    }
+
+    public Transaction beginTransaction() {
+        return new Transaction();
+    }
+
+    @Override
+    public StorageEntry retrieve(String key) throws IOException {
+        return log.retrieve(key);
+    }
+
+    @Override
+    public StorageEntry retrieveView(String key) throws IOException {
+        return log.retrieveView(key);
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        return log.exists(key);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        lock.writeLock().lock();
+        try {
+            log.delete(key);
+            unindex(key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<String> listKeys(DataCategory category) throws IOException {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(categoryIndex.getOrDefault(category, Collections.emptySet()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<StorageEntry> listEntries(DataCategory category) throws IOException {
+        return log.listEntries(category);
+    }
+
+    @Override
+    public StorageCursor openCursor(DataCategory category, Predicate<EntryInfo> filter) throws IOException {
+        return log.openCursor(category, filter);
+    }
+
+    /**
+     * Returns the keys of the entries matching the query. Conditions may
+     * only name indexed metadata keys. The most selective condition picks
+     * the candidates and the others are checked against the indexes, so no
+     * entry is read.
+     */
+    public List<String> query(Query query) {
+        for (Condition condition : query.conditions) {
+            if (!indexedKeys.contains(condition.key)) {
+                throw new IllegalArgumentException("Metadata key is not indexed: " + condition.key);
+            }
+        }
+
+        lock.readLock().lock();
+        try {
+            // Start from the smallest candidate set
+            Collection<Set<String>> candidates = null;
+            long candidateCount = Long.MAX_VALUE;
+            Condition chosen = null;
+            if (query.category != null) {
+                candidates = Collections.singletonList(categoryIndex.getOrDefault(query.category, Collections.emptySet()));
+                candidateCount = candidates.iterator().next().size();
+            }
+            for (Condition condition : query.conditions) {
+                Collection<Set<String>> selected = condition.select(metadataIndexes.get(condition.key)).values();
+                long count = 0;
+                for (Set<String> keys : selected) {
+                    count += keys.size();
+                }
+                if (count < candidateCount) {
+                    candidates = selected;
+                    candidateCount = count;
+                    chosen = condition;
+                }
+            }
+            if (candidates == null) {
+                return new ArrayList<>(rows.keySet());
+            }
+
+            List<String> result = new ArrayList<>();
+            for (Set<String> keys : candidates) {
+                for (String key : keys) {
+                    if (matches(rows.get(key), query, chosen)) {
+                        result.add(key);
+                    }
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Opens a cursor over the entries matching the query; see {@link #query}. */
+    public StorageCursor openCursor(Query query, Predicate<EntryInfo> filter) {
+        Iterator<String> keys = query(query).iterator();
+        return new BatchCursor(this, filter) {
+            @Override
+            protected List<EntryInfo> nextBatch() throws IOException {
+                if (!keys.hasNext()) {
+                    return null;
+                }
+                List<EntryInfo> infos = new ArrayList<>(BATCH_SIZE);
+                while (keys.hasNext() && infos.size() < BATCH_SIZE) {
+                    EntryInfo info = log.info(keys.next());
+                    if (info != null) {
+                        infos.add(info);
+                    }
+                }
+                return infos;
+            }
+        };
+    }
+
+    /** Drops temporary entries older than a day, through the indexes. */
+    @Override
+    public void cleanup() throws IOException {
+        long cutoffTime = System.currentTimeMillis() - TEMPORARY_TTL_MILLIS;
+        List<String> expired = new ArrayList<>();
+        try (StorageCursor cursor = log.openCursor(DataCategory.TEMPORARY, null)) {
+            while (cursor.next()) {
+                EntryInfo info = cursor.info();
+                if (info.getModified().toInstant(ZoneOffset.UTC).toEpochMilli() < cutoffTime) {
+                    expired.add(info.getKey());
+                }
+            }
+        }
+
+        for (String key : expired) {
+            delete(key);
+        }
+        if (!expired.isEmpty()) {
+            logger.debug(PolyTypeLogger.LogCategory.IO, "Cleaned up " + expired.size() + " temporary entries");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            log.close();
+            categoryIndex.clear();
+            for (NavigableMap<IndexValue, Set<String>> index : metadataIndexes.values()) {
+                index.clear();
+            }
+            rows.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info(PolyTypeLogger.LogCategory.IO, "Database storage closed");
+    }
+
+    @Override
+    public StorageStats getStats() {
+        return log.getStats();
+    }
+
+    /** Compacts the underlying segment log; see {@link SegmentLogBackend#compact}. */
+    public void compact() throws IOException {
+        log.compact();
+    }
+
+    private static boolean matches(Row row, Query query, Condition chosen) {
+        if (row == null || (query.category != null && row.category != query.category)) {
+            return false;
+        }
+        for (Condition condition : query.conditions) {
+            if (condition != chosen && !condition.matches(row.values.get(condition.key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Callers hold the write lock
+    private void index(StorageEntry entry) {
+        index(entry.getKey(), entry.getCategory(), entry.getMetadata());
+    }
+
+    private void index(String key, DataCategory category, Map<String, String> metadata) {
+        unindex(key);
+
+        Map<String, IndexValue> values = new HashMap<>();
+        for (String indexedKey : indexedKeys) {
+            String value = metadata.get(indexedKey);
+            if (value != null) {
+                IndexValue indexValue = IndexValue.of(value);
+                values.put(indexedKey, indexValue);
+                metadataIndexes.get(indexedKey).computeIfAbsent(indexValue, v -> new HashSet<>()).add(key);
+            }
+        }
+        categoryIndex.computeIfAbsent(category, c -> new HashSet<>()).add(key);
+        rows.put(key, new Row(category, values));
+    }
+
+    private void unindex(String key) {
+        Row row = rows.remove(key);
+        if (row == null) {
+            return;
+        }
+        categoryIndex.get(row.category).remove(key);
+        for (Map.Entry<String, IndexValue> value : row.values.entrySet()) {
+            NavigableMap<IndexValue, Set<String>> index = metadataIndexes.get(value.getKey());
+            Set<String> keys = index.get(value.getValue());
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                index.remove(value.getValue());
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.polytype.migrator.core.storage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Builds a compression dictionary from sample entries. Samples are cut into
+ * short segments, and each segment is scored by how many samples share the
+ * eight-byte sequences it contains. The best segments are picked greedily,
+ * a sequence counting only for the first segment that covers it, until the
+ * dictionary is full. The best segment goes last, where an LZ codec reaches
+ * it with the shortest offsets.
+ */
+public final class DictionaryTrainer {
+    private static final int SEGMENT_SIZE = 64;
+    private static final int SEQUENCE_SIZE = 8;
+    private static final long MAX_SAMPLE_BYTES = 32L * 1024 * 1024;
+
+    private static final class Segment {
+        final byte[] sample;
+        final int start;
+        final int length;
+        long score;
+
+        Segment(byte[] sample, int start, int length) {
+            this.sample = sample;
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    private DictionaryTrainer() {
+    }
+
+    /**
+     * Trains a dictionary of at most the given size. Returns an empty array
+     * when the samples share nothing worth keeping.
+     */
+    public static byte[] train(List<byte[]> samples, int dictionarySize) {
+        List<byte[]> used = new ArrayList<>();
+        long total = 0;
+        for (byte[] sample : samples) {
+            if (sample.length >= SEQUENCE_SIZE && total + sample.length <= MAX_SAMPLE_BYTES) {
+                used.add(sample);
+                total += sample.length;
+            }
+        }
+
+        // In how many samples each sequence occurs
+        Map<Long, Integer> frequency = new HashMap<>();
+        for (byte[] sample : used) {
+            for (long sequence : sequences(sample, 0, sample.length)) {
+                frequency.merge(sequence, 1, Integer::sum);
+            }
+        }
+
+        PriorityQueue<Segment> queue = new PriorityQueue<>(Comparator.comparingLong((Segment s) -> s.score).reversed());
+        for (byte[] sample : used) {
+            for (int start = 0; start + SEQUENCE_SIZE <= sample.length; start += SEGMENT_SIZE) {
+                Segment segment = new Segment(sample, start, Math.min(SEGMENT_SIZE, sample.length - start));
+                segment.score = score(segment, frequency);
+                if (segment.score > 0) {
+                    queue.add(segment);
+                }
+            }
+        }
+
+        List<Segment> picked = new ArrayList<>();
+        int size = 0;
+        while (!queue.isEmpty() && size < dictionarySize) {
+            Segment best = queue.poll();
+            long current = score(best, frequency); // Lower if earlier picks covered some of it
+            if (current <= 0) {
+                continue;
+            }
+            if (!queue.isEmpty() && current < queue.peek().score) {
+                best.score = current;
+                queue.add(best);
+                continue;
+            }
+            picked.add(best);
+            size += best.length;
+            for (long sequence : sequences(best.sample, best.start, best.start + best.length)) {
+                frequency.put(sequence, 0);
+            }
+        }
+
+        // Best segments last, trimming the first ones if the last pick overflowed
+        byte[] dictionary = new byte[Math.min(size, dictionarySize)];
+        int end = dictionary.length;
+        for (Segment segment : picked) {
+            int length = Math.min(segment.length, end);
+            System.arraycopy(segment.sample, segment.start + segment.length - length, dictionary, end - length, length);
+            end -= length;
+        }
+        return dictionary;
+    }
+
+    private static long score(Segment segment, Map<Long, Integer> frequency) {
+        long score = 0;
+        for (long sequence : sequences(segment.sample, segment.start, segment.start + segment.length)) {
+            int count = frequency.getOrDefault(sequence, 0);
+            if (count > 1) {
+                score += count; // Sequences of a single sample do not help the others
+            }
+        }
+        return score;
+    }
+
+    private static Set<Long> sequences(byte[] data, int from, int to) {
+        Set<Long> sequences = new HashSet<>();
+        long sequence = 0;
+        for (int i = from; i < to; i++) {
+            sequence = (sequence << 8) | (data[i] & 0xFF);
+            if (i - from >= SEQUENCE_SIZE - 1) {
+                sequences.add(sequence);
+            }
+        }
+        return sequences;
+    }
+}
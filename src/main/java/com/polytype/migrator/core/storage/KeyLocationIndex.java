@@ -0,0 +1,423 @@
+package com.polytype.migrator.core.storage;
+
+import com.polytype.migrator.core.storage.PolyTypeStorage.DataCategory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Persistent map from storage key to the category directory holding it, so
+ * {@link PolyTypeStorage.FileSystemBackend} finds an entry with one hash
+ * probe instead of checking every category, and answers a miss without
+ * touching the file system.
+ *
+ * <p>The index is a checksummed snapshot plus a journal of changes made
+ * since. Each change is appended to the journal and forced to disk before
+ * the entry files are written or after they are deleted, so after a crash
+ * of the process or the machine the index may name an entry whose files are
+ * gone, which the backend drops when it finds them missing, but never
+ * misses one that exists. Once the journal outgrows the index it is folded
+ * into a new snapshot.
+ *
+ * <p>Thread-safe. Changes reach the map and the journal in the same order,
+ * so replaying the journal ends in the state the map was in. Only that
+ * append happens under the index lock. Concurrent changes share one force
+ * of the journal. Reads take no lock at all.
+ *
+ * <p>A checkpoint only renames the journal aside under the lock. The
+ * snapshot is then written from the live map, outside the lock, while new
+ * changes go to a fresh journal. Loading replays the set-aside journal and
+ * then the fresh one. Replaying a record the snapshot already holds is
+ * harmless, so a snapshot that caught some of the newer changes is too.
+ */
+final class KeyLocationIndex {
+    private static final int SNAPSHOT_MAGIC = 0x50544B49; // "PTKI"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int MIN_JOURNAL_RECORDS = 1024;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+
+    /** Where an entry lives and how large its data is. */
+    static final class Location {
+        final DataCategory category;
+        final long size;
+
+        Location(DataCategory category, long size) {
+            this.category = category;
+            this.size = size;
+        }
+    }
+
+    private final Path snapshotPath;
+    private final Path journalPath;
+    private final Path foldingPath; // The journal being folded into a snapshot
+    private final Map<String, Location> locations = new ConcurrentHashMap<>();
+    private final Object forceLock = new Object();
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private FileChannel journal;
+    private int journalRecords;
+    private long appendedRecords;
+    private volatile long forcedRecords;
+    private volatile boolean checkpointDue;
+
+    KeyLocationIndex(Path directory) {
+        this.snapshotPath = directory.resolve("keys.idx");
+        this.journalPath = directory.resolve("keys.journal");
+        this.foldingPath = directory.resolve("keys.journal.folding");
+    }
+
+    /**
+     * Loads the snapshot and replays the journal. Returns false, leaving the
+     * index empty, when there is no usable snapshot and the caller has to
+     * rebuild it.
+     */
+    synchronized boolean load() throws IOException {
+        locations.clear();
+        boolean loaded = loadSnapshot();
+        if (loaded) {
+            replayJournal(foldingPath);
+            replayJournal(journalPath);
+        } else {
+            locations.clear();
+        }
+        return loaded;
+    }
+
+    /** Replaces the contents with a rebuilt set of locations and saves them. */
+    void reset(Map<String, Location> rebuilt) throws IOException {
+        checkpointLock.lock();
+        try {
+            synchronized (this) {
+                locations.clear();
+                locations.putAll(rebuilt);
+            }
+            fold();
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    Location get(String key) {
+        return locations.get(key);
+    }
+
+    int size() {
+        return locations.size();
+    }
+
+    List<Location> locations() {
+        return new ArrayList<>(locations.values());
+    }
+
+    List<String> keys(DataCategory category) {
+        List<String> keys = new ArrayList<>();
+        for (Map.Entry<String, Location> entry : locations.entrySet()) {
+            if (entry.getValue().category == category) {
+                keys.add(entry.getKey());
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Records the new location of a key and returns the one it replaces. The
+     * change is on disk when this returns.
+     */
+    Location put(String key, DataCategory category, long size) throws IOException {
+        Location previous;
+        long record;
+        synchronized (this) {
+            previous = locations.put(key, new Location(category, size));
+            record = appendJournal(OP_PUT, key, category, size);
+        }
+        afterAppend(record);
+        return previous;
+    }
+
+    Location remove(String key) throws IOException {
+        Location removed;
+        long record;
+        synchronized (this) {
+            removed = locations.remove(key);
+            if (removed == null) {
+                return null;
+            }
+            record = appendJournal(OP_REMOVE, key, null, 0);
+        }
+        afterAppend(record);
+        return removed;
+    }
+
+    /** Writes a fresh snapshot and empties the journal. */
+    void checkpoint() throws IOException {
+        checkpointLock.lock();
+        try {
+            fold();
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    void close() throws IOException {
+        checkpointLock.lock();
+        try {
+            fold();
+            synchronized (forceLock) {
+                synchronized (this) {
+                    if (journal != null) {
+                        journal.close();
+                        journal = null;
+                    }
+                }
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private void afterAppend(long record) throws IOException {
+        forceJournal(record);
+        // One writer folds the journal while the others carry on; none waits for it
+        if (checkpointDue && checkpointLock.tryLock()) {
+            try {
+                if (checkpointDue) {
+                    fold();
+                }
+            } finally {
+                checkpointLock.unlock();
+            }
+        }
+    }
+
+    /** Forces the journal up to the given record, along with any appended alongside it. */
+    private void forceJournal(long record) throws IOException {
+        if (forcedRecords >= record) {
+            return;
+        }
+        synchronized (forceLock) {
+            if (forcedRecords >= record) {
+                return; // Another writer's force covered it
+            }
+            FileChannel channel;
+            long appended;
+            synchronized (this) {
+                channel = journal;
+                appended = appendedRecords;
+            }
+            if (channel != null) { // Null once closed, and closing forced it
+                channel.force(false); // Durable before the entry files it describes are touched
+            }
+            forcedRecords = appended;
+        }
+    }
+
+    /** Sets the journal aside, snapshots the map and drops the set-aside journal. Needs the checkpoint lock. */
+    private void fold() throws IOException {
+        boolean rotated = rotateJournal();
+        writeSnapshot();
+        Files.deleteIfExists(foldingPath);
+        if (!rotated) {
+            checkpointDue = true; // The current journal still holds folded records; set it aside next time
+        }
+    }
+
+    /**
+     * Moves the journal aside and starts an empty one. Leaves it in place
+     * when an earlier checkpoint failed to finish, since the snapshot about
+     * to be written covers both journals anyway.
+     */
+    private boolean rotateJournal() throws IOException {
+        synchronized (forceLock) {
+            synchronized (this) {
+                if (Files.exists(foldingPath)) {
+                    return false;
+                }
+                if (journal != null) {
+                    journal.force(false);
+                    journal.close();
+                    journal = null;
+                }
+                forcedRecords = appendedRecords;
+                if (Files.exists(journalPath)) {
+                    move(journalPath, foldingPath);
+                }
+                openJournal();
+                journalRecords = 0;
+                checkpointDue = false;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Writes the map as it stands while changes continue. Any change the
+     * snapshot catches is also in the current journal, which is replayed
+     * after it.
+     */
+    private void writeSnapshot() throws IOException {
+        ByteArrayOutputStream entries = new ByteArrayOutputStream(16 + locations.size() * 48);
+        int count = 0;
+        try (DataOutputStream out = new DataOutputStream(entries)) {
+            for (Map.Entry<String, Location> entry : locations.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeByte(entry.getValue().category.ordinal());
+                out.writeLong(entry.getValue().size);
+                count++;
+            }
+        }
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(12 + entries.size());
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(count);
+            entries.writeTo(out);
+        }
+
+        byte[] bytes = buffer.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+
+        Path tempPath = snapshotPath.resolveSibling(snapshotPath.getFileName() + ".tmp");
+        ByteBuffer snapshot = ByteBuffer.allocate(bytes.length + 4);
+        snapshot.put(bytes).putInt((int) crc.getValue()).flip();
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (snapshot.hasRemaining()) {
+                channel.write(snapshot);
+            }
+            channel.force(false); // On disk before it replaces the old snapshot and the journal is dropped
+        }
+        move(tempPath, snapshotPath);
+    }
+
+    private static void move(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private boolean loadSnapshot() {
+        if (!Files.exists(snapshotPath)) {
+            return false;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(snapshotPath);
+            if (bytes.length < 4) {
+                return false;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(bytes, 0, bytes.length - 4);
+            if ((int) crc.getValue() != ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt()) {
+                return false;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                return false;
+            }
+            DataCategory[] categories = DataCategory.values();
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                locations.put(key, new Location(categories[in.readByte()], in.readLong()));
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+    }
+
+    // Journal records: body length, body, CRC32C of the body; replay stops at the first torn one
+    private void replayJournal(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        DataCategory[] categories = DataCategory.values();
+        int valid = 0;
+
+        while (buffer.remaining() >= 8) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() - 4) {
+                break;
+            }
+            int bodyOffset = buffer.position();
+            CRC32C crc = new CRC32C();
+            crc.update(bytes, bodyOffset, length);
+            if ((int) crc.getValue() != buffer.getInt(bodyOffset + length)) {
+                break;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, bodyOffset, length));
+            byte op = in.readByte();
+            String key = in.readUTF();
+            if (op == OP_PUT) {
+                locations.put(key, new Location(categories[in.readByte()], in.readLong()));
+            } else {
+                locations.remove(key);
+            }
+            journalRecords++;
+            buffer.position(bodyOffset + length + 4);
+            valid = buffer.position();
+        }
+
+        if (valid < bytes.length && path.equals(journalPath)) {
+            openJournal().truncate(valid); // Drop the torn tail so new records follow valid ones
+        }
+    }
+
+    /** Appends a record without forcing it and returns its number. Needs the index lock. */
+    private long appendJournal(byte op, String key, DataCategory category, long size) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(key.length() + 16);
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            out.writeByte(op);
+            out.writeUTF(key);
+            if (op == OP_PUT) {
+                out.writeByte(category.ordinal());
+                out.writeLong(size);
+            }
+        }
+        byte[] bytes = body.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+
+        ByteBuffer record = ByteBuffer.allocate(bytes.length + 8);
+        record.putInt(bytes.length).put(bytes).putInt((int) crc.getValue()).flip();
+        FileChannel channel = openJournal();
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+
+        if (++journalRecords > Math.max(MIN_JOURNAL_RECORDS, locations.size())) {
+            checkpointDue = true;
+        }
+        return ++appendedRecords;
+    }
+
+    private FileChannel openJournal() throws IOException {
+        if (journal == null) {
+            journal = FileChannel.open(journalPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            journal.position(journal.size());
+        }
+        return journal;
+    }
+}
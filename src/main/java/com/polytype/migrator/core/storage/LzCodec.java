@@ -0,0 +1,341 @@
+package com.polytype.migrator.core.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Fast LZ77 codec in the style of LZ4: greedy matching through a hash table
+ * of four-byte sequences, no entropy coding. Source code shrinks to about
+ * a third of its size rather than gzip's fifth, but compression runs around
+ * five times and decompression three times as fast.
+ *
+ * <p>Data is cut into independent 64 KB blocks, each preceded by its raw and
+ * compressed length; blocks that do not shrink are stored as they are. A
+ * dictionary acts as a window in front of every block, so matches may
+ * reach back into it.
+ */
+public final class LzCodec implements CompressionCodec {
+    static final int BLOCK_SIZE = 64 * 1024;
+    static final int MAX_DICTIONARY = 64 * 1024;
+
+    private static final int MIN_MATCH = 4;
+    private static final int MAX_OFFSET = 65535;
+    private static final int LAST_LITERALS = 5;   // Every block ends in literals
+    private static final int MATCH_FIND_LIMIT = 12; // No match starts this close to the end
+    private static final int HASH_LOG = 14;
+    private static final int SKIP_TRIGGER = 6;    // Step faster after 2^6 bytes without a match
+
+    private static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final byte[] NO_DICTIONARY = new byte[0];
+
+    @Override
+    public String getName() {
+        return CompressionCodecs.LZ;
+    }
+
+    @Override
+    public boolean supportsDictionary() {
+        return true;
+    }
+
+    @Override
+    public byte[] compress(byte[] data, byte[] dictionary) throws IOException {
+        byte[] dict = usableDictionary(dictionary);
+        int dictLength = dict.length;
+        byte[] window = new byte[dictLength + Math.min(BLOCK_SIZE, data.length)];
+        System.arraycopy(dict, 0, window, 0, dictLength);
+
+        // The dictionary's hash table is the same for every block
+        int[] primed = new int[1 << HASH_LOG];
+        Arrays.fill(primed, -1);
+        for (int i = 0; i + MIN_MATCH <= dictLength; i++) {
+            primed[hash(readInt(window, i))] = i;
+        }
+        int[] table = new int[primed.length];
+        byte[] block = new byte[maxCompressedLength(Math.min(BLOCK_SIZE, data.length))];
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(data.length / 2 + 16);
+        DataOutputStream out = new DataOutputStream(baos);
+        for (int offset = 0; offset < data.length; offset += BLOCK_SIZE) {
+            int length = Math.min(BLOCK_SIZE, data.length - offset);
+            System.arraycopy(data, offset, window, dictLength, length);
+            System.arraycopy(primed, 0, table, 0, table.length);
+
+            int compressed = compressBlock(window, dictLength, dictLength + length, table, block);
+            out.writeInt(length);
+            if (compressed < length) {
+                out.writeInt(compressed);
+                out.write(block, 0, compressed);
+            } else {
+                out.writeInt(length); // Stored
+                out.write(data, offset, length);
+            }
+        }
+        out.writeInt(0);
+        out.flush();
+        return baos.toByteArray();
+    }
+
+    @Override
+    public InputStream decompress(InputStream in, byte[] dictionary) throws IOException {
+        return new LzInputStream(in, usableDictionary(dictionary));
+    }
+
+    /** Only the last 64 KB of a dictionary are within reach of a match. */
+    private static byte[] usableDictionary(byte[] dictionary) {
+        if (dictionary == null) {
+            return NO_DICTIONARY;
+        }
+        return dictionary.length <= MAX_DICTIONARY
+            ? dictionary
+            : Arrays.copyOfRange(dictionary, dictionary.length - MAX_DICTIONARY, dictionary.length);
+    }
+
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /** Compresses src[start, end), with src[0, start) as the dictionary. Returns the compressed length. */
+    static int compressBlock(byte[] src, int start, int end, int[] table, byte[] dst) {
+        int ip = start;
+        int anchor = start;
+        int op = 0;
+        int matchLimit = end - LAST_LITERALS;
+        int findLimit = end - MATCH_FIND_LIMIT;
+
+        while (ip < findLimit) {
+            int sequence = readInt(src, ip);
+            int h = hash(sequence);
+            int ref = table[h];
+            table[h] = ip;
+
+            if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != sequence) {
+                ip += 1 + ((ip - anchor) >>> SKIP_TRIGGER);
+                continue;
+            }
+
+            // Extend the match backwards over pending literals
+            while (ip > anchor && ref > 0 && src[ip - 1] == src[ref - 1]) {
+                ip--;
+                ref--;
+            }
+            int matchLength = MIN_MATCH + commonLength(src, ip + MIN_MATCH, ref + MIN_MATCH, matchLimit);
+
+            op = writeSequence(dst, op, src, anchor, ip - anchor, ip - ref, matchLength);
+            ip += matchLength;
+            anchor = ip;
+            if (ip < findLimit) {
+                table[hash(readInt(src, ip - 2))] = ip - 2;
+            }
+        }
+
+        // Last literals
+        int literals = end - anchor;
+        int token = op++;
+        dst[token] = 0;
+        op = writeLength(dst, token, op, literals, 4);
+        System.arraycopy(src, anchor, dst, op, literals);
+        return op + literals;
+    }
+
+    private static int commonLength(byte[] src, int a, int b, int limit) {
+        int length = 0;
+        while (a + length + Long.BYTES <= limit) {
+            long diff = readLong(src, a + length) ^ readLong(src, b + length);
+            if (diff != 0) {
+                return length + (Long.numberOfTrailingZeros(diff) >>> 3);
+            }
+            length += Long.BYTES;
+        }
+        while (a + length < limit && src[a + length] == src[b + length]) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int writeSequence(byte[] dst, int op, byte[] src, int literalStart, int literals,
+                                     int offset, int matchLength) {
+        int token = op++;
+        dst[token] = 0;
+        op = writeLength(dst, token, op, literals, 4);
+        System.arraycopy(src, literalStart, dst, op, literals);
+        op += literals;
+        dst[op++] = (byte) offset;
+        dst[op++] = (byte) (offset >>> 8);
+        return writeLength(dst, token, op, matchLength - MIN_MATCH, 0);
+    }
+
+    /** Puts a length into the token nibble at the shift, spilling the excess into 255-continued bytes. */
+    private static int writeLength(byte[] dst, int token, int op, int length, int shift) {
+        if (length < 15) {
+            dst[token] |= (byte) (length << shift);
+            return op;
+        }
+        dst[token] |= (byte) (15 << shift);
+        length -= 15;
+        while (length >= 255) {
+            dst[op++] = (byte) 255;
+            length -= 255;
+        }
+        dst[op++] = (byte) length;
+        return op;
+    }
+
+    /** Decodes a block into window[start, end), with window[0, start) as the dictionary. */
+    static void decompressBlock(byte[] src, int srcLength, byte[] window, int start, int end) throws IOException {
+        try {
+            int ip = 0;
+            int op = start;
+            while (true) {
+                int token = src[ip++] & 0xFF;
+
+                int literals = token >>> 4;
+                if (literals == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        literals += b;
+                    } while (b == 255);
+                }
+                if (op + literals > end || ip + literals > srcLength) {
+                    throw new IOException("Corrupt lz block: literals overrun");
+                }
+                System.arraycopy(src, ip, window, op, literals);
+                ip += literals;
+                op += literals;
+                if (ip >= srcLength) {
+                    break; // The last sequence has no match
+                }
+
+                int offset = (src[ip++] & 0xFF) | (src[ip++] & 0xFF) << 8;
+                int matchLength = token & 15;
+                if (matchLength == 15) {
+                    int b;
+                    do {
+                        b = src[ip++] & 0xFF;
+                        matchLength += b;
+                    } while (b == 255);
+                }
+                matchLength += MIN_MATCH;
+
+                int ref = op - offset;
+                if (offset == 0 || ref < 0 || op + matchLength > end) {
+                    throw new IOException("Corrupt lz block: bad match");
+                }
+                if (offset >= matchLength) {
+                    System.arraycopy(window, ref, window, op, matchLength);
+                    op += matchLength;
+                } else {
+                    for (int i = 0; i < matchLength; i++) {
+                        window[op++] = window[ref++]; // Overlapping copy repeats the pattern
+                    }
+                }
+            }
+            if (op != end) {
+                throw new IOException("Corrupt lz block: length mismatch");
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Corrupt lz block: truncated", e);
+        }
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    private static int readInt(byte[] b, int i) {
+        return (int) INT.get(b, i);
+    }
+
+    private static long readLong(byte[] b, int i) {
+        return (long) LONG.get(b, i);
+    }
+
+    /** Decodes one block at a time into a window that keeps the dictionary in front. */
+    private static final class LzInputStream extends InputStream {
+        private final DataInputStream in;
+        private final int dictLength;
+        private final byte[] window;
+        private byte[] compressed = new byte[0];
+        private int position;
+        private int limit;
+        private boolean finished;
+
+        LzInputStream(InputStream in, byte[] dictionary) {
+            this.in = new DataInputStream(in);
+            this.dictLength = dictionary.length;
+            this.window = new byte[dictLength + BLOCK_SIZE];
+            System.arraycopy(dictionary, 0, window, 0, dictLength);
+            this.position = dictLength;
+            this.limit = dictLength;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position == limit && !nextBlock()) {
+                return -1;
+            }
+            return window[position++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position == limit && !nextBlock()) {
+                return -1;
+            }
+            int n = Math.min(len, limit - position);
+            System.arraycopy(window, position, b, off, n);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return limit - position;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private boolean nextBlock() throws IOException {
+            while (!finished) {
+                int rawLength = in.readInt();
+                if (rawLength == 0) {
+                    finished = true;
+                    break;
+                }
+                int compressedLength = in.readInt();
+                if (rawLength < 0 || rawLength > BLOCK_SIZE || compressedLength <= 0 || compressedLength > rawLength) {
+                    throw new IOException("Corrupt lz stream: bad block header");
+                }
+
+                if (compressedLength == rawLength) {
+                    in.readFully(window, dictLength, rawLength);
+                } else {
+                    if (compressed.length < compressedLength) {
+                        compressed = new byte[maxCompressedLength(BLOCK_SIZE)];
+                    }
+                    in.readFully(compressed, 0, compressedLength);
+                    decompressBlock(compressed, compressedLength, window, dictLength, dictLength + rawLength);
+                }
+                position = dictLength;
+                limit = dictLength + rawLength;
+                return true;
+            }
+            return false;
+        }
+    }
+}
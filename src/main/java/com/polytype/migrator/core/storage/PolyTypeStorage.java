@@ -3,15 +3,18 @@ package com.polytype.migrator.core.storage;
 import com.polytype.migrator.core.logging.PolyTypeLogger;
 import com.polytype.migrator.core.config.PolyTypeConfig;
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 /**
  * Comprehensive data persistence and storage system for PolyType.
@@ -22,7 +25,8 @@ public class PolyTypeStorage {
     public enum StorageType {
         FILE_SYSTEM,     // Local file system storage
         MEMORY,          // In-memory storage (volatile)
-        DATABASE,        // Database storage (SQLite, H2, etc.)
+        SEGMENT_LOG,     // Append-only segment files on the local file system
+        DATABASE,        // Embedded store with metadata indexes on the local file system
         CLOUD,           // Cloud storage (S3, Azure, etc.)
         HYBRID           // Combination of multiple storage types
     }
@@ -43,7 +47,7 @@ public class PolyTypeStorage {
         private final String id;
         private final String key;
         private final DataCategory category;
-        private final byte[] data;
+        private final ByteBuffer data; // Read-only; may be a mapping of the stored file
         private final Map<String, String> metadata;
         private final LocalDateTime created;
         private final LocalDateTime modified;
@@ -55,10 +59,19 @@ public class PolyTypeStorage {
                            Map<String, String> metadata, LocalDateTime created,
                            LocalDateTime modified, long version, boolean compressed,
                            boolean encrypted) {
+            this(id, key, category, ByteBuffer.wrap(data != null ? data.clone() : new byte[0]),
+                 metadata, created, modified, version, compressed, encrypted);
+        }
+        
+        /** Takes the buffer as is; backends pass data they read or mapped themselves. */
+        StorageEntry(String id, String key, DataCategory category, ByteBuffer data,
+                     Map<String, String> metadata, LocalDateTime created,
+                     LocalDateTime modified, long version, boolean compressed,
+                     boolean encrypted) {
             this.id = id;
             this.key = key;
             this.category = category;
-            this.data = data != null ? data.clone() : new byte[0];
+            this.data = data.asReadOnlyBuffer();
             this.metadata = new HashMap<>(metadata != null ? metadata : Collections.emptyMap());
             this.created = created;
             this.modified = modified;
@@ -67,10 +80,27 @@ public class PolyTypeStorage {
             this.encrypted = encrypted;
         }
         
+        StorageEntry(EntryInfo info, ByteBuffer data) {
+            this(info.getId(), info.getKey(), info.getCategory(), data, info.getMetadata(),
+                 info.getCreated(), info.getModified(), info.getVersion(), info.isCompressed(),
+                 info.isEncrypted());
+        }
+        
         public String getId() { return id; }
         public String getKey() { return key; }
         public DataCategory getCategory() { return category; }
-        public byte[] getData() { return data.clone(); }
+        public byte[] getData() {
+            byte[] copy = new byte[data.remaining()];
+            data.duplicate().get(copy);
+            return copy;
+        }
+        
+        /**
+         * Read-only view of the data without copying it. For an entry read with
+         * {@link StorageBackend#retrieveView} this may be a memory-mapped file,
+         * which stays readable after the entry is overwritten or deleted.
+         */
+        public ByteBuffer getDataBuffer() { return data.duplicate(); }
         public Map<String, String> getMetadata() { return new HashMap<>(metadata); }
         public LocalDateTime getCreated() { return created; }
         public LocalDateTime getModified() { return modified; }
@@ -78,7 +108,131 @@ public class PolyTypeStorage {
         public boolean isCompressed() { return compressed; }
         public boolean isEncrypted() { return encrypted; }
         
-        public int getSize() { return data.length; }
+        public int getSize() { return data.remaining(); }
+    }
+    
+    /** Everything about a stored entry except its data, as read by a {@link StorageCursor}. */
+    public static class EntryInfo {
+        private final String id;
+        private final String key;
+        private final DataCategory category;
+        private final long size;
+        private final Map<String, String> metadata;
+        private final LocalDateTime created;
+        private final LocalDateTime modified;
+        private final long version;
+        private final boolean compressed;
+        private final boolean encrypted;
+        
+        EntryInfo(String id, String key, DataCategory category, long size,
+                  Map<String, String> metadata, LocalDateTime created,
+                  LocalDateTime modified, long version, boolean compressed,
+                  boolean encrypted) {
+            this.id = id;
+            this.key = key;
+            this.category = category;
+            this.size = size;
+            this.metadata = Collections.unmodifiableMap(metadata);
+            this.created = created;
+            this.modified = modified;
+            this.version = version;
+            this.compressed = compressed;
+            this.encrypted = encrypted;
+        }
+        
+        EntryInfo(StorageEntry entry) {
+            this(entry.getId(), entry.getKey(), entry.getCategory(), entry.getSize(), entry.metadata,
+                 entry.getCreated(), entry.getModified(), entry.getVersion(), entry.isCompressed(),
+                 entry.isEncrypted());
+        }
+        
+        public String getId() { return id; }
+        public String getKey() { return key; }
+        public DataCategory getCategory() { return category; }
+        public Map<String, String> getMetadata() { return metadata; }
+        public String getMetadata(String name) { return metadata.get(name); }
+        public LocalDateTime getCreated() { return created; }
+        public LocalDateTime getModified() { return modified; }
+        public long getVersion() { return version; }
+        public boolean isCompressed() { return compressed; }
+        public boolean isEncrypted() { return encrypted; }
+        
+        /** Size of the data as stored, i.e. after compression. */
+        public long getSize() { return size; }
+    }
+    
+    /**
+     * Lazy iteration over the entries of one category. Entry info is read from
+     * the backend in batches as the cursor advances; data is only loaded by
+     * {@link #entry()}. Entries stored or deleted while the cursor is open may
+     * or may not be seen.
+     */
+    public interface StorageCursor extends Closeable {
+        /** Moves to the next matching entry; false once there are no more. */
+        boolean next() throws IOException;
+        
+        /** Info of the current entry. */
+        EntryInfo info();
+        
+        /** Loads the current entry with its data, or null if it was deleted since. */
+        StorageEntry entry() throws IOException;
+        
+        @Override
+        default void close() throws IOException {
+        }
+    }
+    
+    /** Cursor over batches of entry info, fetched one at a time and filtered as they arrive. */
+    abstract static class BatchCursor implements StorageCursor {
+        static final int BATCH_SIZE = 256;
+        
+        private final StorageBackend backend;
+        private final Predicate<EntryInfo> filter;
+        private Iterator<EntryInfo> batch = Collections.emptyIterator();
+        private EntryInfo current;
+        private boolean exhausted;
+        
+        BatchCursor(StorageBackend backend, Predicate<EntryInfo> filter) {
+            this.backend = backend;
+            this.filter = filter != null ? filter : info -> true;
+        }
+        
+        /** Reads the info of the next batch of entries, or returns null at the end. */
+        protected abstract List<EntryInfo> nextBatch() throws IOException;
+        
+        @Override
+        public boolean next() throws IOException {
+            while (!exhausted) {
+                while (batch.hasNext()) {
+                    EntryInfo info = batch.next();
+                    if (filter.test(info)) {
+                        current = info;
+                        return true;
+                    }
+                }
+                List<EntryInfo> infos = nextBatch();
+                if (infos == null) {
+                    exhausted = true;
+                } else {
+                    batch = infos.iterator();
+                }
+            }
+            current = null;
+            return false;
+        }
+        
+        @Override
+        public EntryInfo info() {
+            if (current == null) {
+                throw new NoSuchElementException("Cursor is not on an entry");
+            }
+            return current;
+        }
+        
+        @Override
+        public StorageEntry entry() throws IOException {
+            return backend.retrieveView(info().getKey());
+        }
     }
     
     public static class StorageStats {
@@ -88,23 +242,28 @@ public class PolyTypeStorage {
         private final Map<DataCategory, Long> categorySizes = new HashMap<>();
         
         public void updateStats(StorageEntry entry, boolean added) {
+            updateStats(entry.getCategory(), entry.getSize(), added);
+        }
+        
+        /** For backends that know an entry's category and size without reading it back. */
+        public synchronized void updateStats(DataCategory category, long size, boolean added) {
             if (added) {
                 totalEntries++;
-                totalSize += entry.getSize();
-                categoryStats.merge(entry.getCategory(), 1L, Long::sum);
-                categorySizes.merge(entry.getCategory(), (long) entry.getSize(), Long::sum);
+                totalSize += size;
+                categoryStats.merge(category, 1L, Long::sum);
+                categorySizes.merge(category, size, Long::sum);
             } else {
                 totalEntries--;
-                totalSize -= entry.getSize();
-                categoryStats.merge(entry.getCategory(), -1L, Long::sum);
-                categorySizes.merge(entry.getCategory(), -(long) entry.getSize(), Long::sum);
+                totalSize -= size;
+                categoryStats.merge(category, -1L, Long::sum);
+                categorySizes.merge(category, -size, Long::sum);
             }
         }
         
-        public long getTotalEntries() { return totalEntries; }
-        public long getTotalSize() { return totalSize; }
-        public Map<DataCategory, Long> getCategoryStats() { return new HashMap<>(categoryStats); }
-        public Map<DataCategory, Long> getCategorySizes() { return new HashMap<>(categorySizes); }
+        public synchronized long getTotalEntries() { return totalEntries; }
+        public synchronized long getTotalSize() { return totalSize; }
+        public synchronized Map<DataCategory, Long> getCategoryStats() { return new HashMap<>(categoryStats); }
+        public synchronized Map<DataCategory, Long> getCategorySizes() { return new HashMap<>(categorySizes); }
     }
     
     public interface StorageBackend {
@@ -118,17 +277,68 @@ public class PolyTypeStorage {
         void cleanup() throws IOException;
         void close() throws IOException;
         StorageStats getStats();
+        
+        /**
+         * Like {@link #retrieve}, but large entries may come back as a read-only
+         * mapping of the stored data instead of a copy on the heap.
+         */
+        default StorageEntry retrieveView(String key) throws IOException {
+            return retrieve(key);
+        }
+        
+        /**
+         * Opens a cursor over the entries of a category that match the filter
+         * (null matches all). Backends that can read entry info without the
+         * data override this; the default retrieves each entry.
+         */
+        default StorageCursor openCursor(DataCategory category, Predicate<EntryInfo> filter) throws IOException {
+            Iterator<String> keys = listKeys(category).iterator();
+            return new BatchCursor(this, filter) {
+                @Override
+                protected List<EntryInfo> nextBatch() throws IOException {
+                    if (!keys.hasNext()) {
+                        return null;
+                    }
+                    List<EntryInfo> infos = new ArrayList<>(BATCH_SIZE);
+                    while (keys.hasNext() && infos.size() < BATCH_SIZE) {
+                        StorageEntry entry = retrieve(keys.next());
+                        if (entry != null) {
+                            infos.add(new EntryInfo(entry));
+                        }
+                    }
+                    return infos;
+                }
+            };
+        }
     }
     
-    // File System Storage Backend
+    /**
+     * File System Storage Backend. Each entry is a data file and a metadata
+     * file, both written to a temporary file and renamed into place. Entries
+     * are locked by a stripe of their file name, so writes of unrelated keys
+     * run concurrently while a reader never sees an entry half written.
+     */
     public static class FileSystemBackend implements StorageBackend {
+        private static final long MAP_THRESHOLD = 256 * 1024; // Smaller files are cheaper to read than to map
+        private static final int LOCK_STRIPES = 64;
+        
         private final Path basePath;
         private final StorageStats stats = new StorageStats();
-        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final ReadWriteLock[] locks = new ReadWriteLock[LOCK_STRIPES];
         private final PolyTypeLogger logger = PolyTypeLogger.getLogger(FileSystemBackend.class);
+        private final KeyLocationIndex index;
         
         public FileSystemBackend(String basePath) {
             this.basePath = Paths.get(basePath);
+            this.index = new KeyLocationIndex(this.basePath);
+            for (int i = 0; i < LOCK_STRIPES; i++) {
+                locks[i] = new ReentrantReadWriteLock();
+            }
+        }
+        
+        /** Keys whose sanitized names collide share files, so they must share a lock. */
+        private ReadWriteLock lockFor(String key) {
+            return locks[sanitizeFileName(key).hashCode() & (LOCK_STRIPES - 1)];
         }
         
         @Override
@@ -140,39 +350,114 @@ public class PolyTypeStorage {
                 Files.createDirectories(basePath.resolve(category.name().toLowerCase()));
             }
             
+            if (!index.load()) {
+                rebuildIndex();
+            }
+            for (KeyLocationIndex.Location location : index.locations()) {
+                stats.updateStats(location.category, location.size, true);
+            }
+            
             logger.info(PolyTypeLogger.LogCategory.IO, 
-                       "Initialized file system storage: " + basePath.toAbsolutePath());
+                       "Initialized file system storage: " + basePath.toAbsolutePath() + " (" + index.size() + " entries)");
+        }
+        
+        /** Recovers the key index from the metadata files when it is missing or damaged. */
+        private void rebuildIndex() throws IOException {
+            Map<String, KeyLocationIndex.Location> rebuilt = new HashMap<>();
+            for (DataCategory category : DataCategory.values()) {
+                Path categoryDir = basePath.resolve(category.name().toLowerCase());
+                try (DirectoryStream<Path> stream = Files.newDirectoryStream(categoryDir, "*.meta")) {
+                    for (Path metaPath : stream) {
+                        String fileName = metaPath.getFileName().toString();
+                        Path filePath = categoryDir.resolve(fileName.substring(0, fileName.length() - ".meta".length()) + ".dat");
+                        if (!Files.exists(filePath)) {
+                            continue;
+                        }
+                        
+                        Properties metadata = new Properties();
+                        try (InputStream is = Files.newInputStream(metaPath)) {
+                            metadata.load(is);
+                        } catch (IOException | IllegalArgumentException e) {
+                            logger.warn(PolyTypeLogger.LogCategory.IO, "Skipping unreadable metadata: " + metaPath, e);
+                            continue;
+                        }
+                        String key = metadata.getProperty("key");
+                        if (key != null) {
+                            long size = Long.parseLong(metadata.getProperty("size", String.valueOf(Files.size(filePath))));
+                            rebuilt.put(key, new KeyLocationIndex.Location(category, size));
+                        }
+                    }
+                }
+            }
+            index.reset(rebuilt);
+            
+            logger.info(PolyTypeLogger.LogCategory.IO, "Rebuilt storage key index: " + rebuilt.size() + " entries");
         }
         
         @Override
         public void store(StorageEntry entry) throws IOException {
+            ReadWriteLock lock = lockFor(entry.getKey());
             lock.writeLock().lock();
             try {
                 Path categoryDir = basePath.resolve(entry.getCategory().name().toLowerCase());
                 Path filePath = categoryDir.resolve(sanitizeFileName(entry.getKey()) + ".dat");
                 Path metaPath = categoryDir.resolve(sanitizeFileName(entry.getKey()) + ".meta");
                 
-                // Write data
-                Files.write(filePath, entry.getData(), StandardOpenOption.CREATE, 
-                           StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
-                
-                // Write metadata
-                Properties metadata = new Properties();
-                metadata.putAll(entry.getMetadata());
-                metadata.setProperty("id", entry.getId());
-                metadata.setProperty("key", entry.getKey());
-                metadata.setProperty("category", entry.getCategory().name());
-                metadata.setProperty("created", entry.getCreated().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-                metadata.setProperty("modified", entry.getModified().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
-                metadata.setProperty("version", String.valueOf(entry.getVersion()));
-                metadata.setProperty("compressed", String.valueOf(entry.isCompressed()));
-                metadata.setProperty("encrypted", String.valueOf(entry.isEncrypted()));
-                metadata.setProperty("size", String.valueOf(entry.getSize()));
+                // Index first: after a crash it may name missing files, but never misses present ones
+                KeyLocationIndex.Location previous = index.put(entry.getKey(), entry.getCategory(), entry.getSize());
                 
-                try (OutputStream os = Files.newOutputStream(metaPath)) {
-                    metadata.store(os, "PolyType Storage Entry Metadata");
+                Path tempPath = categoryDir.resolve(sanitizeFileName(entry.getKey()) + ".dat.tmp");
+                Path metaTempPath = categoryDir.resolve(sanitizeFileName(entry.getKey()) + ".meta.tmp");
+                boolean dataReplaced = false;
+                try {
+                    // Write data to a new file, so readers holding a mapping of the old one keep their view
+                    try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, 
+                                                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                        ByteBuffer data = entry.getDataBuffer();
+                        while (data.hasRemaining()) {
+                            channel.write(data);
+                        }
+                    }
+                    
+                    // Write metadata
+                    Properties metadata = new Properties();
+                    metadata.putAll(entry.getMetadata());
+                    metadata.setProperty("id", entry.getId());
+                    metadata.setProperty("key", entry.getKey());
+                    metadata.setProperty("category", entry.getCategory().name());
+                    metadata.setProperty("created", entry.getCreated().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                    metadata.setProperty("modified", entry.getModified().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+                    metadata.setProperty("version", String.valueOf(entry.getVersion()));
+                    metadata.setProperty("compressed", String.valueOf(entry.isCompressed()));
+                    metadata.setProperty("encrypted", String.valueOf(entry.isEncrypted()));
+                    metadata.setProperty("size", String.valueOf(entry.getSize()));
+                    
+                    try (OutputStream os = Files.newOutputStream(metaTempPath)) {
+                        metadata.store(os, "PolyType Storage Entry Metadata");
+                    }
+                    
+                    // Both files are written, so only a failed rename can leave the old entry half replaced
+                    replaceFile(tempPath, filePath);
+                    dataReplaced = true;
+                    replaceFile(metaTempPath, metaPath);
+                } catch (IOException | RuntimeException e) {
+                    undoStore(entry, previous, dataReplaced, e);
+                    for (Path temp : new Path[] { tempPath, metaTempPath }) {
+                        try {
+                            Files.deleteIfExists(temp);
+                        } catch (IOException suppressed) {
+                            e.addSuppressed(suppressed);
+                        }
+                    }
+                    throw e;
                 }
                 
+                if (previous != null) {
+                    if (previous.category != entry.getCategory()) {
+                        deleteFiles(previous.category, entry.getKey()); // Moved to another category
+                    }
+                    stats.updateStats(previous.category, previous.size, false);
+                }
                 stats.updateStats(entry, true);
                 
                 logger.debug(PolyTypeLogger.LogCategory.IO, 
@@ -183,37 +468,113 @@ public class PolyTypeStorage {
             }
         }
         
+        /**
+         * Puts the index back after a failed store, so the key is neither
+         * left pointing at files that were never written nor counted twice.
+         * If the new data already replaced the old, the old entry is gone
+         * and the key is dropped. Called with the key's write lock held.
+         */
+        private void undoStore(StorageEntry entry, KeyLocationIndex.Location previous, boolean dataReplaced,
+                               Exception failure) {
+            String key = entry.getKey();
+            boolean previousIntact = previous != null && (!dataReplaced || previous.category != entry.getCategory());
+            try {
+                if (previousIntact) {
+                    index.put(key, previous.category, previous.size);
+                } else {
+                    index.remove(key);
+                    deleteFiles(entry.getCategory(), key);
+                    if (previous != null) {
+                        stats.updateStats(previous.category, previous.size, false);
+                    }
+                }
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+            logger.warn(PolyTypeLogger.LogCategory.IO, "Failed to store entry " + key
+                        + (previousIntact ? ", kept the previous version" : ""), failure);
+        }
+        
         @Override
         public StorageEntry retrieve(String key) throws IOException {
+            return read(key, false);
+        }
+        
+        @Override
+        public StorageEntry retrieveView(String key) throws IOException {
+            return read(key, true);
+        }
+        
+        private StorageEntry read(String key, boolean mapLarge) throws IOException {
+            KeyLocationIndex.Location location;
+            ReadWriteLock lock = lockFor(key);
             lock.readLock().lock();
             try {
-                for (DataCategory category : DataCategory.values()) {
-                    Path categoryDir = basePath.resolve(category.name().toLowerCase());
-                    Path filePath = categoryDir.resolve(sanitizeFileName(key) + ".dat");
-                    Path metaPath = categoryDir.resolve(sanitizeFileName(key) + ".meta");
+                location = index.get(key);
+                if (location == null) {
+                    return null; // Entry not found
+                }
+                
+                Path categoryDir = basePath.resolve(location.category.name().toLowerCase());
+                Path filePath = categoryDir.resolve(sanitizeFileName(key) + ".dat");
+                Path metaPath = categoryDir.resolve(sanitizeFileName(key) + ".meta");
+                
+                try {
+                    // Read metadata
+                    Properties metadata = new Properties();
+                    try (InputStream is = Files.newInputStream(metaPath)) {
+                        metadata.load(is);
+                    }
                     
-                    if (Files.exists(filePath) && Files.exists(metaPath)) {
-                        // Read data
-                        byte[] data = Files.readAllBytes(filePath);
-                        
-                        // Read metadata
-                        Properties metadata = new Properties();
-                        try (InputStream is = Files.newInputStream(metaPath)) {
-                            metadata.load(is);
+                    // Read or map data
+                    ByteBuffer data;
+                    try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+                        long size = channel.size();
+                        if (mapLarge && size >= MAP_THRESHOLD) {
+                            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+                        } else {
+                            data = ByteBuffer.allocate(Math.toIntExact(size));
+                            while (data.hasRemaining()) {
+                                if (channel.read(data) < 0) {
+                                    throw new EOFException("Entry file cut short: " + filePath);
+                                }
+                            }
+                            data.flip();
                         }
-                        
-                        return createEntryFromMetadata(data, metadata);
                     }
+                    
+                    return createEntryFromMetadata(data, metadata);
+                } catch (NoSuchFileException e) {
+                    // Files lost in a crash after the index was updated; forget the key below
                 }
-                
-                return null; // Entry not found
-                
             } finally {
                 lock.readLock().unlock();
             }
+            
+            forget(key, location);
+            return null;
         }
         
-        private StorageEntry createEntryFromMetadata(byte[] data, Properties metadata) {
+        private void forget(String key, KeyLocationIndex.Location location) throws IOException {
+            ReadWriteLock lock = lockFor(key);
+            lock.writeLock().lock();
+            try {
+                if (index.get(key) == location) {
+                    index.remove(key);
+                    deleteFiles(location.category, key);
+                    stats.updateStats(location.category, location.size, false);
+                    logger.warn(PolyTypeLogger.LogCategory.IO, "Dropped index entry with missing files: " + key);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        
+        private StorageEntry createEntryFromMetadata(ByteBuffer data, Properties metadata) {
+            return new StorageEntry(createInfoFromMetadata(metadata), data);
+        }
+        
+        private EntryInfo createInfoFromMetadata(Properties metadata) {
             String id = metadata.getProperty("id");
             String key = metadata.getProperty("key");
             DataCategory category = DataCategory.valueOf(metadata.getProperty("category"));
@@ -222,6 +583,7 @@ public class PolyTypeStorage {
             long version = Long.parseLong(metadata.getProperty("version", "1"));
             boolean compressed = Boolean.parseBoolean(metadata.getProperty("compressed", "false"));
             boolean encrypted = Boolean.parseBoolean(metadata.getProperty("encrypted", "false"));
+            long size = Long.parseLong(metadata.getProperty("size", "0"));
             
             Map<String, String> userMetadata = new HashMap<>();
             for (String propKey : metadata.stringPropertyNames()) {
@@ -230,8 +592,8 @@ public class PolyTypeStorage {
                 }
             }
             
-            return new StorageEntry(id, key, category, data, userMetadata, 
-                                   created, modified, version, compressed, encrypted);
+            return new EntryInfo(id, key, category, size, userMetadata, 
+                                created, modified, version, compressed, encrypted);
         }
         
         private boolean isSystemProperty(String key) {
@@ -241,68 +603,39 @@ public class PolyTypeStorage {
         
         @Override
         public boolean exists(String key) throws IOException {
-            lock.readLock().lock();
-            try {
-                for (DataCategory category : DataCategory.values()) {
-                    Path categoryDir = basePath.resolve(category.name().toLowerCase());
-                    Path filePath = categoryDir.resolve(sanitizeFileName(key) + ".dat");
-                    if (Files.exists(filePath)) {
-                        return true;
-                    }
-                }
-                return false;
-            } finally {
-                lock.readLock().unlock();
-            }
+            return index.get(key) != null;
         }
         
         @Override
         public void delete(String key) throws IOException {
+            ReadWriteLock lock = lockFor(key);
             lock.writeLock().lock();
             try {
-                for (DataCategory category : DataCategory.values()) {
-                    Path categoryDir = basePath.resolve(category.name().toLowerCase());
-                    Path filePath = categoryDir.resolve(sanitizeFileName(key) + ".dat");
-                    Path metaPath = categoryDir.resolve(sanitizeFileName(key) + ".meta");
-                    
-                    if (Files.exists(filePath)) {
-                        // Get entry for stats update before deletion
-                        StorageEntry entry = retrieve(key);
-                        
-                        Files.deleteIfExists(filePath);
-                        Files.deleteIfExists(metaPath);
-                        
-                        if (entry != null) {
-                            stats.updateStats(entry, false);
-                        }
-                        
-                        logger.debug(PolyTypeLogger.LogCategory.IO, "Deleted entry: " + key);
-                        return;
-                    }
+                KeyLocationIndex.Location location = index.get(key);
+                if (location == null) {
+                    return;
                 }
+                
+                // Files first, so a crash in between leaves an index entry that is dropped on read
+                deleteFiles(location.category, key);
+                index.remove(key);
+                stats.updateStats(location.category, location.size, false);
+                
+                logger.debug(PolyTypeLogger.LogCategory.IO, "Deleted entry: " + key);
             } finally {
                 lock.writeLock().unlock();
             }
         }
         
+        private void deleteFiles(DataCategory category, String key) throws IOException {
+            Path categoryDir = basePath.resolve(category.name().toLowerCase());
+            Files.deleteIfExists(categoryDir.resolve(sanitizeFileName(key) + ".dat"));
+            Files.deleteIfExists(categoryDir.resolve(sanitizeFileName(key) + ".meta"));
+        }
+        
         @Override
         public List<String> listKeys(DataCategory category) throws IOException {
-            List<String> keys = new ArrayList<>();
-            Path categoryDir = basePath.resolve(category.name().toLowerCase());
-            
-            if (!Files.exists(categoryDir)) {
-                return keys;
-            }
-            
-            try (DirectoryStream<Path> stream = Files.newDirectoryStream(categoryDir, "*.dat")) {
-                for (Path path : stream) {
-                    String fileName = path.getFileName().toString();
-                    String key = fileName.substring(0, fileName.lastIndexOf(".dat"));
-                    keys.add(desanitizeFileName(key));
-                }
-            }
-            
-            return keys;
+            return index.keys(category);
         }
         
         @Override
@@ -320,29 +653,78 @@ public class PolyTypeStorage {
             return entries;
         }
         
+        /** Reads only the .meta files; data is read by entry(). */
+        @Override
+        public StorageCursor openCursor(DataCategory category, Predicate<EntryInfo> filter) throws IOException {
+            Iterator<String> keys = listKeys(category).iterator();
+            Path categoryDir = basePath.resolve(category.name().toLowerCase());
+            
+            return new BatchCursor(this, filter) {
+                @Override
+                protected List<EntryInfo> nextBatch() throws IOException {
+                    if (!keys.hasNext()) {
+                        return null;
+                    }
+                    List<EntryInfo> infos = new ArrayList<>(BATCH_SIZE);
+                    for (int i = 0; i < BATCH_SIZE && keys.hasNext(); i++) {
+                        String key = keys.next();
+                        KeyLocationIndex.Location location = index.get(key);
+                        if (location == null || location.category != category) {
+                            continue; // Deleted or moved since the cursor was opened
+                        }
+                        
+                        // Renamed into place whole, so no lock is needed to read it consistently
+                        Properties metadata = new Properties();
+                        try (InputStream is = Files.newInputStream(categoryDir.resolve(sanitizeFileName(key) + ".meta"))) {
+                            metadata.load(is);
+                        } catch (NoSuchFileException e) {
+                            continue;
+                        }
+                        infos.add(createInfoFromMetadata(metadata));
+                    }
+                    return infos;
+                }
+            };
+        }
+        
         @Override
         public void cleanup() throws IOException {
-            // Clean up temporary files older than 24 hours
+            // Clean up temporary entries older than 24 hours
             Path tempDir = basePath.resolve(DataCategory.TEMPORARY.name().toLowerCase());
-            if (!Files.exists(tempDir)) {
-                return;
-            }
-            
             long cutoffTime = System.currentTimeMillis() - (24 * 60 * 60 * 1000); // 24 hours ago
             
-            try (DirectoryStream<Path> stream = Files.newDirectoryStream(tempDir)) {
-                for (Path path : stream) {
-                    if (Files.getLastModifiedTime(path).toMillis() < cutoffTime) {
-                        Files.deleteIfExists(path);
-                        logger.debug(PolyTypeLogger.LogCategory.IO, "Cleaned up old file: " + path.getFileName());
+            for (String key : index.keys(DataCategory.TEMPORARY)) {
+                ReadWriteLock lock = lockFor(key);
+                lock.writeLock().lock();
+                try {
+                    KeyLocationIndex.Location location = index.get(key);
+                    if (location == null || location.category != DataCategory.TEMPORARY) {
+                        continue; // Deleted or moved meanwhile
+                    }
+                    Path filePath = tempDir.resolve(sanitizeFileName(key) + ".dat");
+                    if (!Files.exists(filePath) || Files.getLastModifiedTime(filePath).toMillis() < cutoffTime) {
+                        delete(key);
+                        logger.debug(PolyTypeLogger.LogCategory.IO, "Cleaned up old file: " + filePath.getFileName());
                     }
+                } finally {
+                    lock.writeLock().unlock();
                 }
             }
         }
         
         @Override
         public void close() throws IOException {
-            // Nothing special to close for file system
+            // Waits for writes in progress, taking the stripes in order
+            for (ReadWriteLock lock : locks) {
+                lock.writeLock().lock();
+            }
+            try {
+                index.close();
+            } finally {
+                for (int i = LOCK_STRIPES - 1; i >= 0; i--) {
+                    locks[i].writeLock().unlock();
+                }
+            }
             logger.info(PolyTypeLogger.LogCategory.IO, "File system storage closed");
         }
         
@@ -355,8 +737,13 @@ public class PolyTypeStorage {
             return fileName.replaceAll("[^a-zA-Z0-9._-]", "_");
         }
         
-        private String desanitizeFileName(String fileName) {
-            return fileName; // Simple implementation
+        /** Renames a fully written file over its target, atomically where the file system allows. */
+        private void replaceFile(Path source, Path target) throws IOException {
+            try {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+            }
         }
     }
     
@@ -454,13 +841,28 @@ public class PolyTypeStorage {
     // Main Storage Manager
     private final StorageBackend primaryBackend;
     private final StorageBackend secondaryBackend; // Optional backup backend
+    private final SecondaryReplicator replicator;   // Writes to the secondary backend in the background, if enabled
     private final PolyTypeLogger logger = PolyTypeLogger.getLogger(PolyTypeStorage.class);
     private final PolyTypeConfig config = PolyTypeConfig.getInstance();
     
     // Compression and encryption
+    private static final byte[] ENCRYPTION_KEY = "PolyTypeSecretKey".getBytes();
     private boolean compressionEnabled = true;
     private boolean encryptionEnabled = false;
     
+    // Compressed data starts with this, then the codec name and dictionary id ("" for none);
+    // older entries without it are plain gzip, which starts 0x1f8b
+    private static final int CODEC_HEADER_MAGIC = 0x5043; // "PC"
+    
+    // Dictionaries and the category bindings of dictionaries and codecs live in CONFIGURATION, stored as is
+    private static final String DICTIONARY_KEY_PREFIX = "polytype.dictionary.";
+    private static final String DICTIONARY_BINDING_PREFIX = "polytype.dictionary.category.";
+    private static final String CODEC_BINDING_PREFIX = "polytype.codec.category.";
+    
+    private final Map<DataCategory, Optional<String>> categoryCodecs = new ConcurrentHashMap<>();
+    private final Map<DataCategory, Optional<String>> categoryDictionaries = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> dictionaries = new ConcurrentHashMap<>();
+    
     public PolyTypeStorage(StorageType primaryType) throws IOException {
         this(primaryType, null);
     }
@@ -468,6 +870,18 @@ public class PolyTypeStorage {
     public PolyTypeStorage(StorageType primaryType, StorageType secondaryType) throws IOException {
         this.primaryBackend = createBackend(primaryType);
         this.secondaryBackend = secondaryType != null ? createBackend(secondaryType) : null;
+        this.replicator = secondaryBackend != null && config.getBoolean(PolyTypeConfig.STORAGE_REPLICATION_ASYNC)
+            ? new SecondaryReplicator(primaryBackend, secondaryBackend, replicationLogPath(primaryType),
+                                      config.getInt(PolyTypeConfig.STORAGE_REPLICATION_QUEUE_SIZE))
+            : null;
+        
+        initialize();
+    }
+    
+    public PolyTypeStorage(StorageBackend primaryBackend) throws IOException {
+        this.primaryBackend = primaryBackend;
+        this.secondaryBackend = null;
+        this.replicator = null;
         
         initialize();
     }
@@ -475,20 +889,59 @@ public class PolyTypeStorage {
     private StorageBackend createBackend(StorageType type) {
         switch (type) {
             case FILE_SYSTEM:
-                String storageDir = config.getString(PolyTypeConfig.TEMP_DIR) + "/polytype-storage";
-                return new FileSystemBackend(storageDir);
+                return new FileSystemBackend(storageDirectory(type));
             case MEMORY:
                 return new MemoryBackend();
+            case SEGMENT_LOG:
+                return new SegmentLogBackend(storageDirectory(type));
+            case DATABASE:
+                List<String> indexedKeys = new ArrayList<>();
+                for (String indexedKey : config.getString(PolyTypeConfig.STORAGE_DB_INDEXED_KEYS).split(",")) {
+                    if (!indexedKey.trim().isEmpty()) {
+                        indexedKeys.add(indexedKey.trim());
+                    }
+                }
+                return new DatabaseBackend(storageDirectory(type), indexedKeys);
             default:
                 throw new UnsupportedOperationException("Storage type not implemented: " + type);
         }
     }
     
+    private String storageDirectory(StorageType type) {
+        switch (type) {
+            case FILE_SYSTEM:
+                return config.getString(PolyTypeConfig.TEMP_DIR) + "/polytype-storage";
+            case SEGMENT_LOG:
+                return config.getString(PolyTypeConfig.TEMP_DIR) + "/polytype-segments";
+            case DATABASE:
+                return config.getString(PolyTypeConfig.TEMP_DIR) + "/polytype-db";
+            default:
+                return null;
+        }
+    }
+    
+    /**
+     * The replay log lives in the primary's directory, as it names keys to
+     * read back from that primary; a storage over another primary would
+     * take them for deletions. A memory primary starts empty, so its log
+     * only serves this instance and is never replayed.
+     */
+    private Path replicationLogPath(StorageType primaryType) throws IOException {
+        String directory = storageDirectory(primaryType);
+        if (directory == null) {
+            return Files.createTempDirectory("polytype-replication").resolve("replay.log");
+        }
+        return Paths.get(directory, "replication", "replay.log");
+    }
+    
     private void initialize() throws IOException {
         primaryBackend.initialize();
         if (secondaryBackend != null) {
             secondaryBackend.initialize();
         }
+        if (replicator != null) {
+            replicator.start();
+        }
         
         logger.info(PolyTypeLogger.LogCategory.IO, "Storage system initialized");
     }
@@ -501,50 +954,109 @@ public class PolyTypeStorage {
     public void store(String key, DataCategory category, byte[] data, 
                      Map<String, String> metadata) throws IOException {
         
-        byte[] processedData = processDataForStorage(data);
+        storeEntry(encodeEntry(key, category, data, metadata));
+        
+        logger.debug(PolyTypeLogger.LogCategory.IO, 
+                   "Stored data: " + key + " in category " + category);
+    }
+    
+    /**
+     * Compresses and encrypts the data as configured for the category. The
+     * codec and dictionary go in a header inside the compressed data, not in
+     * the caller's metadata.
+     */
+    private StorageEntry encodeEntry(String key, DataCategory category, byte[] data,
+                                     Map<String, String> metadata) throws IOException {
+        Map<String, String> entryMetadata = new HashMap<>(metadata);
+        byte[] processedData = data;
+        boolean compressed = false;
+        boolean encrypted = encryptionEnabled && shouldEncrypt(category);
+        
+        if (compressionEnabled) {
+            CompressionCodec codec = codecFor(category);
+            String dictionaryId = codec.supportsDictionary() ? dictionaryFor(category) : null;
+            
+            if (shouldCompress(data, dictionaryId != null)) {
+                byte[] packed = codec.compress(data, dictionaryId != null ? loadDictionary(dictionaryId) : null);
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream(packed.length + 32);
+                try (DataOutputStream out = new DataOutputStream(buffer)) {
+                    out.writeShort(CODEC_HEADER_MAGIC);
+                    out.writeUTF(codec.getName());
+                    out.writeUTF(dictionaryId != null ? dictionaryId : "");
+                    out.write(packed);
+                }
+                processedData = buffer.toByteArray();
+                compressed = true;
+            }
+        }
+        
+        if (encrypted) {
+            processedData = encrypt(processedData);
+        }
         
-        StorageEntry entry = new StorageEntry(
+        return new StorageEntry(
             generateId(),
             key,
             category,
             processedData,
-            metadata,
+            entryMetadata,
             LocalDateTime.now(),
             LocalDateTime.now(),
             1L,
-            compressionEnabled && shouldCompress(data),
-            encryptionEnabled && shouldEncrypt(category)
+            compressed,
+            encrypted
         );
-        
+    }
+    
+    private void storeEntry(StorageEntry entry) throws IOException {
         // Store in primary backend
         primaryBackend.store(entry);
         
         // Store in secondary backend if available
         if (secondaryBackend != null) {
-            try {
+            storeInSecondary(entry);
+        }
+    }
+    
+    private void storeInSecondary(StorageEntry entry) {
+        try {
+            if (replicator != null) {
+                replicator.store(entry);
+            } else {
                 secondaryBackend.store(entry);
-            } catch (Exception e) {
-                logger.warn(PolyTypeLogger.LogCategory.IO, 
-                           "Failed to store in secondary backend", e);
             }
+        } catch (Exception e) {
+            logger.warn(PolyTypeLogger.LogCategory.IO, 
+                       "Failed to store in secondary backend", e);
         }
-        
-        logger.debug(PolyTypeLogger.LogCategory.IO, 
-                   "Stored data: " + key + " in category " + category);
     }
     
-    public byte[] retrieve(String key) throws IOException {
-        StorageEntry entry = primaryBackend.retrieve(key);
-        
-        if (entry == null && secondaryBackend != null) {
-            entry = secondaryBackend.retrieve(key);
+    private void deleteFromSecondary(String key) {
+        try {
+            if (replicator != null) {
+                replicator.delete(key);
+            } else {
+                secondaryBackend.delete(key);
+            }
+        } catch (Exception e) {
+            logger.warn(PolyTypeLogger.LogCategory.IO, 
+                       "Failed to delete from secondary backend", e);
         }
+    }
+    
+    /** Whether the secondary backend's copy of a key may be used; not while a newer write is on its way. */
+    private boolean readableFromSecondary(String key) {
+        return secondaryBackend != null && (replicator == null || !replicator.isPending(key));
+    }
+    
+    public byte[] retrieve(String key) throws IOException {
+        StorageEntry entry = retrieveView(key);
         
         if (entry == null) {
             return null;
         }
         
-        byte[] processedData = processDataFromStorage(entry.getData(), entry.isCompressed(), entry.isEncrypted());
+        byte[] processedData = processDataFromStorage(entry);
         
         logger.debug(PolyTypeLogger.LogCategory.IO, 
                    "Retrieved data: " + key + " (" + processedData.length + " bytes)");
@@ -552,10 +1064,47 @@ public class PolyTypeStorage {
         return processedData;
     }
     
+    /**
+     * Returns the data as a read-only buffer. Large plain entries are a view
+     * of the memory-mapped file, so nothing is copied onto the heap; compressed
+     * or encrypted entries are decoded into a heap buffer, which for large
+     * ones {@link #openStream} avoids.
+     */
+    public ByteBuffer retrieveBuffer(String key) throws IOException {
+        StorageEntry entry = retrieveView(key);
+        
+        if (entry == null) {
+            return null;
+        }
+        if (!entry.isCompressed() && !entry.isEncrypted()) {
+            return entry.getDataBuffer();
+        }
+        return ByteBuffer.wrap(processDataFromStorage(entry)).asReadOnlyBuffer();
+    }
+    
+    /**
+     * Opens the data as a stream, decrypting and decompressing as it is read
+     * from the stored (and, for large entries, memory-mapped) bytes.
+     */
+    public InputStream openStream(String key) throws IOException {
+        StorageEntry entry = retrieveView(key);
+        return entry != null ? openDecoded(entry) : null;
+    }
+    
+    private StorageEntry retrieveView(String key) throws IOException {
+        StorageEntry entry = primaryBackend.retrieveView(key);
+        
+        if (entry == null && readableFromSecondary(key)) {
+            entry = secondaryBackend.retrieveView(key);
+        }
+        
+        return entry;
+    }
+    
     public StorageEntry retrieveEntry(String key) throws IOException {
         StorageEntry entry = primaryBackend.retrieve(key);
         
-        if (entry == null && secondaryBackend != null) {
+        if (entry == null && readableFromSecondary(key)) {
             entry = secondaryBackend.retrieve(key);
         }
         
@@ -563,24 +1112,96 @@ public class PolyTypeStorage {
     }
     
     public boolean exists(String key) throws IOException {
-        return primaryBackend.exists(key) || (secondaryBackend != null && secondaryBackend.exists(key));
+        return primaryBackend.exists(key) || (readableFromSecondary(key) && secondaryBackend.exists(key));
     }
     
     public void delete(String key) throws IOException {
         primaryBackend.delete(key);
         
         if (secondaryBackend != null) {
-            try {
-                secondaryBackend.delete(key);
-            } catch (Exception e) {
-                logger.warn(PolyTypeLogger.LogCategory.IO, 
-                           "Failed to delete from secondary backend", e);
-            }
+            deleteFromSecondary(key);
         }
         
         logger.debug(PolyTypeLogger.LogCategory.IO, "Deleted data: " + key);
     }
     
+    /**
+     * Starts a batch of stores and deletes that is applied on commit. With a
+     * {@link StorageType#DATABASE} primary backend the batch is one transaction;
+     * other backends apply its changes one by one.
+     */
+    public WriteBatch beginBatch() {
+        return new WriteBatch();
+    }
+    
+    public class WriteBatch implements Closeable {
+        private final Map<String, StorageEntry> entries = new LinkedHashMap<>();
+        private final Set<String> deletions = new LinkedHashSet<>();
+        private boolean finished;
+        
+        private WriteBatch() {
+        }
+        
+        public void store(String key, DataCategory category, byte[] data) throws IOException {
+            store(key, category, data, Collections.emptyMap());
+        }
+        
+        public void store(String key, DataCategory category, byte[] data,
+                          Map<String, String> metadata) throws IOException {
+            checkOpen();
+            deletions.remove(key);
+            entries.put(key, encodeEntry(key, category, data, metadata));
+        }
+        
+        public void delete(String key) {
+            checkOpen();
+            entries.remove(key);
+            deletions.add(key);
+        }
+        
+        public void commit() throws IOException {
+            checkOpen();
+            finished = true;
+            
+            if (primaryBackend instanceof DatabaseBackend) {
+                ((DatabaseBackend) primaryBackend).storeAll(entries.values(), deletions);
+            } else {
+                for (StorageEntry entry : entries.values()) {
+                    primaryBackend.store(entry);
+                }
+                for (String key : deletions) {
+                    primaryBackend.delete(key);
+                }
+            }
+            
+            if (secondaryBackend != null) {
+                for (StorageEntry entry : entries.values()) {
+                    storeInSecondary(entry);
+                }
+                for (String key : deletions) {
+                    deleteFromSecondary(key);
+                }
+            }
+            
+            logger.debug(PolyTypeLogger.LogCategory.IO, 
+                       "Committed batch: " + entries.size() + " stored, " + deletions.size() + " deleted");
+        }
+        
+        /** Discards the batch unless it was committed. */
+        @Override
+        public void close() {
+            finished = true;
+            entries.clear();
+            deletions.clear();
+        }
+        
+        private void checkOpen() {
+            if (finished) {
+                throw new IllegalStateException("Batch already committed or closed");
+            }
+        }
+    }
+    
     // Convenience methods for common data types
     public void storeString(String key, DataCategory category, String value) throws IOException {
         store(key, category, value.getBytes("UTF-8"));
@@ -613,70 +1234,178 @@ public class PolyTypeStorage {
     }
     
     // Data processing
-    private byte[] processDataForStorage(byte[] data) throws IOException {
-        byte[] processedData = data;
-        
-        if (compressionEnabled && shouldCompress(data)) {
-            processedData = compress(processedData);
+    private byte[] processDataFromStorage(StorageEntry entry) throws IOException {
+        if (!entry.isCompressed() && !entry.isEncrypted()) {
+            return entry.getData();
         }
         
-        if (encryptionEnabled) {
-            processedData = encrypt(processedData);
+        try (InputStream in = openDecoded(entry)) {
+            return in.readAllBytes();
         }
-        
-        return processedData;
     }
     
-    private byte[] processDataFromStorage(byte[] data, boolean compressed, boolean encrypted) throws IOException {
-        byte[] processedData = data;
+    private InputStream openDecoded(StorageEntry entry) throws IOException {
+        InputStream in = new ByteBufferInputStream(entry.getDataBuffer());
         
-        if (encrypted) {
-            processedData = decrypt(processedData);
+        if (entry.isEncrypted()) {
+            in = new DecryptingInputStream(in);
         }
         
-        if (compressed) {
-            processedData = decompress(processedData);
+        if (entry.isCompressed()) {
+            PushbackInputStream header = new PushbackInputStream(in, 2);
+            String codecName = CompressionCodecs.GZIP;
+            String dictionaryId = "";
+            int first = header.read();
+            int second = header.read();
+            if (((first << 8) | second) == CODEC_HEADER_MAGIC) {
+                DataInputStream fields = new DataInputStream(header);
+                codecName = fields.readUTF();
+                dictionaryId = fields.readUTF();
+            } else {
+                if (second >= 0) {
+                    header.unread(second);
+                }
+                if (first >= 0) {
+                    header.unread(first);
+                }
+            }
+            CompressionCodec codec = CompressionCodecs.get(codecName);
+            if (codec == null) {
+                throw new IOException("Unknown compression codec: " + codecName);
+            }
+            in = codec.decompress(header, !dictionaryId.isEmpty() ? loadDictionary(dictionaryId) : null);
         }
         
-        return processedData;
+        return in;
     }
     
-    private boolean shouldCompress(byte[] data) {
-        return data.length > 1024; // Compress data larger than 1KB
+    private boolean shouldCompress(byte[] data, boolean withDictionary) {
+        // Compress data larger than 1KB, or than 64 bytes when a dictionary supplies the context
+        return data.length > (withDictionary ? 64 : 1024);
     }
     
     private boolean shouldEncrypt(DataCategory category) {
         return category == DataCategory.USER_DATA || category == DataCategory.CONFIGURATION;
     }
     
-    private byte[] compress(byte[] data) throws IOException {
-        try (ByteArrayOutputStream baos = new ByteArrayOutputStream();
-             GZIPOutputStream gzos = new GZIPOutputStream(baos)) {
-            
-            gzos.write(data);
-            gzos.close();
-            return baos.toByteArray();
+    // Codecs and dictionaries
+    
+    /**
+     * Compresses new entries of the category with the named codec instead of
+     * the configured default, including after a restart.
+     */
+    public void setCodec(DataCategory category, String codecName) throws IOException {
+        if (CompressionCodecs.get(codecName) == null) {
+            throw new IllegalArgumentException("Unknown compression codec: " + codecName);
         }
+        storeRaw(CODEC_BINDING_PREFIX + category.name(), codecName.getBytes("UTF-8"));
+        categoryCodecs.put(category, Optional.of(codecName));
+        logger.info(PolyTypeLogger.LogCategory.IO, "Compression codec for " + category + ": " + codecName);
     }
     
-    private byte[] decompress(byte[] data) throws IOException {
-        try (ByteArrayInputStream bais = new ByteArrayInputStream(data);
-             GZIPInputStream gzis = new GZIPInputStream(bais);
-             ByteArrayOutputStream baos = new ByteArrayOutputStream()) {
-            
-            byte[] buffer = new byte[8192];
-            int len;
-            while ((len = gzis.read(buffer)) > 0) {
-                baos.write(buffer, 0, len);
+    public String getCodec(DataCategory category) throws IOException {
+        Optional<String> codecName = categoryCodecs.get(category);
+        if (codecName == null) {
+            StorageEntry binding = retrieveView(CODEC_BINDING_PREFIX + category.name());
+            codecName = Optional.ofNullable(binding != null ? new String(binding.getData(), "UTF-8") : null);
+            categoryCodecs.put(category, codecName);
+        }
+        return codecName.orElse(config.getString(PolyTypeConfig.STORAGE_CODEC));
+    }
+    
+    private CompressionCodec codecFor(DataCategory category) throws IOException {
+        String codecName = getCodec(category);
+        CompressionCodec codec = CompressionCodecs.get(codecName);
+        if (codec == null) {
+            throw new IOException("Unknown compression codec: " + codecName);
+        }
+        return codec;
+    }
+    
+    /**
+     * Trains a dictionary on up to sampleLimit entries of the category and
+     * compresses its new entries against it from now on, including after a
+     * restart. Pays off for many small, similar entries such as translation
+     * outputs. Returns the dictionary id, or null if the samples share too
+     * little to build one.
+     */
+    public String trainDictionary(DataCategory category, int sampleLimit, int dictionarySize) throws IOException {
+        List<byte[]> samples = new ArrayList<>();
+        try (StorageCursor cursor = openCursor(category, info -> !info.getKey().startsWith(DICTIONARY_KEY_PREFIX)
+                                                            && !info.getKey().startsWith(CODEC_BINDING_PREFIX))) {
+            while (samples.size() < sampleLimit && cursor.next()) {
+                StorageEntry entry = cursor.entry();
+                if (entry != null) {
+                    samples.add(readData(entry));
+                }
             }
-            return baos.toByteArray();
         }
+        
+        byte[] dictionary = DictionaryTrainer.train(samples, Math.min(dictionarySize, LzCodec.MAX_DICTIONARY));
+        if (dictionary.length == 0) {
+            logger.info(PolyTypeLogger.LogCategory.IO, "No dictionary trained for " + category + " from " + samples.size() + " samples");
+            return null;
+        }
+        
+        String dictionaryId = dictionaryId(dictionary);
+        storeRaw(DICTIONARY_KEY_PREFIX + dictionaryId, dictionary);
+        storeRaw(DICTIONARY_BINDING_PREFIX + category.name(), dictionaryId.getBytes("UTF-8"));
+        dictionaries.put(dictionaryId, dictionary);
+        categoryDictionaries.put(category, Optional.of(dictionaryId));
+        
+        logger.info(PolyTypeLogger.LogCategory.IO, 
+                   "Trained " + formatBytes(dictionary.length) + " dictionary " + dictionaryId + " for " + category
+                   + " from " + samples.size() + " samples");
+        return dictionaryId;
+    }
+    
+    private String dictionaryFor(DataCategory category) throws IOException {
+        Optional<String> dictionaryId = categoryDictionaries.get(category);
+        if (dictionaryId == null) {
+            StorageEntry binding = retrieveView(DICTIONARY_BINDING_PREFIX + category.name());
+            dictionaryId = Optional.ofNullable(binding != null ? new String(binding.getData(), "UTF-8") : null);
+            categoryDictionaries.put(category, dictionaryId);
+        }
+        return dictionaryId.orElse(null);
+    }
+    
+    private byte[] loadDictionary(String dictionaryId) throws IOException {
+        byte[] dictionary = dictionaries.get(dictionaryId);
+        if (dictionary == null) {
+            StorageEntry entry = retrieveView(DICTIONARY_KEY_PREFIX + dictionaryId);
+            if (entry == null) {
+                throw new IOException("Missing compression dictionary: " + dictionaryId);
+            }
+            dictionary = entry.getData();
+            dictionaries.put(dictionaryId, dictionary);
+        }
+        return dictionary;
+    }
+    
+    private static String dictionaryId(byte[] dictionary) throws IOException {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(dictionary);
+            StringBuilder id = new StringBuilder();
+            for (int i = 0; i < 8; i++) {
+                id.append(String.format("%02x", digest[i]));
+            }
+            return id.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-256 unavailable", e);
+        }
+    }
+    
+    // Neither compressed nor encrypted, so it never depends on a dictionary itself
+    private void storeRaw(String key, byte[] data) throws IOException {
+        LocalDateTime now = LocalDateTime.now();
+        storeEntry(new StorageEntry(generateId(), key, DataCategory.CONFIGURATION, data, Collections.emptyMap(),
+                                    now, now, 1L, false, false));
     }
     
     private byte[] encrypt(byte[] data) {
         // Simple XOR encryption for demonstration
         // In production, use proper encryption like AES
-        byte[] key = "PolyTypeSecretKey".getBytes();
+        byte[] key = ENCRYPTION_KEY;
         byte[] encrypted = new byte[data.length];
         
         for (int i = 0; i < data.length; i++) {
@@ -686,9 +1415,35 @@ public class PolyTypeStorage {
         return encrypted;
     }
     
-    private byte[] decrypt(byte[] data) {
-        // Same as encrypt for XOR
-        return encrypt(data);
+    // Reverses encrypt() as the data is read; XOR is its own inverse
+    private static class DecryptingInputStream extends FilterInputStream {
+        private long position = 0;
+        
+        DecryptingInputStream(InputStream in) {
+            super(in);
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            return b < 0 ? b : (b ^ ENCRYPTION_KEY[(int) (position++ % ENCRYPTION_KEY.length)]) & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            for (int i = 0; i < n; i++) {
+                b[off + i] ^= ENCRYPTION_KEY[(int) (position++ % ENCRYPTION_KEY.length)];
+            }
+            return n;
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(n);
+            position += skipped;
+            return skipped;
+        }
     }
     
     private String generateId() {
@@ -700,7 +1455,11 @@ public class PolyTypeStorage {
         Set<String> allKeys = new HashSet<>(primaryBackend.listKeys(category));
         
         if (secondaryBackend != null) {
-            allKeys.addAll(secondaryBackend.listKeys(category));
+            for (String key : secondaryBackend.listKeys(category)) {
+                if (readableFromSecondary(key)) {
+                    allKeys.add(key);
+                }
+            }
         }
         
         return new ArrayList<>(allKeys);
@@ -717,13 +1476,97 @@ public class PolyTypeStorage {
         // Merge with secondary backend entries (primary takes precedence)
         if (secondaryBackend != null) {
             for (StorageEntry entry : secondaryBackend.listEntries(category)) {
-                allEntries.putIfAbsent(entry.getKey(), entry);
+                if (readableFromSecondary(entry.getKey())) {
+                    allEntries.putIfAbsent(entry.getKey(), entry);
+                }
             }
         }
         
         return new ArrayList<>(allEntries.values());
     }
     
+    /**
+     * Returns the keys of the entries matching a query over category and
+     * indexed metadata. Needs a {@link StorageType#DATABASE} primary backend.
+     */
+    public List<String> query(DatabaseBackend.Query query) {
+        if (!(primaryBackend instanceof DatabaseBackend)) {
+            throw new UnsupportedOperationException("Queries need a database primary backend");
+        }
+        return ((DatabaseBackend) primaryBackend).query(query);
+    }
+    
+    /** Iterates a category lazily; see {@link #openCursor(DataCategory, Predicate)}. */
+    public StorageCursor openCursor(DataCategory category) throws IOException {
+        return openCursor(category, null);
+    }
+    
+    /**
+     * Iterates the entries of a category whose info matches the filter, without
+     * building a list of them or loading data that is not asked for. Entries come
+     * from the primary backend, then those only the secondary backend has. Data
+     * loaded through the cursor is as stored; decode it with {@link #readData}
+     * or {@link #openData}.
+     */
+    public StorageCursor openCursor(DataCategory category, Predicate<EntryInfo> filter) throws IOException {
+        StorageCursor primary = primaryBackend.openCursor(category, filter);
+        
+        if (secondaryBackend == null) {
+            return primary;
+        }
+        
+        StorageCursor secondary = secondaryBackend.openCursor(category, filter);
+        return new StorageCursor() {
+            private StorageCursor current = primary;
+            
+            @Override
+            public boolean next() throws IOException {
+                if (current == primary) {
+                    if (primary.next()) {
+                        return true;
+                    }
+                    current = secondary;
+                }
+                while (secondary.next()) {
+                    String key = secondary.info().getKey();
+                    if (!primaryBackend.exists(key) && readableFromSecondary(key)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            
+            @Override
+            public EntryInfo info() {
+                return current.info();
+            }
+            
+            @Override
+            public StorageEntry entry() throws IOException {
+                return current.entry();
+            }
+            
+            @Override
+            public void close() throws IOException {
+                try {
+                    primary.close();
+                } finally {
+                    secondary.close();
+                }
+            }
+        };
+    }
+    
+    /** Decrypts and decompresses the data of an entry read with a cursor or {@link #retrieveEntry}. */
+    public byte[] readData(StorageEntry entry) throws IOException {
+        return processDataFromStorage(entry);
+    }
+    
+    /** Streams the decoded data of an entry read with a cursor or {@link #retrieveEntry}. */
+    public InputStream openData(StorageEntry entry) throws IOException {
+        return openDecoded(entry);
+    }
+    
     public void cleanup() throws IOException {
         primaryBackend.cleanup();
         
@@ -745,6 +1588,16 @@ public class PolyTypeStorage {
         return primaryStats;
     }
     
+    /** Writes not yet replicated to the secondary backend; zero without background replication. */
+    public long getReplicationBacklog() {
+        return replicator != null ? replicator.getPendingWrites() : 0;
+    }
+    
+    /** How long the oldest write not yet replicated has waited, in milliseconds. */
+    public long getReplicationLagMillis() {
+        return replicator != null ? replicator.getLagMillis() : 0;
+    }
+    
     public void printStats() {
         StorageStats stats = getStats();
         
@@ -754,6 +1607,11 @@ public class PolyTypeStorage {
         System.out.println("Compression: " + (compressionEnabled ? "enabled" : "disabled"));
         System.out.println("Encryption: " + (encryptionEnabled ? "enabled" : "disabled"));
         System.out.println("Secondary Backend: " + (secondaryBackend != null ? "enabled" : "disabled"));
+        if (replicator != null) {
+            System.out.println("Replication: " + replicator.getReplicatedWrites() + " replicated, " + 
+                             replicator.getPendingWrites() + " pending, lag " + getReplicationLagMillis() + 
+                             " ms, " + replicator.getFailedWrites() + " failed");
+        }
         
         System.out.println("\\nCategory Distribution:");
         for (Map.Entry<DataCategory, Long> entry : stats.getCategoryStats().entrySet()) {
@@ -817,6 +1675,10 @@ public class PolyTypeStorage {
     
     // Shutdown
     public void close() throws IOException {
+        if (replicator != null) {
+            replicator.close(); // Drains while the primary can still be read
+        }
+        
         primaryBackend.close();
         
         if (secondaryBackend != null) {
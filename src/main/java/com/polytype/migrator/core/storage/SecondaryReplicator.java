@@ -0,0 +1,527 @@
+package com.polytype.migrator.core.storage;
+
+import com.polytype.migrator.core.logging.PolyTypeLogger;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageBackend;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageEntry;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-behind replication of stores and deletes to the secondary backend,
+ * so callers only wait for the primary. Writes are queued and a background
+ * thread applies them in batches: later writes of a key replace earlier ones
+ * in the same batch, and a {@link DatabaseBackend} secondary takes each batch
+ * as one transaction. The queue is bounded; when it is full, writers wait.
+ *
+ * <p>Each queued write is first appended to a replay log as its sequence
+ * number and key; once a batch is applied, one record marks everything up
+ * to its last write as done. After a crash the keys still pending are read
+ * back from the primary, which has the latest data, and replicated again.
+ * The log is emptied whenever the secondary catches up. A write returns
+ * once its record is forced to disk; writers that append while a force is
+ * running share the next one, so concurrent writers pay for one force
+ * between them. Markers need no force: losing one only replays writes the
+ * secondary already has.
+ *
+ * <p>A batch the secondary still fails after retrying is not marked applied:
+ * its writes are logged again behind everything queued since and retried
+ * later, and stay pending meanwhile. Retried writes no longer count against
+ * the queue capacity, so an unavailable secondary does not stall writers.
+ * Writes that fail while closing stay in the log for the next start.
+ */
+final class SecondaryReplicator {
+    private static final int MAX_BATCH = 256;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 500;
+    private static final long DRAIN_TIMEOUT_SECONDS = 30;
+    private static final long LOG_REWRITE_BYTES = 16L * 1024 * 1024; // Rewritten to the pending writes past this
+    private static final byte OP_STORE = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_APPLIED = 3;
+
+    /** A queued write. Writes replayed after a restart carry no entry and are read from the primary. */
+    private static final class Write {
+        final long sequence;
+        final String key;
+        final StorageEntry entry;
+        final boolean delete;
+        final long queuedNanos;
+        final boolean holdsPermit; // False for retries, which gave their queue capacity back
+
+        Write(long sequence, String key, StorageEntry entry, boolean delete) {
+            this.sequence = sequence;
+            this.key = key;
+            this.entry = entry;
+            this.delete = delete;
+            this.queuedNanos = System.nanoTime();
+            this.holdsPermit = true;
+        }
+
+        /** The same write queued again under a new sequence. */
+        Write(long sequence, Write failed) {
+            this.sequence = sequence;
+            this.key = failed.key;
+            this.entry = failed.entry;
+            this.delete = failed.delete;
+            this.queuedNanos = failed.queuedNanos;
+            this.holdsPermit = false;
+        }
+    }
+
+    private final StorageBackend primary;
+    private final StorageBackend secondary;
+    private final Path logPath;
+    private final Semaphore capacity;
+    private final BlockingQueue<Write> queue = new LinkedBlockingQueue<>();
+    private final Map<String, Long> pendingKeys = new ConcurrentHashMap<>(); // Latest queued sequence of each key
+    private final PolyTypeLogger logger = PolyTypeLogger.getLogger(SecondaryReplicator.class);
+
+    private final Object logLock = new Object(); // Keeps log and queue in the same order
+    private FileChannel log;
+    private volatile long lastSequence;
+    private volatile long appliedSequence;
+
+    private final Object syncLock = new Object(); // Held while forcing the log, so one force serves many writers
+    private long syncedSequence; // Every write up to this one is on disk; guarded by syncLock
+
+    private final AtomicLong replicatedWrites = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+    private volatile Write oldestInFlight;
+    private volatile boolean closing;
+    private Thread worker;
+
+    SecondaryReplicator(StorageBackend primary, StorageBackend secondary, Path logPath, int queueCapacity) {
+        this.primary = primary;
+        this.secondary = secondary;
+        this.logPath = logPath;
+        this.capacity = new Semaphore(queueCapacity);
+    }
+
+    /** Opens the replay log, starts the worker and queues whatever a previous run left unreplicated. */
+    void start() throws IOException {
+        Files.createDirectories(logPath.getParent());
+        List<String> pending = recoverLog();
+
+        worker = new Thread(this::run, "PolyTypeStorage-Replicator");
+        worker.setDaemon(true);
+        worker.start();
+
+        for (int i = 0; i < pending.size(); i++) {
+            acquire();
+            pendingKeys.put(pending.get(i), i + 1L);
+            queue.add(new Write(i + 1, pending.get(i), null, false));
+        }
+        if (!pending.isEmpty()) {
+            logger.info(PolyTypeLogger.LogCategory.IO,
+                       "Replaying " + pending.size() + " writes not yet replicated to the secondary backend");
+        }
+    }
+
+    void store(StorageEntry entry) throws IOException {
+        enqueue(OP_STORE, entry.getKey(), entry);
+    }
+
+    void delete(String key) throws IOException {
+        enqueue(OP_DELETE, key, null);
+    }
+
+    /** Whether a write of the key has yet to reach the secondary, which may hold an older version until then. */
+    boolean isPending(String key) {
+        return pendingKeys.containsKey(key);
+    }
+
+    /** Writes queued or being applied. */
+    long getPendingWrites() {
+        return lastSequence - appliedSequence;
+    }
+
+    /** How long the oldest pending write has been waiting, in milliseconds. */
+    long getLagMillis() {
+        Write oldest = oldestInFlight;
+        if (oldest == null) {
+            oldest = queue.peek();
+        }
+        return oldest != null ? TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest.queuedNanos) : 0;
+    }
+
+    long getReplicatedWrites() {
+        return replicatedWrites.get();
+    }
+
+    /** Writes the secondary failed to apply after retrying; each failed attempt at a batch counts. */
+    long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    /**
+     * Waits for the queue to drain, then closes the log. Writes still queued
+     * when the wait times out stay in the log for the next start.
+     */
+    void close() throws IOException {
+        closing = true;
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(DRAIN_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (worker.isAlive()) {
+            logger.warn(PolyTypeLogger.LogCategory.IO,
+                       "Secondary backend did not catch up; " + getPendingWrites() + " writes left for the next start");
+            worker.interrupt(); // Stops retrying; nothing more is marked applied
+        }
+
+        synchronized (logLock) {
+            if (log != null) {
+                log.force(false); // Writes left pending and markers of the last batches
+                log.close();
+                log = null;
+            }
+        }
+    }
+
+    private void enqueue(byte op, String key, StorageEntry entry) throws IOException {
+        if (closing) {
+            throw new IllegalStateException("Replication to the secondary backend is closed");
+        }
+        acquire(); // Outside the log lock, so the worker can still mark batches applied
+        long sequence;
+        try {
+            synchronized (logLock) {
+                sequence = lastSequence + 1;
+                appendLog(op, sequence, key);
+                lastSequence = sequence;
+                pendingKeys.put(key, sequence);
+                queue.add(new Write(sequence, key, entry, op == OP_DELETE));
+            }
+        } catch (IOException | RuntimeException e) {
+            capacity.release();
+            throw e;
+        }
+        syncLog(sequence); // Already queued; if the force fails, only a crash before it is applied can lose it
+    }
+
+    /**
+     * Forces the log through the given write, unless a force that started
+     * after it was appended already did. Writers waiting here meanwhile are
+     * all covered by the next force.
+     */
+    private void syncLog(long sequence) throws IOException {
+        synchronized (syncLock) {
+            if (syncedSequence >= sequence) {
+                return;
+            }
+            FileChannel channel;
+            long through;
+            synchronized (logLock) {
+                channel = log;
+                through = lastSequence;
+            }
+            try {
+                if (channel != null) {
+                    channel.force(false);
+                }
+            } catch (ClosedByInterruptException e) {
+                throw e;
+            } catch (ClosedChannelException e) {
+                // Rewritten or closed since; both force the file first, with this write in it
+            }
+            syncedSequence = through;
+        }
+    }
+
+    private void acquire() throws IOException {
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for room in the replication queue");
+        }
+    }
+
+    private void run() {
+        List<Write> batch = new ArrayList<>(MAX_BATCH);
+        while (true) {
+            Write first;
+            try {
+                first = queue.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                break;
+            }
+            if (first == null) {
+                if (closing) {
+                    break;
+                }
+                continue;
+            }
+
+            oldestInFlight = first;
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH - 1);
+
+            boolean applied = apply(batch);
+            if (!applied && (closing || Thread.currentThread().isInterrupted())) {
+                break; // This batch and everything after it stay in the log for the next start
+            }
+            if (applied) {
+                for (Write write : batch) {
+                    pendingKeys.remove(write.key, write.sequence); // Unless written again since
+                }
+            } else {
+                retryLater(batch);
+            }
+            markApplied(batch.get(batch.size() - 1).sequence);
+            oldestInFlight = null;
+            int permits = 0;
+            for (Write write : batch) {
+                permits += write.holdsPermit ? 1 : 0;
+            }
+            capacity.release(permits);
+            batch.clear();
+
+            logger.recordMetric("storage.replication.pending", getPendingWrites());
+            logger.recordMetric("storage.replication.lag_ms", getLagMillis());
+        }
+    }
+
+    /** Returns false if the secondary kept failing the batch, or the retry wait was interrupted. */
+    private boolean apply(List<Write> batch) {
+        // Only the last write of a key in the batch matters
+        Map<String, Write> latest = new LinkedHashMap<>();
+        for (Write write : batch) {
+            latest.remove(write.key);
+            latest.put(write.key, write);
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<StorageEntry> entries = new ArrayList<>();
+                List<String> deletions = new ArrayList<>();
+                for (Write write : latest.values()) {
+                    StorageEntry entry = write.delete ? null : write.entry != null ? write.entry : primary.retrieve(write.key);
+                    if (entry != null) {
+                        entries.add(entry);
+                    } else {
+                        deletions.add(write.key);
+                    }
+                }
+
+                if (secondary instanceof DatabaseBackend) {
+                    ((DatabaseBackend) secondary).storeAll(entries, deletions);
+                } else {
+                    for (StorageEntry entry : entries) {
+                        secondary.store(entry);
+                    }
+                    for (String key : deletions) {
+                        secondary.delete(key);
+                    }
+                }
+                replicatedWrites.addAndGet(batch.size());
+                return true;
+            } catch (Exception e) {
+                if (attempt == MAX_ATTEMPTS) {
+                    failedWrites.addAndGet(latest.size());
+                    logger.warn(PolyTypeLogger.LogCategory.IO,
+                               "Failed to replicate " + latest.size() + " writes to secondary backend, will retry", e);
+                    return false;
+                }
+                try {
+                    Thread.sleep(RETRY_DELAY_MILLIS * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the writes of a failed batch again, each under a new sequence
+     * logged after every write queued so far, so marking the batch applied
+     * leaves them pending. Writes of keys written again since are covered by
+     * the newer write and dropped.
+     */
+    private void retryLater(List<Write> batch) {
+        Map<String, Write> latest = new LinkedHashMap<>();
+        for (Write write : batch) {
+            latest.remove(write.key);
+            latest.put(write.key, write);
+        }
+
+        synchronized (logLock) {
+            IOException logFailure = null;
+            for (Write write : latest.values()) {
+                long sequence = lastSequence + 1;
+                if (!pendingKeys.replace(write.key, write.sequence, sequence)) {
+                    continue;
+                }
+                if (log != null && logFailure == null) {
+                    try {
+                        appendLog(write.delete ? OP_DELETE : OP_STORE, sequence, write.key);
+                    } catch (IOException e) {
+                        logFailure = e;
+                    }
+                }
+                lastSequence = sequence;
+                queue.add(new Write(sequence, write));
+            }
+            if (logFailure != null) {
+                logger.warn(PolyTypeLogger.LogCategory.IO,
+                           "Failed to log writes for retry; they are retried but may not survive a restart", logFailure);
+            }
+        }
+    }
+
+    private void markApplied(long sequence) {
+        synchronized (logLock) {
+            appliedSequence = sequence;
+            if (log == null) {
+                return; // Closed while the secondary was catching up
+            }
+            try {
+                if (sequence == lastSequence) {
+                    log.truncate(0); // Caught up
+                } else if (log.size() > LOG_REWRITE_BYTES) {
+                    rewriteLog();
+                } else {
+                    appendLog(OP_APPLIED, sequence, null);
+                }
+            } catch (IOException e) {
+                logger.warn(PolyTypeLogger.LogCategory.IO, "Failed to update replication log", e);
+            }
+        }
+    }
+
+    // Callers hold the log lock; with the worker between batches, the queue holds every pending write
+    private void rewriteLog() throws IOException {
+        List<Write> pending = new ArrayList<>(queue);
+        log.close();
+        writeLog(pending);
+        openLog();
+    }
+
+    private void writeLog(List<Write> writes) throws IOException {
+        Path tempPath = logPath.resolveSibling(logPath.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tempPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            for (Write write : writes) {
+                out.write(encode(write.delete ? OP_DELETE : OP_STORE, write.sequence, write.key));
+            }
+            out.flush();
+            channel.force(false); // Replaces a log whose pending writes may all be on disk
+        }
+        try {
+            Files.move(tempPath, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, logPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads the log up to its first torn record and returns the keys still to
+     * replicate, oldest first. The log is rewritten to hold just those, numbered
+     * from one.
+     */
+    private List<String> recoverLog() throws IOException {
+        Map<String, Long> pending = new LinkedHashMap<>();
+        byte[] bytes = Files.exists(logPath) ? Files.readAllBytes(logPath) : new byte[0];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+
+        while (buffer.remaining() >= 8) {
+            int length = buffer.getInt();
+            if (length <= 0 || length > buffer.remaining() - 4) {
+                break;
+            }
+            int bodyOffset = buffer.position();
+            CRC32C crc = new CRC32C();
+            crc.update(bytes, bodyOffset, length);
+            if ((int) crc.getValue() != buffer.getInt(bodyOffset + length)) {
+                break;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, bodyOffset, length));
+            byte op = in.readByte();
+            long sequence = in.readLong();
+            if (op == OP_APPLIED) {
+                // Pending keys are in sequence order, so the applied ones are at the front
+                Iterator<Long> sequences = pending.values().iterator();
+                while (sequences.hasNext() && sequences.next() <= sequence) {
+                    sequences.remove();
+                }
+            } else {
+                String key = in.readUTF();
+                pending.remove(key);
+                pending.put(key, sequence);
+            }
+            buffer.position(bodyOffset + length + 4);
+        }
+
+        List<String> keys = new ArrayList<>(pending.keySet());
+        List<Write> writes = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            writes.add(new Write(i + 1, keys.get(i), null, false));
+        }
+        writeLog(writes);
+        openLog();
+        lastSequence = keys.size();
+        appliedSequence = 0;
+        return keys;
+    }
+
+    private void openLog() throws IOException {
+        log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.position(log.size());
+    }
+
+    // Records: body length, body, CRC32C of the body; the body is the op, the sequence and, for writes, the key
+    private void appendLog(byte op, long sequence, String key) throws IOException {
+        ByteBuffer record = ByteBuffer.wrap(encode(op, sequence, key));
+        while (record.hasRemaining()) {
+            log.write(record);
+        }
+    }
+
+    private static byte[] encode(byte op, long sequence, String key) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(key != null ? key.length() + 16 : 16);
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            out.writeByte(op);
+            out.writeLong(sequence);
+            if (key != null) {
+                out.writeUTF(key);
+            }
+        }
+        byte[] bytes = body.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+
+        return ByteBuffer.allocate(bytes.length + 8).putInt(bytes.length).put(bytes).putInt((int) crc.getValue()).array();
+    }
+}
@@ -0,0 +1,1094 @@
+package com.polytype.migrator.core.storage;
+
+import com.polytype.migrator.core.logging.PolyTypeLogger;
+import com.polytype.migrator.core.storage.PolyTypeStorage.BatchCursor;
+import com.polytype.migrator.core.storage.PolyTypeStorage.DataCategory;
+import com.polytype.migrator.core.storage.PolyTypeStorage.EntryInfo;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageCursor;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageEntry;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageStats;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.zip.CRC32C;
+
+/**
+ * Storage backend that appends every entry to large segment files instead
+ * of writing a pair of files per entry. An in-memory index maps each key to
+ * the segment and offset of its latest record.
+ *
+ * <p>Every store, batch and delete is forced to disk before it returns. The
+ * force runs after the write lock is released, so concurrent writers do not
+ * queue behind it, and one force often covers several of their records.
+ *
+ * <p>Each record carries a CRC32C checksum. After a crash, a torn record at
+ * the end of the last segment is cut off and everything before it is kept.
+ * Damage inside a sealed segment is not a torn write: it is reported, the
+ * records before it are copied out and the file is renamed to
+ * {@code .damaged} for inspection.
+ * The index is saved to a compact file on close and after compaction; on
+ * startup it is loaded and only the segment tail written after the save is
+ * replayed. Without a usable index file all segments are scanned.
+ *
+ * <p>{@link #storeAll} writes a batch of puts and deletes as one record
+ * under one checksum, so after a crash the batch is either replayed whole or
+ * not at all.
+ *
+ * <p>Overwrites and deletes leave dead records behind. A background task
+ * rewrites the live records of any sealed segment that is mostly dead into
+ * the active segment, then deletes it. A tombstone is carried along only
+ * while an older segment still holds a put of its key.
+ */
+public class SegmentLogBackend implements PolyTypeStorage.StorageBackend {
+    private static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final double COMPACTION_THRESHOLD = 0.5; // Live fraction below which a segment is rewritten
+    private static final long COMPACTION_INTERVAL_SECONDS = 30;
+    private static final int MAP_THRESHOLD = 256 * 1024; // Smaller records are cheaper to read than to map
+    private static final int HEADER_READ_SIZE = 4096;     // Enough for the header of nearly every record
+
+    private static final int RECORD_MAGIC = 0x50544C47; // "PTLG"
+    private static final int INDEX_MAGIC = 0x50544958;  // "PTIX"
+    private static final int INDEX_VERSION = 1;
+    private static final int RECORD_HEADER = 8;         // Magic and body length
+    private static final int RECORD_TRAILER = 4;        // Checksum
+    private static final byte TYPE_PUT = 1;
+    private static final byte TYPE_DELETE = 2;
+    private static final byte TYPE_BATCH = 3;           // Envelope of puts and deletes applied together
+    private static final int BATCH_PREFIX = 5;          // Type and member count
+    private static final String INDEX_FILE = "segments.idx";
+
+    /** Where the latest record of a key lives, plus what stats and cleanup need. */
+    private static final class Location {
+        final int segment;
+        final long offset;
+        final int length;
+        final DataCategory category;
+        final int dataSize;
+        final long modifiedMillis;
+
+        Location(int segment, long offset, int length, DataCategory category, int dataSize, long modifiedMillis) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.category = category;
+            this.dataSize = dataSize;
+            this.modifiedMillis = modifiedMillis;
+        }
+    }
+
+    private static final class Segment {
+        final int id;
+        final Path path;
+        final FileChannel channel;
+        long size;
+        long liveBytes;
+        boolean damaged; // Unreadable past size; moved aside once its intact records are copied out
+
+        Segment(int id, Path path, FileChannel channel, long size) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+            this.size = size;
+        }
+    }
+
+    /** A record read back from a segment. */
+    private static final class Record {
+        final byte type;
+        final String key;
+        final StorageEntry entry; // Null for deletes
+
+        Record(byte type, String key, StorageEntry entry) {
+            this.type = type;
+            this.key = key;
+            this.entry = entry;
+        }
+    }
+
+    private final Path basePath;
+    private final long segmentSize;
+    private final StorageStats stats = new StorageStats();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Object compactionLock = new Object(); // One compaction pass at a time
+    private final PolyTypeLogger logger = PolyTypeLogger.getLogger(SegmentLogBackend.class);
+
+    private final Map<String, Location> index = new HashMap<>();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private Segment active;
+    private ScheduledExecutorService compactor;
+
+    public SegmentLogBackend(String basePath) {
+        this(basePath, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public SegmentLogBackend(String basePath, long segmentSize) {
+        this.basePath = Paths.get(basePath);
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public void initialize() throws IOException {
+        Files.createDirectories(basePath);
+
+        lock.writeLock().lock();
+        try {
+            openSegments();
+            recover();
+            if (active == null || active.size >= segmentSize) {
+                rollSegment();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        // Copy what can still be read out of damaged sealed segments before anything else is written
+        List<Segment> damaged = new ArrayList<>();
+        for (Segment segment : segments.values()) {
+            if (segment.damaged) {
+                damaged.add(segment);
+            }
+        }
+        for (Segment segment : damaged) {
+            compactSegment(segment);
+        }
+        if (!damaged.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                saveIndex();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "PolyTypeStorage-Compactor");
+            t.setDaemon(true);
+            return t;
+        });
+        compactor.scheduleWithFixedDelay(this::compactQuietly, COMPACTION_INTERVAL_SECONDS,
+                                         COMPACTION_INTERVAL_SECONDS, TimeUnit.SECONDS);
+
+        logger.info(PolyTypeLogger.LogCategory.IO,
+                   "Initialized segment log storage: " + basePath.toAbsolutePath() + " ("
+                   + index.size() + " entries in " + segments.size() + " segments)");
+    }
+
+    @Override
+    public void store(StorageEntry entry) throws IOException {
+        ByteBuffer[] record = encodePut(entry);
+        FileChannel written;
+
+        lock.writeLock().lock();
+        try {
+            Location location = append(entry.getCategory(), entry.getSize(),
+                                       entry.getModified().toInstant(ZoneOffset.UTC).toEpochMilli(), record);
+            replace(entry.getKey(), location);
+            written = active.channel;
+
+            logger.debug(PolyTypeLogger.LogCategory.IO,
+                       "Stored entry: " + entry.getKey() + " (" + entry.getSize() + " bytes)");
+        } finally {
+            lock.writeLock().unlock();
+        }
+        sync(written);
+    }
+
+    @Override
+    public StorageEntry retrieve(String key) throws IOException {
+        return read(key, false);
+    }
+
+    /** Large records are mapped; compaction only unlinks segments, so the mapping outlives it. */
+    @Override
+    public StorageEntry retrieveView(String key) throws IOException {
+        return read(key, true);
+    }
+
+    private StorageEntry read(String key, boolean mapLarge) throws IOException {
+        lock.readLock().lock();
+        try {
+            Location location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+            Segment segment = segments.get(location.segment);
+            ByteBuffer record;
+            if (mapLarge && location.length >= MAP_THRESHOLD) {
+                record = segment.channel.map(FileChannel.MapMode.READ_ONLY, location.offset, location.length);
+            } else {
+                record = ByteBuffer.allocate(location.length);
+                while (record.hasRemaining()) {
+                    if (segment.channel.read(record, location.offset + record.position()) < 0) {
+                        throw new EOFException("Segment record cut short in " + segment.path.getFileName());
+                    }
+                }
+                record.flip();
+            }
+            return decode(record).entry;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean exists(String key) throws IOException {
+        lock.readLock().lock();
+        try {
+            return index.containsKey(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Stores and deletes entries as one batch record. After a crash either all
+     * of it is replayed or none of it, since a torn batch fails its checksum.
+     */
+    public void storeAll(Collection<StorageEntry> entries, Collection<String> deletions) throws IOException {
+        if (entries.isEmpty() && deletions.isEmpty()) {
+            return;
+        }
+
+        List<ByteBuffer> members = new ArrayList<>();
+        int[] memberLengths = new int[entries.size() + deletions.size()];
+        int bodyLength = BATCH_PREFIX;
+        int member = 0;
+        for (StorageEntry entry : entries) {
+            for (ByteBuffer part : encodePut(entry)) {
+                members.add(part);
+                memberLengths[member] += part.remaining();
+            }
+            bodyLength += memberLengths[member++];
+        }
+        for (String key : deletions) {
+            ByteBuffer tombstone = encodeDelete(key);
+            members.add(tombstone);
+            memberLengths[member] = tombstone.remaining();
+            bodyLength += memberLengths[member++];
+        }
+
+        ByteBuffer prefix = ByteBuffer.allocate(RECORD_HEADER + BATCH_PREFIX);
+        prefix.putInt(RECORD_MAGIC).putInt(bodyLength).put(TYPE_BATCH).putInt(memberLengths.length).flip();
+        CRC32C crc = new CRC32C();
+        crc.update(prefix.array(), RECORD_HEADER, BATCH_PREFIX);
+        for (ByteBuffer part : members) {
+            crc.update(part.duplicate());
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(RECORD_TRAILER).putInt(0, (int) crc.getValue());
+
+        List<ByteBuffer> record = new ArrayList<>(members.size() + 2);
+        record.add(prefix);
+        record.addAll(members);
+        record.add(trailer);
+        FileChannel written;
+
+        lock.writeLock().lock();
+        try {
+            Location batch = append(null, 0, 0, record.toArray(new ByteBuffer[0]));
+            long offset = batch.offset + RECORD_HEADER + BATCH_PREFIX;
+            member = 0;
+            for (StorageEntry entry : entries) {
+                replace(entry.getKey(), new Location(batch.segment, offset, memberLengths[member], entry.getCategory(),
+                                                     entry.getSize(), entry.getModified().toInstant(ZoneOffset.UTC).toEpochMilli()));
+                offset += memberLengths[member++];
+            }
+            for (String key : deletions) {
+                replace(key, null);
+            }
+            written = active.channel;
+
+            logger.debug(PolyTypeLogger.LogCategory.IO,
+                       "Stored batch of " + entries.size() + " entries and " + deletions.size() + " deletions");
+        } finally {
+            lock.writeLock().unlock();
+        }
+        sync(written);
+    }
+
+    @Override
+    public void delete(String key) throws IOException {
+        FileChannel written;
+        lock.writeLock().lock();
+        try {
+            if (!index.containsKey(key)) {
+                return;
+            }
+            // Tombstones never count as live; compaction keeps them only while they shadow an older record
+            append(null, 0, System.currentTimeMillis(), encodeDelete(key));
+            replace(key, null);
+            written = active.channel;
+
+            logger.debug(PolyTypeLogger.LogCategory.IO, "Deleted entry: " + key);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        sync(written);
+    }
+
+    @Override
+    public List<String> listKeys(DataCategory category) throws IOException {
+        lock.readLock().lock();
+        try {
+            List<String> keys = new ArrayList<>();
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                if (entry.getValue().category == category) {
+                    keys.add(entry.getKey());
+                }
+            }
+            return keys;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<StorageEntry> listEntries(DataCategory category) throws IOException {
+        List<StorageEntry> entries = new ArrayList<>();
+        for (String key : listKeys(category)) {
+            StorageEntry entry = retrieve(key);
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Walks the category in segment order and reads only each record's header.
+     * Checksums are verified when {@link StorageCursor#entry()} loads a record.
+     */
+    @Override
+    public StorageCursor openCursor(DataCategory category, Predicate<EntryInfo> filter) throws IOException {
+        List<String> keys;
+        lock.readLock().lock();
+        try {
+            keys = listKeys(category);
+            keys.sort(Comparator.comparingInt((String key) -> index.get(key).segment)
+                                .thenComparingLong(key -> index.get(key).offset));
+        } finally {
+            lock.readLock().unlock();
+        }
+        Iterator<String> remaining = keys.iterator();
+
+        return new BatchCursor(this, filter) {
+            @Override
+            protected List<EntryInfo> nextBatch() throws IOException {
+                if (!remaining.hasNext()) {
+                    return null;
+                }
+                List<EntryInfo> infos = new ArrayList<>(BATCH_SIZE);
+                lock.readLock().lock();
+                try {
+                    for (int i = 0; i < BATCH_SIZE && remaining.hasNext(); i++) {
+                        String key = remaining.next();
+                        Location location = index.get(key);
+                        if (location != null && location.category == category) {
+                            infos.add(readHeader(key, location));
+                        }
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+                return infos;
+            }
+        };
+    }
+
+    /** Reads the info of one entry from its record header, or returns null if the key is not stored. */
+    EntryInfo info(String key) throws IOException {
+        lock.readLock().lock();
+        try {
+            Location location = index.get(key);
+            return location != null ? readHeader(key, location) : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Callers hold the read lock
+    private EntryInfo readHeader(String key, Location location) throws IOException {
+        Segment segment = segments.get(location.segment);
+        int length = Math.min(location.length, HEADER_READ_SIZE);
+        while (true) {
+            ByteBuffer prefix = ByteBuffer.allocate(length);
+            while (prefix.hasRemaining()) {
+                if (segment.channel.read(prefix, location.offset + prefix.position()) < 0) {
+                    throw new EOFException("Segment record cut short in " + segment.path.getFileName());
+                }
+            }
+            prefix.flip();
+            if (prefix.getInt() != RECORD_MAGIC) {
+                throw new IOException("Not a segment record in " + segment.path.getFileName());
+            }
+            prefix.getInt(); // Body length
+
+            try {
+                DataInputStream in = new DataInputStream(new ByteBufferInputStream(prefix));
+                in.readByte(); // Type, always a put for indexed keys
+                in.readUTF();  // Key
+                return readInfo(in, key);
+            } catch (EOFException e) {
+                if (length == location.length) {
+                    throw e;
+                }
+                length = location.length; // Unusually large metadata; read the whole record
+            }
+        }
+    }
+
+    @Override
+    public void cleanup() throws IOException {
+        // Clean up temporary entries older than 24 hours
+        long cutoffTime = System.currentTimeMillis() - (24 * 60 * 60 * 1000);
+        List<String> expired = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                Location location = entry.getValue();
+                if (location.category == DataCategory.TEMPORARY && location.modifiedMillis < cutoffTime) {
+                    expired.add(entry.getKey());
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        for (String key : expired) {
+            delete(key);
+        }
+        if (!expired.isEmpty()) {
+            logger.debug(PolyTypeLogger.LogCategory.IO, "Cleaned up " + expired.size() + " temporary entries");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (compactor != null) {
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (active != null) {
+                active.channel.force(true);
+            }
+            saveIndex();
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+            segments.clear();
+            index.clear();
+            active = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info(PolyTypeLogger.LogCategory.IO, "Segment log storage closed");
+    }
+
+    @Override
+    public StorageStats getStats() {
+        return stats;
+    }
+
+    /**
+     * Rewrites the live records of every sealed segment whose live fraction
+     * is below the threshold, then deletes those segments. Runs on the
+     * background compactor; callable directly, e.g. before a backup.
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            List<Segment> candidates = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                for (Segment segment : segments.values()) {
+                    if (segment != active && segment.liveBytes < segment.size * COMPACTION_THRESHOLD) {
+                        candidates.add(segment);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            for (Segment segment : candidates) {
+                compactSegment(segment);
+            }
+            if (!candidates.isEmpty()) {
+                lock.writeLock().lock();
+                try {
+                    saveIndex();
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            logger.warn(PolyTypeLogger.LogCategory.IO, "Segment compaction failed", e);
+        }
+    }
+
+    private void compactSegment(Segment segment) throws IOException {
+        Set<String> shadowing = shadowingTombstones(segment);
+
+        // Batch members are copied on their own; the batch was applied long ago
+        int copied = scan(segment, (record, recordOffset, recordBytes) -> {
+            lock.writeLock().lock();
+            try {
+                if (record.type == TYPE_PUT) {
+                    Location current = index.get(record.key);
+                    if (current != null && current.segment == segment.id && current.offset == recordOffset) {
+                        replace(record.key, append(current.category, current.dataSize, current.modifiedMillis, recordBytes));
+                        return 1;
+                    }
+                } else if (!index.containsKey(record.key) && shadowing.contains(record.key)) {
+                    append(null, 0, 0, recordBytes);
+                }
+                return 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            active.channel.force(false); // Copies must be durable before the originals go
+            segments.remove(segment.id);
+            segment.channel.close();
+            if (segment.damaged) {
+                Files.move(segment.path, quarantinePath(segment), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                Files.deleteIfExists(segment.path);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        logger.debug(PolyTypeLogger.LogCategory.IO,
+                   "Compacted segment " + segment.id + " (" + copied + " live records kept)");
+    }
+
+    /**
+     * Returns the keys of the segment's tombstones that still hide a put in
+     * an older segment, which a full scan would otherwise bring back. Other
+     * tombstones can be dropped. Only compaction removes segments, so the
+     * older ones stay put while this runs.
+     */
+    private Set<String> shadowingTombstones(Segment segment) throws IOException {
+        Set<String> tombstones = new HashSet<>();
+        scan(segment, (record, offset, bytes) -> {
+            if (record.type == TYPE_DELETE) {
+                tombstones.add(record.key);
+            }
+            return 0;
+        });
+
+        List<Segment> older;
+        lock.readLock().lock();
+        try {
+            older = new ArrayList<>(segments.headMap(segment.id, false).values());
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Set<String> shadowing = new HashSet<>();
+        for (Segment candidate : older) {
+            if (tombstones.isEmpty()) {
+                break;
+            }
+            scan(candidate, (record, offset, bytes) -> {
+                if (record.type == TYPE_PUT && tombstones.remove(record.key)) {
+                    shadowing.add(record.key);
+                }
+                return 0;
+            });
+        }
+        return shadowing;
+    }
+
+    /**
+     * Hands the visitor every put and delete of a sealed segment and returns
+     * the sum of its results. Sealed segments never change, so they are read
+     * without the lock.
+     */
+    private int scan(Segment segment, RecordVisitor visitor) throws IOException {
+        int result = 0;
+        try (DataInputStream in = openSequential(segment)) {
+            long offset = 0;
+            while (offset < segment.size) {
+                int length = peekLength(in);
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                result += forEachRecord(ByteBuffer.wrap(bytes), offset, visitor);
+                offset += length;
+            }
+        }
+        return result;
+    }
+
+    // Callers hold the write lock
+    private Location append(DataCategory category, int dataSize, long modifiedMillis, ByteBuffer... record) throws IOException {
+        int length = 0;
+        for (ByteBuffer part : record) {
+            length += part.remaining();
+        }
+        if (active.size > 0 && active.size + length > segmentSize) {
+            active.channel.force(false);
+            rollSegment();
+        }
+
+        long offset = active.size;
+        long position = offset;
+        for (ByteBuffer part : record) {
+            while (part.hasRemaining()) {
+                position += active.channel.write(part, position);
+            }
+        }
+        active.size += length;
+        return new Location(active.id, offset, length, category, dataSize, modifiedMillis);
+    }
+
+    /**
+     * Forces a segment after a write, outside the lock. A segment is forced
+     * before it is sealed and before it is closed, so a channel closed in
+     * the meantime already holds the write.
+     */
+    private static void sync(FileChannel channel) throws IOException {
+        try {
+            channel.force(false);
+        } catch (ClosedByInterruptException e) {
+            throw e; // Closed by our own interrupt, possibly before the write was forced
+        } catch (ClosedChannelException e) {
+            // Forced when it was sealed or closed
+        }
+    }
+
+    // Callers hold the write lock; a null location removes the key
+    private void replace(String key, Location location) {
+        Location old = location != null ? index.put(key, location) : index.remove(key);
+        if (old != null) {
+            markDead(old);
+            stats.updateStats(old.category, old.dataSize, false);
+        }
+        if (location != null) {
+            segments.get(location.segment).liveBytes += location.length;
+            stats.updateStats(location.category, location.dataSize, true);
+        }
+    }
+
+    private void markDead(Location location) {
+        Segment segment = segments.get(location.segment);
+        if (segment != null) {
+            segment.liveBytes -= location.length;
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        int id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Path path = basePath.resolve(String.format("segment-%08d.log", id));
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                               StandardOpenOption.WRITE);
+        active = new Segment(id, path, channel, channel.size());
+        segments.put(id, active);
+
+        if (compactor != null && !compactor.isShutdown()) {
+            compactor.execute(this::compactQuietly); // A segment was just sealed
+        }
+    }
+
+    private void openSegments() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(basePath, "segment-*.log")) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                int id = Integer.parseInt(name.substring("segment-".length(), name.length() - ".log".length()));
+                FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                segments.put(id, new Segment(id, path, channel, channel.size()));
+            }
+        }
+        active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+    }
+
+    private void recover() throws IOException {
+        int replayFrom = 0;
+        long replayOffset = 0;
+        long[] saved = loadIndex();
+        if (saved != null) {
+            replayFrom = (int) saved[0];
+            replayOffset = saved[1];
+        } else {
+            index.clear();
+        }
+
+        for (Segment segment : new ArrayList<>(segments.tailMap(replayFrom, true).values())) {
+            replay(segment, segment.id == replayFrom ? replayOffset : 0);
+        }
+
+        // Live bytes follow from the index; stats from what it points at
+        for (Segment segment : segments.values()) {
+            segment.liveBytes = 0;
+        }
+        for (Location location : index.values()) {
+            segments.get(location.segment).liveBytes += location.length;
+            stats.updateStats(location.category, location.dataSize, true);
+        }
+    }
+
+    /**
+     * Applies the records of a segment from the offset on. A torn tail of the
+     * active segment is cut off. A sealed segment was complete when it was
+     * sealed, so damage there is reported and the segment quarantined.
+     */
+    private void replay(Segment segment, long fromOffset) throws IOException {
+        long offset = fromOffset;
+        try (DataInputStream in = openSequential(segment, fromOffset)) {
+            while (offset < segment.size) {
+                int length;
+                try {
+                    length = peekLength(in);
+                    if (length > segment.size - offset) {
+                        break;
+                    }
+                    byte[] bytes = new byte[length];
+                    in.readFully(bytes);
+
+                    // The whole record, a batch included, is checked before any of it is applied
+                    forEachRecord(ByteBuffer.wrap(bytes), offset, (record, recordOffset, recordBytes) -> {
+                        if (record.type == TYPE_PUT) {
+                            StorageEntry entry = record.entry;
+                            index.put(record.key, new Location(segment.id, recordOffset, recordBytes.remaining(), entry.getCategory(),
+                                                               entry.getSize(), entry.getModified().toInstant(ZoneOffset.UTC).toEpochMilli()));
+                        } else {
+                            index.remove(record.key);
+                        }
+                        return 1;
+                    });
+                } catch (IOException e) {
+                    break; // Torn or damaged record
+                }
+                offset += length;
+            }
+        }
+
+        if (offset < segment.size && segment == active) {
+            logger.warn(PolyTypeLogger.LogCategory.IO,
+                       "Discarding " + (segment.size - offset) + " damaged bytes at the end of " + segment.path.getFileName());
+            segment.channel.truncate(offset);
+            segment.size = offset;
+        } else if (offset < segment.size) {
+            // Records past the damage cannot be found; keep the file for inspection instead of cutting them off
+            logger.error(PolyTypeLogger.LogCategory.IO,
+                        "Sealed segment " + segment.path.getFileName() + " is damaged at offset " + offset + "; the "
+                        + (segment.size - offset) + " bytes after it are unreadable. The records before it are kept"
+                        + " and the segment is moved to " + quarantinePath(segment).getFileName());
+            segment.size = offset;
+            segment.damaged = true;
+        }
+    }
+
+    private static Path quarantinePath(Segment segment) {
+        return segment.path.resolveSibling(segment.path.getFileName() + ".damaged");
+    }
+
+    // Index file: magic, version, replay position, entries, then a checksum of all of it
+
+    private void saveIndex() throws IOException {
+        Path indexPath = basePath.resolve(INDEX_FILE);
+        Path tempPath = basePath.resolve(INDEX_FILE + ".tmp");
+
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(64 + index.size() * 96);
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_VERSION);
+            out.writeInt(active != null ? active.id : 0);
+            out.writeLong(active != null ? active.size : 0);
+            out.writeInt(index.size());
+            for (Map.Entry<String, Location> entry : index.entrySet()) {
+                Location location = entry.getValue();
+                out.writeUTF(entry.getKey());
+                out.writeInt(location.segment);
+                out.writeLong(location.offset);
+                out.writeInt(location.length);
+                out.writeByte(location.category.ordinal());
+                out.writeInt(location.dataSize);
+                out.writeLong(location.modifiedMillis);
+            }
+        }
+
+        CRC32C crc = new CRC32C();
+        byte[] bytes = buffer.toByteArray();
+        crc.update(bytes, 0, bytes.length);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)))) {
+            out.write(bytes);
+            out.writeInt((int) crc.getValue());
+        }
+        try {
+            Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempPath, indexPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /** Loads the index file; returns the segment and offset to replay from, or null if unusable. */
+    private long[] loadIndex() {
+        Path indexPath = basePath.resolve(INDEX_FILE);
+        if (!Files.exists(indexPath)) {
+            return null;
+        }
+
+        try {
+            byte[] bytes = Files.readAllBytes(indexPath);
+            if (bytes.length < 4) {
+                return null;
+            }
+            CRC32C crc = new CRC32C();
+            crc.update(bytes, 0, bytes.length - 4);
+            int stored = ByteBuffer.wrap(bytes, bytes.length - 4, 4).getInt();
+            if ((int) crc.getValue() != stored) {
+                logger.warn(PolyTypeLogger.LogCategory.IO, "Segment index checksum mismatch; rebuilding from segments");
+                return null;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 0, bytes.length - 4));
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                return null;
+            }
+            int replaySegment = in.readInt();
+            long replayOffset = in.readLong();
+            int count = in.readInt();
+            DataCategory[] categories = DataCategory.values();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                Location location = new Location(in.readInt(), in.readLong(), in.readInt(),
+                                                 categories[in.readByte()], in.readInt(), in.readLong());
+                Segment segment = segments.get(location.segment);
+                if (segment == null || location.offset + location.length > segment.size) {
+                    // Written before a crash that lost segment data
+                    index.clear();
+                    return null;
+                }
+                index.put(key, location);
+            }
+
+            Segment replayFrom = segments.get(replaySegment);
+            if (replayFrom != null && replayOffset > replayFrom.size) {
+                index.clear();
+                return null;
+            }
+            return new long[] { replaySegment, replayOffset };
+
+        } catch (IOException | RuntimeException e) {
+            logger.warn(PolyTypeLogger.LogCategory.IO, "Unreadable segment index; rebuilding from segments", e);
+            index.clear();
+            return null;
+        }
+    }
+
+    // Records: magic, body length, body, CRC32C of the body
+
+    // Entry data is written and checksummed straight from its buffer, without a copy
+    private static ByteBuffer[] encodePut(StorageEntry entry) throws IOException {
+        ByteBuffer data = entry.getDataBuffer();
+        ByteArrayOutputStream header = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(header)) {
+            out.writeInt(RECORD_MAGIC);
+            out.writeInt(0); // Body length, filled in below
+            out.writeByte(TYPE_PUT);
+            out.writeUTF(entry.getKey());
+            out.writeByte(entry.getCategory().ordinal());
+            out.writeUTF(entry.getId() != null ? entry.getId() : "");
+            writeTime(out, entry.getCreated());
+            writeTime(out, entry.getModified());
+            out.writeLong(entry.getVersion());
+            out.writeByte((entry.isCompressed() ? 1 : 0) | (entry.isEncrypted() ? 2 : 0));
+            Map<String, String> metadata = entry.getMetadata();
+            out.writeInt(metadata.size());
+            for (Map.Entry<String, String> field : metadata.entrySet()) {
+                out.writeUTF(field.getKey());
+                out.writeUTF(field.getValue());
+            }
+            out.writeInt(data.remaining());
+        }
+
+        ByteBuffer head = ByteBuffer.wrap(header.toByteArray());
+        head.putInt(4, head.remaining() - RECORD_HEADER + data.remaining());
+        CRC32C crc = new CRC32C();
+        crc.update(head.array(), RECORD_HEADER, head.remaining() - RECORD_HEADER);
+        crc.update(data.duplicate());
+        ByteBuffer trailer = ByteBuffer.allocate(RECORD_TRAILER).putInt(0, (int) crc.getValue());
+        return new ByteBuffer[] { head, data, trailer };
+    }
+
+    private static ByteBuffer encodeDelete(String key) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(key.length() + 8);
+        try (DataOutputStream out = new DataOutputStream(body)) {
+            out.writeByte(TYPE_DELETE);
+            out.writeUTF(key);
+        }
+        byte[] bytes = body.toByteArray();
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, 0, bytes.length);
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER + bytes.length + RECORD_TRAILER);
+        record.putInt(RECORD_MAGIC).putInt(bytes.length).put(bytes).putInt((int) crc.getValue());
+        return record.flip();
+    }
+
+    /** Decodes a whole record; the entry's data is a slice of the buffer, not a copy. */
+    private static Record decode(ByteBuffer record) throws IOException {
+        int length = record.remaining();
+        if (length < RECORD_HEADER + RECORD_TRAILER || record.getInt(record.position()) != RECORD_MAGIC) {
+            throw new IOException("Not a segment record");
+        }
+        int bodyLength = record.getInt(record.position() + 4);
+        if (bodyLength != length - RECORD_HEADER - RECORD_TRAILER) {
+            throw new IOException("Segment record length mismatch");
+        }
+        ByteBuffer body = record.duplicate();
+        body.position(record.position() + RECORD_HEADER).limit(record.position() + RECORD_HEADER + bodyLength);
+        CRC32C crc = new CRC32C();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != record.getInt(body.limit())) {
+            throw new IOException("Segment record checksum mismatch");
+        }
+
+        DataInputStream in = new DataInputStream(new ByteBufferInputStream(body));
+        byte type = in.readByte();
+        if (type == TYPE_BATCH) {
+            return new Record(type, null, null); // Members are read by forEachRecord
+        }
+        String key = in.readUTF();
+        if (type == TYPE_DELETE) {
+            return new Record(type, key, null);
+        }
+
+        EntryInfo info = readInfo(in, key);
+        if (info.getSize() != body.remaining()) {
+            throw new IOException("Segment record data length mismatch");
+        }
+        return new Record(type, key, new StorageEntry(info, body.slice()));
+    }
+
+    private interface RecordVisitor {
+        int visit(Record record, long offset, ByteBuffer bytes) throws IOException;
+    }
+
+    /**
+     * Hands the visitor each put or delete in a record: the record itself, or
+     * every member of a batch with its own offset. Returns the sum of the
+     * visitor's results.
+     */
+    private static int forEachRecord(ByteBuffer record, long offset, RecordVisitor visitor) throws IOException {
+        Record decoded = decode(record);
+        if (decoded.type != TYPE_BATCH) {
+            return visitor.visit(decoded, offset, record.duplicate());
+        }
+
+        int result = 0;
+        int start = record.position();
+        int position = start + RECORD_HEADER + BATCH_PREFIX;
+        int end = start + record.remaining() - RECORD_TRAILER;
+        while (position < end) {
+            int length = RECORD_HEADER + record.getInt(position + 4) + RECORD_TRAILER;
+            ByteBuffer member = record.duplicate();
+            member.position(position).limit(position + length);
+            member = member.slice();
+            result += visitor.visit(decode(member), offset + (position - start), member.duplicate());
+            position += length;
+        }
+        return result;
+    }
+
+    /** Reads the rest of a put record's header, up to the data. */
+    private static EntryInfo readInfo(DataInputStream in, String key) throws IOException {
+        DataCategory category = DataCategory.values()[in.readByte()];
+        String id = in.readUTF();
+        LocalDateTime created = readTime(in);
+        LocalDateTime modified = readTime(in);
+        long version = in.readLong();
+        int flags = in.readByte();
+        int fields = in.readInt();
+        Map<String, String> metadata = new HashMap<>();
+        for (int i = 0; i < fields; i++) {
+            metadata.put(in.readUTF(), in.readUTF());
+        }
+        int dataLength = in.readInt();
+
+        return new EntryInfo(id, key, category, dataLength, metadata, created, modified,
+                             version, (flags & 1) != 0, (flags & 2) != 0);
+    }
+
+    private static void writeTime(DataOutputStream out, LocalDateTime time) throws IOException {
+        out.writeLong(time.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(time.getNano());
+    }
+
+    private static LocalDateTime readTime(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private DataInputStream openSequential(Segment segment) throws IOException {
+        return openSequential(segment, 0);
+    }
+
+    private DataInputStream openSequential(Segment segment, long offset) throws IOException {
+        InputStream in = Channels.newInputStream(FileChannel.open(segment.path, StandardOpenOption.READ).position(offset));
+        return new DataInputStream(new BufferedInputStream(in, 1 << 16));
+    }
+
+    /** Reads the length of the next whole record without consuming it. */
+    private static int peekLength(DataInputStream in) throws IOException {
+        in.mark(RECORD_HEADER);
+        int magic = in.readInt();
+        int bodyLength = in.readInt();
+        in.reset();
+        if (magic != RECORD_MAGIC || bodyLength < 0) {
+            throw new IOException("Not a segment record");
+        }
+        return RECORD_HEADER + bodyLength + RECORD_TRAILER;
+    }
+}
@@ -253,14 +253,33 @@ public class EnhancedMultiLanguageTranslator extends AbstractMultiTargetTranslat
             throws TranslationException {
         
         // Check cache first
-        String cacheKey = generateCacheKey(ast, targetLanguage, options);
-        String cachedResult = expressionCache.get(cacheKey);
+        String cachedResult = expressionCache.get(generateCacheKey(ast, targetLanguage, options));
         if (cachedResult != null) {
             return cachedResult;
         }
         
+        return translateTo(ast, detectPatterns(ast), targetLanguage, options);
+    }
+    
+    /**
+     * Detects the semantic patterns of the AST once for all targets, which
+     * then translate concurrently.
+     */
+    @Override
+    public Map<TargetLanguage, String> translateToAll(ASTNode ast, Set<TargetLanguage> targetLanguages,
+                                                      TranslationOptions options) throws TranslationException {
+        Set<String> detectedPatterns = detectPatterns(ast);
+        return translateConcurrently(targetLanguages,
+            targetLanguage -> translateTo(ast, detectedPatterns, targetLanguage, options.copy()));
+    }
+    
+    private String translateTo(ASTNode ast, Set<String> detectedPatterns, TargetLanguage targetLanguage,
+                               TranslationOptions options) throws TranslationException {
+        // Keyed before the optimizations below adjust the options
+        String cacheKey = generateCacheKey(ast, targetLanguage, options);
+        
         // Perform semantic analysis
-        SemanticContext context = analyzeSemantics(ast, targetLanguage);
+        SemanticContext context = analyzeSemantics(detectedPatterns, targetLanguage);
         
         // Apply language-specific optimizations
         optimizeForTarget(context, targetLanguage, options);
@@ -278,18 +297,29 @@ public class EnhancedMultiLanguageTranslator extends AbstractMultiTargetTranslat
     }
     
     /**
-     * Analyze semantic context for better translation decisions.
+     * Detect programming patterns in the AST. They do not depend on the
+     * target, so one scan serves every target of a translation.
      */
-    private SemanticContext analyzeSemantics(ASTNode ast, TargetLanguage targetLanguage) {
-        SemanticContext context = new SemanticContext();
-        
-        // Detect programming patterns
+    private Set<String> detectPatterns(ASTNode ast) {
+        Set<String> detectedPatterns = new HashSet<>();
         String astString = ast.toString();
         for (Map.Entry<String, Pattern> entry : semanticPatterns.entrySet()) {
             if (entry.getValue().matcher(astString).find()) {
-                context.addDetectedPattern(entry.getKey());
+                detectedPatterns.add(entry.getKey());
             }
         }
+        return Collections.unmodifiableSet(detectedPatterns);
+    }
+    
+    /**
+     * Analyze semantic context for better translation decisions.
+     */
+    private SemanticContext analyzeSemantics(Set<String> detectedPatterns, TargetLanguage targetLanguage) {
+        SemanticContext context = new SemanticContext();
+        
+        for (String pattern : detectedPatterns) {
+            context.addDetectedPattern(pattern);
+        }
         
         // Analyze language feature usage
         LanguageFeatures sourceFeatures = languageFeatures.get(
@@ -354,19 +384,28 @@ public class EnhancedMultiLanguageTranslator extends AbstractMultiTargetTranslat
                                             TargetLanguage targetLanguage, TranslationOptions options)
             throws TranslationException {
         
-        // Get appropriate visitor for target language
-        TargetVisitor visitor = getVisitor(targetLanguage);
-        if (visitor == null) {
-            throw new TranslationException("No visitor available for target language: " + targetLanguage);
-        }
-        
-        // Apply semantic context to visitor
-        if (visitor instanceof SemanticAwareVisitor) {
-            ((SemanticAwareVisitor) visitor).setSemanticContext(context);
+        // Borrow a visitor for the target language from its pool
+        TargetVisitor visitor = acquireVisitor(targetLanguage);
+        boolean completed = false;
+        try {
+            // Apply semantic context to visitor
+            if (visitor instanceof SemanticAwareVisitor) {
+                ((SemanticAwareVisitor) visitor).setSemanticContext(context);
+            }
+            
+            // Perform translation
+            visitor.setOptions(options);
+            String result = ast.accept(visitor);
+            completed = true;
+            return result;
+        } catch (Exception e) {
+            throw new TranslationException("Failed to translate " + getSourceLanguage() + " to " + targetLanguage, e);
+        } finally {
+            // A visitor that failed part-way through is dropped rather than reused
+            if (completed) {
+                releaseVisitor(targetLanguage, visitor);
+            }
         }
-        
-        // Perform translation
-        return visitor.visit(ast, options);
     }
     
     /**
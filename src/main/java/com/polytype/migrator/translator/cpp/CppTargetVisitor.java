@@ -19,6 +19,12 @@ public class CppTargetVisitor implements TargetVisitor {
         this.indentLevel = 0;
     }
     
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+    }
+    
     @Override
     public void setOptions(TranslationOptions options) {
         this.options = options;
@@ -16,6 +16,13 @@ public class CSharpTargetVisitor implements TargetVisitor {
         this.namespaceName = "Generated";
     }
     
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+        inClass = false;
+    }
+    
     public CSharpTargetVisitor(String namespaceName) {
         this();
         this.namespaceName = namespaceName != null ? namespaceName : "Generated";
@@ -16,6 +16,13 @@ public class GoTargetVisitor implements TargetVisitor {
         this.packageName = "main";
     }
     
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+        inStruct = false;
+    }
+    
     public GoTargetVisitor(String packageName) {
         this();
         this.packageName = packageName != null ? packageName : "main";
@@ -52,6 +52,17 @@ public class ModernGoTargetVisitor implements TargetVisitor, SemanticAwareVisito
         initializeStandardImports();
     }
     
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+        semanticContext = null;
+        imports.clear();
+        definedStructs.clear();
+        definedInterfaces.clear();
+        initializeStandardImports();
+    }
+    
     @Override
     public void setSemanticContext(SemanticContext context) {
         this.semanticContext = context;
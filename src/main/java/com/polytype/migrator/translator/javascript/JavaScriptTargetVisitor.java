@@ -18,6 +18,13 @@ public class JavaScriptTargetVisitor implements TargetVisitor {
         this.useStrict = true;
     }
     
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+        inClass = false;
+    }
+    
     @Override
     public String getResult() {
         return output.toString();
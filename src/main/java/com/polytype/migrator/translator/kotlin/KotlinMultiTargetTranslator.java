@@ -22,27 +22,27 @@ public class KotlinMultiTargetTranslator extends AbstractMultiTargetTranslator {
     @Override
     protected void initializeVisitors() {
         // Register Java visitor (backward compatibility)
-        registerVisitor(TargetLanguage.JAVA, new KotlinToJavaVisitor());
+        registerVisitor(TargetLanguage.JAVA, KotlinToJavaVisitor::new);
         
         // Register C++ visitor
-        registerVisitor(TargetLanguage.CPP, new CppTargetVisitor());
+        registerVisitor(TargetLanguage.CPP, CppTargetVisitor::new);
         
         // Register Python visitor
-        registerVisitor(TargetLanguage.PYTHON, new PythonTargetVisitor());
+        registerVisitor(TargetLanguage.PYTHON, PythonTargetVisitor::new);
         
         // Register TypeScript visitor
-        registerVisitor(TargetLanguage.TYPESCRIPT, new TypeScriptTargetVisitor());
+        registerVisitor(TargetLanguage.TYPESCRIPT, TypeScriptTargetVisitor::new);
         
         // Register Go visitor
-        registerVisitor(TargetLanguage.GO, new GoTargetVisitor());
+        registerVisitor(TargetLanguage.GO, GoTargetVisitor::new);
         
         // Register C# visitor
-        registerVisitor(TargetLanguage.CSHARP, new CSharpTargetVisitor());
+        registerVisitor(TargetLanguage.CSHARP, CSharpTargetVisitor::new);
         
         // Additional target languages can be added here
-        // registerVisitor(TargetLanguage.JAVASCRIPT, new JavaScriptTargetVisitor());
-        // registerVisitor(TargetLanguage.RUST, new RustTargetVisitor());
-        // registerVisitor(TargetLanguage.SWIFT, new SwiftTargetVisitor());
+        // registerVisitor(TargetLanguage.JAVASCRIPT, JavaScriptTargetVisitor::new);
+        // registerVisitor(TargetLanguage.RUST, RustTargetVisitor::new);
+        // registerVisitor(TargetLanguage.SWIFT, SwiftTargetVisitor::new);
     }
     
     /**
@@ -52,7 +52,14 @@ public class KotlinMultiTargetTranslator extends AbstractMultiTargetTranslator {
             implements com.polytype.migrator.core.TargetVisitor {
         
         private com.polytype.migrator.core.TranslationOptions options;
-        
+
+        @Override
+        public void reset() {
+            // The base visitor clears its output and indentation whenever it is given options
+            super.setOptions(getDefaultOptions());
+            this.options = null;
+        }
+
         @Override
         public void setOptions(com.polytype.migrator.core.TranslationOptions options) {
             this.options = options;
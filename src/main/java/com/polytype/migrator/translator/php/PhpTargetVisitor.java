@@ -18,6 +18,13 @@ public class PhpTargetVisitor implements TargetVisitor {
         this.namespaceName = null;
     }
     
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+        inClass = false;
+    }
+    
     public PhpTargetVisitor(String namespaceName) {
         this();
         this.namespaceName = namespaceName;
@@ -52,6 +52,18 @@ public class EnhancedPythonTargetVisitor implements TargetVisitor {
         this.inTryBlock = false;
         this.currentClassName = "";
     }
+    
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+        requiredImports.clear();
+        usedDecorators.clear();
+        inClassContext = false;
+        inAsyncContext = false;
+        inTryBlock = false;
+        currentClassName = "";
+    }
 
     @Override
     public void setOptions(TranslationOptions options) {
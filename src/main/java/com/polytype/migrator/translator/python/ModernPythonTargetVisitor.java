@@ -51,6 +51,17 @@ public class ModernPythonTargetVisitor implements TargetVisitor, SemanticAwareVi
         initializeStandardImports();
     }
     
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+        semanticContext = null;
+        imports.clear();
+        definedClasses.clear();
+        inAsyncContext = false;
+        initializeStandardImports();
+    }
+    
     @Override
     public void setSemanticContext(SemanticContext context) {
         this.semanticContext = context;
@@ -45,20 +45,20 @@ public class PythonMultiTargetTranslator extends AbstractMultiTargetTranslator {
     @Override
     protected void initializeVisitors() {
         // Primary target: Enhanced Python (for modernization/refactoring)
-        registerVisitor(TargetLanguage.PYTHON, new EnhancedPythonTargetVisitor());
+        registerVisitor(TargetLanguage.PYTHON, EnhancedPythonTargetVisitor::new);
         
         // Other target languages - these would need to be implemented
-        // registerVisitor(TargetLanguage.JAVA, new JavaTargetVisitor());
-        // registerVisitor(TargetLanguage.CPP, new CppTargetVisitor());
-        // registerVisitor(TargetLanguage.TYPESCRIPT, new TypeScriptTargetVisitor());
-        // registerVisitor(TargetLanguage.GO, new GoTargetVisitor());
-        // registerVisitor(TargetLanguage.CSHARP, new CSharpTargetVisitor());
-        // registerVisitor(TargetLanguage.JAVASCRIPT, new JavaScriptTargetVisitor());
-        // registerVisitor(TargetLanguage.RUST, new RustTargetVisitor());
-        // registerVisitor(TargetLanguage.SWIFT, new SwiftTargetVisitor());
-        // registerVisitor(TargetLanguage.KOTLIN, new KotlinTargetVisitor());
-        // registerVisitor(TargetLanguage.PHP, new PhpTargetVisitor());
-        // registerVisitor(TargetLanguage.RUBY, new RubyTargetVisitor());
+        // registerVisitor(TargetLanguage.JAVA, JavaTargetVisitor::new);
+        // registerVisitor(TargetLanguage.CPP, CppTargetVisitor::new);
+        // registerVisitor(TargetLanguage.TYPESCRIPT, TypeScriptTargetVisitor::new);
+        // registerVisitor(TargetLanguage.GO, GoTargetVisitor::new);
+        // registerVisitor(TargetLanguage.CSHARP, CSharpTargetVisitor::new);
+        // registerVisitor(TargetLanguage.JAVASCRIPT, JavaScriptTargetVisitor::new);
+        // registerVisitor(TargetLanguage.RUST, RustTargetVisitor::new);
+        // registerVisitor(TargetLanguage.SWIFT, SwiftTargetVisitor::new);
+        // registerVisitor(TargetLanguage.KOTLIN, KotlinTargetVisitor::new);
+        // registerVisitor(TargetLanguage.PHP, PhpTargetVisitor::new);
+        // registerVisitor(TargetLanguage.RUBY, RubyTargetVisitor::new);
         
         logger.info("Initialized Python multi-target translator with " + 
                    visitors.size() + " target language visitors");
@@ -31,6 +31,15 @@ public class PythonTargetVisitor implements TargetVisitor {
         this.inAsyncContext = false;
     }
     
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+        requiredImports.clear();
+        inClassContext = false;
+        inAsyncContext = false;
+    }
+    
     @Override
     public void setOptions(TranslationOptions options) {
         this.options = options;
@@ -16,6 +16,13 @@ public class RubyTargetVisitor implements TargetVisitor {
         this.inClass = false;
     }
     
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+        inClass = false;
+    }
+    
     @Override
     public String getResult() {
         return output.toString();
@@ -45,6 +45,18 @@ public class EnhancedRustTargetVisitor implements TargetVisitor, SemanticAwareVi
         initializeStandardImports();
     }
     
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+        semanticContext = null;
+        imports.clear();
+        lifetimeParams.clear();
+        inAsyncContext = false;
+        needsErrorHandling = false;
+        initializeStandardImports();
+    }
+    
     @Override
     public void setSemanticContext(SemanticContext context) {
         this.semanticContext = context;
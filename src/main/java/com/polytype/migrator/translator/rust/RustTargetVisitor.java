@@ -16,6 +16,14 @@ public class RustTargetVisitor implements TargetVisitor {
         this.inImpl = false;
     }
     
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+        inStruct = false;
+        inImpl = false;
+    }
+    
     @Override
     public String getResult() {
         return output.toString();
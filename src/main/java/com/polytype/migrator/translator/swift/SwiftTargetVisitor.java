@@ -16,6 +16,14 @@ public class SwiftTargetVisitor implements TargetVisitor {
         this.inStruct = false;
     }
     
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+        inClass = false;
+        inStruct = false;
+    }
+    
     @Override
     public String getResult() {
         return output.toString();
@@ -16,6 +16,14 @@ public class TypeScriptTargetVisitor implements TargetVisitor {
         this.inClass = false;
     }
     
+    @Override
+    public void reset() {
+        output.setLength(0);
+        indentLevel = 0;
+        inInterface = false;
+        inClass = false;
+    }
+    
     @Override
     public String getResult() {
         return output.toString();
@@ -0,0 +1,272 @@
+package com.davajava.migrator.core;
+
+import com.polytype.migrator.core.cache.PolyTypeCache;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MigrationServiceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testParallelMigrationMatchesSequentialOutput() throws Exception {
+        Path inputDir = tempDir.resolve("input");
+        for (int i = 0; i < 20; i++) {
+            Path file = inputDir.resolve("module" + (i % 3)).resolve("file" + i + ".rs");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, "pub fn compute" + i + "(a: i32, b: i32) -> i32 {\n    a + b\n}\n");
+        }
+
+        Path sequentialOut = tempDir.resolve("sequential");
+        Path parallelOut = tempDir.resolve("parallel");
+
+        MigrationResult sequential = new MigrationService(false, 1).migrate(new MigrationCommand(
+            inputDir.toString(), sequentialOut.toString(), SourceLanguage.RUST, true, "com.test", true, false));
+        MigrationResult parallel = new MigrationService(true, 4).migrate(new MigrationCommand(
+            inputDir.toString(), parallelOut.toString(), SourceLanguage.RUST, true, "com.test", true, false));
+
+        assertEquals(20, sequential.getTotalCount());
+        assertEquals(20, parallel.getCount(MigrationResult.Status.MIGRATED));
+
+        try (Stream<Path> files = Files.list(sequentialOut)) {
+            for (Path expected : (Iterable<Path>) files::iterator) {
+                Path actual = parallelOut.resolve(expected.getFileName());
+                assertTrue(Files.exists(actual), "Missing parallel output " + actual);
+                assertEquals(Files.readString(expected), Files.readString(actual));
+            }
+        }
+    }
+
+    @Test
+    void testPipelinedMigrationMatchesSequentialOutput() throws Exception {
+        Path inputDir = tempDir.resolve("input");
+        for (int i = 0; i < 12; i++) {
+            Path file = inputDir.resolve("pkg" + (i % 2)).resolve("unit" + i + ".rs");
+            Files.createDirectories(file.getParent());
+            Files.writeString(file, "pub fn unit" + i + "() -> i32 {\n    " + i + "\n}\n");
+        }
+        // Both map to Shared.java; the one discovered last must win
+        Files.writeString(inputDir.resolve("pkg0").resolve("shared.rs"), "pub fn shared() -> i32 {\n    100\n}\n");
+        Files.writeString(inputDir.resolve("pkg1").resolve("shared.rs"), "pub fn shared() -> i32 {\n    200\n}\n");
+
+        Path sequentialOut = tempDir.resolve("sequential");
+        Path pipelinedOut = tempDir.resolve("pipelined");
+
+        new MigrationService(false, 1).migrate(new MigrationCommand(
+            inputDir.toString(), sequentialOut.toString(), SourceLanguage.RUST, true, "com.test", true, false));
+        MigrationService service = new MigrationService(MigrationService.ExecutionMode.PIPELINED, 3);
+        MigrationResult result = service.migrate(new MigrationCommand(
+            inputDir.toString(), pipelinedOut.toString(), SourceLanguage.RUST, true, "com.test", true, false));
+
+        assertEquals(14, result.getCount(MigrationResult.Status.MIGRATED));
+        assertEquals(4, service.getPipelineStats().size());
+        assertEquals(14, service.getPipelineStats().get(3).getProcessedCount());
+
+        try (Stream<Path> files = Files.list(sequentialOut)) {
+            for (Path expected : (Iterable<Path>) files::iterator) {
+                assertEquals(Files.readString(expected), Files.readString(pipelinedOut.resolve(expected.getFileName())));
+            }
+        }
+        try (Stream<Path> files = Files.list(pipelinedOut)) {
+            assertEquals(13, files.count());
+        }
+
+        Path lastShared;
+        try (Stream<Path> walk = Files.walk(inputDir)) {
+            lastShared = walk.filter(path -> path.getFileName().toString().equals("shared.rs"))
+                             .reduce((first, second) -> second)
+                             .orElseThrow();
+        }
+        String winner = lastShared.getParent().getFileName().toString().equals("pkg0") ? "100" : "200";
+        String loser = winner.equals("100") ? "200" : "100";
+        String shared = Files.readString(pipelinedOut.resolve("Shared.java"));
+        assertTrue(shared.contains(winner), "Expected the last discovered shared.rs to win");
+        assertFalse(shared.contains(loser));
+    }
+
+    @Test
+    void testParallelMigrationIsolatesFailures() throws IOException {
+        Path inputDir = tempDir.resolve("input");
+        Files.createDirectories(inputDir);
+        Files.writeString(inputDir.resolve("good.rs"), "fn ok() -> i32 {\n    1\n}\n");
+        Files.writeString(inputDir.resolve("other.rs"), "fn other() {\n}\n");
+        // Invalid UTF-8 makes reading this file fail
+        Files.write(inputDir.resolve("broken.rs"), new byte[] {(byte) 0xC3, (byte) 0x28});
+
+        Path outputDir = tempDir.resolve("output");
+
+        MigrationService service = new MigrationService(true, 2);
+        MigrationException exception = assertThrows(MigrationException.class, () -> service.migrate(
+            new MigrationCommand(inputDir.toString(), outputDir.toString(), SourceLanguage.RUST,
+                                 false, "com.test", true, false)));
+
+        MigrationResult result = exception.getResult();
+        assertNotNull(result);
+        assertEquals(3, result.getTotalCount());
+        assertEquals(1, result.getCount(MigrationResult.Status.FAILED));
+        assertTrue(Files.exists(outputDir.resolve("Good.java")));
+        assertTrue(Files.exists(outputDir.resolve("Other.java")));
+    }
+
+    @Test
+    void testIncrementalMigrationSkipsUnchangedFiles() throws Exception {
+        Path inputDir = tempDir.resolve("input");
+        Files.createDirectories(inputDir);
+        Files.writeString(inputDir.resolve("first.rs"), "fn first() -> i32 {\n    1\n}\n");
+        Files.writeString(inputDir.resolve("second.rs"), "fn second() -> i32 {\n    2\n}\n");
+
+        Path outputDir = tempDir.resolve("output");
+        MigrationCommand command = new MigrationCommand(inputDir.toString(), outputDir.toString(),
+            SourceLanguage.RUST, false, "com.test", true, false, true);
+        MigrationService service = new MigrationService(false, 1);
+
+        MigrationResult initial = service.migrate(command);
+        assertEquals(2, initial.getCount(MigrationResult.Status.MIGRATED));
+        assertTrue(Files.exists(outputDir.resolve(MigrationManifest.MANIFEST_FILE_NAME)));
+
+        Files.writeString(inputDir.resolve("second.rs"), "fn second() -> i32 {\n    22\n}\n");
+
+        MigrationResult rerun = service.migrate(command);
+        assertEquals(1, rerun.getCount(MigrationResult.Status.SKIPPED));
+        assertEquals(1, rerun.getCount(MigrationResult.Status.MIGRATED));
+        assertTrue(Files.readString(outputDir.resolve("Second.java")).contains("22"));
+    }
+
+    @Test
+    void testInterruptedIncrementalRunResumesFromTheJournal() throws Exception {
+        Path inputDir = tempDir.resolve("input");
+        Files.createDirectories(inputDir);
+        for (int i = 0; i < 3; i++) {
+            Files.writeString(inputDir.resolve("unit" + i + ".rs"), "fn unit" + i + "() -> i32 {\n    " + i + "\n}\n");
+        }
+
+        Path outputDir = tempDir.resolve("output");
+        Path snapshot = outputDir.resolve(MigrationManifest.MANIFEST_FILE_NAME);
+        Path journal = outputDir.resolve(MigrationManifest.MANIFEST_FILE_NAME + ".journal");
+        // A non-empty directory where the snapshot's temp file goes makes the run die after the last file
+        Path blocker = outputDir.resolve(MigrationManifest.MANIFEST_FILE_NAME + ".tmp");
+        Files.createDirectories(blocker);
+        Files.writeString(blocker.resolve("keep"), "");
+        MigrationCommand command = new MigrationCommand(inputDir.toString(), outputDir.toString(),
+            SourceLanguage.RUST, false, "com.test", true, false, true);
+        MigrationService service = new MigrationService(false, 1);
+
+        assertThrows(MigrationException.class, () -> service.migrate(command));
+        assertFalse(Files.exists(snapshot));
+        assertEquals(3, Files.readAllLines(journal).size());
+        // As if the process had also been killed part way through appending another line
+        Files.writeString(journal, "unit9.rs\tdeadbeef\tpartial", StandardOpenOption.APPEND);
+        Files.delete(blocker.resolve("keep"));
+        Files.delete(blocker);
+        FileTime written = Files.getLastModifiedTime(outputDir.resolve("Unit0.java"));
+
+        Files.writeString(inputDir.resolve("unit2.rs"), "fn unit2() -> i32 {\n    22\n}\n");
+        MigrationResult resumed = service.migrate(command);
+
+        assertEquals(2, resumed.getCount(MigrationResult.Status.SKIPPED));
+        assertEquals(1, resumed.getCount(MigrationResult.Status.MIGRATED));
+        assertEquals(written, Files.getLastModifiedTime(outputDir.resolve("Unit0.java")));
+        assertTrue(Files.exists(snapshot));
+        assertFalse(Files.exists(journal));
+        assertEquals(3, service.migrate(command).getCount(MigrationResult.Status.SKIPPED));
+    }
+
+    @Test
+    void testIdenticalOutputIsNotRewritten() throws Exception {
+        Path inputDir = tempDir.resolve("input");
+        Files.createDirectories(inputDir);
+        Path source = inputDir.resolve("first.rs");
+        Files.writeString(source, "fn first() -> i32 {\n    1\n}\n");
+
+        Path outputDir = tempDir.resolve("output");
+        Path output = outputDir.resolve("First.java");
+        MigrationCommand command = new MigrationCommand(inputDir.toString(), outputDir.toString(),
+            SourceLanguage.RUST, false, "com.test", true, false, true);
+        MigrationService service = new MigrationService(false, 1);
+        service.migrate(command);
+        String content = Files.readString(output);
+        FileTime earlier = FileTime.fromMillis(1_000_000_000_000L);
+        Files.setLastModifiedTime(output, earlier);
+
+        // A new source hash forces a translation, but the output comes out the same
+        Files.writeString(source, "fn first() -> i32 {\n    1\n}\n\n");
+        MigrationResult rerun = service.migrate(command);
+
+        assertEquals(1, rerun.getCount(MigrationResult.Status.UNCHANGED));
+        assertEquals(content, Files.readString(output));
+        assertEquals(earlier, Files.getLastModifiedTime(output));
+        assertEquals(1, service.migrate(command).getCount(MigrationResult.Status.SKIPPED));
+    }
+
+    @Test
+    void testTranslationCacheCanBeInjectedOrLeftOut() throws Exception {
+        Path inputDir = tempDir.resolve("input");
+        Files.createDirectories(inputDir);
+        for (int i = 0; i < 3; i++) {
+            Files.writeString(inputDir.resolve("unit" + i + ".rs"), "fn unit" + i + "() -> i32 {\n    " + i + "\n}\n");
+        }
+
+        PolyTypeCache cache = new PolyTypeCache(PolyTypeCache.CacheType.TRANSLATION_RESULT);
+        try {
+            for (String run : new String[] {"first", "second"}) {
+                new MigrationService(MigrationService.ExecutionMode.SEQUENTIAL, 1, cache).migrate(new MigrationCommand(
+                    inputDir.toString(), tempDir.resolve(run).toString(), SourceLanguage.RUST, false, "com.test", true, false));
+            }
+            assertEquals(3, cache.getStats().getMisses());
+            assertEquals(3, cache.getStats().getHits());
+
+            MigrationResult uncached = new MigrationService(MigrationService.ExecutionMode.SEQUENTIAL, 1, null).migrate(
+                new MigrationCommand(inputDir.toString(), tempDir.resolve("uncached").toString(), SourceLanguage.RUST,
+                                     false, "com.test", true, false));
+            assertEquals(3, uncached.getCount(MigrationResult.Status.MIGRATED));
+            assertEquals(3, cache.getStats().getHits());
+            for (int i = 0; i < 3; i++) {
+                String name = "Unit" + i + ".java";
+                assertEquals(Files.readString(tempDir.resolve("first").resolve(name)),
+                             Files.readString(tempDir.resolve("uncached").resolve(name)));
+            }
+        } finally {
+            cache.shutdown();
+        }
+    }
+
+    @Test
+    void testLargeOutputIsStreamedToDisk() throws Exception {
+        Path inputDir = tempDir.resolve("input");
+        Files.createDirectories(inputDir);
+        for (int i = 0; i < 3; i++) {
+            Files.writeString(inputDir.resolve("unit" + i + ".rs"), "fn unit" + i + "() -> i32 {\n    " + i + "\n}\n");
+        }
+        Path inMemory = tempDir.resolve("memory");
+        Path streamed = tempDir.resolve("streamed");
+        new MigrationService(MigrationService.ExecutionMode.SEQUENTIAL, 1, null).migrate(new MigrationCommand(
+            inputDir.toString(), inMemory.toString(), SourceLanguage.RUST, false, "com.test", true, false));
+        // A 16-byte threshold sends every file through a temp file beside its output
+        MigrationService streaming = new MigrationService(MigrationService.ExecutionMode.PARALLEL, 2, null, 16);
+        MigrationCommand incremental = new MigrationCommand(inputDir.toString(), streamed.toString(),
+            SourceLanguage.RUST, false, "com.test", true, false, true);
+
+        assertEquals(3, streaming.migrate(incremental).getCount(MigrationResult.Status.MIGRATED));
+        Files.delete(streamed.resolve(MigrationManifest.MANIFEST_FILE_NAME));
+        MigrationResult rerun = streaming.migrate(incremental);
+
+        assertEquals(3, rerun.getCount(MigrationResult.Status.UNCHANGED));
+        for (int i = 0; i < 3; i++) {
+            String name = "Unit" + i + ".java";
+            assertEquals(Files.readString(inMemory.resolve(name)), Files.readString(streamed.resolve(name)));
+        }
+        try (Stream<Path> files = Files.list(streamed)) {
+            assertEquals(0, files.filter(file -> file.toString().endsWith(".tmp")).count());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.davajava.migrator.core.ast;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ASTNodeTest {
+
+    private static ClassDeclarationNode node(String name) {
+        return new ClassDeclarationNode(name, true, 1, 1);
+    }
+
+    /** A program with classes A, B and C; A holds A0..A4 and C holds C0. */
+    private static ProgramNode tree() {
+        ProgramNode program = new ProgramNode(1, 1);
+        ClassDeclarationNode a = node("A");
+        for (int i = 0; i < 5; i++) {
+            a.addChild(node("A" + i));
+        }
+        ClassDeclarationNode c = node("C");
+        c.addChild(node("C0"));
+        program.addChild(a);
+        program.addChild(node("B"));
+        program.addChild(c);
+        return program;
+    }
+
+    private static List<String> names(ASTNode node) {
+        List<String> names = new ArrayList<>();
+        for (ASTNode child : node.getChildren()) {
+            names.add(((ClassDeclarationNode) child).getName());
+        }
+        return names;
+    }
+
+    private static void assertTreeShape(ProgramNode program) {
+        assertEquals(List.of("A", "B", "C"), names(program));
+        assertEquals(List.of("A0", "A1", "A2", "A3", "A4"), names(program.getChild(0)));
+        assertEquals(0, program.getChild(1).getChildCount());
+        assertEquals(List.of("C0"), names(program.getChild(2)));
+        assertSame(program.getChild(2), program.getChild(2).getChild(0).getParent());
+    }
+
+    @Test
+    void testChildAccessBeforeAndAfterCompaction() {
+        ProgramNode program = tree();
+        assertTreeShape(program);
+
+        program.compact();
+
+        assertTreeShape(program);
+        assertEquals(3, program.getChildCount());
+        assertEquals("A4", ((ClassDeclarationNode) program.getChild(0).getChild(4)).getName());
+        assertThrows(IndexOutOfBoundsException.class, () -> program.getChild(3));
+        assertThrows(IndexOutOfBoundsException.class, () -> program.getChild(1).getChild(0));
+    }
+
+    @Test
+    void testChildViewIsReadOnlyAndLive() {
+        ProgramNode program = new ProgramNode(1, 1);
+        List<ASTNode> children = program.getChildren();
+        assertTrue(children.isEmpty());
+
+        program.addChild(node("A"));
+
+        assertSame(children, program.getChildren());
+        assertEquals(List.of("A"), names(program));
+        assertEquals(1, children.size());
+        assertThrows(UnsupportedOperationException.class, () -> children.add(node("B")));
+        assertThrows(UnsupportedOperationException.class, () -> children.remove(0));
+    }
+
+    @Test
+    void testAddingToACompactedNodeLeavesItsNeighboursAlone() {
+        ProgramNode program = tree();
+        program.compact();
+        List<ASTNode> view = program.getChild(0).getChildren();
+
+        program.getChild(0).addChild(node("A5"));
+        program.getChild(1).addChild(node("B0"));
+        program.addChild(node("D"));
+
+        assertEquals(List.of("A0", "A1", "A2", "A3", "A4", "A5"), names(program.getChild(0)));
+        assertEquals(6, view.size()); // The view follows the node onto its own array
+        assertEquals(List.of("B0"), names(program.getChild(1)));
+        assertEquals(List.of("C0"), names(program.getChild(2)));
+        assertEquals(List.of("A", "B", "C", "D"), names(program));
+    }
+
+    @Test
+    void testCompactingAgainAfterMutation() {
+        ProgramNode program = tree();
+        program.compact();
+        program.getChild(2).addChild(node("C1"));
+
+        program.compact();
+        program.compact();
+
+        assertEquals(List.of("C0", "C1"), names(program.getChild(2)));
+        assertEquals(List.of("A0", "A1", "A2", "A3", "A4"), names(program.getChild(0)));
+    }
+}
@@ -0,0 +1,152 @@
+package com.davajava.migrator.output;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncFileWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static byte[] text(String content) {
+        return content.getBytes();
+    }
+
+    @Test
+    void testSmallWritesAreGatheredIntoOneBatch() throws Exception {
+        try (AsyncFileWriter writer = new AsyncFileWriter(new JavaFileGenerator(), 64, 8, 60_000)) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(writer.write(tempDir.resolve("File" + i + ".java"), text("class File" + i + " {}")));
+            }
+            for (CompletableFuture<Void> future : futures) {
+                future.get(10, TimeUnit.SECONDS); // A full batch goes out without waiting out the linger
+            }
+
+            assertEquals(1, writer.getBatchCount());
+            assertEquals(8, writer.getFilesWritten());
+        }
+        assertEquals("class File7 {}", Files.readString(tempDir.resolve("File7.java")));
+    }
+
+    @Test
+    void testFlushEndsTheLingerAndLaterWritesSupersedeEarlierOnes() throws Exception {
+        Path path = tempDir.resolve("Main.java");
+        try (AsyncFileWriter writer = new AsyncFileWriter(new JavaFileGenerator(), 64, 8, 60_000)) {
+            CompletableFuture<Void> first = writer.write(path, text("first"));
+            CompletableFuture<Void> second = writer.write(path, text("second"));
+            writer.flush();
+
+            assertTrue(first.isDone() && second.isDone());
+            assertEquals("second", Files.readString(path));
+            assertEquals(1, writer.getFilesWritten());
+            assertEquals(1, writer.getWritesSuperseded());
+        }
+    }
+
+    @Test
+    void testEveryAcceptedWriteCompletesWhenCloseRacesWriters() throws Exception {
+        AsyncFileWriter writer = new AsyncFileWriter(new JavaFileGenerator(), 4, 2, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<List<CompletableFuture<Void>>>> producers = new ArrayList<>();
+        CountDownLatch started = new CountDownLatch(4);
+        try {
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                producers.add(executor.submit(() -> {
+                    List<CompletableFuture<Void>> accepted = new ArrayList<>();
+                    started.countDown();
+                    try {
+                        for (int i = 0; ; i++) {
+                            accepted.add(writer.write(tempDir.resolve("T" + thread + "_" + (i % 50) + ".java"),
+                                                      text("class T" + i + " {}")));
+                        }
+                    } catch (IllegalStateException closed) {
+                        return accepted;
+                    }
+                }));
+            }
+            started.await();
+            Thread.sleep(20);
+            writer.close();
+
+            int accepted = 0;
+            for (Future<List<CompletableFuture<Void>>> producer : producers) {
+                for (CompletableFuture<Void> future : producer.get(10, TimeUnit.SECONDS)) {
+                    assertTrue(future.isDone(), "A write accepted before close was left pending");
+                    future.get(); // And it was written, not dropped
+                    accepted++;
+                }
+            }
+            assertTrue(accepted > 0);
+            assertEquals(accepted, writer.getFilesWritten() + writer.getWritesSuperseded());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testInterruptedCloseFailsPendingWrites() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        JavaFileGenerator blocking = new JavaFileGenerator() {
+            @Override
+            public void writeFile(Path outputPath, byte[] content) throws IOException {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException("Interrupted while writing " + outputPath);
+                }
+                super.writeFile(outputPath, content);
+            }
+        };
+        AsyncFileWriter writer = new AsyncFileWriter(blocking, 16, 1, 0);
+        CompletableFuture<Void> running = writer.write(tempDir.resolve("Running.java"), text("running"));
+        entered.await();
+        List<CompletableFuture<Void>> queued = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            queued.add(writer.write(tempDir.resolve("Queued" + i + ".java"), text("queued")));
+        }
+
+        Thread.currentThread().interrupt();
+        assertThrows(IOException.class, writer::close);
+
+        assertTrue(Thread.interrupted()); // Restored for the caller, and cleared here for the rest of the test
+        for (CompletableFuture<Void> future : queued) {
+            assertTrue(future.isCompletedExceptionally());
+        }
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> running.get(10, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof InterruptedIOException);
+        assertFalse(Files.exists(tempDir.resolve("Queued0.java")));
+    }
+
+    @Test
+    void testFlushAfterCloseReturnsAndWritesAreRefused() throws Exception {
+        AsyncFileWriter writer = new AsyncFileWriter(new JavaFileGenerator());
+        writer.write(tempDir.resolve("Main.java"), text("class Main {}"));
+        writer.close();
+
+        writer.flush();
+        writer.close();
+
+        assertEquals("class Main {}", Files.readString(tempDir.resolve("Main.java")));
+        assertThrows(IllegalStateException.class, () -> writer.write(tempDir.resolve("Late.java"), text("late")));
+    }
+}
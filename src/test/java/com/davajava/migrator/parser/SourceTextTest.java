@@ -0,0 +1,117 @@
+package com.davajava.migrator.parser;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SourceTextTest {
+
+    @Test
+    void testOffsetZero() {
+        SourceText source = new SourceText("fn main() {}\n");
+
+        assertEquals(1, source.getLineNumber(0));
+        assertEquals(1, source.getColumnNumber(0));
+    }
+
+    @Test
+    void testEmptyText() {
+        SourceText source = new SourceText("");
+
+        assertEquals(1, source.getLineCount());
+        assertEquals(1, source.getLineNumber(0));
+        assertEquals(1, source.getColumnNumber(0));
+    }
+
+    @Test
+    void testLineAndColumnAfterNewlines() {
+        String text = "struct A {\n    x: i32,\n}\n";
+        SourceText source = new SourceText(text);
+
+        int field = text.indexOf("x:");
+        assertEquals(2, source.getLineNumber(field));
+        assertEquals(5, source.getColumnNumber(field));
+
+        int close = text.lastIndexOf('}');
+        assertEquals(3, source.getLineNumber(close));
+        assertEquals(1, source.getColumnNumber(close));
+    }
+
+    @Test
+    void testCrlfLineEndings() {
+        String text = "class A {\r\n  int x;\r\n}\r\n";
+        SourceText source = new SourceText(text);
+
+        assertEquals(4, source.getLineCount());
+
+        int field = text.indexOf("int");
+        assertEquals(2, source.getLineNumber(field));
+        assertEquals(3, source.getColumnNumber(field));
+
+        // The carriage return belongs to the line it terminates
+        int carriageReturn = text.indexOf('\r');
+        assertEquals(1, source.getLineNumber(carriageReturn));
+        assertEquals(10, source.getColumnNumber(carriageReturn));
+        assertEquals(1, source.getLineNumber(carriageReturn + 1));
+        assertEquals(2, source.getLineNumber(carriageReturn + 2));
+        assertEquals(1, source.getColumnNumber(carriageReturn + 2));
+    }
+
+    @Test
+    void testLastLineWithoutTrailingNewline() {
+        String text = "a\nbb\nccc";
+        SourceText source = new SourceText(text);
+
+        assertEquals(3, source.getLineCount());
+        assertEquals(3, source.getLineNumber(text.length() - 1));
+        assertEquals(3, source.getColumnNumber(text.length() - 1));
+        assertEquals(3, source.getLineNumber(text.length()));
+        assertEquals(4, source.getColumnNumber(text.length()));
+        assertEquals(5, source.getLineStart(3));
+    }
+
+    @Test
+    void testLastLineWithTrailingNewline() {
+        String text = "a\nbb\n";
+        SourceText source = new SourceText(text);
+
+        assertEquals(3, source.getLineCount());
+        assertEquals(2, source.getLineNumber(text.length() - 1));
+        assertEquals(3, source.getLineNumber(text.length()));
+        assertEquals(1, source.getColumnNumber(text.length()));
+    }
+
+    @Test
+    void testOutOfRangeOffsetsAreClamped() {
+        String text = "a\nbc";
+        SourceText source = new SourceText(text);
+
+        assertEquals(1, source.getLineNumber(-5));
+        assertEquals(1, source.getColumnNumber(-5));
+        assertEquals(2, source.getLineNumber(100));
+        assertEquals(3, source.getColumnNumber(100));
+    }
+
+    @Test
+    void testLineStartOutOfRange() {
+        SourceText source = new SourceText("a\nb");
+
+        assertThrows(IndexOutOfBoundsException.class, () -> source.getLineStart(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> source.getLineStart(3));
+    }
+
+    @Test
+    void testManyLinesGrowTable() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            sb.append("line").append(i).append('\n');
+        }
+        String text = sb.toString();
+        SourceText source = new SourceText(text);
+
+        int offset = text.indexOf("line737");
+        assertEquals(738, source.getLineNumber(offset));
+        assertEquals(1, source.getColumnNumber(offset));
+        assertEquals(offset, source.getLineStart(738));
+    }
+}
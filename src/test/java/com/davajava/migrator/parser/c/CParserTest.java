@@ -0,0 +1,96 @@
+package com.davajava.migrator.parser.c;
+
+import com.davajava.migrator.core.ParseException;
+import com.davajava.migrator.core.SourceLanguage;
+import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.core.ast.FunctionDeclarationNode;
+import com.davajava.migrator.core.ast.ProgramNode;
+import com.davajava.migrator.core.ast.StructDeclarationNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CParserTest {
+    private CParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new CParser();
+    }
+
+    private static List<String> functionNames(ASTNode node) {
+        List<String> names = new ArrayList<>();
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof FunctionDeclarationNode) {
+                names.add(((FunctionDeclarationNode) child).getName());
+            }
+        }
+        return names;
+    }
+
+    @Test
+    void testGetSupportedLanguage() {
+        assertEquals(SourceLanguage.C, parser.getSupportedLanguage());
+        assertTrue(parser.canHandle("main.c"));
+        assertTrue(parser.canHandle("main.h"));
+        assertFalse(parser.canHandle("main.cpp"));
+    }
+
+    @Test
+    void testTypedefStruct() throws ParseException {
+        String code =
+            "typedef struct {\n" +
+            "    int x; /* horizontal */\n" +
+            "    int y; // vertical\n" +
+            "} Point;\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        StructDeclarationNode point = (StructDeclarationNode) program.getChildren().get(0);
+
+        assertEquals("Point", point.getName());
+        assertEquals(2, point.getFields().size());
+        assertEquals("x", point.getFields().get(0).getName());
+        assertEquals(2, point.getFields().get(0).getLineNumber());
+        assertEquals(5, point.getFields().get(0).getColumnNumber());
+        assertEquals(3, point.getFields().get(1).getLineNumber());
+    }
+
+    @Test
+    void testDirectivesAndCommentsAreIgnored() throws ParseException {
+        String code =
+            "#include <stdio.h>\n" +
+            "#define SQUARE(x) { (x) * (x) }\n" +
+            "/* int hidden(int a) { return a; } */\n" +
+            "// int alsoHidden(void);\n" +
+            "int add(int a, int b) {\n" +
+            "    printf(\"// {\");\n" +
+            "    return a + b;\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+
+        assertEquals(List.of("add"), functionNames(program));
+        FunctionDeclarationNode add = (FunctionDeclarationNode) program.getChildren().get(0);
+        assertEquals(5, add.getLineNumber());
+        assertEquals(2, add.getParameters().size());
+        assertEquals(5, add.getParameters().get(1).getLineNumber());
+        assertEquals(16, add.getParameters().get(1).getColumnNumber());
+    }
+
+    @Test
+    void testFunctionBodiesAreNotScannedForFunctions() throws ParseException {
+        String code =
+            "int outer(int n) {\n" +
+            "    int inner(int m);\n" +
+            "    return n;\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+
+        assertEquals(List.of("outer"), functionNames(program));
+    }
+}
@@ -0,0 +1,114 @@
+package com.davajava.migrator.parser.cpp;
+
+import com.davajava.migrator.core.ParseException;
+import com.davajava.migrator.core.SourceLanguage;
+import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.core.ast.ClassDeclarationNode;
+import com.davajava.migrator.core.ast.FunctionDeclarationNode;
+import com.davajava.migrator.core.ast.ProgramNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CppParserTest {
+    private CppParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new CppParser();
+    }
+
+    private static List<String> functionNames(ASTNode node) {
+        List<String> names = new ArrayList<>();
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof FunctionDeclarationNode) {
+                names.add(((FunctionDeclarationNode) child).getName());
+            }
+        }
+        return names;
+    }
+
+    private static FunctionDeclarationNode function(ASTNode node, String name) {
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof FunctionDeclarationNode && ((FunctionDeclarationNode) child).getName().equals(name)) {
+                return (FunctionDeclarationNode) child;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void testGetSupportedLanguage() {
+        assertEquals(SourceLanguage.CPP, parser.getSupportedLanguage());
+        assertTrue(parser.canHandle("shape.cpp"));
+        assertFalse(parser.canHandle("shape.c"));
+    }
+
+    @Test
+    void testClassMembers() throws ParseException {
+        String code =
+            "#include <cmath>\n" +
+            "\n" +
+            "class Point {\n" +
+            "public:\n" +
+            "    Point(double x, double y) {\n" +
+            "        // Constructor { }\n" +
+            "    }\n" +
+            "\n" +
+            "    double getX() const { return x; }\n" +
+            "    /* double hidden() { return 0; } */\n" +
+            "    void setX(double newX) { x = newX; }\n" +
+            "};\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode point = (ClassDeclarationNode) program.getChildren().get(0);
+
+        assertEquals("Point", point.getName());
+        assertEquals(3, point.getLineNumber());
+        assertEquals(List.of("Point", "getX", "setX"), functionNames(point));
+
+        FunctionDeclarationNode setX = function(point, "setX");
+        assertTrue(setX.isPublic());
+        assertEquals(11, setX.getLineNumber());
+        assertEquals(5, setX.getColumnNumber());
+        assertEquals(11, setX.getParameters().get(0).getLineNumber());
+        assertEquals(15, setX.getParameters().get(0).getColumnNumber());
+    }
+
+    @Test
+    void testDefaultVisibilityIsPrivate() throws ParseException {
+        String code =
+            "class Counter {\n" +
+            "    int next() { return ++count; }\n" +
+            "public:\n" +
+            "    int value() { return count; }\n" +
+            "};\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode counter = (ClassDeclarationNode) program.getChildren().get(0);
+
+        assertFalse(function(counter, "next").isPublic());
+        assertTrue(function(counter, "value").isPublic());
+    }
+
+    @Test
+    void testTemplatePrefixIsIgnored() throws ParseException {
+        String code =
+            "template <typename T>\n" +
+            "class Box {\n" +
+            "public:\n" +
+            "    void clear() { }\n" +
+            "};\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode box = (ClassDeclarationNode) program.getChildren().get(0);
+
+        assertEquals("Box", box.getName());
+        assertEquals(2, box.getLineNumber());
+        assertEquals(List.of("clear"), functionNames(box));
+    }
+}
@@ -0,0 +1,155 @@
+package com.davajava.migrator.parser.csharp;
+
+import com.davajava.migrator.core.ParseException;
+import com.davajava.migrator.core.SourceLanguage;
+import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.core.ast.ClassDeclarationNode;
+import com.davajava.migrator.core.ast.FunctionDeclarationNode;
+import com.davajava.migrator.core.ast.ProgramNode;
+import com.davajava.migrator.core.ast.VariableDeclarationNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CSharpParserTest {
+    private CSharpParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new CSharpParser();
+    }
+
+    private static List<String> functionNames(ASTNode node) {
+        List<String> names = new ArrayList<>();
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof FunctionDeclarationNode) {
+                names.add(((FunctionDeclarationNode) child).getName());
+            }
+        }
+        return names;
+    }
+
+    private static FunctionDeclarationNode function(ASTNode node, String name) {
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof FunctionDeclarationNode && ((FunctionDeclarationNode) child).getName().equals(name)) {
+                return (FunctionDeclarationNode) child;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void testGetSupportedLanguage() {
+        assertEquals(SourceLanguage.CSHARP, parser.getSupportedLanguage());
+        assertTrue(parser.canHandle("Program.cs"));
+        assertFalse(parser.canHandle("Program.java"));
+    }
+
+    @Test
+    void testConstructorsAreNotMethods() throws ParseException {
+        String code =
+            "namespace Example\n" +
+            "{\n" +
+            "    public class Calculator\n" +
+            "    {\n" +
+            "        public Calculator(int initialValue = 0)\n" +
+            "        {\n" +
+            "        }\n" +
+            "\n" +
+            "        static Calculator() { }\n" +
+            "\n" +
+            "        public int Add(int amount)\n" +
+            "        {\n" +
+            "            return amount;\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode calculator = (ClassDeclarationNode) program.getChildren().get(0);
+
+        assertEquals("Calculator", calculator.getName());
+        assertEquals(List.of("Add"), functionNames(calculator));
+        assertEquals("int", function(calculator, "Add").getReturnType());
+    }
+
+    @Test
+    void testCommentsAndStringsDoNotHideMembers() throws ParseException {
+        String code =
+            "public class Links\n" +
+            "{\n" +
+            "    // public void Commented() { }\n" +
+            "    private string home = \"http://example.com/{id}\";\n" +
+            "    /* public void Blocked() { } */\n" +
+            "    public static string Resolve(string path /* relative */)\n" +
+            "    {\n" +
+            "        return home + path; // joined\n" +
+            "    }\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode links = (ClassDeclarationNode) program.getChildren().get(0);
+
+        assertEquals(List.of("Resolve"), functionNames(links));
+        FunctionDeclarationNode resolve = function(links, "Resolve");
+        assertTrue(resolve.isStatic());
+        assertEquals(1, resolve.getParameters().size());
+        assertEquals("path", resolve.getParameters().get(0).getName());
+
+        boolean hasHome = false;
+        for (ASTNode child : links.getChildren()) {
+            if (child instanceof VariableDeclarationNode && ((VariableDeclarationNode) child).getName().equals("home")) {
+                hasHome = true;
+            }
+        }
+        assertTrue(hasHome);
+    }
+
+    @Test
+    void testRegionsAndPositions() throws ParseException {
+        String code =
+            "/* File header\n" +
+            "   spanning lines */\n" +
+            "public class Shapes\n" +
+            "{\n" +
+            "    #region Area\n" +
+            "    public double Area(double side)\n" +
+            "    {\n" +
+            "        return side * side;\n" +
+            "    }\n" +
+            "    #endregion\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode shapes = (ClassDeclarationNode) program.getChildren().get(0);
+        assertEquals(3, shapes.getLineNumber());
+        assertEquals(1, shapes.getColumnNumber());
+
+        FunctionDeclarationNode area = function(shapes, "Area");
+        assertNotNull(area);
+        assertEquals(6, area.getLineNumber());
+        assertEquals(5, area.getColumnNumber());
+        assertEquals(6, area.getParameters().get(0).getLineNumber());
+        assertEquals(24, area.getParameters().get(0).getColumnNumber());
+    }
+
+    @Test
+    void testPropertiesBecomeAccessors() throws ParseException {
+        String code =
+            "public class Person\n" +
+            "{\n" +
+            "    public string Name { get; set; }\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode person = (ClassDeclarationNode) program.getChildren().get(0);
+
+        assertNotNull(function(person, "getName"));
+        assertNotNull(function(person, "setName"));
+        assertEquals("String", function(person, "getName").getReturnType());
+    }
+}
@@ -0,0 +1,113 @@
+package com.davajava.migrator.parser.go;
+
+import com.davajava.migrator.core.ParseException;
+import com.davajava.migrator.core.SourceLanguage;
+import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.core.ast.ClassDeclarationNode;
+import com.davajava.migrator.core.ast.FunctionDeclarationNode;
+import com.davajava.migrator.core.ast.ProgramNode;
+import com.davajava.migrator.core.ast.VariableDeclarationNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GoParserTest {
+    private GoParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new GoParser();
+    }
+
+    private static List<String> functionNames(ASTNode node) {
+        List<String> names = new ArrayList<>();
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof FunctionDeclarationNode) {
+                names.add(((FunctionDeclarationNode) child).getName());
+            }
+        }
+        return names;
+    }
+
+    private static List<String> fieldNames(ASTNode node) {
+        List<String> names = new ArrayList<>();
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof VariableDeclarationNode) {
+                names.add(((VariableDeclarationNode) child).getName());
+            }
+        }
+        return names;
+    }
+
+    @Test
+    void testGetSupportedLanguage() {
+        assertEquals(SourceLanguage.GO, parser.getSupportedLanguage());
+        assertTrue(parser.canHandle("main.go"));
+        assertFalse(parser.canHandle("main.rs"));
+    }
+
+    @Test
+    void testStructFieldsSkipComments() throws ParseException {
+        String code =
+            "package main\n" +
+            "\n" +
+            "// Point is a { location }\n" +
+            "type Point struct {\n" +
+            "    X int `json:\"x\"`\n" +
+            "    // Hidden int\n" +
+            "    Y int /* vertical */\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode point = (ClassDeclarationNode) program.getChildren().get(0);
+
+        assertEquals("Point", point.getName());
+        assertEquals(4, point.getLineNumber());
+        assertEquals(1, point.getColumnNumber());
+        assertEquals(List.of("X", "Y"), fieldNames(point));
+        assertEquals(7, point.getChildren().stream()
+            .filter(child -> child instanceof VariableDeclarationNode)
+            .skip(1).findFirst().get().getLineNumber());
+    }
+
+    @Test
+    void testInterfaceMethods() throws ParseException {
+        String code =
+            "type Shape interface {\n" +
+            "    Area() float64 // square units\n" +
+            "    Perimeter() float64\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode shape = (ClassDeclarationNode) program.getChildren().get(0);
+
+        assertEquals(List.of("Area", "Perimeter"), functionNames(shape));
+        assertEquals(3, shape.getChildren().get(1).getLineNumber());
+        assertEquals(5, shape.getChildren().get(1).getColumnNumber());
+    }
+
+    @Test
+    void testFunctionsAfterCommentsAndStrings() throws ParseException {
+        String code =
+            "/* func hidden() {} */\n" +
+            "func Url() string {\n" +
+            "    return \"http://example.com/{id}\"\n" +
+            "}\n" +
+            "\n" +
+            "func Add(a int, b int) int {\n" +
+            "    return a + b\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+
+        assertEquals(List.of("Url", "Add"), functionNames(program));
+        FunctionDeclarationNode add = (FunctionDeclarationNode) program.getChildren().get(1);
+        assertEquals(6, add.getLineNumber());
+        assertEquals(2, add.getParameters().size());
+        assertEquals(17, add.getParameters().get(1).getColumnNumber());
+    }
+}
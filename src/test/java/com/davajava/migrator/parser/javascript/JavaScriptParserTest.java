@@ -0,0 +1,86 @@
+package com.davajava.migrator.parser.javascript;
+
+import com.davajava.migrator.core.ParseException;
+import com.davajava.migrator.core.SourceLanguage;
+import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.core.ast.ClassDeclarationNode;
+import com.davajava.migrator.core.ast.FunctionDeclarationNode;
+import com.davajava.migrator.core.ast.ProgramNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JavaScriptParserTest {
+    private JavaScriptParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new JavaScriptParser();
+    }
+
+    private static List<String> functionNames(ASTNode node) {
+        List<String> names = new ArrayList<>();
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof FunctionDeclarationNode) {
+                names.add(((FunctionDeclarationNode) child).getName());
+            }
+        }
+        return names;
+    }
+
+    @Test
+    void testGetSupportedLanguage() {
+        assertEquals(SourceLanguage.JAVASCRIPT, parser.getSupportedLanguage());
+        assertTrue(parser.canHandle("app.js"));
+        assertFalse(parser.canHandle("app.py"));
+    }
+
+    @Test
+    void testClassMethods() throws ParseException {
+        String code =
+            "// class Fake { }\n" +
+            "class Animal {\n" +
+            "    constructor(name) {\n" +
+            "        this.name = name;\n" +
+            "    }\n" +
+            "\n" +
+            "    speak(loud) {\n" +
+            "        const url = \"http://x/{y}\"; // trailing\n" +
+            "        return `${this.name} says {hi}`;\n" +
+            "    }\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+
+        assertEquals(1, program.getChildren().size());
+        ClassDeclarationNode animal = (ClassDeclarationNode) program.getChildren().get(0);
+        assertEquals("Animal", animal.getName());
+        assertEquals(2, animal.getLineNumber());
+        assertEquals(List.of("Animal", "speak"), functionNames(animal));
+        assertEquals(7, animal.getChildren().get(1).getLineNumber());
+    }
+
+    @Test
+    void testFunctionsAndArrowFunctions() throws ParseException {
+        String code =
+            "/* function hidden() { } */\n" +
+            "function add(a, b) {\n" +
+            "    return a + b;\n" +
+            "}\n" +
+            "\n" +
+            "const mul = (a, b) => a * b;\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+
+        assertEquals(List.of("add", "mul"), functionNames(program));
+        FunctionDeclarationNode add = (FunctionDeclarationNode) program.getChildren().get(0);
+        assertEquals(2, add.getLineNumber());
+        assertEquals(2, add.getParameters().size());
+        assertEquals(17, add.getParameters().get(1).getColumnNumber());
+        assertEquals(6, program.getChildren().get(1).getLineNumber());
+    }
+}
@@ -0,0 +1,143 @@
+package com.davajava.migrator.parser.kotlin;
+
+import com.davajava.migrator.core.ParseException;
+import com.davajava.migrator.core.SourceLanguage;
+import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.core.ast.ClassDeclarationNode;
+import com.davajava.migrator.core.ast.FunctionDeclarationNode;
+import com.davajava.migrator.core.ast.ProgramNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KotlinParserTest {
+    private KotlinParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new KotlinParser();
+    }
+
+    private static List<String> functionNames(ASTNode node) {
+        List<String> names = new ArrayList<>();
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof FunctionDeclarationNode) {
+                names.add(((FunctionDeclarationNode) child).getName());
+            }
+        }
+        return names;
+    }
+
+    private static FunctionDeclarationNode function(ASTNode node, String name) {
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof FunctionDeclarationNode && ((FunctionDeclarationNode) child).getName().equals(name)) {
+                return (FunctionDeclarationNode) child;
+            }
+        }
+        return null;
+    }
+
+    private static ClassDeclarationNode findClass(ASTNode node, String name) {
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof ClassDeclarationNode && ((ClassDeclarationNode) child).getName().equals(name)) {
+                return (ClassDeclarationNode) child;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void testGetSupportedLanguage() {
+        assertEquals(SourceLanguage.KOTLIN, parser.getSupportedLanguage());
+        assertTrue(parser.canHandle("Main.kt"));
+        assertTrue(parser.canHandle("build.gradle.kts"));
+        assertFalse(parser.canHandle("Main.java"));
+    }
+
+    @Test
+    void testObjectFunctionsAreStatic() throws ParseException {
+        ProgramNode program = (ProgramNode) parser.parse("object Singleton { fun hello() = \"hi\" }");
+
+        FunctionDeclarationNode hello = function(program, "hello");
+        assertNotNull(hello);
+        assertTrue(hello.isStatic());
+    }
+
+    @Test
+    void testCompanionObjectExpressionBodies() throws ParseException {
+        String code =
+            "class MathUtils {\n" +
+            "    companion object {\n" +
+            "        fun max(a: Int, b: Int): Int = if (a > b) a else b\n" +
+            "        \n" +
+            "        const val PI = 3.14159\n" +
+            "    }\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+
+        assertNotNull(findClass(program, "MathUtils"));
+        FunctionDeclarationNode max = function(program, "max");
+        assertNotNull(max);
+        assertTrue(max.isStatic());
+        assertEquals("int", max.getReturnType());
+        assertEquals(2, max.getParameters().size());
+        assertEquals(3, max.getLineNumber());
+        assertEquals(9, max.getColumnNumber());
+    }
+
+    @Test
+    void testMethodsStayWithTheirClass() throws ParseException {
+        String code =
+            "class BankAccount(private val accountNumber: String) {\n" +
+            "    fun deposit(amount: Double) {\n" +
+            "        fun log() = println(amount)\n" +
+            "    }\n" +
+            "    fun getBalance(): Double = 0.0\n" +
+            "}\n" +
+            "\n" +
+            "fun calculateTax(income: Double): Double {\n" +
+            "    return income * 0.15\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode account = findClass(program, "BankAccount");
+
+        assertEquals(List.of("BankAccount", "deposit", "getBalance"), functionNames(account));
+        assertEquals(List.of("calculateTax"), functionNames(program));
+        assertTrue(function(program, "calculateTax").isStatic());
+    }
+
+    @Test
+    void testCommentsAndAnnotationsKeepPositions() throws ParseException {
+        String code =
+            "/*\n" +
+            " * fun commented() {}\n" +
+            " */\n" +
+            "@Suppress(\"unused\")\n" +
+            "fun greet(name: String): String {\n" +
+            "    return \"https://example.com/\" + name // { not a block\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+
+        assertEquals(List.of("greet"), functionNames(program));
+        FunctionDeclarationNode greet = function(program, "greet");
+        assertEquals(5, greet.getLineNumber());
+        assertEquals(1, greet.getColumnNumber());
+        assertEquals(5, greet.getParameters().get(0).getLineNumber());
+        assertEquals(11, greet.getParameters().get(0).getColumnNumber());
+    }
+
+    @Test
+    void testDataClassMembers() throws ParseException {
+        ProgramNode program = (ProgramNode) parser.parse("data class Person(val name: String, val age: Int)");
+        ClassDeclarationNode person = findClass(program, "Person");
+
+        assertEquals(List.of("getName", "getAge", "equals", "hashCode", "toString"), functionNames(person));
+    }
+}
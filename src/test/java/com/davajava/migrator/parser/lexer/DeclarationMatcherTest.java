@@ -0,0 +1,159 @@
+package com.davajava.migrator.parser.lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeclarationMatcherTest {
+    private static final Pattern CLASS = Pattern.compile(
+        "^\\s*class\\s+(\\w+)\\s*\\{", Pattern.MULTILINE);
+
+    private static final Pattern METHOD = Pattern.compile(
+        "^\\s*(\\w+)\\s+(\\w+)\\s*\\(([^)]*)\\)\\s*(?:\\{|;)", Pattern.MULTILINE);
+
+    @Test
+    void testGroupsAndOffsets() {
+        String text = "class Shape {\n    int area(int scale) { return 0; }\n};";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.CPP);
+        DeclarationMatcher matcher = tokens.match(METHOD);
+
+        assertTrue(matcher.find());
+        assertEquals("int", matcher.group(1));
+        assertEquals("area", matcher.group(2));
+        assertEquals("int scale", matcher.group(3));
+        assertEquals(text.indexOf("int scale"), matcher.start(3));
+        assertEquals(text.indexOf('{', text.indexOf("area")) + 1, matcher.end());
+        assertTrue(matcher.group().endsWith("{"));
+    }
+
+    @Test
+    void testStartSkipsLeadingWhitespace() {
+        String text = "\n\n   class Spaced {\n}";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.CPP);
+        DeclarationMatcher matcher = tokens.match(CLASS);
+
+        assertTrue(matcher.find());
+        assertEquals(text.indexOf("class"), matcher.start());
+    }
+
+    @Test
+    void testStartSkipsBlankedComments() {
+        String text = "// leading comment\nclass Commented {\n}";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.CPP);
+        DeclarationMatcher matcher = tokens.match(CLASS);
+
+        assertTrue(matcher.find());
+        assertEquals(text.indexOf("class"), matcher.start());
+    }
+
+    @Test
+    void testBodyOfDeclaration() {
+        String text = "class Box { int size; }";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.CPP);
+        DeclarationMatcher matcher = tokens.match(CLASS);
+
+        assertTrue(matcher.find());
+        TokenStream.Block body = matcher.body();
+        assertNotNull(body);
+        assertEquals(" int size; ", body.getText());
+    }
+
+    @Test
+    void testBodyIsNullForPrototypes() {
+        String text = "class Api {\n    void run();\n    void stop() {}\n};";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.CPP);
+        DeclarationMatcher matcher = tokens.match(METHOD);
+
+        assertTrue(matcher.find());
+        assertEquals("run", matcher.group(2));
+        assertNull(matcher.body());
+
+        assertTrue(matcher.find());
+        assertEquals("stop", matcher.group(2));
+        assertNotNull(matcher.body());
+        assertEquals("", matcher.body().getText());
+    }
+
+    @Test
+    void testBodyIsNullWhenPatternStopsShort() {
+        Pattern name = Pattern.compile("^\\s*class\\s+(\\w+)", Pattern.MULTILINE);
+        TokenStream tokens = Lexer.tokenize("class Short { }", LexerSyntax.CPP);
+        DeclarationMatcher matcher = tokens.match(name);
+
+        assertTrue(matcher.find());
+        assertNull(matcher.body());
+    }
+
+    @Test
+    void testBraceInStringDoesNotEndBody() {
+        String text = "class Text {\n    const char* s = \"}\";\n    int after;\n}";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.CPP);
+        DeclarationMatcher matcher = tokens.match(CLASS);
+
+        assertTrue(matcher.find());
+        assertTrue(matcher.body().getText().contains("int after;"));
+    }
+
+    @Test
+    void testEnclosingBlock() {
+        String text = "class Outer {\n    class Inner {\n    }\n}";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.CPP);
+        DeclarationMatcher matcher = tokens.match(CLASS);
+
+        assertTrue(matcher.find());
+        assertEquals("Outer", matcher.group(1));
+        assertNull(matcher.enclosingBlock());
+        TokenStream.Block outerBody = matcher.body();
+
+        assertTrue(matcher.find());
+        assertEquals("Inner", matcher.group(1));
+        assertNotNull(matcher.enclosingBlock());
+        assertEquals(outerBody.getStart(), matcher.enclosingBlock().getStart());
+    }
+
+    @Test
+    void testIndent() {
+        String text = "class A {\n  \tclass B {\n  }\n}";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.CPP);
+        DeclarationMatcher matcher = tokens.match(CLASS);
+
+        assertTrue(matcher.find());
+        assertEquals(0, matcher.indent());
+        assertTrue(matcher.find());
+        assertEquals(3, matcher.indent());
+    }
+
+    @Test
+    void testSeveralMatchesInOneHead() {
+        // Without semicolons a whole run of declarations forms a single head
+        Pattern val = Pattern.compile("^\\s*val\\s+(\\w+)", Pattern.MULTILINE);
+        TokenStream tokens = Lexer.tokenize("class C {\n    val a = 1\n    val b = 2\n}", LexerSyntax.KOTLIN);
+        DeclarationMatcher matcher = tokens.match(val);
+
+        assertTrue(matcher.find());
+        assertEquals("a", matcher.group(1));
+        assertTrue(matcher.find());
+        assertEquals("b", matcher.group(1));
+        assertFalse(matcher.find());
+    }
+
+    @Test
+    void testMatchDoesNotCrossStatements() {
+        // "int" ends one statement and "x()" starts the next; they must not join into a method
+        TokenStream tokens = Lexer.tokenize("int;\nx() {}", LexerSyntax.CPP);
+
+        assertFalse(tokens.match(METHOD).find());
+    }
+
+    @Test
+    void testFindAfterExhaustion() {
+        TokenStream tokens = Lexer.tokenize("class Only {}", LexerSyntax.CPP);
+        DeclarationMatcher matcher = tokens.match(CLASS);
+
+        assertTrue(matcher.find());
+        assertFalse(matcher.find());
+        assertFalse(matcher.find());
+    }
+}
@@ -0,0 +1,228 @@
+package com.davajava.migrator.parser.lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LexerTest {
+
+    private static List<TokenType> types(TokenStream tokens) {
+        List<TokenType> types = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            types.add(tokens.getType(i));
+        }
+        return types;
+    }
+
+    private static List<String> texts(TokenStream tokens) {
+        List<String> texts = new ArrayList<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            texts.add(tokens.getText(i));
+        }
+        return texts;
+    }
+
+    @Test
+    void testBasicTokens() {
+        TokenStream tokens = Lexer.tokenize("fn add(a: i32) -> i32 { a + 1; }", LexerSyntax.RUST);
+
+        assertEquals(List.of("fn", "add", "(", "a", ":", "i32", ")", "-", ">", "i32", "{", "a", "+", "1", ";", "}"),
+            texts(tokens));
+        assertEquals(TokenType.IDENTIFIER, tokens.getType(0));
+        assertEquals(TokenType.OPEN_PAREN, tokens.getType(2));
+        assertEquals(TokenType.CLOSE_PAREN, tokens.getType(6));
+        assertEquals(TokenType.OPEN_BRACE, tokens.getType(10));
+        assertEquals(TokenType.NUMBER, tokens.getType(13));
+        assertEquals(TokenType.SEMICOLON, tokens.getType(14));
+        assertEquals(TokenType.CLOSE_BRACE, tokens.getType(15));
+    }
+
+    @Test
+    void testTokenOffsets() {
+        String text = "int x;\n  long y;";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.C);
+
+        assertEquals(text.indexOf("long"), tokens.getStart(3));
+        assertEquals(text.indexOf("long") + 4, tokens.getEnd(3));
+    }
+
+    @Test
+    void testCommentsProduceNoTokens() {
+        TokenStream tokens = Lexer.tokenize("a // { b\n/* } c */ d", LexerSyntax.C);
+
+        assertEquals(List.of("a", "d"), texts(tokens));
+    }
+
+    @Test
+    void testNestedBlockComments() {
+        String text = "a /* outer /* inner */ still comment */ b";
+
+        assertEquals(List.of("a", "b"), texts(Lexer.tokenize(text, LexerSyntax.RUST)));
+        // Without nesting the first */ closes the comment
+        assertEquals(List.of("a", "still", "comment", "*", "/", "b"), texts(Lexer.tokenize(text, LexerSyntax.C)));
+    }
+
+    @Test
+    void testBracesInsideStringsAreNotBraces() {
+        TokenStream tokens = Lexer.tokenize("x = \"{ // not a comment }\";", LexerSyntax.C);
+
+        assertEquals(List.of(TokenType.IDENTIFIER, TokenType.PUNCTUATION, TokenType.STRING, TokenType.SEMICOLON),
+            types(tokens));
+        assertEquals("\"{ // not a comment }\"", tokens.getText(2));
+    }
+
+    @Test
+    void testEscapedQuoteInString() {
+        TokenStream tokens = Lexer.tokenize("\"a\\\"{\" b", LexerSyntax.JAVASCRIPT);
+
+        assertEquals(List.of("\"a\\\"{\"", "b"), texts(tokens));
+    }
+
+    @Test
+    void testCharLiteralAndLifetime() {
+        TokenStream chars = Lexer.tokenize("c = '{'; d = '\\n';", LexerSyntax.C);
+        assertEquals(List.of("c", "=", "'{'", ";", "d", "=", "'\\n'", ";"), texts(chars));
+
+        TokenStream lifetime = Lexer.tokenize("fn f<'a>(x: &'a str) {}", LexerSyntax.RUST);
+        assertEquals(TokenType.PUNCTUATION, lifetime.getType(3));
+        assertEquals("'", lifetime.getText(3));
+        assertEquals("a", lifetime.getText(4));
+    }
+
+    @Test
+    void testSingleQuotedStrings() {
+        TokenStream tokens = Lexer.tokenize("s = '{ not a block }'", LexerSyntax.JAVASCRIPT);
+
+        assertEquals(TokenType.STRING, tokens.getType(2));
+        assertEquals(3, tokens.size());
+    }
+
+    @Test
+    void testTemplateAndBacktickStrings() {
+        TokenStream template = Lexer.tokenize("`a \\` { b` c", LexerSyntax.JAVASCRIPT);
+        assertEquals(List.of("`a \\` { b`", "c"), texts(template));
+
+        // Go raw strings have no escapes: the backslash does not protect the backtick
+        TokenStream raw = Lexer.tokenize("`a \\` { b`", LexerSyntax.GO);
+        assertEquals("`a \\`", raw.getText(0));
+        assertEquals(TokenType.OPEN_BRACE, raw.getType(1));
+    }
+
+    @Test
+    void testTripleQuotedStrings() {
+        String text = "val s = \"\"\"\n{ \"quoted\" }\n\"\"\"\nfun f() {}";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.KOTLIN);
+
+        assertEquals(TokenType.STRING, tokens.getType(3));
+        assertEquals("\"\"\"\n{ \"quoted\" }\n\"\"\"", tokens.getText(3));
+        assertEquals("fun", tokens.getText(4));
+    }
+
+    @Test
+    void testVerbatimStrings() {
+        TokenStream tokens = Lexer.tokenize("p = @\"C:\\dir\"\"{\"; q", LexerSyntax.CSHARP);
+
+        assertEquals(List.of("p", "=", "@\"C:\\dir\"\"{\"", ";", "q"), texts(tokens));
+    }
+
+    @Test
+    void testRawStrings() {
+        TokenStream tokens = Lexer.tokenize("let s = r#\"a \"} b\"#; let t = r\"{\";", LexerSyntax.RUST);
+
+        assertEquals("r#\"a \"} b\"#", tokens.getText(3));
+        assertEquals("r\"{\"", tokens.getText(8));
+        assertFalse(types(tokens).contains(TokenType.OPEN_BRACE));
+    }
+
+    @Test
+    void testUnterminatedStringEndsAtLineEnd() {
+        TokenStream tokens = Lexer.tokenize("a = \"open\nb;", LexerSyntax.C);
+
+        assertEquals("\"open", tokens.getText(2));
+        assertEquals("b", tokens.getText(3));
+    }
+
+    @Test
+    void testDirectivesAreSingleTokens() {
+        String text = "#include <stdio.h>\n#define LONG \\\n  { 1 }\nint x;";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.C);
+
+        assertEquals(List.of(TokenType.DIRECTIVE, TokenType.DIRECTIVE, TokenType.IDENTIFIER, TokenType.IDENTIFIER,
+            TokenType.SEMICOLON), types(tokens));
+        assertEquals("#define LONG \\\n  { 1 }", tokens.getText(1));
+    }
+
+    @Test
+    void testHashIsNotADirectiveMidLine() {
+        TokenStream tokens = Lexer.tokenize("x = a # b;", LexerSyntax.C);
+
+        assertFalse(types(tokens).contains(TokenType.DIRECTIVE));
+        // Languages without directives never produce them
+        assertFalse(types(Lexer.tokenize("#[derive(Debug)]", LexerSyntax.RUST)).contains(TokenType.DIRECTIVE));
+    }
+
+    @Test
+    void testBracesArePaired() {
+        TokenStream tokens = Lexer.tokenize("{ { } { } }", LexerSyntax.C);
+
+        assertEquals(5, tokens.getMatchingBrace(0));
+        assertEquals(0, tokens.getMatchingBrace(5));
+        assertEquals(2, tokens.getMatchingBrace(1));
+        assertEquals(4, tokens.getMatchingBrace(3));
+        assertEquals(0, tokens.getDepth(0));
+        assertEquals(1, tokens.getDepth(1));
+        assertEquals(0, tokens.getDepth(5));
+    }
+
+    @Test
+    void testUnbalancedBraces() {
+        TokenStream open = Lexer.tokenize("{ {", LexerSyntax.C);
+        assertEquals(-1, open.getMatchingBrace(0));
+        assertEquals(-1, open.getMatchingBrace(1));
+
+        TokenStream close = Lexer.tokenize("} {", LexerSyntax.C);
+        assertEquals(-1, close.getMatchingBrace(0));
+        assertEquals(0, close.getDepth(1));
+    }
+
+    @Test
+    void testNumbers() {
+        TokenStream tokens = Lexer.tokenize("1.5 0x1F 1..5 10_000u32", LexerSyntax.RUST);
+
+        assertEquals(List.of("1.5", "0x1F", "1", ".", ".", "5", "10_000u32"), texts(tokens));
+    }
+
+    @Test
+    void testCodeBlanksCommentsAndDirectives() {
+        String text = "#region A\nint x; // trailing {\n/* a\n b */ int y;\n";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.CSHARP);
+        String code = tokens.getCode();
+
+        assertEquals(text.length(), code.length());
+        assertEquals("         \nint x;              \n    \n      int y;\n", code);
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '\n') {
+                assertEquals('\n', code.charAt(i));
+            }
+        }
+    }
+
+    @Test
+    void testCodeKeepsCarriageReturns() {
+        String text = "a // c\r\nb";
+        String code = Lexer.tokenize(text, LexerSyntax.C).getCode();
+
+        assertEquals("a     \r\nb", code);
+    }
+
+    @Test
+    void testCodeIsTextWithoutComments() {
+        String text = "int x = 1; char* s = \"// not a comment\";";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.C);
+
+        assertSame(tokens.getText(), tokens.getCode());
+    }
+}
@@ -0,0 +1,130 @@
+package com.davajava.migrator.parser.lexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenStreamTest {
+    private static final Pattern DECLARATION = Pattern.compile("^\\s*(?:fn|struct|mod)\\s+(\\w+)", Pattern.MULTILINE);
+
+    private static final String SOURCE =
+        "mod outer {\n" +
+        "    fn inner() {\n" +
+        "        fn nested() {}\n" +
+        "    }\n" +
+        "    struct Member;\n" +
+        "}\n" +
+        "fn top() {}\n";
+
+    private static List<String> names(DeclarationMatcher matcher) {
+        List<String> names = new ArrayList<>();
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        return names;
+    }
+
+    @Test
+    void testMatchFindsDeclarationsAtAnyDepth() {
+        TokenStream tokens = Lexer.tokenize(SOURCE, LexerSyntax.RUST);
+
+        assertEquals(List.of("outer", "inner", "nested", "Member", "top"), names(tokens.match(DECLARATION)));
+    }
+
+    @Test
+    void testMatchTopLevel() {
+        TokenStream tokens = Lexer.tokenize(SOURCE, LexerSyntax.RUST);
+
+        assertEquals(List.of("outer", "top"), names(tokens.matchTopLevel(DECLARATION)));
+    }
+
+    @Test
+    void testMatchInBlockVisitsDirectMembersOnly() {
+        TokenStream tokens = Lexer.tokenize(SOURCE, LexerSyntax.RUST);
+        DeclarationMatcher outer = tokens.matchTopLevel(Pattern.compile("^\\s*mod\\s+(\\w+)\\s*\\{", Pattern.MULTILINE));
+        assertTrue(outer.find());
+
+        TokenStream.Block body = outer.body();
+        assertNotNull(body);
+        assertEquals(List.of("inner", "Member"), names(tokens.match(DECLARATION, body)));
+    }
+
+    @Test
+    void testBlockBounds() {
+        String text = "struct S { a: i32, b: i32 }";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.RUST);
+        TokenStream.Block block = tokens.getBlock(2);
+
+        assertEquals(text.indexOf('{') + 1, block.getStart());
+        assertEquals(text.indexOf('}'), block.getEnd());
+        assertEquals(" a: i32, b: i32 ", block.getText());
+        assertEquals(1, block.getDepth());
+    }
+
+    @Test
+    void testUnclosedBlockRunsToEndOfText() {
+        String text = "fn f() { let x = 1;";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.RUST);
+        TokenStream.Block block = tokens.getBlock(4);
+
+        assertEquals(text.length(), block.getEnd());
+        assertEquals(" let x = 1;", block.getText());
+    }
+
+    @Test
+    void testBlockCodeBlanksComments() {
+        String text = "class A { int x; /* } */ }";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.CPP);
+        TokenStream.Block block = tokens.getBlock(2);
+
+        assertEquals(" int x; /* } */ ", block.getText());
+        assertEquals(" int x;         ", block.getCode());
+    }
+
+    @Test
+    void testGetBlockRejectsOtherTokens() {
+        TokenStream tokens = Lexer.tokenize("fn f() {}", LexerSyntax.RUST);
+
+        assertThrows(IllegalArgumentException.class, () -> tokens.getBlock(0));
+        assertThrows(IllegalArgumentException.class, () -> tokens.getBlock(5));
+    }
+
+    @Test
+    void testMatchIgnoresCommentedOutDeclarations() {
+        String text =
+            "// fn commented() {}\n" +
+            "/* fn blocked() {} */\n" +
+            "fn real() {}\n";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.RUST);
+
+        assertEquals(List.of("real"), names(tokens.match(DECLARATION)));
+    }
+
+    @Test
+    void testMatchSeesThroughCommentsInsideHead() {
+        Pattern function = Pattern.compile("^\\s*fn\\s+(\\w+)\\s*\\(([^)]*)\\)\\s*\\{", Pattern.MULTILINE);
+        String text =
+            "fn add(a: i32, // first\n" +
+            "       b: i32 /* second ) */) {}\n";
+        TokenStream tokens = Lexer.tokenize(text, LexerSyntax.RUST);
+        DeclarationMatcher matcher = tokens.match(function);
+
+        assertTrue(matcher.find());
+        assertEquals("add", matcher.group(1));
+        assertFalse(matcher.group(2).contains("first"));
+        assertEquals(text.indexOf("a: i32"), matcher.start(2));
+        assertNotNull(matcher.body());
+    }
+
+    @Test
+    void testEmptyText() {
+        TokenStream tokens = Lexer.tokenize("", LexerSyntax.C);
+
+        assertEquals(0, tokens.size());
+        assertFalse(tokens.match(DECLARATION).find());
+    }
+}
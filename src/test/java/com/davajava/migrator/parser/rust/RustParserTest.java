@@ -5,6 +5,7 @@ import com.davajava.migrator.core.SourceLanguage;
 import com.davajava.migrator.core.ast.ASTNode;
 import com.davajava.migrator.core.ast.FunctionDeclarationNode;
 import com.davajava.migrator.core.ast.ProgramNode;
+import com.davajava.migrator.core.ast.StructDeclarationNode;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -105,4 +106,33 @@ class RustParserTest {
         assertEquals(1, second.getParameters().size());
         assertEquals("String", second.getParameters().get(0).getType());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testNodePositionsFollowSource() throws ParseException {
+        String rustCode = 
+            "// header\r\n" +
+            "struct Point {\r\n" +
+            "    x: i32,\r\n" +
+            "    y: i32,\r\n" +
+            "}\r\n" +
+            "\r\n" +
+            "fn add(a: i32,\r\n" +
+            "       b: i32) -> i32 { a + b }";
+        
+        ProgramNode program = (ProgramNode) parser.parse(rustCode);
+        
+        StructDeclarationNode struct = (StructDeclarationNode) program.getChildren().get(0);
+        assertEquals(2, struct.getLineNumber());
+        assertEquals(1, struct.getColumnNumber());
+        assertEquals(3, struct.getFields().get(0).getLineNumber());
+        assertEquals(5, struct.getFields().get(0).getColumnNumber());
+        assertEquals(4, struct.getFields().get(1).getLineNumber());
+        
+        FunctionDeclarationNode function = (FunctionDeclarationNode) program.getChildren().get(1);
+        assertEquals(7, function.getLineNumber());
+        assertEquals(7, function.getParameters().get(0).getLineNumber());
+        assertEquals(8, function.getParameters().get(0).getColumnNumber());
+        assertEquals(8, function.getParameters().get(1).getLineNumber());
+        assertEquals(8, function.getParameters().get(1).getColumnNumber());
+    }
+}
@@ -0,0 +1,97 @@
+package com.davajava.migrator.parser.scala;
+
+import com.davajava.migrator.core.ParseException;
+import com.davajava.migrator.core.SourceLanguage;
+import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.core.ast.ClassDeclarationNode;
+import com.davajava.migrator.core.ast.FunctionDeclarationNode;
+import com.davajava.migrator.core.ast.ProgramNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScalaParserTest {
+    private ScalaParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new ScalaParser();
+    }
+
+    private static List<String> functionNames(ASTNode node) {
+        List<String> names = new ArrayList<>();
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof FunctionDeclarationNode) {
+                names.add(((FunctionDeclarationNode) child).getName());
+            }
+        }
+        return names;
+    }
+
+    private static ClassDeclarationNode findClass(ASTNode node, String name) {
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof ClassDeclarationNode && ((ClassDeclarationNode) child).getName().equals(name)) {
+                return (ClassDeclarationNode) child;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void testGetSupportedLanguage() {
+        assertEquals(SourceLanguage.SCALA, parser.getSupportedLanguage());
+        assertTrue(parser.canHandle("Main.scala"));
+        assertFalse(parser.canHandle("Main.java"));
+    }
+
+    @Test
+    void testCaseClass() throws ParseException {
+        ProgramNode program = (ProgramNode) parser.parse("// model\ncase class Person(name: String, age: Int)\n");
+        ClassDeclarationNode person = findClass(program, "Person");
+
+        assertNotNull(person);
+        assertEquals(2, person.getLineNumber());
+        assertEquals(List.of("getName", "getAge", "equals", "hashCode", "toString"), functionNames(person));
+        assertEquals(33, person.getChildren().get(2).getColumnNumber());
+    }
+
+    @Test
+    void testObjectMembers() throws ParseException {
+        String code =
+            "/* object Fake { } */\n" +
+            "object Registry {\n" +
+            "  val url = \"http://x/{y}\"\n" +
+            "  def lookup(key: String): Int = 1\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode registry = findClass(program, "Registry");
+
+        assertNull(findClass(program, "Fake"));
+        assertEquals(2, registry.getLineNumber());
+        assertEquals(List.of("Registry", "getInstance", "getUrl", "lookup"), functionNames(registry));
+    }
+
+    @Test
+    void testClassBodyMembersOnly() throws ParseException {
+        String code =
+            "class Counter(start: Int) {\n" +
+            "  var count: Int = 0\n" +
+            "  def increment(): Unit = {\n" +
+            "    val local = 1\n" +
+            "    count += local\n" +
+            "  }\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode counter = findClass(program, "Counter");
+
+        assertEquals(List.of("Counter", "getCount", "setCount", "increment"), functionNames(counter));
+        assertEquals(3, counter.getChildren().get(4).getLineNumber());
+        assertEquals(3, counter.getChildren().get(4).getColumnNumber());
+    }
+}
@@ -0,0 +1,124 @@
+package com.davajava.migrator.parser.swift;
+
+import com.davajava.migrator.core.ParseException;
+import com.davajava.migrator.core.SourceLanguage;
+import com.davajava.migrator.core.ast.ASTNode;
+import com.davajava.migrator.core.ast.ClassDeclarationNode;
+import com.davajava.migrator.core.ast.FunctionDeclarationNode;
+import com.davajava.migrator.core.ast.ProgramNode;
+import com.davajava.migrator.core.ast.VariableDeclarationNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SwiftParserTest {
+    private SwiftParser parser;
+
+    @BeforeEach
+    void setUp() {
+        parser = new SwiftParser();
+    }
+
+    private static List<String> functionNames(ASTNode node) {
+        List<String> names = new ArrayList<>();
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof FunctionDeclarationNode) {
+                names.add(((FunctionDeclarationNode) child).getName());
+            }
+        }
+        return names;
+    }
+
+    private static List<String> fieldNames(ASTNode node) {
+        List<String> names = new ArrayList<>();
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof VariableDeclarationNode) {
+                names.add(((VariableDeclarationNode) child).getName());
+            }
+        }
+        return names;
+    }
+
+    private static ClassDeclarationNode findClass(ASTNode node, String name) {
+        for (ASTNode child : node.getChildren()) {
+            if (child instanceof ClassDeclarationNode && ((ClassDeclarationNode) child).getName().equals(name)) {
+                return (ClassDeclarationNode) child;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void testGetSupportedLanguage() {
+        assertEquals(SourceLanguage.SWIFT, parser.getSupportedLanguage());
+        assertTrue(parser.canHandle("App.swift"));
+        assertFalse(parser.canHandle("App.kt"));
+    }
+
+    @Test
+    void testStructWithMemberwiseInit() throws ParseException {
+        String code =
+            "import Foundation\n" +
+            "\n" +
+            "/* struct Fake { } */\n" +
+            "struct Point {\n" +
+            "    var x: Int // horizontal\n" +
+            "    let y: Int\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode point = findClass(program, "Point");
+
+        assertNull(findClass(program, "Fake"));
+        assertEquals(4, point.getLineNumber());
+        assertEquals(List.of("x", "y"), fieldNames(point));
+        assertEquals(List.of("getX", "setX", "getY", "Point"), functionNames(point));
+        assertEquals(6, point.getChildren().get(3).getLineNumber());
+        assertEquals(5, point.getChildren().get(3).getColumnNumber());
+    }
+
+    @Test
+    void testClassMethodsIgnoreBodies() throws ParseException {
+        String code =
+            "class Vehicle {\n" +
+            "    var speed: Int = 0\n" +
+            "\n" +
+            "    func accelerate(by amount: Int) -> Int {\n" +
+            "        let url = \"http://x/{y}\"\n" +
+            "        speed += amount\n" +
+            "        return speed\n" +
+            "    }\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+        ClassDeclarationNode vehicle = findClass(program, "Vehicle");
+
+        assertEquals(List.of("speed"), fieldNames(vehicle));
+        assertEquals(List.of("getSpeed", "setSpeed", "accelerate"), functionNames(vehicle));
+        FunctionDeclarationNode accelerate = (FunctionDeclarationNode) vehicle.getChildren().get(3);
+        assertEquals("int", accelerate.getReturnType());
+        assertEquals(4, accelerate.getLineNumber());
+        assertEquals(5, accelerate.getColumnNumber());
+    }
+
+    @Test
+    void testTopLevelFunction() throws ParseException {
+        String code =
+            "// func hidden() { }\n" +
+            "func add(a: Int, b: Int) -> Int {\n" +
+            "    return a + b\n" +
+            "}\n";
+
+        ProgramNode program = (ProgramNode) parser.parse(code);
+
+        assertEquals(List.of("add"), functionNames(program));
+        FunctionDeclarationNode add = (FunctionDeclarationNode) program.getChildren().get(0);
+        assertEquals(2, add.getLineNumber());
+        assertEquals(2, add.getParameters().size());
+        assertEquals(18, add.getParameters().get(1).getColumnNumber());
+    }
+}
@@ -0,0 +1,133 @@
+package com.polytype.migrator.core.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentFingerprintTest {
+
+    // MurmurHash3_x64_128 with seed 0, as computed by the reference implementation from SMHasher
+    private static final String EMPTY_HASH = "00000000000000000000000000000000";
+    private static final String[][] TEXT_VECTORS = {
+        { "a", "85555565f6597889e6b53a48510e895a" },
+        { "hello", "cbd8a7b341bd9b025b1e906a48ae1d19" },
+        { "hello world", "533f6046eb7f610eab97467d60eb63b1" },
+        { "The quick brown fox jumps over the lazy dog", "e34bbc7bbc071b6c7a433ca9c49a9347" },
+        { "h\u00e9llo w\u00f6rld \u2713", "e36a3988c2f0fe74861bdd8f6007d815" },
+    };
+
+    // Inputs 0, 1, 2, ... n-1, around the 16-byte block boundaries
+    private static final String[] SEQUENCE_VECTORS = {
+        "47231598fd4925e9cd846dee88c67de9", // 15
+        "444924b591903f30ab906456762fe845", // 16
+        "5c76f40f9fe7c20ec15f026b9edaa824", // 17
+        "053dd3e1a32cd0949ee59aefb4005490", // 31
+        "c66d9022b62f500f1c050a6e34c31151", // 32
+        "7d41281bfaba461255ac8073a7d6a30b", // 33
+    };
+    private static final int[] SEQUENCE_LENGTHS = { 15, 16, 17, 31, 32, 33 };
+
+    private static byte[] sequence(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) i;
+        }
+        return data;
+    }
+
+    private static byte[] pattern(int length) {
+        byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (i * 31 + 7);
+        }
+        return data;
+    }
+
+    @Test
+    void testEmptyInput() {
+        assertEquals(EMPTY_HASH, ContentFingerprint.of(new byte[0]).toHex());
+        assertEquals(EMPTY_HASH, ContentFingerprint.newHasher().finish().toHex());
+    }
+
+    @Test
+    void testReferenceVectors() {
+        for (String[] vector : TEXT_VECTORS) {
+            assertEquals(vector[1], ContentFingerprint.of(vector[0]).toHex(), vector[0]);
+        }
+        for (int i = 0; i < SEQUENCE_LENGTHS.length; i++) {
+            assertEquals(SEQUENCE_VECTORS[i], ContentFingerprint.of(sequence(SEQUENCE_LENGTHS[i])).toHex(),
+                         "length " + SEQUENCE_LENGTHS[i]);
+        }
+        assertEquals("17fe9d6b899dc945d3a7aaa6ce34ce29", ContentFingerprint.of(pattern(1000)).toHex());
+    }
+
+    @Test
+    void testHighAndLowHalves() {
+        ContentFingerprint fingerprint = ContentFingerprint.of("hello");
+
+        assertEquals(0xcbd8a7b341bd9b02L, fingerprint.getHigh());
+        assertEquals(0x5b1e906a48ae1d19L, fingerprint.getLow());
+    }
+
+    @Test
+    void testTextIsHashedAsUtf8() {
+        String text = "h\u00e9llo w\u00f6rld \u2713";
+
+        assertEquals(ContentFingerprint.of(text.getBytes(StandardCharsets.UTF_8)), ContentFingerprint.of(text));
+    }
+
+    @Test
+    void testOffsetAndLength() {
+        byte[] padded = new byte[40];
+        System.arraycopy(sequence(33), 0, padded, 5, 33);
+
+        assertEquals(ContentFingerprint.of(sequence(33)), ContentFingerprint.of(padded, 5, 33));
+    }
+
+    @Test
+    void testRandomChunkSplitsMatchOneShot() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            byte[] data = new byte[random.nextInt(300)];
+            random.nextBytes(data);
+            ContentFingerprint expected = ContentFingerprint.of(data);
+
+            ContentFingerprint.Hasher hasher = ContentFingerprint.newHasher();
+            int offset = 0;
+            while (offset < data.length) {
+                // Mostly small chunks, so splits land inside and across blocks, including empty updates
+                int chunk = Math.min(data.length - offset, random.nextInt(random.nextBoolean() ? 5 : 40));
+                hasher.update(data, offset, chunk);
+                offset += chunk;
+            }
+
+            assertEquals(expected, hasher.finish(), "round " + round + ", length " + data.length);
+        }
+    }
+
+    @Test
+    void testByteAtATime() {
+        byte[] data = pattern(1000);
+        ContentFingerprint.Hasher hasher = ContentFingerprint.newHasher();
+        for (int i = 0; i < data.length; i++) {
+            hasher.update(data, i, 1);
+        }
+
+        assertEquals("17fe9d6b899dc945d3a7aaa6ce34ce29", hasher.finish().toHex());
+    }
+
+    @Test
+    void testEqualsAndHashCode() {
+        ContentFingerprint a = ContentFingerprint.of("same");
+        ContentFingerprint b = ContentFingerprint.of("same".getBytes(StandardCharsets.UTF_8));
+        ContentFingerprint c = ContentFingerprint.of("different");
+
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertNotEquals(a, c);
+        assertEquals(a.toHex(), a.toString());
+    }
+}
@@ -0,0 +1,88 @@
+package com.polytype.migrator.core.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FrequencySketchTest {
+    private FrequencySketch sketch;
+
+    @BeforeEach
+    void setUp() {
+        sketch = new FrequencySketch();
+        sketch.ensureCapacity(1024);
+    }
+
+    @Test
+    void testUnseenKeyHasZeroFrequency() {
+        assertEquals(0, sketch.frequency("never".hashCode()));
+    }
+
+    @Test
+    void testIncrementCountsUpToFifteen() {
+        int key = "hot".hashCode();
+        for (int i = 1; i <= 15; i++) {
+            sketch.increment(key);
+            assertEquals(i, sketch.frequency(key));
+        }
+
+        // Counters are four bits wide and saturate
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(key);
+        }
+        assertEquals(15, sketch.frequency(key));
+    }
+
+    @Test
+    void testFrequentKeysEstimateHigherThanRareOnes() {
+        for (int round = 0; round < 8; round++) {
+            for (int i = 0; i < 10; i++) {
+                sketch.increment(("frequent" + i).hashCode());
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            sketch.increment(("rare" + i).hashCode());
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(sketch.frequency(("frequent" + i).hashCode()) >= 8);
+        }
+        int overestimated = 0;
+        for (int i = 0; i < 200; i++) {
+            if (sketch.frequency(("rare" + i).hashCode()) > 1) {
+                overestimated++;
+            }
+        }
+        assertTrue(overestimated < 10, overestimated + " rare keys overestimated");
+    }
+
+    @Test
+    void testCountersAreHalvedAfterSampleSize() {
+        int key = "aging".hashCode();
+        for (int i = 0; i < 15; i++) {
+            sketch.increment(key);
+        }
+
+        // The sample size is ten times the capacity; this many additions cross it once
+        for (int i = 0; i < 10 * 1024; i++) {
+            sketch.increment(("filler" + i).hashCode());
+        }
+
+        int frequency = sketch.frequency(key);
+        assertTrue(frequency >= 7 && frequency <= 8, "frequency " + frequency);
+    }
+
+    @Test
+    void testGrowingDiscardsCounts() {
+        int key = "key".hashCode();
+        sketch.increment(key);
+        sketch.increment(key);
+
+        sketch.ensureCapacity(512); // Smaller; nothing changes
+        assertEquals(2, sketch.frequency(key));
+
+        sketch.ensureCapacity(4096);
+        assertEquals(0, sketch.frequency(key));
+    }
+}
@@ -0,0 +1,161 @@
+package com.polytype.migrator.core.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentileNanos(50));
+        assertEquals(0, histogram.getPercentileNanos(99.9));
+        assertEquals(0.0, histogram.getMeanNanos());
+        assertEquals(0, histogram.getMaxNanos());
+    }
+
+    @Test
+    void testSmallValuesAreExact() {
+        for (long value = 0; value < 4; value++) {
+            assertEquals(value, LatencyHistogram.upperBound(LatencyHistogram.bucketOf(value)));
+        }
+    }
+
+    @Test
+    void testBucketBoundsAreWithinAQuarter() {
+        Random random = new Random(3);
+        List<Long> values = new ArrayList<>();
+        for (int exponent = 2; exponent <= 40; exponent++) {
+            values.add(1L << exponent);
+            values.add((1L << exponent) - 1);
+            values.add((1L << exponent) + 1);
+            values.add((1L << exponent) + random.nextInt(1 << Math.min(exponent, 30)));
+        }
+
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertTrue(upper >= value, "bound " + upper + " below " + value);
+            assertTrue(upper - value <= value / 4, "bound " + upper + " too far above " + value);
+            assertTrue(LatencyHistogram.upperBound(bucket - 1) < value, "previous bucket also holds " + value);
+        }
+    }
+
+    @Test
+    void testBucketsAreOrderedAndContiguous() {
+        long previousUpper = -1;
+        for (int bucket = 0; bucket < 160; bucket++) {
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertEquals(bucket, LatencyHistogram.bucketOf(upper));
+            assertEquals(bucket, LatencyHistogram.bucketOf(previousUpper + 1));
+            previousUpper = upper;
+        }
+    }
+
+    @Test
+    void testPercentilesOfUniformValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500.0, histogram.getMeanNanos(), 0.001);
+        assertWithinQuarter(500_000, histogram.getPercentileNanos(50));
+        assertWithinQuarter(900_000, histogram.getPercentileNanos(90));
+        assertWithinQuarter(990_000, histogram.getPercentileNanos(99));
+        assertEquals(1_000_000, histogram.getPercentileNanos(100));
+        assertWithinQuarter(1_000, histogram.getPercentileNanos(0));
+    }
+
+    @Test
+    void testPercentileIsClampedToMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_001);
+
+        assertEquals(1_000_001, histogram.getMaxNanos());
+        assertEquals(1_000_001, histogram.getPercentileNanos(50));
+        assertEquals(1_000_001, histogram.getPercentileNanos(100));
+        assertEquals(1_000_001, histogram.getPercentileNanos(250)); // Out of range percentiles are clamped
+    }
+
+    @Test
+    void testOutlierOnlyShowsInHighPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 999; i++) {
+            histogram.record(10_000);
+        }
+        histogram.record(TimeUnit.SECONDS.toNanos(2));
+
+        assertWithinQuarter(10_000, histogram.getPercentileNanos(50));
+        assertWithinQuarter(10_000, histogram.getPercentileNanos(99.9));
+        assertEquals(TimeUnit.SECONDS.toNanos(2), histogram.getPercentileNanos(99.95));
+    }
+
+    @Test
+    void testValuesBeyondTheLastBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        long hour = TimeUnit.HOURS.toNanos(1);
+        histogram.record(hour);
+        histogram.record(-5); // Counted as zero
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(hour, histogram.getMaxNanos());
+        assertEquals(hour, histogram.getPercentileNanos(100));
+        assertEquals(0, histogram.getPercentileNanos(50));
+        assertEquals(hour, histogram.getTotalNanos());
+    }
+
+    @Test
+    void testReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(500);
+        histogram.record(5_000);
+
+        histogram.reset();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMaxNanos());
+        assertEquals(0, histogram.getTotalNanos());
+        assertEquals(0, histogram.getPercentileNanos(99));
+
+        histogram.record(40);
+        assertEquals(40, histogram.getPercentileNanos(50));
+    }
+
+    @Test
+    void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 1; i <= 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80_000, histogram.getCount());
+        assertEquals(8 * 50_005_000L, histogram.getTotalNanos());
+        assertEquals(10_000, histogram.getMaxNanos());
+        assertEquals(10_000, histogram.getPercentileNanos(100));
+    }
+
+    private static void assertWithinQuarter(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 4,
+                   "expected about " + expected + " but was " + actual);
+    }
+}
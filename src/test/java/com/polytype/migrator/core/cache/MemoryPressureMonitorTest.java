@@ -0,0 +1,93 @@
+package com.polytype.migrator.core.cache;
+
+import com.polytype.migrator.core.config.PolyTypeConfig;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.MemoryPoolMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryPressureMonitorTest {
+    private final double threshold = PolyTypeConfig.getInstance().getDouble(PolyTypeConfig.CACHE_PRESSURE_THRESHOLD);
+
+    private double occupancy;
+    private final MemoryPressureMonitor monitor = new MemoryPressureMonitor(() -> occupancy);
+    private final List<Double> notified = new ArrayList<>();
+
+    {
+        monitor.addListener(notified::add);
+    }
+
+    private void collect(double occupancyAfterGc, int times) {
+        occupancy = occupancyAfterGc;
+        for (int i = 0; i < times; i++) {
+            monitor.afterCollection();
+        }
+    }
+
+    @Test
+    void testBudgetHalvesUnderPressureDownToTheFloor() {
+        collect(threshold + 0.01, 1);
+        assertEquals(0.5, monitor.getBudgetFactor());
+        collect(0.99, 3);
+        assertEquals(0.0625, monitor.getBudgetFactor());
+
+        collect(0.99, 10);
+
+        assertEquals(0.05, monitor.getBudgetFactor());
+        assertEquals(14, monitor.getPressureEvents());
+        assertEquals(List.of(0.5, 0.25, 0.125, 0.0625, 0.05), notified); // Unchanged factors are not announced
+        assertEquals(0.99, monitor.getLastOccupancy());
+    }
+
+    @Test
+    void testBudgetRecoversInStepsOnceTheHeapIsBelowTheMargin() {
+        collect(0.99, 2);
+        assertEquals(0.25, monitor.getBudgetFactor());
+
+        collect(threshold - 0.05, 5); // Below the threshold but within the margin: hold
+        assertEquals(0.25, monitor.getBudgetFactor());
+
+        collect(0.2, 1);
+        assertEquals(0.375, monitor.getBudgetFactor());
+        collect(0.2, 20);
+
+        assertEquals(1.0, monitor.getBudgetFactor());
+        assertEquals(2, monitor.getPressureEvents());
+        assertEquals(List.of(0.5, 0.25, 0.375, 0.5, 0.625, 0.75, 0.875, 1.0), notified);
+    }
+
+    @Test
+    void testOccupancyAtTheThresholdIsNotPressure() {
+        collect(threshold, 3);
+
+        assertEquals(1.0, monitor.getBudgetFactor());
+        assertEquals(0, monitor.getPressureEvents());
+        assertTrue(notified.isEmpty());
+    }
+
+    @Test
+    void testRemovedListenerIsNotNotified() {
+        List<Double> other = new ArrayList<>();
+        MemoryPressureMonitor.Listener listener = other::add;
+        monitor.addListener(listener);
+        collect(0.99, 1);
+        monitor.removeListener(listener);
+        collect(0.99, 1);
+
+        assertEquals(List.of(0.5), other);
+        assertEquals(List.of(0.5, 0.25), notified);
+    }
+
+    @Test
+    void testOnlyTenuredPoolsAreMeasured() {
+        for (MemoryPoolMXBean pool : MemoryPressureMonitor.tenuredPools()) {
+            String name = pool.getName();
+            assertFalse(name.contains("Eden") || name.contains("Survivor"), name);
+        }
+        double measured = MemoryPressureMonitor.getInstance().getLastOccupancy();
+        assertTrue(measured >= 0.0 && measured <= 1.0, String.valueOf(measured));
+    }
+}
@@ -0,0 +1,202 @@
+package com.polytype.migrator.core.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentCacheTierTest {
+    @TempDir
+    Path directory;
+
+    private final List<PersistentCacheTier> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (PersistentCacheTier tier : opened) {
+            tier.close();
+        }
+    }
+
+    private PersistentCacheTier open(long maxBytes) throws IOException {
+        return open(maxBytes, 1024);
+    }
+
+    private PersistentCacheTier open(long maxBytes, int writeQueueCapacity) throws IOException {
+        PersistentCacheTier tier = new PersistentCacheTier(directory, maxBytes, writeQueueCapacity);
+        opened.add(tier);
+        return tier;
+    }
+
+    private static byte[] filled(int length, int value) {
+        byte[] data = new byte[length];
+        Arrays.fill(data, (byte) value);
+        return data;
+    }
+
+    @Test
+    void testStoredEntriesAreReadBack() throws IOException {
+        PersistentCacheTier tier = open(10_000);
+
+        tier.put("a", filled(100, 1));
+        tier.flush();
+
+        assertArrayEquals(filled(100, 1), tier.get("a"));
+        assertNull(tier.get("b"));
+        assertEquals(1, tier.getHits());
+        assertEquals(1, tier.getMisses());
+        assertEquals(1, tier.getEntryCount());
+        assertEquals(100, tier.getTotalBytes());
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvictedAtTheCap() throws IOException {
+        PersistentCacheTier tier = open(300);
+        tier.put("a", filled(100, 1));
+        tier.put("b", filled(100, 2));
+        tier.put("c", filled(100, 3));
+        tier.flush();
+
+        assertNotNull(tier.get("a")); // Now b is the least recently used
+        tier.put("d", filled(100, 4));
+        tier.flush();
+
+        assertNull(tier.get("b"));
+        assertNotNull(tier.get("a"));
+        assertNotNull(tier.get("c"));
+        assertNotNull(tier.get("d"));
+        assertEquals(1, tier.getEvictions());
+        assertEquals(300, tier.getTotalBytes());
+    }
+
+    @Test
+    void testStoredBytesStayWithinTheCap() throws IOException {
+        PersistentCacheTier tier = open(1_000);
+
+        for (int i = 0; i < 50; i++) {
+            tier.put("key" + i, filled(70 + i, i));
+        }
+        tier.put("huge", filled(1_001, 0)); // Larger than the whole tier, never stored
+        tier.flush();
+
+        assertTrue(tier.getTotalBytes() <= 1_000, tier.getTotalBytes() + " bytes");
+        assertNull(tier.get("huge"));
+        assertNotNull(tier.get("key49")); // The newest entries are kept
+        assertNull(tier.get("key0"));
+        assertEquals(50 - tier.getEntryCount(), tier.getEvictions());
+    }
+
+    @Test
+    void testReplacingAnEntryCountsItsSizeOnce() throws IOException {
+        PersistentCacheTier tier = open(10_000);
+
+        tier.put("a", filled(100, 1));
+        tier.put("a", filled(40, 2));
+        tier.flush();
+
+        assertEquals(1, tier.getEntryCount());
+        assertEquals(40, tier.getTotalBytes());
+        assertArrayEquals(filled(40, 2), tier.get("a"));
+    }
+
+    @Test
+    void testIndexIsReloadedAfterRestart() throws IOException {
+        PersistentCacheTier tier = open(300);
+        tier.put("a", filled(100, 1));
+        tier.put("b", filled(100, 2));
+        tier.put("c", filled(100, 3));
+        tier.flush();
+        tier.get("a");
+        tier.close();
+
+        PersistentCacheTier reopened = open(300);
+
+        assertEquals(3, reopened.getEntryCount());
+        assertEquals(300, reopened.getTotalBytes());
+        // The saved order survives: b is still the least recently used
+        reopened.put("d", filled(100, 4));
+        reopened.flush();
+        assertNull(reopened.get("b"));
+        assertArrayEquals(filled(100, 1), reopened.get("a"));
+        assertArrayEquals(filled(100, 3), reopened.get("c"));
+    }
+
+    @Test
+    void testEntriesWrittenAfterTheLastSaveAreAdopted() throws IOException {
+        PersistentCacheTier tier = open(10_000);
+        tier.put("a", filled(100, 1));
+        tier.put("b", filled(50, 2));
+        tier.close();
+        Files.delete(directory.resolve("l2-index")); // As if the process died before saving it
+
+        PersistentCacheTier reopened = open(10_000);
+
+        assertEquals(2, reopened.getEntryCount());
+        assertEquals(150, reopened.getTotalBytes());
+        assertArrayEquals(filled(50, 2), reopened.get("b"));
+    }
+
+    @Test
+    void testEntriesDeletedBehindTheTiersBackAreForgotten() throws IOException {
+        PersistentCacheTier tier = open(10_000);
+        tier.put("a", filled(100, 1));
+        tier.put("b", filled(100, 2));
+        tier.remove("b");
+        tier.flush();
+
+        assertNull(tier.get("b"));
+        assertEquals(1, tier.getEntryCount());
+        assertEquals(100, tier.getTotalBytes());
+    }
+
+    @Test
+    void testWritesAreDroppedWhenTheQueueIsFull() throws IOException {
+        PersistentCacheTier tier = open(10_000, 4);
+
+        // The writer stores the first entry, then waits for the index lock we hold
+        synchronized (tier) {
+            for (int i = 0; i < 10; i++) {
+                tier.put("key" + i, filled(10, i));
+            }
+            assertEquals(5, tier.getDroppedWrites()); // One running, four queued
+        }
+        tier.flush();
+
+        assertEquals(5, tier.getEntryCount());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i < 5, tier.get("key" + i) != null, "key" + i);
+        }
+    }
+
+    @Test
+    void testFlushAfterCloseReturns() throws IOException {
+        PersistentCacheTier tier = open(10_000);
+        tier.put("a", filled(10, 1));
+        tier.close();
+
+        tier.flush();
+        tier.close();
+
+        assertEquals(1, open(10_000).getEntryCount());
+    }
+
+    @Test
+    void testOnlyAllowedTypesAreReadBackFromDisk() throws IOException {
+        List<String> list = new ArrayList<>(Arrays.asList("one", "two"));
+
+        assertEquals(list, PolyTypeCache.decode(PolyTypeCache.encode(list)));
+        assertEquals("text", PolyTypeCache.decode(PolyTypeCache.encode("text")));
+        assertArrayEquals(new byte[] { 1, 2 }, (byte[]) PolyTypeCache.decode(PolyTypeCache.encode(new byte[] { 1, 2 })));
+        // A serializable value outside the allowlist is refused, not instantiated
+        assertNull(PolyTypeCache.decode(PolyTypeCache.encode(new URL("http://example.com/"))));
+    }
+}
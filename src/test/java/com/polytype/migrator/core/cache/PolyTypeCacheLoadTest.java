@@ -0,0 +1,212 @@
+package com.polytype.migrator.core.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolyTypeCacheLoadTest {
+    private static final int THREADS = 16;
+
+    private PolyTypeCache cache;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        cache = new PolyTypeCache(PolyTypeCache.CacheType.TRANSLATION_RESULT);
+        executor = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+        cache.shutdown();
+    }
+
+    /** Starts every task at once and collects what each returned or threw. */
+    private List<Future<String>> race(int callers, Callable<String> task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        return results;
+    }
+
+    @Test
+    void testConcurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = race(THREADS, () -> cache.getOrCompute("key", String.class, () -> {
+            calls.incrementAndGet();
+            release.await(); // Hold the load open so every caller finds it in flight
+            return "value";
+        }));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (calls.get() + cache.getStats().getCoalescedLoads() < THREADS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        for (Future<String> result : results) {
+            assertEquals("value", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getStats().getLoadSuccesses());
+        assertEquals(THREADS - 1, cache.getStats().getCoalescedLoads());
+        assertEquals("value", cache.get("key", String.class));
+    }
+
+    @Test
+    void testLaterCallersHitTheCache() {
+        AtomicInteger calls = new AtomicInteger();
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals("value", cache.getOrCompute("key", String.class, () -> {
+                calls.incrementAndGet();
+                return "value";
+            }));
+        }
+
+        assertEquals(1, calls.get());
+        assertEquals(0, cache.getStats().getCoalescedLoads());
+    }
+
+    @Test
+    void testDifferentKeysLoadIndependently() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger next = new AtomicInteger();
+
+        List<Future<String>> results = race(THREADS, () -> {
+            String key = "key" + next.getAndIncrement();
+            return cache.getOrCompute(key, String.class, () -> {
+                calls.incrementAndGet();
+                return key;
+            });
+        });
+
+        for (Future<String> result : results) {
+            result.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(THREADS, calls.get());
+        assertEquals(0, cache.getStats().getCoalescedLoads());
+    }
+
+    @Test
+    void testUncheckedFailureReachesEveryWaiter() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = race(THREADS, () -> cache.getOrCompute("key", String.class, () -> {
+            calls.incrementAndGet();
+            release.await();
+            throw new IllegalStateException("loader broke");
+        }));
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (calls.get() + cache.getStats().getCoalescedLoads() < THREADS && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+
+        for (Future<String> result : results) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof IllegalStateException, "got " + e.getCause());
+            assertEquals("loader broke", e.getCause().getMessage());
+        }
+        assertEquals(1, calls.get());
+        assertEquals(1, cache.getStats().getLoadFailures());
+        assertNull(cache.get("key", String.class));
+    }
+
+    @Test
+    void testCheckedFailureIsWrapped() {
+        IOException failure = new IOException("disk gone");
+
+        CacheLoadException e = assertThrows(CacheLoadException.class,
+                                            () -> cache.getOrCompute("key", String.class, () -> { throw failure; }));
+
+        assertSame(failure, e.getCause());
+        assertFalse(cache.containsKey("key"));
+    }
+
+    @Test
+    void testFailedLoadIsNotRemembered() {
+        assertThrows(IllegalStateException.class,
+                     () -> cache.getOrCompute("key", String.class, () -> { throw new IllegalStateException(); }));
+
+        assertEquals("recovered", cache.getOrCompute("key", String.class, () -> "recovered"));
+        assertEquals(1, cache.getStats().getLoadFailures());
+        assertEquals(1, cache.getStats().getLoadSuccesses());
+    }
+
+    @Test
+    void testNullResultIsNotCached() {
+        AtomicInteger calls = new AtomicInteger();
+
+        assertNull(cache.getOrCompute("key", String.class, () -> { calls.incrementAndGet(); return null; }));
+        assertNull(cache.getOrCompute("key", String.class, () -> { calls.incrementAndGet(); return null; }));
+
+        assertEquals(2, calls.get());
+        assertFalse(cache.containsKey("key"));
+    }
+
+    @Test
+    void testAsyncLoadsCoalesce() throws Exception {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(cache.getOrComputeAsync("key", String.class, () -> {
+                calls.incrementAndGet();
+                release.await();
+                return "value";
+            }, executor));
+        }
+        release.countDown();
+
+        for (CompletableFuture<String> future : futures) {
+            assertEquals("value", future.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+        assertEquals(4, cache.getStats().getCoalescedLoads());
+    }
+
+    @Test
+    void testAsyncFailureCompletesWithLoaderException() throws Exception {
+        IOException failure = new IOException("disk gone");
+
+        CompletableFuture<String> first = cache.getOrComputeAsync("key", String.class, () -> {
+            Thread.sleep(50);
+            throw failure;
+        }, executor);
+        CompletableFuture<String> second = cache.getOrComputeAsync("key", String.class, () -> "unused", executor);
+
+        for (CompletableFuture<String> future : List.of(first, second)) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            assertSame(failure, e.getCause());
+        }
+        assertFalse(cache.containsKey("key"));
+        assertEquals("value", cache.getOrComputeAsync("key", String.class, () -> "value", executor).get(5, TimeUnit.SECONDS));
+    }
+}
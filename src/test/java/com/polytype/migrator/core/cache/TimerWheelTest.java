@@ -0,0 +1,196 @@
+package com.polytype.migrator.core.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+    // The span of a first-level bucket; timers expire at the first advance past the bucket they are due in
+    private static final long TICK = 1L << 30;
+    private static final long ORIGIN = -123_456_789_000L; // nanoTime may be negative
+
+    private TimerWheel wheel;
+    private List<String> expired;
+
+    @BeforeEach
+    void setUp() {
+        wheel = new TimerWheel(ORIGIN);
+        expired = new ArrayList<>();
+    }
+
+    private TimerWheel.Timer schedule(String key, long delay) {
+        TimerWheel.Timer timer = new TimerWheel.Timer(key, ORIGIN + delay);
+        wheel.schedule(timer);
+        return timer;
+    }
+
+    private List<String> advanceTo(long elapsed) {
+        expired.clear();
+        wheel.advance(ORIGIN + elapsed, timer -> {
+            assertFalse(timer.isScheduled());
+            expired.add(timer.key);
+        });
+        return expired;
+    }
+
+    @Test
+    void testFirstLevelTimerExpiresOnceDue() {
+        schedule("a", 5 * TICK + TICK / 2);
+        assertEquals(1, wheel.size());
+
+        assertTrue(advanceTo(5 * TICK).isEmpty());
+        assertTrue(advanceTo(5 * TICK + TICK / 2 + 1).isEmpty()); // Still inside the bucket
+        assertEquals(List.of("a"), advanceTo(6 * TICK));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testTimerCascadesFromEachLevel() {
+        long[] delays = {
+            TimeUnit.SECONDS.toNanos(30),
+            TimeUnit.MINUTES.toNanos(10),
+            TimeUnit.HOURS.toNanos(5),
+            TimeUnit.DAYS.toNanos(3),
+            TimeUnit.DAYS.toNanos(20),
+        };
+        for (long delay : delays) {
+            TimerWheel wheel = new TimerWheel(ORIGIN);
+            TimerWheel.Timer timer = new TimerWheel.Timer("key", ORIGIN + delay);
+            wheel.schedule(timer);
+
+            // Walk the clock in coarse steps up to just before the deadline, then a tick at a time
+            long now = 0;
+            long step = Math.max(TICK, delay / 50);
+            while (now + step < delay - TICK) {
+                now += step;
+                wheel.advance(ORIGIN + now, t -> fail("Expired early at " + t.time));
+                assertTrue(timer.isScheduled());
+            }
+            List<Long> firedAt = new ArrayList<>();
+            while (firedAt.isEmpty()) {
+                now += TICK / 4;
+                long at = now;
+                wheel.advance(ORIGIN + now, t -> firedAt.add(at));
+                assertTrue(now < delay + 2 * TICK, "Not expired by " + now + " for a delay of " + delay);
+            }
+
+            assertTrue(firedAt.get(0) >= delay, "Expired early for a delay of " + delay);
+            assertEquals(0, wheel.size());
+        }
+    }
+
+    @Test
+    void testSingleLargeAdvanceExpiresEveryLevel() {
+        schedule("second", TimeUnit.SECONDS.toNanos(2));
+        schedule("minute", TimeUnit.MINUTES.toNanos(2));
+        schedule("hour", TimeUnit.HOURS.toNanos(2));
+        schedule("day", TimeUnit.DAYS.toNanos(2));
+        schedule("week", TimeUnit.DAYS.toNanos(10));
+        schedule("later", TimeUnit.DAYS.toNanos(40));
+
+        List<String> due = advanceTo(TimeUnit.DAYS.toNanos(20));
+
+        assertEquals(5, due.size());
+        assertFalse(due.contains("later"));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("later"), advanceTo(TimeUnit.DAYS.toNanos(45)));
+    }
+
+    @Test
+    void testRandomTimersExpireNoEarlierThanDueAndWithinATick() {
+        Random random = new Random(7);
+        Map<String, Long> due = new HashMap<>();
+        for (int i = 0; i < 2000; i++) {
+            long delay = 1 + (long) (random.nextDouble() * TimeUnit.HOURS.toNanos(3));
+            due.put("t" + i, delay);
+            schedule("t" + i, delay);
+        }
+
+        long now = 0;
+        while (wheel.size() > 0) {
+            long previous = now;
+            now += 1 + random.nextInt((int) TICK);
+            long at = now;
+            wheel.advance(ORIGIN + now, timer -> {
+                long delay = due.remove(timer.key);
+                assertTrue(delay <= at, timer.key + " expired early");
+                // Due in a bucket the previous advance had not finished
+                assertTrue(delay > previous - TICK, timer.key + " expired late");
+            });
+            assertTrue(now < TimeUnit.HOURS.toNanos(3) + 2 * TICK, "Timers left over");
+        }
+        assertTrue(due.isEmpty());
+    }
+
+    @Test
+    void testCancelledTimerNeverFires() {
+        TimerWheel.Timer near = schedule("near", 3 * TICK);
+        TimerWheel.Timer far = schedule("far", TimeUnit.HOURS.toNanos(1));
+        schedule("kept", 3 * TICK);
+
+        wheel.cancel(near);
+        wheel.cancel(far);
+        wheel.cancel(far); // Already unscheduled
+        wheel.cancel(null);
+
+        assertFalse(near.isScheduled());
+        assertEquals(1, wheel.size());
+        assertEquals(List.of("kept"), advanceTo(TimeUnit.HOURS.toNanos(2)));
+    }
+
+    @Test
+    void testRescheduleAfterCancel() {
+        TimerWheel.Timer first = schedule("key", TimeUnit.MINUTES.toNanos(5));
+        wheel.cancel(first);
+        schedule("key", 2 * TICK);
+
+        assertEquals(List.of("key"), advanceTo(3 * TICK));
+        assertTrue(advanceTo(TimeUnit.MINUTES.toNanos(10)).isEmpty());
+    }
+
+    @Test
+    void testClearUnschedulesEverything() {
+        TimerWheel.Timer a = schedule("a", 2 * TICK);
+        TimerWheel.Timer b = schedule("b", TimeUnit.DAYS.toNanos(1));
+
+        wheel.clear();
+
+        assertEquals(0, wheel.size());
+        assertFalse(a.isScheduled());
+        assertFalse(b.isScheduled());
+        assertTrue(advanceTo(TimeUnit.DAYS.toNanos(2)).isEmpty());
+
+        schedule("c", TimeUnit.DAYS.toNanos(2) + 2 * TICK);
+        assertEquals(List.of("c"), advanceTo(TimeUnit.DAYS.toNanos(2) + 3 * TICK));
+    }
+
+    @Test
+    void testCacheEntriesExpireWithoutBeingRead() throws InterruptedException {
+        PolyTypeCache cache = new PolyTypeCache(PolyTypeCache.CacheType.METADATA_CACHE);
+        try {
+            cache.put("short", "value", 200);
+            cache.put("long", "value", TimeUnit.HOURS.toMillis(1));
+
+            // The maintenance thread ticks once a second; the entry's bucket ends within about a second more
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (cache.getStats().getExpirations() == 0) {
+                assertTrue(System.currentTimeMillis() < deadline, "Entry was not expired by the scheduler");
+                Thread.sleep(50);
+            }
+
+            assertEquals(1, cache.getStats().getExpirations());
+            assertEquals(1, cache.getStats().getEntryCount());
+            assertEquals("value", cache.get("long", String.class));
+        } finally {
+            cache.shutdown();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.polytype.migrator.core.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WeighersTest {
+
+    private static final class Node {
+        final String name;
+        final int[] values;
+        Node next;
+        Node shared;
+        PolyTypeCache.CacheType type = PolyTypeCache.CacheType.AST_CACHE;
+
+        Node(String name, int values) {
+            this.name = name;
+            this.values = new int[values];
+        }
+    }
+
+    private static long weigh(Object value) {
+        return Weighers.retainedSize().weigh(value);
+    }
+
+    @Test
+    void testStringsAreWeighedByTheirCharacterStorage() {
+        Weigher<Object> strings = Weighers.strings();
+
+        // 24-byte String plus an aligned array of one byte per Latin-1 character
+        assertEquals(24 + 16, strings.weigh(""));
+        assertEquals(24 + 24, strings.weigh("12345678"));
+        assertEquals(24 + 16 + 1000, strings.weigh("a".repeat(1000)));
+        // Text outside Latin-1 takes two bytes a character
+        assertEquals(24 + 16 + 2000, strings.weigh("\u4e2d".repeat(1000)));
+        assertEquals(strings.weigh("abcdef"), strings.weigh(new StringBuilder("abcdef")));
+    }
+
+    @Test
+    void testNullWeighsNothing() {
+        assertEquals(0, weigh(null));
+    }
+
+    @Test
+    void testPrimitiveArraysAreWeighedByLengthAndType() {
+        assertEquals(16 + 4000, weigh(new int[1000]));
+        assertEquals(16 + 8000, weigh(new long[1000]));
+        assertEquals(16 + 8, weigh(new byte[3])); // Aligned to 8 bytes
+    }
+
+    @Test
+    void testGraphIsFollowedThroughFields() {
+        Node small = new Node("n", 10);
+        Node large = new Node("n", 10_000);
+
+        assertTrue(weigh(large) - weigh(small) >= 4 * (10_000 - 10));
+
+        Node chain = new Node("head", 10);
+        chain.next = new Node("tail", 10_000);
+        assertTrue(weigh(chain) > weigh(chain.next));
+    }
+
+    @Test
+    void testSharedObjectsAndCyclesAreCountedOnce() {
+        Node payload = new Node("payload", 10_000);
+        Node first = new Node("first", 0);
+        Node second = new Node("second", 0);
+        first.next = second;
+        first.shared = payload;
+        second.shared = payload;
+        second.next = first; // Cycle
+
+        long once = weigh(first);
+        second.shared = null;
+
+        assertEquals(once, weigh(first));
+    }
+
+    @Test
+    void testEnumsAndBooleansAreNotCharged() {
+        Node node = new Node("x", 0);
+        long withEnum = weigh(node);
+        node.type = null;
+
+        assertEquals(withEnum, weigh(node));
+        assertEquals(0, weigh(PolyTypeCache.CacheType.AST_CACHE));
+        assertEquals(0, weigh(Boolean.TRUE));
+    }
+
+    @Test
+    void testCollectionsAndMapsScaleWithTheirContents() {
+        List<String> few = new ArrayList<>(Arrays.asList("a", "b"));
+        List<String> many = new ArrayList<>();
+        Map<String, int[]> map = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            many.add("element" + i);
+            map.put("key" + i, new int[100]);
+        }
+
+        assertTrue(weigh(many) > 100 * weigh(few) / 2);
+        assertTrue(weigh(map) >= 1000 * (16 + 400));
+    }
+
+    @Test
+    void testDefaultWeigherPerCacheType() {
+        assertSame(Weighers.strings(), Weighers.forType(PolyTypeCache.CacheType.TRANSLATION_RESULT));
+        assertSame(Weighers.retainedSize(), Weighers.forType(PolyTypeCache.CacheType.AST_CACHE));
+    }
+}
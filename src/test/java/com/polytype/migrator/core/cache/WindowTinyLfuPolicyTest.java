@@ -0,0 +1,169 @@
+package com.polytype.migrator.core.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WindowTinyLfuPolicyTest {
+    // With a capacity of 100 entries of weight 1, the window holds one entry and the protected segment 79
+
+    private static List<String> insert(WindowTinyLfuPolicy policy, String key) {
+        List<String> evicted = new ArrayList<>();
+        policy.onInsert(key, 1);
+        policy.evict(100, 100, evicted);
+        return evicted;
+    }
+
+    private static WindowTinyLfuPolicy filled() {
+        WindowTinyLfuPolicy policy = new WindowTinyLfuPolicy(100, 100);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(insert(policy, "k" + i).isEmpty());
+        }
+        return policy;
+    }
+
+    @Test
+    void testNoEvictionWithinCapacity() {
+        WindowTinyLfuPolicy policy = filled();
+
+        assertEquals(100, policy.size());
+        assertEquals(100, policy.getWeightedSize());
+        assertEquals(0, policy.getAdmissionRejections());
+    }
+
+    @Test
+    void testCandidateNoMoreFrequentThanVictimIsRejected() {
+        WindowTinyLfuPolicy policy = filled();
+
+        // k99 leaves the window and duels k0, the eldest in probation; a tie keeps k0
+        assertEquals(List.of("k99"), insert(policy, "k100"));
+        assertEquals(1, policy.getAdmissionRejections());
+        assertEquals(100, policy.size());
+    }
+
+    @Test
+    void testFrequentCandidateIsAdmitted() {
+        WindowTinyLfuPolicy policy = filled();
+        policy.recordAccess("k99");
+        policy.recordAccess("k99");
+
+        assertEquals(List.of("k0"), insert(policy, "k100"));
+        assertEquals(0, policy.getAdmissionRejections());
+    }
+
+    @Test
+    void testProbationIsEvictedInLruOrder() {
+        WindowTinyLfuPolicy policy = filled();
+        List<String> evicted = new ArrayList<>();
+
+        policy.evict(95, 100, evicted);
+
+        assertEquals(List.of("k0", "k1", "k2", "k3", "k4"), evicted);
+        assertEquals(95, policy.getWeightedSize());
+    }
+
+    @Test
+    void testAccessInProbationPromotes() {
+        WindowTinyLfuPolicy policy = filled();
+        policy.recordAccess("k0");
+        policy.recordAccess("k1");
+        List<String> evicted = new ArrayList<>();
+
+        policy.evict(100, 97, evicted);
+
+        assertEquals(List.of("k2", "k3", "k4"), evicted);
+    }
+
+    @Test
+    void testScanDoesNotFlushHotEntries() {
+        WindowTinyLfuPolicy policy = filled();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 20; i++) {
+                policy.recordAccess("k" + i);
+            }
+        }
+
+        List<String> evicted = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            evicted.addAll(insert(policy, "scan" + i));
+        }
+
+        for (int i = 0; i < 20; i++) {
+            assertFalse(evicted.contains("k" + i), "hot key k" + i + " was evicted");
+        }
+        assertEquals(100, policy.size());
+        assertTrue(policy.getAdmissionRejections() > 0);
+    }
+
+    @Test
+    void testProtectedOverflowIsDemotedToProbation() {
+        WindowTinyLfuPolicy policy = filled();
+        for (int i = 0; i < 90; i++) {
+            policy.recordAccess("k" + i); // Only 79 fit; the eldest go back to probation
+        }
+        List<String> evicted = new ArrayList<>();
+
+        policy.evict(100, 99, evicted);
+
+        assertEquals(List.of("k90"), evicted);
+        evicted.clear();
+        policy.evict(100, 88, evicted);
+        // The rest of probation (k91..k98), then the demoted k0..k2, eldest first
+        assertEquals(List.of("k91", "k92", "k93", "k94", "k95", "k96", "k97", "k98", "k0", "k1", "k2"), evicted);
+    }
+
+    @Test
+    void testWeightBoundsEviction() {
+        WindowTinyLfuPolicy policy = new WindowTinyLfuPolicy(1000, 1000);
+        List<String> evicted = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            policy.onInsert("heavy" + i, 100);
+            policy.evict(1000, 1000, evicted);
+        }
+        assertTrue(evicted.isEmpty());
+
+        policy.onInsert("big", 350);
+        policy.evict(1000, 1000, evicted);
+
+        assertTrue(policy.getWeightedSize() <= 1000);
+        assertFalse(evicted.isEmpty());
+    }
+
+    @Test
+    void testUpdateAndRemoveAdjustWeight() {
+        WindowTinyLfuPolicy policy = new WindowTinyLfuPolicy(1000, 1000);
+        policy.onInsert("a", 10);
+        policy.onInsert("b", 20);
+
+        policy.onInsert("a", 50);
+        assertEquals(70, policy.getWeightedSize());
+        assertEquals(2, policy.size());
+
+        policy.onRemove("b");
+        policy.onRemove("missing");
+        assertEquals(50, policy.getWeightedSize());
+        assertEquals(1, policy.size());
+
+        policy.clear();
+        assertEquals(0, policy.getWeightedSize());
+        assertEquals(0, policy.size());
+    }
+
+    @Test
+    void testEvictsEverythingWhenTargetIsZero() {
+        WindowTinyLfuPolicy policy = filled();
+        for (int i = 0; i < 50; i++) {
+            policy.recordAccess("k" + i);
+        }
+        List<String> evicted = new ArrayList<>();
+
+        policy.evict(0, 0, evicted);
+
+        assertEquals(100, evicted.size());
+        assertEquals(0, policy.size());
+        assertEquals(0, policy.getWeightedSize());
+    }
+}
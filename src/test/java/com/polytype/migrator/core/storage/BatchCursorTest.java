@@ -0,0 +1,202 @@
+package com.polytype.migrator.core.storage;
+
+import com.polytype.migrator.core.storage.PolyTypeStorage.BatchCursor;
+import com.polytype.migrator.core.storage.PolyTypeStorage.DataCategory;
+import com.polytype.migrator.core.storage.PolyTypeStorage.EntryInfo;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageBackend;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageCursor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+import static com.polytype.migrator.core.storage.StorageTestSupport.entry;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchCursorTest {
+    private static final int ENTRIES = BatchCursor.BATCH_SIZE * 2 + 17; // Spans several batches
+
+    @TempDir
+    Path tempDir;
+
+    /** A cursor over fixed batches, counting how many it was asked for. */
+    private static final class FixedCursor extends BatchCursor {
+        private final Iterator<List<EntryInfo>> batches;
+        int fetched;
+
+        FixedCursor(Predicate<EntryInfo> filter, List<List<EntryInfo>> batches) {
+            super(new PolyTypeStorage.MemoryBackend(), filter);
+            this.batches = batches.iterator();
+        }
+
+        @Override
+        protected List<EntryInfo> nextBatch() {
+            if (!batches.hasNext()) {
+                return null;
+            }
+            fetched++;
+            return batches.next();
+        }
+    }
+
+    private static List<EntryInfo> infos(String... keys) {
+        List<EntryInfo> infos = new ArrayList<>();
+        for (String key : keys) {
+            infos.add(new EntryInfo(entry(key, DataCategory.TRANSLATIONS, "language", key.startsWith("rust") ? "rust" : "go")));
+        }
+        return infos;
+    }
+
+    private static List<String> drain(StorageCursor cursor) throws IOException {
+        List<String> keys = new ArrayList<>();
+        try (StorageCursor c = cursor) {
+            while (c.next()) {
+                keys.add(c.info().getKey());
+            }
+        }
+        return keys;
+    }
+
+    private static Predicate<EntryInfo> language(String language) {
+        return info -> language.equals(info.getMetadata().get("language"));
+    }
+
+    @Test
+    void testFilterSkipsAcrossEmptyAndUnmatchedBatches() throws IOException {
+        FixedCursor cursor = new FixedCursor(language("rust"), Arrays.asList(
+            infos("rust1", "go1"),
+            infos(),
+            infos("go2", "go3"),
+            infos("go4", "rust2", "rust3")));
+
+        assertEquals(List.of("rust1", "rust2", "rust3"), drain(cursor));
+        assertEquals(4, cursor.fetched);
+    }
+
+    @Test
+    void testBatchesAreFetchedOnlyAsNeeded() throws IOException {
+        FixedCursor cursor = new FixedCursor(null, Arrays.asList(infos("a", "b"), infos("c")));
+
+        assertTrue(cursor.next());
+        assertEquals("a", cursor.info().getKey());
+        assertEquals(1, cursor.fetched);
+        assertTrue(cursor.next());
+        assertEquals(1, cursor.fetched);
+        assertTrue(cursor.next());
+        assertEquals("c", cursor.info().getKey());
+        assertEquals(2, cursor.fetched);
+    }
+
+    @Test
+    void testExhaustedCursorStaysExhausted() throws IOException {
+        FixedCursor cursor = new FixedCursor(language("rust"), Collections.singletonList(infos("go1")));
+
+        assertThrows(NoSuchElementException.class, cursor::info);
+        assertFalse(cursor.next());
+        assertFalse(cursor.next());
+        assertThrows(NoSuchElementException.class, cursor::info);
+        assertEquals(1, cursor.fetched);
+    }
+
+    private void checkBackend(StorageBackend backend) throws IOException {
+        backend.initialize();
+        try {
+            List<String> rust = new ArrayList<>();
+            for (int i = 0; i < ENTRIES; i++) {
+                String key = String.format("key%04d", i);
+                boolean isRust = i % 3 == 0;
+                backend.store(entry(key, DataCategory.TRANSLATIONS, "language", isRust ? "rust" : "go"));
+                if (isRust) {
+                    rust.add(key);
+                }
+            }
+            backend.store(entry("model", DataCategory.ML_MODELS, "language", "rust"));
+
+            List<String> all = drain(backend.openCursor(DataCategory.TRANSLATIONS, null));
+            Collections.sort(all);
+            assertEquals(ENTRIES, all.size());
+            assertEquals(ENTRIES, all.stream().distinct().count());
+
+            List<String> matched = drain(backend.openCursor(DataCategory.TRANSLATIONS, language("rust")));
+            Collections.sort(matched);
+            assertEquals(rust, matched);
+
+            assertEquals(List.of("model"), drain(backend.openCursor(DataCategory.ML_MODELS, null)));
+            assertTrue(drain(backend.openCursor(DataCategory.LOGS, null)).isEmpty());
+
+            // Info carries what the filter needs without the data
+            try (StorageCursor cursor = backend.openCursor(DataCategory.ML_MODELS, info -> info.getSize() > 0)) {
+                assertTrue(cursor.next());
+                EntryInfo info = cursor.info();
+                assertEquals(DataCategory.ML_MODELS, info.getCategory());
+                assertEquals("data of model".length(), info.getSize());
+                assertEquals("data of model", new String(cursor.entry().getData(), StandardCharsets.UTF_8));
+                assertFalse(cursor.next());
+            }
+
+            // Deleted after the cursor reached it: the entry is gone, the cursor carries on
+            try (StorageCursor cursor = backend.openCursor(DataCategory.TRANSLATIONS, language("rust"))) {
+                assertTrue(cursor.next());
+                backend.delete(cursor.info().getKey());
+                assertNull(cursor.entry());
+                int rest = 0;
+                while (cursor.next()) {
+                    rest++;
+                }
+                assertEquals(rust.size() - 1, rest);
+            }
+        } finally {
+            backend.close();
+        }
+    }
+
+    @Test
+    void testMemoryBackend() throws IOException {
+        checkBackend(new PolyTypeStorage.MemoryBackend());
+    }
+
+    @Test
+    void testFileSystemBackend() throws IOException {
+        checkBackend(new PolyTypeStorage.FileSystemBackend(tempDir.toString()));
+    }
+
+    @Test
+    void testSegmentLogBackend() throws IOException {
+        checkBackend(new SegmentLogBackend(tempDir.toString(), 16 * 1024));
+    }
+
+    @Test
+    void testDatabaseBackend() throws IOException {
+        checkBackend(new DatabaseBackend(tempDir.toString(), List.of("language")));
+    }
+
+    @Test
+    void testFileSystemCursorReadsOnlyMetadata() throws IOException {
+        PolyTypeStorage.FileSystemBackend backend = new PolyTypeStorage.FileSystemBackend(tempDir.toString());
+        backend.initialize();
+        try {
+            backend.store(entry("key", DataCategory.TRANSLATIONS, "language", "rust"));
+            Files.delete(tempDir.resolve("translations").resolve("key.dat"));
+
+            try (StorageCursor cursor = backend.openCursor(DataCategory.TRANSLATIONS, language("rust"))) {
+                assertTrue(cursor.next());
+                assertEquals("key", cursor.info().getKey());
+                assertEquals("rust", cursor.info().getMetadata().get("language"));
+                assertNull(cursor.entry()); // Data lost; the backend forgets the key
+            }
+            assertFalse(backend.exists("key"));
+        } finally {
+            backend.close();
+        }
+    }
+}
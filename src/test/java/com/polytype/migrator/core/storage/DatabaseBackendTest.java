@@ -0,0 +1,247 @@
+package com.polytype.migrator.core.storage;
+
+import com.polytype.migrator.core.storage.PolyTypeStorage.DataCategory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.polytype.migrator.core.storage.StorageTestSupport.entry;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DatabaseBackendTest {
+    private static final List<String> INDEXED = Arrays.asList("language", "quality_score");
+
+    @TempDir
+    Path tempDir;
+
+    private DatabaseBackend database;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        database = open();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        database.close();
+    }
+
+    private DatabaseBackend open() throws IOException {
+        DatabaseBackend backend = new DatabaseBackend(tempDir.toString(), INDEXED);
+        backend.initialize();
+        return backend;
+    }
+
+    private static List<String> sorted(List<String> keys) {
+        List<String> copy = new ArrayList<>(keys);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    private List<String> query(DatabaseBackend.Query query) {
+        return sorted(database.query(query));
+    }
+
+    @Test
+    void testUncommittedTransactionIsInvisible() throws IOException {
+        database.store(entry("existing", DataCategory.TRANSLATIONS, "language", "rust"));
+
+        DatabaseBackend.Transaction transaction = database.beginTransaction();
+        transaction.store(entry("pending", DataCategory.TRANSLATIONS, "language", "rust"));
+        transaction.delete("existing");
+
+        assertFalse(database.exists("pending"));
+        assertTrue(database.exists("existing"));
+        assertEquals(List.of("existing"), query(new DatabaseBackend.Query().equalTo("language", "rust")));
+
+        transaction.commit();
+
+        assertTrue(database.exists("pending"));
+        assertFalse(database.exists("existing"));
+        assertEquals(List.of("pending"), query(new DatabaseBackend.Query().equalTo("language", "rust")));
+        assertEquals(List.of("pending"), database.listKeys(DataCategory.TRANSLATIONS));
+    }
+
+    @Test
+    void testRollbackDiscardsChanges() throws IOException {
+        database.store(entry("kept", DataCategory.TRANSLATIONS, "language", "go"));
+
+        DatabaseBackend.Transaction transaction = database.beginTransaction();
+        transaction.store(entry("discarded", DataCategory.TRANSLATIONS, "language", "go"));
+        transaction.delete("kept");
+        transaction.rollback();
+
+        assertFalse(database.exists("discarded"));
+        assertTrue(database.exists("kept"));
+        assertEquals(List.of("kept"), query(new DatabaseBackend.Query().equalTo("language", "go")));
+        assertThrows(IllegalStateException.class, transaction::commit);
+    }
+
+    @Test
+    void testClosingWithoutCommitRollsBack() throws IOException {
+        try (DatabaseBackend.Transaction transaction = database.beginTransaction()) {
+            transaction.store(entry("abandoned", DataCategory.TRANSLATIONS));
+        }
+
+        assertFalse(database.exists("abandoned"));
+        assertTrue(database.listKeys(DataCategory.TRANSLATIONS).isEmpty());
+    }
+
+    @Test
+    void testLastOperationOnAKeyWinsWithinTransaction() throws IOException {
+        database.storeAll(Arrays.asList(entry("a", DataCategory.TRANSLATIONS)), Collections.emptyList());
+
+        try (DatabaseBackend.Transaction transaction = database.beginTransaction()) {
+            transaction.delete("a");
+            transaction.store(entry("a", DataCategory.ML_MODELS, "language", "scala"));
+            transaction.store(entry("b", DataCategory.TRANSLATIONS));
+            transaction.delete("b");
+            transaction.commit();
+        }
+
+        assertTrue(database.exists("a"));
+        assertFalse(database.exists("b"));
+        assertEquals(List.of("a"), database.listKeys(DataCategory.ML_MODELS));
+        assertTrue(database.listKeys(DataCategory.TRANSLATIONS).isEmpty());
+    }
+
+    @Test
+    void testIndexesAreRebuiltOnReopen() throws IOException {
+        database.store(entry("rust-good", DataCategory.TRANSLATIONS, "language", "rust", "quality_score", "0.9"));
+        database.store(entry("rust-poor", DataCategory.TRANSLATIONS, "language", "rust", "quality_score", "0.4"));
+        database.store(entry("model", DataCategory.ML_MODELS, "language", "python"));
+        database.storeAll(Arrays.asList(entry("go", DataCategory.TRANSLATIONS, "language", "go")),
+                          Arrays.asList("rust-poor"));
+        database.store(entry("model", DataCategory.ML_MODELS, "language", "kotlin"));
+        database.delete("go");
+        database.close();
+
+        database = open();
+
+        assertEquals(List.of("rust-good"), query(new DatabaseBackend.Query().equalTo("language", "rust")));
+        assertEquals(List.of("rust-good"), query(new DatabaseBackend.Query().atLeast("quality_score", "0")));
+        assertEquals(List.of("model"), query(new DatabaseBackend.Query().equalTo("language", "kotlin")));
+        assertTrue(database.query(new DatabaseBackend.Query().equalTo("language", "python")).isEmpty());
+        assertTrue(database.query(new DatabaseBackend.Query().equalTo("language", "go")).isEmpty());
+        assertEquals(List.of("rust-good"), database.listKeys(DataCategory.TRANSLATIONS));
+        assertEquals(List.of("model", "rust-good"), query(new DatabaseBackend.Query()));
+    }
+
+    @Test
+    void testIndexesSurviveCompaction() throws IOException {
+        for (int i = 0; i < 20; i++) {
+            database.store(entry("key" + i, DataCategory.TRANSLATIONS, "quality_score", String.valueOf(i)));
+        }
+        for (int i = 0; i < 20; i += 2) {
+            database.delete("key" + i);
+        }
+        database.compact();
+        database.close();
+
+        database = open();
+
+        assertEquals(List.of("key11", "key13", "key15"), query(new DatabaseBackend.Query().range("quality_score", "10", "15")));
+    }
+
+    @Test
+    void testEqualityOnMixedValues() throws IOException {
+        database.store(entry("number", DataCategory.TRANSLATIONS, "quality_score", "0.9"));
+        database.store(entry("same-number", DataCategory.TRANSLATIONS, "quality_score", "0.90"));
+        database.store(entry("text", DataCategory.TRANSLATIONS, "quality_score", "high"));
+        database.store(entry("zero", DataCategory.TRANSLATIONS, "quality_score", "-0.0"));
+        database.store(entry("missing", DataCategory.TRANSLATIONS, "language", "c"));
+
+        assertEquals(List.of("number", "same-number"), query(new DatabaseBackend.Query().equalTo("quality_score", "0.9")));
+        assertEquals(List.of("text"), query(new DatabaseBackend.Query().equalTo("quality_score", "high")));
+        assertEquals(List.of("zero"), query(new DatabaseBackend.Query().equalTo("quality_score", "0")));
+        assertTrue(database.query(new DatabaseBackend.Query().equalTo("quality_score", "0.8")).isEmpty());
+    }
+
+    @Test
+    void testRangesOnMixedValues() throws IOException {
+        database.store(entry("low", DataCategory.TRANSLATIONS, "quality_score", "0.5"));
+        database.store(entry("high", DataCategory.TRANSLATIONS, "quality_score", "0.95"));
+        database.store(entry("large", DataCategory.TRANSLATIONS, "quality_score", "10"));
+        database.store(entry("negative", DataCategory.TRANSLATIONS, "quality_score", "-1"));
+        database.store(entry("alpha", DataCategory.TRANSLATIONS, "quality_score", "alpha"));
+        database.store(entry("beta", DataCategory.TRANSLATIONS, "quality_score", "beta"));
+
+        // Numbers compare as numbers, not as text: "10" is above "0.95"
+        assertEquals(List.of("high", "large"), query(new DatabaseBackend.Query().atLeast("quality_score", "0.8")));
+        assertEquals(List.of("high", "low"), query(new DatabaseBackend.Query().range("quality_score", "0", "1")));
+        assertEquals(List.of("high", "low", "negative"), query(new DatabaseBackend.Query().atMost("quality_score", "1")));
+
+        // An open end stays within the kind of the other bound
+        assertEquals(List.of("alpha"), query(new DatabaseBackend.Query().atMost("quality_score", "alpha")));
+        assertEquals(List.of("alpha", "beta"), query(new DatabaseBackend.Query().atLeast("quality_score", "a")));
+    }
+
+    @Test
+    void testRangeRejectsBoundsOfDifferentKinds() {
+        IllegalArgumentException stringLow = assertThrows(IllegalArgumentException.class,
+            () -> new DatabaseBackend.Query().range("quality_score", "alpha", "10"));
+        assertTrue(stringLow.getMessage().contains("quality_score"), stringLow.getMessage());
+        assertThrows(IllegalArgumentException.class,
+                     () -> new DatabaseBackend.Query().range("quality_score", "0.9", "zzz"));
+    }
+
+    @Test
+    void testConditionsAndCategoryCombine() throws IOException {
+        database.store(entry("t1", DataCategory.TRANSLATIONS, "language", "rust", "quality_score", "0.9"));
+        database.store(entry("t2", DataCategory.TRANSLATIONS, "language", "rust", "quality_score", "0.2"));
+        database.store(entry("t3", DataCategory.TRANSLATIONS, "language", "go", "quality_score", "0.9"));
+        database.store(entry("m1", DataCategory.ML_MODELS, "language", "rust", "quality_score", "0.9"));
+
+        assertEquals(List.of("t1"), query(new DatabaseBackend.Query()
+            .inCategory(DataCategory.TRANSLATIONS)
+            .equalTo("language", "rust")
+            .atLeast("quality_score", "0.5")));
+        assertEquals(List.of("m1"), query(new DatabaseBackend.Query().inCategory(DataCategory.ML_MODELS)));
+        assertTrue(database.query(new DatabaseBackend.Query().inCategory(DataCategory.LOGS)).isEmpty());
+    }
+
+    @Test
+    void testQueryRejectsUnindexedKeys() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> database.query(new DatabaseBackend.Query().equalTo("author", "someone")));
+        assertThrows(IllegalArgumentException.class,
+                     () -> new DatabaseBackend.Query().range("quality_score", null, null));
+    }
+
+    @Test
+    void testOverwriteUnindexesOldValues() throws IOException {
+        database.store(entry("key", DataCategory.TRANSLATIONS, "language", "rust", "quality_score", "0.3"));
+        database.store(entry("key", DataCategory.ML_MODELS, "language", "go"));
+
+        assertTrue(database.query(new DatabaseBackend.Query().equalTo("language", "rust")).isEmpty());
+        assertTrue(database.query(new DatabaseBackend.Query().atLeast("quality_score", "0")).isEmpty());
+        assertEquals(List.of("key"), query(new DatabaseBackend.Query().equalTo("language", "go")));
+        assertTrue(database.listKeys(DataCategory.TRANSLATIONS).isEmpty());
+        assertEquals(List.of("key"), database.listKeys(DataCategory.ML_MODELS));
+    }
+
+    @Test
+    void testDeleteUnindexes() throws IOException {
+        database.store(entry("a", DataCategory.TRANSLATIONS, "language", "rust"));
+        database.store(entry("b", DataCategory.TRANSLATIONS, "language", "rust"));
+
+        database.delete("a");
+
+        assertEquals(List.of("b"), query(new DatabaseBackend.Query().equalTo("language", "rust")));
+        assertEquals(List.of("b"), database.listKeys(DataCategory.TRANSLATIONS));
+
+        database.delete("b");
+        database.delete("never-stored");
+
+        assertTrue(database.query(new DatabaseBackend.Query().equalTo("language", "rust")).isEmpty());
+        assertTrue(database.query(new DatabaseBackend.Query()).isEmpty());
+    }
+}
@@ -0,0 +1,95 @@
+package com.polytype.migrator.core.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.polytype.migrator.core.storage.StorageTestSupport.random;
+import static com.polytype.migrator.core.storage.StorageTestSupport.utf8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DictionaryTrainerTest {
+    // One segment each, so that the samples below cut them out whole
+    private static final String COMMON = "import com.polytype.migrator.core.translation.Result;\n// common\n";
+    private static final String RARE = "// Generated by the batch translator, do not edit by hand  rare\n";
+
+    private static String text(byte[] dictionary) {
+        return new String(dictionary, StandardCharsets.ISO_8859_1);
+    }
+
+    /** Samples of random filler around shared text: COMMON in all of them, RARE in a few. */
+    private static List<byte[]> samples(int count) {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String filler = text(random(256, i));
+            String sample = filler.substring(0, 128) + COMMON + (i % 4 == 0 ? RARE : "") + filler.substring(128);
+            samples.add(sample.getBytes(StandardCharsets.ISO_8859_1));
+        }
+        return samples;
+    }
+
+    @Test
+    void testNothingToLearn() {
+        assertEquals(0, DictionaryTrainer.train(Collections.emptyList(), 1024).length);
+        assertEquals(0, DictionaryTrainer.train(Arrays.asList(random(5000, 1), random(5000, 2)), 1024).length);
+        // A single sample shares nothing with anything
+        assertEquals(0, DictionaryTrainer.train(Collections.singletonList(utf8(COMMON + COMMON)), 1024).length);
+    }
+
+    @Test
+    void testShortSamplesAreIgnored() {
+        List<byte[]> samples = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            samples.add(utf8("abcdefg")); // One byte short of a sequence
+        }
+
+        assertEquals(0, DictionaryTrainer.train(samples, 1024).length);
+    }
+
+    @Test
+    void testSharedContentIsKept() {
+        String dictionary = text(DictionaryTrainer.train(samples(40), 4096));
+
+        assertTrue(dictionary.contains(COMMON), dictionary);
+        assertTrue(dictionary.contains(RARE), dictionary);
+        assertEquals(128, dictionary.length()); // Random filler is never shared
+    }
+
+    @Test
+    void testMostSharedContentGoesLast() {
+        byte[] dictionary = DictionaryTrainer.train(samples(40), 4096);
+
+        assertEquals(RARE + COMMON, text(dictionary));
+    }
+
+    @Test
+    void testSizeIsBounded() {
+        List<byte[]> samples = new ArrayList<>();
+        byte[] shared = random(20_000, 7);
+        for (int i = 0; i < 10; i++) {
+            samples.add(shared);
+        }
+
+        for (int size : new int[] { 1, 63, 64, 100, 1000 }) {
+            assertEquals(size, DictionaryTrainer.train(samples, size).length);
+        }
+        assertTrue(DictionaryTrainer.train(samples, 1 << 20).length <= shared.length);
+    }
+
+    @Test
+    void testDictionaryShrinksSmallEntries() throws Exception {
+        List<byte[]> samples = samples(40);
+        byte[] dictionary = DictionaryTrainer.train(samples, 4096);
+        byte[] entry = samples(41).get(40);
+        LzCodec codec = new LzCodec();
+
+        byte[] alone = codec.compress(entry, null);
+        byte[] withDictionary = codec.compress(entry, dictionary);
+
+        assertTrue(withDictionary.length < alone.length, withDictionary.length + " vs " + alone.length);
+    }
+}
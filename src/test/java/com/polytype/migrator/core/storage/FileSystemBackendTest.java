@@ -0,0 +1,248 @@
+package com.polytype.migrator.core.storage;
+
+import com.polytype.migrator.core.storage.PolyTypeStorage.DataCategory;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.polytype.migrator.core.storage.StorageTestSupport.entry;
+import static com.polytype.migrator.core.storage.StorageTestSupport.random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileSystemBackendTest {
+    private static final int LARGE = 512 * 1024; // Above the mapping threshold
+
+    @TempDir
+    Path tempDir;
+
+    private PolyTypeStorage.FileSystemBackend backend;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        backend = new PolyTypeStorage.FileSystemBackend(tempDir.toString());
+        backend.initialize();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        backend.close();
+    }
+
+    /** Version v of a key: its size and every byte follow from v, and the metadata names v. */
+    private static StorageEntry version(String key, int v) {
+        byte[] data = new byte[1000 + (v % 7) * (LARGE / 4)]; // Some versions are mapped on read
+        Arrays.fill(data, (byte) (key.hashCode() + v));
+        LocalDateTime now = LocalDateTime.now();
+        return new StorageEntry(key, key, DataCategory.TRANSLATIONS, data, Collections.singletonMap("v", String.valueOf(v)),
+                                now, now, v, false, false);
+    }
+
+    /** Fails unless the entry is one whole version of the key, never parts of two. */
+    private static void assertWholeVersion(String key, StorageEntry entry) {
+        assertNotNull(entry, key);
+        int v = Integer.parseInt(entry.getMetadata().get("v"));
+        byte[] expected = version(key, v).getData();
+        assertEquals(key, entry.getKey());
+        assertEquals(v, entry.getVersion());
+        assertEquals(expected.length, entry.getSize(), key + " v" + v);
+        assertArrayEquals(expected, contents(entry.getDataBuffer()), key + " v" + v);
+    }
+
+    /** Keys whose file names fall on the same one of the 64 lock stripes. */
+    private static List<String> sameStripe(int count) {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; keys.size() < count; i++) {
+            if ((("key" + i).hashCode() & 63) == ("key0".hashCode() & 63)) {
+                keys.add("key" + i);
+            }
+        }
+        return keys;
+    }
+
+    private void hammer(List<String> keys, int writers, int readers, int writes) throws Exception {
+        for (String key : keys) {
+            backend.store(version(key, 0));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        try {
+            List<Future<?>> stores = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                int writer = w;
+                stores.add(executor.submit(() -> {
+                    for (int i = 1; i <= writes; i++) {
+                        backend.store(version(keys.get((writer + i) % keys.size()), writer * writes + i));
+                    }
+                    return null;
+                }));
+            }
+            List<Future<Integer>> reads = new ArrayList<>();
+            for (int r = 0; r < readers; r++) {
+                int reader = r;
+                reads.add(executor.submit(() -> {
+                    int count = 0;
+                    while (writing.get()) {
+                        String key = keys.get((reader + count) % keys.size());
+                        assertWholeVersion(key, count % 2 == 0 ? backend.retrieve(key) : backend.retrieveView(key));
+                        count++;
+                    }
+                    return count;
+                }));
+            }
+            for (Future<?> store : stores) {
+                store.get(60, TimeUnit.SECONDS);
+            }
+            writing.set(false);
+            for (Future<Integer> read : reads) {
+                assertTrue(read.get(60, TimeUnit.SECONDS) > 0);
+            }
+        } finally {
+            writing.set(false);
+            executor.shutdownNow();
+        }
+
+        long total = 0;
+        for (String key : keys) {
+            StorageEntry entry = backend.retrieve(key);
+            assertWholeVersion(key, entry);
+            total += entry.getSize();
+        }
+        assertEquals(keys.size(), backend.listKeys(DataCategory.TRANSLATIONS).size());
+        assertEquals(total, backend.getStats().getTotalSize());
+    }
+
+    @Test
+    void testConcurrentStoreAndRetrieveOfOneKey() throws Exception {
+        hammer(Collections.singletonList("key"), 4, 4, 100);
+    }
+
+    @Test
+    void testConcurrentStoreAndRetrieveOnOneStripe() throws Exception {
+        hammer(sameStripe(4), 4, 4, 100);
+    }
+
+    @Test
+    void testConcurrentStoreAndRetrieveAcrossStripes() throws Exception {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            keys.add("spread" + i);
+        }
+        hammer(keys, 8, 4, 64);
+    }
+
+    private static byte[] contents(ByteBuffer buffer) {
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return copy;
+    }
+
+    @Test
+    void testLargeEntryIsMapped() throws IOException {
+        byte[] data = random(LARGE, 1);
+        backend.store(entry("large", DataCategory.TRANSLATIONS, data));
+
+        ByteBuffer view = backend.retrieveView("large").getDataBuffer();
+
+        assertTrue(view.isDirect());
+        assertTrue(view.isReadOnly());
+        assertArrayEquals(data, contents(view));
+        assertArrayEquals(data, backend.retrieve("large").getData());
+        assertFalse(backend.retrieve("large").getDataBuffer().isDirect()); // Plain reads stay on the heap
+    }
+
+    @Test
+    void testSmallEntryIsRead() throws IOException {
+        byte[] data = random(1000, 2);
+        backend.store(entry("small", DataCategory.TRANSLATIONS, data));
+
+        ByteBuffer view = backend.retrieveView("small").getDataBuffer();
+
+        assertFalse(view.isDirect());
+        assertTrue(view.isReadOnly());
+        assertArrayEquals(data, contents(view));
+    }
+
+    @Test
+    void testMappingKeepsItsContentsAfterOverwriteAndDelete() throws IOException {
+        byte[] original = random(LARGE, 3);
+        backend.store(entry("key", DataCategory.TRANSLATIONS, original));
+        ByteBuffer view = backend.retrieveView("key").getDataBuffer();
+
+        byte[] replacement = random(LARGE, 4);
+        backend.store(entry("key", DataCategory.TRANSLATIONS, replacement));
+        assertArrayEquals(original, contents(view));
+        assertArrayEquals(replacement, contents(backend.retrieveView("key").getDataBuffer()));
+
+        backend.delete("key");
+        assertArrayEquals(original, contents(view));
+        assertNull(backend.retrieveView("key"));
+    }
+
+    @Test
+    void testEmptyEntry() throws IOException {
+        backend.store(entry("empty", DataCategory.TRANSLATIONS, new byte[0]));
+
+        assertEquals(0, backend.retrieveView("empty").getSize());
+        assertEquals(0, backend.retrieve("empty").getData().length);
+    }
+
+    /** Puts a non-empty directory where the store writes the temp file, so the write fails every time. */
+    private void blockTempFile(String fileName) throws IOException {
+        Path blocker = tempDir.resolve("translations").resolve(fileName);
+        Files.createDirectories(blocker);
+        Files.createFile(blocker.resolve("blocker"));
+    }
+
+    @Test
+    void testFailedStoreLeavesNoKey() throws IOException {
+        blockTempFile("key.dat.tmp");
+
+        assertThrows(IOException.class, () -> backend.store(entry("key", DataCategory.TRANSLATIONS, new byte[100])));
+
+        assertFalse(backend.exists("key"));
+        assertNull(backend.retrieve("key"));
+        assertTrue(backend.listKeys(DataCategory.TRANSLATIONS).isEmpty());
+        backend.delete("key");
+        assertEquals(0, backend.getStats().getTotalEntries());
+        assertEquals(0, backend.getStats().getTotalSize());
+
+        backend.close();
+        backend = new PolyTypeStorage.FileSystemBackend(tempDir.toString());
+        backend.initialize();
+        assertFalse(backend.exists("key")); // The journal agrees
+    }
+
+    @Test
+    void testFailedOverwriteKeepsThePreviousVersion() throws IOException {
+        backend.store(version("key", 1));
+        blockTempFile("key.meta.tmp"); // The data is written, the metadata is not
+
+        assertThrows(IOException.class, () -> backend.store(version("key", 2)));
+
+        assertWholeVersion("key", backend.retrieve("key"));
+        assertEquals(1, backend.retrieve("key").getVersion());
+        assertEquals(1, backend.getStats().getTotalEntries());
+        assertEquals(version("key", 1).getSize(), backend.getStats().getTotalSize());
+
+        backend.delete("key");
+        assertEquals(0, backend.getStats().getTotalEntries());
+        assertEquals(0, backend.getStats().getTotalSize());
+    }
+}
@@ -0,0 +1,305 @@
+package com.polytype.migrator.core.storage;
+
+import com.polytype.migrator.core.storage.PolyTypeStorage.DataCategory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeyLocationIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private KeyLocationIndex open() throws IOException {
+        KeyLocationIndex index = new KeyLocationIndex(tempDir);
+        if (!index.load()) {
+            index.reset(Collections.emptyMap());
+        }
+        return index;
+    }
+
+    private Path journal() {
+        return tempDir.resolve("keys.journal");
+    }
+
+    private static List<String> sorted(List<String> keys) {
+        List<String> copy = new ArrayList<>(keys);
+        Collections.sort(copy);
+        return copy;
+    }
+
+    @Test
+    void testMissingSnapshotNeedsRebuild() throws IOException {
+        KeyLocationIndex index = new KeyLocationIndex(tempDir);
+
+        assertFalse(index.load());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void testPutReplacesAndRemoveReturnsPrevious() throws IOException {
+        KeyLocationIndex index = open();
+
+        assertNull(index.put("a", DataCategory.TRANSLATIONS, 10));
+        KeyLocationIndex.Location previous = index.put("a", DataCategory.ML_MODELS, 20);
+
+        assertEquals(DataCategory.TRANSLATIONS, previous.category);
+        assertEquals(10, previous.size);
+        assertEquals(DataCategory.ML_MODELS, index.get("a").category);
+        assertEquals(20, index.remove("a").size);
+        assertNull(index.remove("a"));
+        assertNull(index.get("a"));
+    }
+
+    @Test
+    void testCloseAndReopen() throws IOException {
+        KeyLocationIndex index = open();
+        index.put("a", DataCategory.TRANSLATIONS, 1);
+        index.put("b", DataCategory.TRANSLATIONS, 2);
+        index.put("c", DataCategory.LOGS, 3);
+        index.remove("b");
+        index.close();
+
+        assertEquals(0, Files.size(journal())); // Folded into the snapshot
+
+        KeyLocationIndex reopened = new KeyLocationIndex(tempDir);
+        assertTrue(reopened.load());
+        assertEquals(2, reopened.size());
+        assertEquals(List.of("a"), reopened.keys(DataCategory.TRANSLATIONS));
+        assertEquals(List.of("c"), reopened.keys(DataCategory.LOGS));
+        assertEquals(3, reopened.get("c").size);
+    }
+
+    @Test
+    void testJournalIsReplayedAfterCrash() throws IOException {
+        KeyLocationIndex crashed = open();
+        crashed.put("a", DataCategory.TRANSLATIONS, 1);
+        crashed.checkpoint();
+        crashed.put("b", DataCategory.TRANSLATIONS, 2);
+        crashed.put("a", DataCategory.ML_MODELS, 5);
+        crashed.remove("b");
+        crashed.put("c", DataCategory.TRANSLATIONS, 3);
+        // No close: the last three changes exist only in the journal
+
+        KeyLocationIndex recovered = new KeyLocationIndex(tempDir);
+        assertTrue(recovered.load());
+
+        assertEquals(DataCategory.ML_MODELS, recovered.get("a").category);
+        assertEquals(5, recovered.get("a").size);
+        assertNull(recovered.get("b"));
+        assertEquals(List.of("c"), recovered.keys(DataCategory.TRANSLATIONS));
+    }
+
+    @Test
+    void testTornJournalTailIsDropped() throws IOException {
+        KeyLocationIndex crashed = open();
+        crashed.put("a", DataCategory.TRANSLATIONS, 1);
+        crashed.put("b", DataCategory.TRANSLATIONS, 2);
+        long intact = Files.size(journal());
+        crashed.put("torn", DataCategory.TRANSLATIONS, 3);
+        try (FileChannel channel = FileChannel.open(journal(), StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 2);
+        }
+
+        KeyLocationIndex recovered = new KeyLocationIndex(tempDir);
+        assertTrue(recovered.load());
+
+        assertEquals(List.of("a", "b"), sorted(recovered.keys(DataCategory.TRANSLATIONS)));
+        assertEquals(intact, Files.size(journal()));
+
+        // New records follow the valid ones and replay after another crash
+        recovered.put("after", DataCategory.TRANSLATIONS, 4);
+        KeyLocationIndex again = new KeyLocationIndex(tempDir);
+        assertTrue(again.load());
+        assertEquals(List.of("a", "after", "b"), sorted(again.keys(DataCategory.TRANSLATIONS)));
+    }
+
+    @Test
+    void testDamagedJournalRecordStopsReplay() throws IOException {
+        KeyLocationIndex crashed = open();
+        crashed.put("a", DataCategory.TRANSLATIONS, 1);
+        long damaged = Files.size(journal());
+        crashed.put("b", DataCategory.TRANSLATIONS, 2);
+        crashed.put("c", DataCategory.TRANSLATIONS, 3);
+        try (FileChannel channel = FileChannel.open(journal(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, damaged + 6);
+            b.put(0, (byte) (b.get(0) ^ 0x40)).rewind();
+            channel.write(b, damaged + 6);
+        }
+
+        KeyLocationIndex recovered = new KeyLocationIndex(tempDir);
+        assertTrue(recovered.load());
+
+        // The index may then miss entries; it never invents any
+        assertEquals(List.of("a"), recovered.keys(DataCategory.TRANSLATIONS));
+        assertEquals(damaged, Files.size(journal()));
+    }
+
+    @Test
+    void testCorruptSnapshotNeedsRebuild() throws IOException {
+        KeyLocationIndex index = open();
+        index.put("a", DataCategory.TRANSLATIONS, 1);
+        index.close();
+
+        Path snapshot = tempDir.resolve("keys.idx");
+        byte[] bytes = Files.readAllBytes(snapshot);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(snapshot, bytes);
+
+        KeyLocationIndex reopened = new KeyLocationIndex(tempDir);
+        assertFalse(reopened.load());
+        assertEquals(0, reopened.size());
+
+        Map<String, KeyLocationIndex.Location> rebuilt = new HashMap<>();
+        rebuilt.put("a", new KeyLocationIndex.Location(DataCategory.TRANSLATIONS, 1));
+        reopened.reset(rebuilt);
+        KeyLocationIndex afterRebuild = new KeyLocationIndex(tempDir);
+        assertTrue(afterRebuild.load());
+        assertEquals(1, afterRebuild.get("a").size);
+    }
+
+    @Test
+    void testJournalIsFoldedIntoSnapshotOnceItOutgrowsIt() throws IOException {
+        KeyLocationIndex index = open();
+        for (int i = 0; i < 100; i++) {
+            index.put("key" + i, DataCategory.TRANSLATIONS, i);
+        }
+        // Churn on a few keys; the journal grows past the minimum and is checkpointed
+        for (int round = 0; round < 30; round++) {
+            for (int i = 0; i < 50; i++) {
+                index.put("key" + i, DataCategory.TRANSLATIONS, round * 1000 + i);
+            }
+        }
+        for (int i = 90; i < 100; i++) {
+            index.remove("key" + i);
+        }
+
+        long journalSize = Files.size(journal());
+        assertTrue(journalSize < 1100 * 20, "journal of " + journalSize + " bytes was never folded");
+
+        KeyLocationIndex recovered = new KeyLocationIndex(tempDir); // Without close
+        assertTrue(recovered.load());
+        assertEquals(90, recovered.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(29_000 + i, recovered.get("key" + i).size);
+        }
+        for (int i = 50; i < 90; i++) {
+            assertEquals(i, recovered.get("key" + i).size);
+        }
+        assertNull(recovered.get("key95"));
+    }
+
+    @Test
+    void testConcurrentChangesReplayToTheSameState() throws Exception {
+        KeyLocationIndex index = open();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 800; i++) {
+                        String key = "key" + (i % 200);
+                        if (i % 7 == thread) {
+                            index.remove(key);
+                        } else {
+                            index.put(key, DataCategory.TRANSLATIONS, thread * 10_000 + i);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        KeyLocationIndex recovered = new KeyLocationIndex(tempDir);
+        assertTrue(recovered.load());
+        assertEquals(index.size(), recovered.size());
+        for (String key : index.keys(DataCategory.TRANSLATIONS)) {
+            assertEquals(index.get(key).size, recovered.get(key).size, key);
+        }
+    }
+
+    @Test
+    void testJournalSetAsideByAnUnfinishedCheckpointIsReplayed() throws IOException {
+        KeyLocationIndex crashed = open();
+        crashed.put("a", DataCategory.TRANSLATIONS, 1);
+        crashed.checkpoint();
+        crashed.put("b", DataCategory.TRANSLATIONS, 2);
+        crashed.remove("a");
+        // Killed after the journal was renamed aside, before the new snapshot replaced the old one
+        Files.move(journal(), tempDir.resolve("keys.journal.folding"));
+        Files.write(journal(), new byte[0]);
+
+        KeyLocationIndex recovered = new KeyLocationIndex(tempDir);
+        assertTrue(recovered.load());
+        assertEquals(List.of("b"), recovered.keys(DataCategory.TRANSLATIONS));
+
+        recovered.put("c", DataCategory.TRANSLATIONS, 3);
+        recovered.checkpoint();
+        assertFalse(Files.exists(tempDir.resolve("keys.journal.folding")));
+        recovered.put("d", DataCategory.TRANSLATIONS, 4);
+
+        KeyLocationIndex again = new KeyLocationIndex(tempDir);
+        assertTrue(again.load());
+        assertEquals(List.of("b", "c", "d"), sorted(again.keys(DataCategory.TRANSLATIONS)));
+    }
+
+    @Test
+    void testChangesDuringCheckpointsReplayToTheSameState() throws Exception {
+        KeyLocationIndex index = open();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 1500; i++) {
+                        String key = "key" + (i % 300);
+                        if (i % 5 == thread) {
+                            index.remove(key);
+                        } else {
+                            index.put(key, DataCategory.TRANSLATIONS, thread * 10_000 + i);
+                        }
+                    }
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        while (threads.stream().anyMatch(Thread::isAlive)) {
+            index.checkpoint(); // Snapshots taken while the writers carry on
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        KeyLocationIndex recovered = new KeyLocationIndex(tempDir); // Without close
+        assertTrue(recovered.load());
+        assertEquals(index.size(), recovered.size());
+        for (String key : index.keys(DataCategory.TRANSLATIONS)) {
+            assertEquals(index.get(key).size, recovered.get(key).size, key);
+        }
+    }
+}
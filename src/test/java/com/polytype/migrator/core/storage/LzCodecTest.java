@@ -0,0 +1,202 @@
+package com.polytype.migrator.core.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static com.polytype.migrator.core.storage.StorageTestSupport.random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LzCodecTest {
+    private final LzCodec codec = new LzCodec();
+
+    private static byte[] source(int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < length; i++) {
+            sb.append("    public String translate").append(i % 53).append("(String input) {\n")
+              .append("        return input.trim() + \"").append(i).append("\";\n    }\n");
+        }
+        return sb.substring(0, length).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private byte[] decompress(byte[] compressed, byte[] dictionary) throws IOException {
+        try (InputStream in = codec.decompress(new ByteArrayInputStream(compressed), dictionary)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private void assertRoundTrip(byte[] data, byte[] dictionary) throws IOException {
+        byte[] compressed = codec.compress(data, dictionary);
+        assertArrayEquals(data, decompress(compressed, dictionary), "length " + data.length);
+    }
+
+    @Test
+    void testRoundTripAcrossSizes() throws IOException {
+        int block = LzCodec.BLOCK_SIZE;
+        for (int length : new int[] { 0, 1, 4, 5, 12, 13, 100, 4096, block - 1, block, block + 1, 3 * block + 77 }) {
+            assertRoundTrip(source(length), null);
+            assertRoundTrip(random(length, length), null);
+        }
+    }
+
+    @Test
+    void testSourceShrinks() throws IOException {
+        byte[] data = source(200_000);
+
+        byte[] compressed = codec.compress(data, null);
+
+        assertTrue(compressed.length < data.length / 2, compressed.length + " of " + data.length);
+    }
+
+    @Test
+    void testIncompressibleBlocksAreStored() throws IOException {
+        byte[] data = random(LzCodec.BLOCK_SIZE * 2, 9);
+
+        byte[] compressed = codec.compress(data, null);
+
+        // Each block costs only its two length fields, plus the end marker
+        assertEquals(data.length + 2 * 8 + 4, compressed.length);
+        assertArrayEquals(data, decompress(compressed, null));
+    }
+
+    @Test
+    void testLongRunsAndOverlappingMatches() throws IOException {
+        byte[] zeros = new byte[200_000];
+        byte[] pattern = new byte[100_000];
+        for (int i = 0; i < pattern.length; i++) {
+            pattern[i] = (byte) "abc".charAt(i % 3);
+        }
+
+        byte[] compressed = codec.compress(zeros, null);
+        assertTrue(compressed.length < 2_000, compressed.length + " bytes for a run of zeros");
+        assertRoundTrip(zeros, null);
+        assertRoundTrip(pattern, null);
+    }
+
+    @Test
+    void testLongLiteralRunsBeforeAMatch() throws IOException {
+        byte[] noise = random(5000, 11); // Needs several length continuation bytes
+        byte[] data = new byte[noise.length * 2];
+        System.arraycopy(noise, 0, data, 0, noise.length);
+        System.arraycopy(noise, 0, data, noise.length, noise.length);
+
+        byte[] compressed = codec.compress(data, null);
+
+        assertTrue(compressed.length < noise.length + 100);
+        assertArrayEquals(data, decompress(compressed, null));
+    }
+
+    @Test
+    void testDictionaryHelpsSmallEntries() throws IOException {
+        byte[] dictionary = source(16 * 1024);
+        byte[] entry = Arrays.copyOfRange(source(20_000), 17_000, 17_600);
+
+        byte[] alone = codec.compress(entry, null);
+        byte[] withDictionary = codec.compress(entry, dictionary);
+
+        assertTrue(withDictionary.length < alone.length * 2 / 3,withDictionary.length + " vs " + alone.length);
+        assertArrayEquals(entry, decompress(withDictionary, dictionary));
+    }
+
+    @Test
+    void testOnlyTheLastPartOfALargeDictionaryIsUsed() throws IOException {
+        byte[] dictionary = new byte[LzCodec.MAX_DICTIONARY + 10_000];
+        byte[] tail = source(LzCodec.MAX_DICTIONARY);
+        System.arraycopy(random(10_000, 1), 0, dictionary, 0, 10_000);
+        System.arraycopy(tail, 0, dictionary, 10_000, tail.length);
+        byte[] data = source(3 * LzCodec.BLOCK_SIZE);
+
+        byte[] compressed = codec.compress(data, dictionary);
+
+        assertArrayEquals(data, decompress(compressed, dictionary));
+        assertArrayEquals(data, decompress(compressed, tail)); // Same window either way
+    }
+
+    @Test
+    void testWrongDictionaryIsNotSilentlyAccepted() throws IOException {
+        byte[] dictionary = source(8 * 1024);
+        byte[] entry = Arrays.copyOfRange(source(10_000), 9_000, 9_500);
+        byte[] compressed = codec.compress(entry, dictionary);
+
+        byte[] decoded;
+        try {
+            decoded = decompress(compressed, random(8 * 1024, 2));
+        } catch (IOException e) {
+            return; // A match reaching before the window is reported
+        }
+        assertFalse(Arrays.equals(entry, decoded));
+    }
+
+    @Test
+    void testStreamReadsByteAtATime() throws IOException {
+        byte[] data = source(LzCodec.BLOCK_SIZE + 500);
+        byte[] compressed = codec.compress(data, null);
+
+        try (InputStream in = codec.decompress(new ByteArrayInputStream(compressed), null)) {
+            for (int i = 0; i < data.length; i++) {
+                assertEquals(data[i] & 0xFF, in.read(), "byte " + i);
+            }
+            assertEquals(-1, in.read());
+            assertEquals(-1, in.read(new byte[10], 0, 10));
+        }
+    }
+
+    @Test
+    void testTruncatedStreamFails() throws IOException {
+        byte[] compressed = codec.compress(source(3 * LzCodec.BLOCK_SIZE), null);
+
+        for (int cut : new int[] { 1, 4, 5, compressed.length / 2, compressed.length - 4 }) {
+            byte[] truncated = Arrays.copyOf(compressed, compressed.length - cut);
+            assertThrows(IOException.class, () -> decompress(truncated, null), "cut " + cut);
+        }
+    }
+
+    @Test
+    void testBadBlockHeaderFails() {
+        byte[][] headers = {
+            { 0, 0, 0, 10, 0, 0, 0, 0 },                // Compressed length zero
+            { 0, 0, 0, 10, 0, 0, 0, 11 },               // Longer than the raw data
+            { (byte) 0xFF, 0, 0, 0, 0, 0, 0, 1 },       // Negative raw length
+            { 0, 2, 0, 0, 0, 0, 0, 1 },                 // Larger than a block
+        };
+        for (byte[] header : headers) {
+            assertThrows(IOException.class, () -> decompress(header, null));
+        }
+    }
+
+    @Test
+    void testCorruptedDataFailsCleanly() throws IOException {
+        byte[] data = source(2 * LzCodec.BLOCK_SIZE);
+        byte[] compressed = codec.compress(data, null);
+        Random random = new Random(13);
+
+        int detected = 0;
+        for (int round = 0; round < 2000; round++) {
+            byte[] damaged = compressed.clone();
+            int position = 8 + random.nextInt(damaged.length - 12); // Inside the blocks
+            damaged[position] = (byte) random.nextInt(256);
+            try {
+                byte[] decoded = decompress(damaged, null);
+                if (!Arrays.equals(data, decoded)) {
+                    assertEquals(data.length, decoded.length); // The block lengths were checked
+                }
+            } catch (IOException e) {
+                detected++;
+            }
+            // Anything other than an IOException, such as an index out of bounds, fails the test
+        }
+        assertTrue(detected > 0);
+    }
+
+    @Test
+    void testRegisteredUnderItsName() {
+        assertSame(LzCodec.class, CompressionCodecs.get(CompressionCodecs.LZ).getClass());
+        assertTrue(codec.supportsDictionary());
+        assertFalse(CompressionCodecs.get(CompressionCodecs.GZIP).supportsDictionary());
+    }
+}
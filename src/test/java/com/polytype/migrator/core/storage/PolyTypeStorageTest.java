@@ -0,0 +1,193 @@
+package com.polytype.migrator.core.storage;
+
+import com.polytype.migrator.core.storage.PolyTypeStorage.DataCategory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static com.polytype.migrator.core.storage.StorageTestSupport.random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PolyTypeStorageTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PolyTypeStorage storage;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storage = new PolyTypeStorage(new PolyTypeStorage.FileSystemBackend(tempDir.toString()));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        storage.close();
+    }
+
+    private static byte[] text(int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < length; i++) {
+            sb.append("fn translate_").append(i % 97).append("(input: &str) -> String { input.to_owned() }\n");
+        }
+        return sb.substring(0, length).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] contents(ByteBuffer buffer) {
+        byte[] copy = new byte[buffer.remaining()];
+        buffer.duplicate().get(copy);
+        return copy;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try (InputStream stream = in) {
+            return stream.readAllBytes();
+        }
+    }
+
+    @Test
+    void testLargePlainEntryIsReturnedAsMappedBuffer() throws IOException {
+        storage.setCompressionEnabled(false);
+        byte[] data = random(1024 * 1024, 1024 * 1024);
+        storage.store("large", DataCategory.TRANSLATIONS, data);
+
+        ByteBuffer buffer = storage.retrieveBuffer("large");
+
+        assertTrue(buffer.isDirect());
+        assertTrue(buffer.isReadOnly());
+        assertArrayEquals(data, contents(buffer));
+        assertArrayEquals(data, readAll(storage.openStream("large")));
+    }
+
+    @Test
+    void testCompressedEntryIsDecoded() throws IOException {
+        byte[] data = text(1024 * 1024);
+        storage.store("compressed", DataCategory.TRANSLATIONS, data);
+
+        assertTrue(storage.retrieveEntry("compressed").isCompressed());
+        assertArrayEquals(data, contents(storage.retrieveBuffer("compressed")));
+        assertArrayEquals(data, readAll(storage.openStream("compressed")));
+        assertArrayEquals(data, storage.retrieve("compressed"));
+    }
+
+    @Test
+    void testEncryptedAndCompressedEntryStreams() throws IOException {
+        storage.setEncryptionEnabled(true);
+        byte[] data = text(600 * 1024);
+        storage.store("secret", DataCategory.USER_DATA, data);
+
+        assertTrue(storage.retrieveEntry("secret").isEncrypted());
+        assertArrayEquals(data, readAll(storage.openStream("secret")));
+        assertTrue(storage.retrieveBuffer("secret").isReadOnly());
+        assertArrayEquals(data, contents(storage.retrieveBuffer("secret")));
+    }
+
+    @Test
+    void testStreamReadsInSmallSteps() throws IOException {
+        storage.setCompressionEnabled(false);
+        byte[] data = random(300 * 1024, 300 * 1024);
+        storage.store("large", DataCategory.TRANSLATIONS, data);
+
+        byte[] read = new byte[data.length];
+        try (InputStream in = storage.openStream("large")) {
+            int offset = 0;
+            int b;
+            while (offset < 1000 && (b = in.read()) >= 0) {
+                read[offset++] = (byte) b;
+            }
+            while (offset < read.length) {
+                int n = in.read(read, offset, Math.min(4093, read.length - offset));
+                assertTrue(n > 0);
+                offset += n;
+            }
+            assertEquals(-1, in.read());
+        }
+        assertArrayEquals(data, read);
+    }
+
+    @Test
+    void testTrainedDictionarySurvivesReopen() throws IOException {
+        storage.setCodec(DataCategory.TRANSLATIONS, CompressionCodecs.LZ);
+        for (int i = 0; i < 50; i++) {
+            storage.store("before" + i, DataCategory.TRANSLATIONS, text(2000 + i));
+        }
+        assertNotNull(storage.trainDictionary(DataCategory.TRANSLATIONS, 50, 16 * 1024));
+        for (int i = 0; i < 50; i++) {
+            storage.store("after" + i, DataCategory.TRANSLATIONS, text(2000 + i));
+        }
+        storage.close();
+
+        storage = new PolyTypeStorage(new PolyTypeStorage.FileSystemBackend(tempDir.toString()));
+        for (int i = 0; i < 50; i++) {
+            assertArrayEquals(text(2000 + i), storage.retrieve("before" + i));
+            assertArrayEquals(text(2000 + i), storage.retrieve("after" + i));
+            assertArrayEquals(text(2000 + i), readAll(storage.openStream("after" + i)));
+        }
+    }
+
+    /** The codec named in the header the storage writes ahead of compressed data. */
+    private String storedCodec(String key) throws IOException {
+        PolyTypeStorage.StorageEntry entry = storage.retrieveEntry(key);
+        assertTrue(entry.isCompressed());
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(entry.getData()));
+        assertEquals(0x5043, in.readUnsignedShort());
+        return in.readUTF();
+    }
+
+    @Test
+    void testCodecChoiceSurvivesReopenAndStaysOutOfMetadata() throws IOException {
+        storage.setCodec(DataCategory.TRANSLATIONS, CompressionCodecs.LZ);
+        storage.store("first", DataCategory.TRANSLATIONS, text(4000), Map.of("polytype.codec", "mine"));
+        storage.close();
+
+        storage = new PolyTypeStorage(new PolyTypeStorage.FileSystemBackend(tempDir.toString()));
+        storage.store("second", DataCategory.TRANSLATIONS, text(5000));
+        storage.store("other", DataCategory.LOGS, text(5000));
+
+        assertEquals(CompressionCodecs.LZ, storage.getCodec(DataCategory.TRANSLATIONS));
+        assertEquals(CompressionCodecs.LZ, storedCodec("second"));
+        assertEquals(storage.getCodec(DataCategory.LOGS), storedCodec("other"));
+        // Metadata holds only what the caller gave, and a caller's key of the old reserved name is theirs
+        assertEquals(Map.of("polytype.codec", "mine"), storage.retrieveEntry("first").getMetadata());
+        assertEquals(Map.of(), storage.retrieveEntry("second").getMetadata());
+        assertArrayEquals(text(4000), storage.retrieve("first"));
+        assertArrayEquals(text(5000), storage.retrieve("second"));
+    }
+
+    @Test
+    void testGzipEntriesWithoutACodecHeaderStillDecode() throws IOException {
+        ByteArrayOutputStream gzip = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+            out.write(text(3000));
+        }
+        PolyTypeStorage.FileSystemBackend backend = new PolyTypeStorage.FileSystemBackend(tempDir.resolve("old").toString());
+        backend.initialize();
+        backend.store(new PolyTypeStorage.StorageEntry("id", "old", DataCategory.TRANSLATIONS, gzip.toByteArray(),
+                                                       Map.of(), LocalDateTime.now(), LocalDateTime.now(), 1L, true, false));
+        storage.close();
+
+        storage = new PolyTypeStorage(backend);
+
+        assertArrayEquals(text(3000), storage.retrieve("old"));
+        assertArrayEquals(text(3000), readAll(storage.openStream("old")));
+    }
+
+    @Test
+    void testMissingKey() throws IOException {
+        assertNull(storage.retrieveBuffer("missing"));
+        assertNull(storage.openStream("missing"));
+    }
+}
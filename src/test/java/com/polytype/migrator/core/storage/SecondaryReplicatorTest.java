@@ -0,0 +1,204 @@
+package com.polytype.migrator.core.storage;
+
+import com.polytype.migrator.core.storage.PolyTypeStorage.DataCategory;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageEntry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static com.polytype.migrator.core.storage.StorageTestSupport.entry;
+import static com.polytype.migrator.core.storage.StorageTestSupport.utf8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SecondaryReplicatorTest {
+
+    /** A secondary that rejects every write while failing is set. */
+    private static final class FlakyBackend extends PolyTypeStorage.MemoryBackend {
+        volatile boolean failing;
+
+        @Override
+        public void store(StorageEntry entry) throws IOException {
+            if (failing) {
+                throw new IOException("Secondary unavailable");
+            }
+            super.store(entry);
+        }
+
+        @Override
+        public void delete(String key) throws IOException {
+            if (failing) {
+                throw new IOException("Secondary unavailable");
+            }
+            super.delete(key);
+        }
+    }
+
+    @TempDir
+    Path tempDir;
+
+    private PolyTypeStorage.MemoryBackend primary;
+    private FlakyBackend secondary;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        primary = new PolyTypeStorage.MemoryBackend();
+        primary.initialize();
+        secondary = new FlakyBackend();
+        secondary.initialize();
+    }
+
+    private SecondaryReplicator start() throws IOException {
+        SecondaryReplicator replicator = new SecondaryReplicator(primary, secondary, tempDir.resolve("replication.log"), 16);
+        replicator.start();
+        return replicator;
+    }
+
+    private void storeInBoth(SecondaryReplicator replicator, String key) throws IOException {
+        primary.store(entry(key, DataCategory.TRANSLATIONS, utf8(key)));
+        replicator.store(entry(key, DataCategory.TRANSLATIONS, utf8(key)));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the replicator");
+            Thread.sleep(20);
+        }
+    }
+
+    private boolean inSecondary(String key) {
+        try {
+            return secondary.exists(key);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Test
+    void testWritesReachTheSecondary() throws Exception {
+        SecondaryReplicator replicator = start();
+        storeInBoth(replicator, "a");
+        storeInBoth(replicator, "b");
+        replicator.delete("a");
+
+        await(() -> replicator.getPendingWrites() == 0);
+
+        assertFalse(secondary.exists("a"));
+        assertTrue(secondary.exists("b"));
+        assertFalse(replicator.isPending("b"));
+        assertEquals(0, replicator.getFailedWrites());
+        replicator.close();
+    }
+
+    @Test
+    void testFailedWritesStayPendingAndAreRetried() throws Exception {
+        secondary.failing = true;
+        SecondaryReplicator replicator = start();
+        storeInBoth(replicator, "a");
+
+        await(() -> replicator.getFailedWrites() > 0);
+
+        assertTrue(replicator.isPending("a"));
+        assertTrue(replicator.getPendingWrites() > 0);
+        assertEquals(0, replicator.getReplicatedWrites());
+        assertFalse(secondary.exists("a"));
+
+        secondary.failing = false;
+        await(() -> !replicator.isPending("a"));
+
+        assertTrue(secondary.exists("a"));
+        assertEquals(0, replicator.getPendingWrites());
+        replicator.close();
+    }
+
+    @Test
+    void testNewerWriteReplacesFailedOne() throws Exception {
+        secondary.failing = true;
+        SecondaryReplicator replicator = start();
+        storeInBoth(replicator, "a");
+        await(() -> replicator.getFailedWrites() > 0);
+
+        primary.delete("a");
+        replicator.delete("a");
+        secondary.failing = false;
+        await(() -> replicator.getPendingWrites() == 0);
+
+        assertFalse(replicator.isPending("a"));
+        assertFalse(secondary.exists("a"));
+        replicator.close();
+    }
+
+    @Test
+    void testFailedWritesAreReplayedOnNextStart() throws Exception {
+        secondary.failing = true;
+        SecondaryReplicator first = start();
+        storeInBoth(first, "a");
+        storeInBoth(first, "b");
+        await(() -> first.getFailedWrites() > 0);
+        first.close();
+
+        assertFalse(secondary.exists("a"));
+
+        secondary.failing = false;
+        SecondaryReplicator second = start();
+        await(() -> inSecondary("a") && inSecondary("b"));
+        await(() -> second.getPendingWrites() == 0);
+        second.close();
+
+        // Caught up, so a third start has nothing to replay
+        SecondaryReplicator third = start();
+        assertEquals(0, third.getPendingWrites());
+        third.close();
+    }
+
+    @Test
+    void testConcurrentWritesAreLoggedWhenTheyReturn() throws Exception {
+        secondary.failing = true;
+        SecondaryReplicator crashed = start();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int writer = t;
+            writers.add(new Thread(() -> {
+                try {
+                    for (int i = 0; i < 4; i++) {
+                        storeInBoth(crashed, "key" + writer + "-" + i);
+                    }
+                } catch (IOException e) {
+                    throw new AssertionError(e);
+                }
+            }));
+        }
+        for (Thread thread : writers) {
+            thread.start();
+        }
+        for (Thread thread : writers) {
+            thread.join();
+        }
+
+        // What a crash right now would leave behind
+        Path logCopy = tempDir.resolve("copy").resolve("replication.log");
+        Files.createDirectories(logCopy.getParent());
+        Files.copy(tempDir.resolve("replication.log"), logCopy);
+
+        FlakyBackend recovered = new FlakyBackend();
+        recovered.initialize();
+        SecondaryReplicator replay = new SecondaryReplicator(primary, recovered, logCopy, 16);
+        replay.start();
+        await(() -> replay.getPendingWrites() == 0);
+        for (int writer = 0; writer < 4; writer++) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(recovered.exists("key" + writer + "-" + i));
+            }
+        }
+        replay.close();
+        secondary.failing = false;
+        crashed.close();
+    }
+}
@@ -0,0 +1,438 @@
+package com.polytype.migrator.core.storage;
+
+import com.polytype.migrator.core.storage.PolyTypeStorage.DataCategory;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.polytype.migrator.core.storage.StorageTestSupport.entry;
+import static com.polytype.migrator.core.storage.StorageTestSupport.utf8;
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentLogBackendTest {
+    private static final long SMALL_SEGMENT = 8 * 1024;
+
+    @TempDir
+    Path tempDir;
+
+    private final List<SegmentLogBackend> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() throws IOException {
+        for (SegmentLogBackend backend : opened) {
+            backend.close();
+        }
+    }
+
+    private SegmentLogBackend open(long segmentSize) throws IOException {
+        SegmentLogBackend backend = new SegmentLogBackend(tempDir.toString(), segmentSize);
+        backend.initialize();
+        opened.add(backend);
+        return backend;
+    }
+
+    private SegmentLogBackend open() throws IOException {
+        return open(SMALL_SEGMENT);
+    }
+
+    /** Closes cleanly, saving the index. */
+    private void close(SegmentLogBackend backend) throws IOException {
+        opened.remove(backend);
+        backend.close();
+    }
+
+    private static String value(SegmentLogBackend backend, String key) throws IOException {
+        StorageEntry entry = backend.retrieve(key);
+        return entry != null ? new String(entry.getData(), StandardCharsets.UTF_8) : null;
+    }
+
+    private static String filler(String key, int length) {
+        StringBuilder sb = new StringBuilder(key);
+        while (sb.length() < length) {
+            sb.append('.');
+        }
+        return sb.toString();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(tempDir, "segment-*.log")) {
+            stream.forEach(files::add);
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    private Path lastSegment() throws IOException {
+        List<Path> files = segmentFiles();
+        return files.get(files.size() - 1);
+    }
+
+    private static void truncateBy(Path file, long bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - bytes);
+        }
+    }
+
+    private static void appendBytes(Path file, byte[] bytes) throws IOException {
+        Files.write(file, bytes, StandardOpenOption.APPEND);
+    }
+
+    private static void flipByte(Path file, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, position);
+            b.put(0, (byte) ~b.get(0)).rewind();
+            channel.write(b, position);
+        }
+    }
+
+    @Test
+    void testEntriesSurviveReopen() throws IOException {
+        SegmentLogBackend backend = open();
+        backend.store(entry("a", DataCategory.TRANSLATIONS, utf8("first")));
+        backend.store(entry("b", DataCategory.TRANSLATIONS, utf8("second")));
+        backend.store(entry("a", DataCategory.TRANSLATIONS, utf8("replaced"), "language", "rust"));
+        backend.delete("b");
+        close(backend);
+
+        backend = open();
+        assertEquals("replaced", value(backend, "a"));
+        assertNull(backend.retrieve("b"));
+        assertEquals(List.of("a"), backend.listKeys(DataCategory.TRANSLATIONS));
+        assertEquals("rust", backend.retrieve("a").getMetadata().get("language"));
+    }
+
+    @Test
+    void testReopenWithoutIndexScansSegments() throws IOException {
+        SegmentLogBackend backend = open();
+        for (int i = 0; i < 40; i++) {
+            backend.store(entry("key" + i, DataCategory.TRANSLATIONS, utf8(filler("v" + i, 500))));
+        }
+        backend.delete("key3");
+        close(backend);
+        assertTrue(segmentFiles().size() > 1);
+
+        Files.delete(tempDir.resolve("segments.idx"));
+        backend = open();
+
+        assertNull(backend.retrieve("key3"));
+        for (int i = 0; i < 40; i++) {
+            if (i != 3) {
+                assertEquals(filler("v" + i, 500), value(backend, "key" + i));
+            }
+        }
+    }
+
+    @Test
+    void testCorruptIndexIsRebuilt() throws IOException {
+        SegmentLogBackend backend = open();
+        backend.store(entry("a", DataCategory.TRANSLATIONS, utf8("value")));
+        close(backend);
+
+        flipByte(tempDir.resolve("segments.idx"), 20);
+        backend = open();
+
+        assertEquals("value", value(backend, "a"));
+    }
+
+    @Test
+    void testTornTailIsCutOff() throws IOException {
+        SegmentLogBackend crashed = open();
+        crashed.store(entry("a", DataCategory.TRANSLATIONS, utf8("kept")));
+        crashed.store(entry("b", DataCategory.TRANSLATIONS, utf8("also kept")));
+        long intact = Files.size(lastSegment());
+        crashed.store(entry("c", DataCategory.TRANSLATIONS, utf8("torn")));
+        truncateBy(lastSegment(), 3); // The process died part way through writing c
+
+        SegmentLogBackend recovered = open();
+
+        assertEquals("kept", value(recovered, "a"));
+        assertEquals("also kept", value(recovered, "b"));
+        assertFalse(recovered.exists("c"));
+        assertEquals(intact, Files.size(lastSegment()));
+
+        // Appends continue after the cut, and survive another reopen
+        recovered.store(entry("d", DataCategory.TRANSLATIONS, utf8("after recovery")));
+        close(recovered);
+        SegmentLogBackend reopened = open();
+        assertEquals("after recovery", value(reopened, "d"));
+        assertEquals("kept", value(reopened, "a"));
+    }
+
+    @Test
+    void testGarbageAfterLastRecordIsCutOff() throws IOException {
+        SegmentLogBackend crashed = open();
+        crashed.store(entry("a", DataCategory.TRANSLATIONS, utf8("kept")));
+        long intact = Files.size(lastSegment());
+        appendBytes(lastSegment(), new byte[100]); // Preallocated but never written
+
+        SegmentLogBackend recovered = open();
+
+        assertEquals("kept", value(recovered, "a"));
+        assertEquals(intact, Files.size(lastSegment()));
+    }
+
+    @Test
+    void testChecksumMismatchDiscardsRecordAndEverythingAfter() throws IOException {
+        SegmentLogBackend crashed = open();
+        crashed.store(entry("a", DataCategory.TRANSLATIONS, utf8("kept")));
+        long damaged = Files.size(lastSegment());
+        crashed.store(entry("b", DataCategory.TRANSLATIONS, utf8("damaged")));
+        crashed.store(entry("c", DataCategory.TRANSLATIONS, utf8("after the damage")));
+        flipByte(lastSegment(), damaged + 20);
+
+        SegmentLogBackend recovered = open();
+
+        assertEquals("kept", value(recovered, "a"));
+        assertFalse(recovered.exists("b"));
+        assertFalse(recovered.exists("c"));
+        assertEquals(damaged, Files.size(lastSegment()));
+    }
+
+    @Test
+    void testTornBatchIsDroppedWhole() throws IOException {
+        SegmentLogBackend crashed = open();
+        crashed.store(entry("a", DataCategory.TRANSLATIONS, utf8("before")));
+        crashed.storeAll(Arrays.asList(entry("x", DataCategory.TRANSLATIONS, utf8("1")), entry("y", DataCategory.TRANSLATIONS, utf8("2")), entry("z", DataCategory.TRANSLATIONS, utf8("3"))), List.of("a"));
+        truncateBy(lastSegment(), 1);
+
+        SegmentLogBackend recovered = open();
+
+        assertEquals("before", value(recovered, "a"));
+        assertFalse(recovered.exists("x"));
+        assertFalse(recovered.exists("y"));
+        assertFalse(recovered.exists("z"));
+    }
+
+    @Test
+    void testTailAfterSavedIndexIsReplayed() throws IOException {
+        SegmentLogBackend backend = open();
+        backend.store(entry("a", DataCategory.TRANSLATIONS, utf8("indexed")));
+        backend.store(entry("b", DataCategory.TRANSLATIONS, utf8("indexed")));
+        close(backend);
+
+        SegmentLogBackend crashed = open();
+        crashed.store(entry("c", DataCategory.TRANSLATIONS, utf8("only in the log")));
+        crashed.store(entry("a", DataCategory.TRANSLATIONS, utf8("overwritten in the log")));
+        crashed.delete("b");
+
+        SegmentLogBackend recovered = open();
+
+        assertEquals("overwritten in the log", value(recovered, "a"));
+        assertFalse(recovered.exists("b"));
+        assertEquals("only in the log", value(recovered, "c"));
+    }
+
+    @Test
+    void testCompactionDropsDeadSegmentsAndKeepsLatestValues() throws IOException {
+        SegmentLogBackend backend = open();
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 20; i++) {
+                backend.store(entry("key" + i, DataCategory.TRANSLATIONS, utf8(filler("round" + round + "-key" + i, 400))));
+            }
+        }
+        for (int i = 10; i < 20; i++) {
+            backend.delete("key" + i);
+        }
+
+        backend.compact();
+
+        // About 5KB is live; every sealed segment left is at least half live, plus the active one
+        long onDisk = 0;
+        for (Path file : segmentFiles()) {
+            onDisk += Files.size(file);
+        }
+        assertTrue(onDisk < 3 * SMALL_SEGMENT, onDisk + " bytes left of about 45KB written");
+        for (int i = 0; i < 10; i++) {
+            assertEquals(filler("round4-key" + i, 400), value(backend, "key" + i));
+        }
+        for (int i = 10; i < 20; i++) {
+            assertFalse(backend.exists("key" + i));
+        }
+        assertEquals(10, backend.listKeys(DataCategory.TRANSLATIONS).size());
+    }
+
+    @Test
+    void testCompactedStateSurvivesReopenAndFullScan() throws IOException {
+        SegmentLogBackend backend = open();
+        // Deleted keys live in the first segment; their tombstones must outlast the segments compacted after it
+        backend.store(entry("deleted", DataCategory.TRANSLATIONS, utf8(filler("old", 2000))));
+        for (int i = 0; i < 30; i++) {
+            backend.store(entry("key" + i, DataCategory.TRANSLATIONS, utf8(filler("v" + i, 400))));
+        }
+        backend.delete("deleted");
+        for (int i = 0; i < 30; i++) {
+            backend.store(entry("key" + i, DataCategory.TRANSLATIONS, utf8(filler("w" + i, 400))));
+        }
+        backend.compact();
+        close(backend);
+
+        backend = open();
+        assertFalse(backend.exists("deleted"));
+        for (int i = 0; i < 30; i++) {
+            assertEquals(filler("w" + i, 400), value(backend, "key" + i));
+        }
+        close(backend);
+
+        Files.delete(tempDir.resolve("segments.idx"));
+        backend = open();
+        assertFalse(backend.exists("deleted"));
+        for (int i = 0; i < 30; i++) {
+            assertEquals(filler("w" + i, 400), value(backend, "key" + i));
+        }
+    }
+
+    @Test
+    void testWritesReachTheSegmentBeforeClose() throws IOException {
+        SegmentLogBackend backend = open();
+        backend.store(entry("a", DataCategory.TRANSLATIONS, utf8("durable")));
+
+        // Read by a second instance while the first is still open
+        SegmentLogBackend other = open();
+        assertEquals("durable", value(other, "a"));
+    }
+
+    @Test
+    void testLargeRecordIsMappedAndOutlivesCompaction() throws IOException {
+        SegmentLogBackend backend = open(1024 * 1024);
+        byte[] large = new byte[512 * 1024];
+        new Random(5).nextBytes(large);
+        LocalDateTime now = LocalDateTime.now();
+        backend.store(new StorageEntry("large", "large", DataCategory.TRANSLATIONS, large,
+                                       Collections.emptyMap(), now, now, 1, false, false));
+        backend.store(entry("small", DataCategory.TRANSLATIONS, utf8("value")));
+
+        ByteBuffer view = backend.retrieveView("large").getDataBuffer();
+        assertTrue(view.isDirect());
+        assertFalse(backend.retrieve("large").getDataBuffer().isDirect());
+        assertFalse(backend.retrieveView("small").getDataBuffer().isDirect());
+
+        // Overwrite until the segment holding the mapped record is sealed, then compact it away
+        for (int i = 0; i < 3; i++) {
+            backend.store(new StorageEntry("large", "large", DataCategory.TRANSLATIONS, new byte[512 * 1024],
+                                           Collections.emptyMap(), now, now, 2, false, false));
+        }
+        backend.compact();
+        assertFalse(Files.exists(tempDir.resolve("segment-00000001.log")));
+
+        byte[] mapped = new byte[view.remaining()];
+        view.duplicate().get(mapped);
+        assertArrayEquals(large, mapped);
+    }
+
+    private boolean anySegmentMentions(String key) throws IOException {
+        for (Path file : segmentFiles()) {
+            if (new String(Files.readAllBytes(file), StandardCharsets.ISO_8859_1).contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    void testDamagedSealedSegmentIsQuarantinedNotCut() throws IOException {
+        SegmentLogBackend backend = open();
+        for (int i = 0; i < 40; i++) {
+            backend.store(entry("key" + i, DataCategory.TRANSLATIONS, utf8(filler("v" + i, 500))));
+        }
+        close(backend);
+        Path first = segmentFiles().get(0);
+        long firstSize = Files.size(first);
+        assertTrue(segmentFiles().size() > 2);
+        flipByte(first, 700); // Inside the second record
+        Files.delete(tempDir.resolve("segments.idx"));
+
+        backend = open();
+
+        assertEquals(filler("v0", 500), value(backend, "key0"));
+        assertFalse(backend.exists("key1")); // Unreadable past the damage
+        for (int i = 20; i < 40; i++) {
+            assertEquals(filler("v" + i, 500), value(backend, "key" + i));
+        }
+        Path quarantined = first.resolveSibling(first.getFileName() + ".damaged");
+        assertEquals(firstSize, Files.size(quarantined)); // Nothing cut off
+        assertFalse(segmentFiles().contains(first));
+
+        // The records copied out survive both kinds of reopen
+        close(backend);
+        backend = open();
+        assertEquals(filler("v0", 500), value(backend, "key0"));
+        close(backend);
+        Files.delete(tempDir.resolve("segments.idx"));
+        backend = open();
+        assertEquals(filler("v0", 500), value(backend, "key0"));
+        assertEquals(filler("v39", 500), value(backend, "key39"));
+    }
+
+    @Test
+    void testTombstoneIsDroppedOnceNoOlderSegmentHoldsItsKey() throws IOException {
+        SegmentLogBackend backend = open();
+        // Segment 1 stays live, so it is never compacted and is older than every tombstone
+        for (int i = 0; segmentFiles().size() < 2; i++) {
+            backend.store(entry("stable" + i, DataCategory.TRANSLATIONS, utf8(filler("s" + i, 500))));
+        }
+        backend.store(entry("doomed", DataCategory.TRANSLATIONS, utf8("short-lived")));
+        for (int i = 0; segmentFiles().size() < 3; i++) {
+            backend.store(entry("churn" + i, DataCategory.TRANSLATIONS, utf8(filler("a" + i, 500))));
+        }
+        backend.delete("doomed");
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 14; i++) {
+                backend.store(entry("churn" + i, DataCategory.TRANSLATIONS, utf8(filler("round" + round + "-" + i, 500))));
+            }
+        }
+
+        backend.compact();
+
+        assertTrue(Files.exists(tempDir.resolve("segment-00000001.log")));
+        assertFalse(anySegmentMentions("doomed"), "the tombstone was copied forward");
+        close(backend);
+        Files.delete(tempDir.resolve("segments.idx"));
+        backend = open();
+        assertFalse(backend.exists("doomed"));
+        assertEquals(filler("round2-13", 500), value(backend, "churn13"));
+    }
+
+    @Test
+    void testTombstoneIsKeptWhileAnOlderSegmentHoldsItsKey() throws IOException {
+        SegmentLogBackend backend = open();
+        backend.store(entry("doomed", DataCategory.TRANSLATIONS, utf8("still in segment 1")));
+        for (int i = 0; segmentFiles().size() < 2; i++) {
+            backend.store(entry("stable" + i, DataCategory.TRANSLATIONS, utf8(filler("s" + i, 500))));
+        }
+        backend.delete("doomed");
+        for (int i = 0; segmentFiles().size() < 3; i++) {
+            backend.store(entry("churn" + i, DataCategory.TRANSLATIONS, utf8(filler("a" + i, 500))));
+        }
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < 14; i++) {
+                backend.store(entry("churn" + i, DataCategory.TRANSLATIONS, utf8(filler("round" + round + "-" + i, 500))));
+            }
+        }
+
+        backend.compact();
+        close(backend);
+        Files.delete(tempDir.resolve("segments.idx"));
+        backend = open();
+
+        assertTrue(Files.exists(tempDir.resolve("segment-00000001.log")));
+        assertFalse(backend.exists("doomed"));
+    }
+}
@@ -0,0 +1,43 @@
+package com.polytype.migrator.core.storage;
+
+import com.polytype.migrator.core.storage.PolyTypeStorage.DataCategory;
+import com.polytype.migrator.core.storage.PolyTypeStorage.StorageEntry;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/** Fixtures shared by the storage tests. */
+final class StorageTestSupport {
+
+    private StorageTestSupport() {
+    }
+
+    /** A plain version 1 entry holding "data of " and its key; metadata comes as key, value pairs. */
+    static StorageEntry entry(String key, DataCategory category, String... metadata) {
+        return entry(key, category, utf8("data of " + key), metadata);
+    }
+
+    /** A plain version 1 entry, neither compressed nor encrypted, whose id is its key. */
+    static StorageEntry entry(String key, DataCategory category, byte[] data, String... metadata) {
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < metadata.length; i += 2) {
+            values.put(metadata[i], metadata[i + 1]);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return new StorageEntry(key, key, category, data, values, now, now, 1, false, false);
+    }
+
+    static byte[] utf8(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** The same bytes for the same seed, so failures reproduce. */
+    static byte[] random(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+}
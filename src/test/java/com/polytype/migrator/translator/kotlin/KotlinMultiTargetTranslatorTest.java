@@ -0,0 +1,162 @@
+package com.polytype.migrator.translator.kotlin;
+
+import com.polytype.migrator.core.SourceLanguage;
+import com.polytype.migrator.core.TargetLanguage;
+import com.polytype.migrator.core.TranslationOptions;
+import com.polytype.migrator.core.ast.ClassDeclarationNode;
+import com.polytype.migrator.core.ast.FunctionDeclarationNode;
+import com.polytype.migrator.core.ast.ProgramNode;
+import com.polytype.migrator.core.ast.VariableDeclarationNode;
+import com.polytype.migrator.translator.EnhancedMultiLanguageTranslator;
+import com.polytype.migrator.translator.go.ModernGoTargetVisitor;
+import com.polytype.migrator.translator.python.ModernPythonTargetVisitor;
+import com.polytype.migrator.translator.rust.EnhancedRustTargetVisitor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KotlinMultiTargetTranslatorTest {
+
+    private static ProgramNode program(String className) {
+        ProgramNode program = new ProgramNode(1, 1);
+        ClassDeclarationNode declaration = new ClassDeclarationNode(className, false, 1, 1);
+        declaration.addChild(new VariableDeclarationNode("name", "String", false, "\"test\"", 2, 5));
+        declaration.addChild(new FunctionDeclarationNode("getName", "String", Arrays.asList(), true, false, 4, 5));
+        program.addChild(declaration);
+        return program;
+    }
+
+    private static void assertMatchesSingleTargetTranslations(Map<TargetLanguage, String> results,
+                                                              Set<TargetLanguage> targets,
+                                                              TargetTranslation single) throws Exception {
+        assertEquals(targets, results.keySet());
+        for (TargetLanguage target : targets) {
+            assertEquals(single.translate(target), results.get(target), target.name());
+        }
+    }
+
+    @FunctionalInterface
+    private interface TargetTranslation {
+        String translate(TargetLanguage target) throws Exception;
+    }
+
+    @Test
+    void testTranslateToAllMatchesSingleTargetTranslations() throws Exception {
+        KotlinMultiTargetTranslator translator = new KotlinMultiTargetTranslator();
+        ProgramNode program = program("Person");
+        Set<TargetLanguage> targets = EnumSet.of(TargetLanguage.JAVA, TargetLanguage.PYTHON, TargetLanguage.TYPESCRIPT,
+                                                 TargetLanguage.GO, TargetLanguage.CSHARP, TargetLanguage.CPP);
+
+        Map<TargetLanguage, String> results = translator.translateToAll(program, targets, translator.getDefaultOptions());
+
+        assertMatchesSingleTargetTranslations(results, targets,
+            target -> new KotlinMultiTargetTranslator().translateTo(program, target));
+    }
+
+    @Test
+    void testTranslateToAllOfNoTargets() throws Exception {
+        KotlinMultiTargetTranslator translator = new KotlinMultiTargetTranslator();
+
+        assertTrue(translator.translateToAll(program("Person"), EnumSet.noneOf(TargetLanguage.class),
+                                             translator.getDefaultOptions()).isEmpty());
+    }
+
+    @Test
+    void testReusedVisitorsCarryNothingOver() throws Exception {
+        KotlinMultiTargetTranslator translator = new KotlinMultiTargetTranslator();
+        ProgramNode first = program("Person");
+        ProgramNode second = program("Invoice");
+
+        for (TargetLanguage target : translator.getSupportedTargets()) {
+            String expected = new KotlinMultiTargetTranslator().translateTo(second, target);
+            translator.translateTo(first, target); // Leaves a visitor in the pool
+            assertEquals(expected, translator.translateTo(second, target), target.name());
+            assertEquals(expected, translator.translateTo(second, target), target.name());
+        }
+    }
+
+    @Test
+    void testConcurrentTranslationsShareNoVisitor() throws Exception {
+        KotlinMultiTargetTranslator translator = new KotlinMultiTargetTranslator();
+        List<ProgramNode> programs = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            programs.add(program("Class" + i));
+            expected.add(new KotlinMultiTargetTranslator().translateTo(programs.get(i), TargetLanguage.PYTHON));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        int index = (thread + i) % programs.size();
+                        assertEquals(expected.get(index), translator.translateTo(programs.get(index), TargetLanguage.PYTHON));
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Targets whose options the enhanced translator adjusts differently: ownership, channels, async. */
+    private static EnhancedMultiLanguageTranslator enhancedTranslator() {
+        return new EnhancedMultiLanguageTranslator(SourceLanguage.KOTLIN) {
+            @Override
+            protected void initializeVisitors() {
+                registerVisitor(TargetLanguage.RUST, EnhancedRustTargetVisitor::new);
+                registerVisitor(TargetLanguage.GO, ModernGoTargetVisitor::new);
+                registerVisitor(TargetLanguage.PYTHON, ModernPythonTargetVisitor::new);
+            }
+        };
+    }
+
+    @Test
+    void testEnhancedTranslateToAllKeepsEachTargetsOptionsApart() throws Exception {
+        ProgramNode program = program("Person");
+        Set<TargetLanguage> targets = EnumSet.of(TargetLanguage.RUST, TargetLanguage.GO, TargetLanguage.PYTHON);
+
+        for (int round = 0; round < 20; round++) {
+            EnhancedMultiLanguageTranslator translator = enhancedTranslator();
+            TranslationOptions options = translator.getDefaultOptions();
+
+            Map<TargetLanguage, String> results = translator.translateToAll(program, targets, options);
+
+            // Each target adjusted its own copy
+            assertFalse(options.getBooleanOption("use_borrowing", false));
+            assertFalse(options.getBooleanOption("use_channels", false));
+            assertMatchesSingleTargetTranslations(results, targets,
+                target -> enhancedTranslator().translateTo(program, target, enhancedTranslator().getDefaultOptions()));
+        }
+    }
+
+    @Test
+    void testEnhancedTranslatorReusesPooledVisitors() throws Exception {
+        EnhancedMultiLanguageTranslator translator = enhancedTranslator();
+        ProgramNode first = program("Person");
+        ProgramNode second = program("Invoice");
+
+        for (TargetLanguage target : EnumSet.of(TargetLanguage.RUST, TargetLanguage.GO, TargetLanguage.PYTHON)) {
+            String expected = enhancedTranslator().translateTo(second, target, translator.getDefaultOptions());
+            translator.translateTo(first, target, translator.getDefaultOptions());
+            assertEquals(expected, translator.translateTo(second, target, translator.getDefaultOptions()), target.name());
+        }
+    }
+}